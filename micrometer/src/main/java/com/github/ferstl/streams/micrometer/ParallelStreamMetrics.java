@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams.micrometer;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import com.github.ferstl.streams.StreamMetrics;
+import com.github.ferstl.streams.StreamMetricsListener;
+import com.github.ferstl.streams.TerminalOperationMetrics;
+import com.github.ferstl.streams.WorkerPoolMonitoring;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Binds the metrics of the terminal operations and worker pools of the parallel streams to a Micrometer
+ * {@link MeterRegistry}:
+ * <ul>
+ * <li>{@code parallel.stream.operation}: Timer of the wall time of terminal operations.</li>
+ * <li>{@code parallel.stream.operation.queue.wait}: Timer of the time parallel terminal operations waited for a
+ * worker thread.</li>
+ * <li>{@code parallel.stream.operation.steals}: Counter of the tasks stolen between the worker threads.</li>
+ * <li>{@code parallel.stream.operation.allocated}: Counter of the allocated bytes if the
+ * {@link StreamMetrics#setAllocationTracking(boolean) allocation tracking} is enabled.</li>
+ * <li>{@code parallel.stream.pool.*}: Gauges of the parallelism, the size, the active and running threads and the
+ * queued tasks and submissions of each worker pool and a counter of its steals.</li>
+ * </ul>
+ * The meters of the terminal operations are tagged with the name of the worker pool ({@code pool}), the simple name of
+ * the stream type ({@code stream.type}) and the name of the terminal operation ({@code operation}). The meters of the
+ * worker pools are tagged with the name of the pool. The name is the same as used for the MXBeans of the pools, see
+ * {@link WorkerPoolMonitoring#poolName(ForkJoinPool)}.
+ * <p>
+ * Binding to a registry installs this binder as {@link StreamMetricsListener}. A previously installed listener is
+ * still notified about all terminal operations and reinstalled when this binder is {@link #close() closed}. Worker
+ * pools are bound to the registry with their first terminal operation or explicitly with
+ * {@link #bindTo(ForkJoinPool)}. The pools are only weakly referenced by the meters, so their gauges report
+ * {@code NaN} after the pools have been garbage collected.
+ * </p>
+ */
+public class ParallelStreamMetrics implements MeterBinder, StreamMetricsListener, AutoCloseable {
+
+  static final String POOL_TAG = "pool";
+  static final String STREAM_TYPE_TAG = "stream.type";
+  static final String OPERATION_TAG = "operation";
+
+  private final Iterable<Tag> tags;
+  private final Map<ForkJoinPool, Boolean> boundPools = Collections.synchronizedMap(new WeakHashMap<>());
+  private volatile MeterRegistry registry;
+  private volatile StreamMetricsListener previousListener;
+
+  /**
+   * Creates a binder without additional tags.
+   */
+  public ParallelStreamMetrics() {
+    this(Tags.empty());
+  }
+
+  /**
+   * Creates a binder which adds the given tags to all meters.
+   *
+   * @param tags Additional tags.
+   */
+  public ParallelStreamMetrics(Iterable<Tag> tags) {
+    this.tags = requireNonNull(tags, "Tags must not be null");
+  }
+
+  /**
+   * Binds the metrics to the given registry and installs this binder as {@link StreamMetricsListener}. A binder can be
+   * bound to a single registry only. Use a {@code CompositeMeterRegistry} to report the metrics to multiple
+   * registries.
+   *
+   * @param registry The registry.
+   * @throws IllegalStateException if this binder is already bound to a registry.
+   */
+  @Override
+  public synchronized void bindTo(MeterRegistry registry) {
+    requireNonNull(registry, "Registry must not be null");
+    if (this.registry != null) {
+      throw new IllegalStateException("Already bound to a registry");
+    }
+
+    this.previousListener = StreamMetrics.getListener();
+    this.registry = registry;
+    StreamMetrics.setListener(this);
+  }
+
+  /**
+   * Binds the gauges of the given worker pool to the registry before the first terminal operation is executed in the
+   * pool.
+   *
+   * @param workerPool The worker pool.
+   * @throws IllegalStateException if this binder is not bound to a registry.
+   */
+  public void bindTo(ForkJoinPool workerPool) {
+    requireNonNull(workerPool, "Worker pool must not be null");
+    MeterRegistry registry = this.registry;
+    if (registry == null) {
+      throw new IllegalStateException("Not bound to a registry");
+    }
+
+    bindPool(registry, workerPool, WorkerPoolMonitoring.poolName(workerPool));
+  }
+
+  @Override
+  public void terminalOperationCompleted(TerminalOperationMetrics metrics) {
+    MeterRegistry registry = this.registry;
+    if (registry != null) {
+      record(registry, metrics);
+    }
+
+    StreamMetricsListener previousListener = this.previousListener;
+    if (previousListener != null) {
+      previousListener.terminalOperationCompleted(metrics);
+    }
+  }
+
+  /**
+   * Stops recording the terminal operations and reinstalls the previous {@link StreamMetricsListener} unless another
+   * listener has been installed in the meantime. The meters remain in the registry.
+   */
+  @Override
+  public synchronized void close() {
+    if (StreamMetrics.getListener() == this) {
+      StreamMetrics.setListener(this.previousListener);
+    }
+    this.registry = null;
+    this.previousListener = null;
+  }
+
+  private void record(MeterRegistry registry, TerminalOperationMetrics metrics) {
+    String poolName = WorkerPoolMonitoring.poolName(metrics.getWorkerPool());
+    bindPool(registry, metrics.getWorkerPool(), poolName);
+
+    Tags operationTags = Tags.concat(this.tags,
+        POOL_TAG, poolName,
+        STREAM_TYPE_TAG, metrics.getStreamType().getSimpleName(),
+        OPERATION_TAG, metrics.getOperation());
+    Throwable failure = metrics.getFailure();
+
+    Timer.builder("parallel.stream.operation")
+        .description("Wall time of terminal operations, including the queue wait time")
+        .tags(operationTags)
+        .tag("parallel", Boolean.toString(metrics.isParallel()))
+        .tag("exception", failure != null ? failure.getClass().getSimpleName() : "none")
+        .register(registry)
+        .record(metrics.getWallTime(), TimeUnit.NANOSECONDS);
+
+    if (metrics.isParallel()) {
+      Timer.builder("parallel.stream.operation.queue.wait")
+          .description("Time between the submission of terminal operations and their start in a worker thread")
+          .tags(operationTags)
+          .register(registry)
+          .record(metrics.getQueueWaitTime(), TimeUnit.NANOSECONDS);
+    }
+
+    Counter.builder("parallel.stream.operation.steals")
+        .description("Tasks stolen between the worker threads during terminal operations")
+        .tags(operationTags)
+        .register(registry)
+        .increment(metrics.getStealCount());
+
+    if (metrics.getAllocatedBytes() >= 0) {
+      Counter.builder("parallel.stream.operation.allocated")
+          .description("Bytes allocated by terminal operations")
+          .baseUnit("bytes")
+          .tags(operationTags)
+          .register(registry)
+          .increment(metrics.getAllocatedBytes());
+    }
+  }
+
+  private void bindPool(MeterRegistry registry, ForkJoinPool workerPool, String poolName) {
+    if (this.boundPools.putIfAbsent(workerPool, Boolean.TRUE) != null) {
+      return;
+    }
+
+    Tags poolTags = Tags.concat(this.tags, POOL_TAG, poolName);
+    Gauge.builder("parallel.stream.pool.parallelism", workerPool, ForkJoinPool::getParallelism)
+        .description("Target parallelism of the worker pool")
+        .tags(poolTags)
+        .register(registry);
+    Gauge.builder("parallel.stream.pool.size", workerPool, ForkJoinPool::getPoolSize)
+        .description("Number of worker threads that have started but not yet terminated")
+        .tags(poolTags)
+        .register(registry);
+    Gauge.builder("parallel.stream.pool.active", workerPool, ForkJoinPool::getActiveThreadCount)
+        .description("Estimated number of threads that are stealing or executing tasks")
+        .tags(poolTags)
+        .register(registry);
+    Gauge.builder("parallel.stream.pool.running", workerPool, ForkJoinPool::getRunningThreadCount)
+        .description("Estimated number of worker threads that are not blocked")
+        .tags(poolTags)
+        .register(registry);
+    Gauge.builder("parallel.stream.pool.queued.tasks", workerPool, ForkJoinPool::getQueuedTaskCount)
+        .description("Estimated number of tasks in the queues of the worker threads")
+        .tags(poolTags)
+        .register(registry);
+    Gauge.builder("parallel.stream.pool.queued.submissions", workerPool, ForkJoinPool::getQueuedSubmissionCount)
+        .description("Estimated number of tasks submitted to the pool that have not yet begun executing")
+        .tags(poolTags)
+        .register(registry);
+    FunctionCounter.builder("parallel.stream.pool.steals", workerPool, ForkJoinPool::getStealCount)
+        .description("Tasks stolen between the worker threads")
+        .tags(poolTags)
+        .register(registry);
+  }
+}
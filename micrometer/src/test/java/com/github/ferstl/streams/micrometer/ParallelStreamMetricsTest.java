@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams.micrometer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import com.github.ferstl.streams.ParallelIntStreamSupport;
+import com.github.ferstl.streams.StreamMetrics;
+import com.github.ferstl.streams.StreamMetricsListener;
+import com.github.ferstl.streams.TerminalOperationMetrics;
+import com.github.ferstl.streams.WorkerPoolMonitoring;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ParallelStreamMetricsTest {
+
+  private ForkJoinPool workerPool;
+  private String poolName;
+  private MeterRegistry registry;
+  private ParallelStreamMetrics metrics;
+
+  @BeforeEach
+  void before() {
+    this.workerPool = new ForkJoinPool(2);
+    this.poolName = WorkerPoolMonitoring.poolName(this.workerPool);
+    this.registry = new SimpleMeterRegistry();
+    this.metrics = new ParallelStreamMetrics(Tags.of("application", "test"));
+  }
+
+  @AfterEach
+  void after() throws InterruptedException {
+    this.metrics.close();
+    StreamMetrics.setListener(null);
+    StreamMetrics.setAllocationTracking(false);
+    this.workerPool.shutdown();
+    this.workerPool.awaitTermination(1, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void terminalOperations() {
+    this.metrics.bindTo(this.registry);
+
+    assertEquals(4950, ParallelIntStreamSupport.range(0, 100, this.workerPool).sum());
+    assertEquals(4950, ParallelIntStreamSupport.range(0, 100, this.workerPool).sum());
+    assertEquals(4950, ParallelIntStreamSupport.range(0, 100, this.workerPool).sequential().sum());
+
+    Timer parallelSum = this.registry.get("parallel.stream.operation")
+        .tags("application", "test", "pool", this.poolName, "stream.type", "ParallelIntStreamSupport")
+        .tags("operation", "sum", "parallel", "true", "exception", "none")
+        .timer();
+    assertEquals(2, parallelSum.count());
+    assertEquals(1, this.registry.get("parallel.stream.operation")
+        .tags("operation", "sum", "parallel", "false")
+        .timer()
+        .count());
+    // Only parallel terminal operations wait for a worker thread
+    assertEquals(2, this.registry.get("parallel.stream.operation.queue.wait").tags("operation", "sum").timer().count());
+    this.registry.get("parallel.stream.operation.steals").tags("pool", this.poolName, "operation", "sum").counter();
+    assertNull(this.registry.find("parallel.stream.operation.allocated").counter());
+  }
+
+  @Test
+  void failure() {
+    this.metrics.bindTo(this.registry);
+
+    assertThrows(IllegalStateException.class, () -> ParallelIntStreamSupport.range(0, 100, this.workerPool).forEach(i -> {
+      throw new IllegalStateException("boom");
+    }));
+
+    assertEquals(1, this.registry.get("parallel.stream.operation")
+        .tags("operation", "forEach", "exception", "IllegalStateException")
+        .timer()
+        .count());
+  }
+
+  @Test
+  void allocatedBytes() {
+    StreamMetrics.setAllocationTracking(true);
+    this.metrics.bindTo(this.registry);
+
+    ParallelIntStreamSupport.range(0, 100, this.workerPool).boxed().forEach(i -> {
+    });
+
+    assertTrue(this.registry.get("parallel.stream.operation.allocated").tags("operation", "forEach").counter().count() > 0);
+  }
+
+  @Test
+  void workerPool() {
+    this.metrics.bindTo(this.registry);
+    this.metrics.bindTo(this.workerPool);
+
+    assertEquals(2, this.registry.get("parallel.stream.pool.parallelism").tags("pool", this.poolName).gauge().value());
+    assertEquals(0, this.registry.get("parallel.stream.pool.queued.submissions").tags("pool", this.poolName).gauge().value());
+    this.registry.get("parallel.stream.pool.size").tags("application", "test", "pool", this.poolName).gauge();
+    this.registry.get("parallel.stream.pool.active").tags("pool", this.poolName).gauge();
+    this.registry.get("parallel.stream.pool.running").tags("pool", this.poolName).gauge();
+    this.registry.get("parallel.stream.pool.queued.tasks").tags("pool", this.poolName).gauge();
+    this.registry.get("parallel.stream.pool.steals").tags("pool", this.poolName).functionCounter();
+
+    // The pool is bound only once
+    ParallelIntStreamSupport.range(0, 100, this.workerPool).sum();
+    assertEquals(1, this.registry.find("parallel.stream.pool.parallelism").gauges().size());
+  }
+
+  @Test
+  void previousListener() {
+    List<TerminalOperationMetrics> reported = new ArrayList<>();
+    StreamMetricsListener listener = reported::add;
+    StreamMetrics.setListener(listener);
+
+    this.metrics.bindTo(this.registry);
+    ParallelIntStreamSupport.range(0, 100, this.workerPool).sum();
+
+    assertSame(this.metrics, StreamMetrics.getListener());
+    assertEquals(1, reported.size());
+    assertEquals(1, this.registry.get("parallel.stream.operation").timer().count());
+
+    this.metrics.close();
+    ParallelIntStreamSupport.range(0, 100, this.workerPool).sum();
+
+    assertSame(listener, StreamMetrics.getListener());
+    assertEquals(2, reported.size());
+    assertEquals(1, this.registry.get("parallel.stream.operation").timer().count());
+  }
+
+  @Test
+  void bindTwice() {
+    this.metrics.bindTo(this.registry);
+
+    assertThrows(IllegalStateException.class, () -> this.metrics.bindTo(new SimpleMeterRegistry()));
+  }
+
+  @Test
+  void workerPoolNotBound() {
+    assertThrows(IllegalStateException.class, () -> this.metrics.bindTo(this.workerPool));
+  }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.util.NoSuchElementException;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Open-addressing hash table of primitive keys to {@code long} values, shared by {@link IntLongMap} and
+ * {@link LongLongMap}. The keys are stored widened to {@code long} in an array parallel to the values and are probed
+ * linearly, so the table does not allocate any objects per entry. The subclasses only add the lookup methods for their
+ * key type.
+ */
+abstract class AbstractLongValueMap {
+
+  private static final int INITIAL_CAPACITY = 16;
+  private static final int MAX_CAPACITY = 1 << 30;
+
+  /** The key {@code 0} marks free slots. Its entry is stored separately. */
+  private long[] keys;
+  private long[] values;
+  private int mask;
+  private int size;
+  private boolean containsZeroKey;
+  private long zeroKeyValue;
+
+  AbstractLongValueMap() {
+    this.keys = new long[INITIAL_CAPACITY];
+    this.values = new long[INITIAL_CAPACITY];
+    this.mask = INITIAL_CAPACITY - 1;
+  }
+
+  /**
+   * Returns the number of entries in this map.
+   *
+   * @return The number of entries in this map.
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Returns {@code true} if this map does not contain any entries.
+   *
+   * @return {@code true} if this map does not contain any entries.
+   */
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  /**
+   * Returns the values of this map in the same order as the keys.
+   *
+   * @return A new array containing the values of this map.
+   */
+  public long[] values() {
+    long[] result = new long[this.size];
+    int index = 0;
+    if (this.containsZeroKey) {
+      result[index++] = this.zeroKeyValue;
+    }
+    for (int i = 0; i < this.keys.length; i++) {
+      if (this.keys[i] != 0) {
+        result[index++] = this.values[i];
+      }
+    }
+
+    return result;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (obj == null || obj.getClass() != getClass()) {
+      return false;
+    }
+
+    AbstractLongValueMap other = (AbstractLongValueMap) obj;
+    if (this.size != other.size) {
+      return false;
+    }
+    long[] keys = longKeys();
+    long[] values = values();
+    for (int i = 0; i < keys.length; i++) {
+      if (!other.containsLongKey(keys[i]) || other.getValue(keys[i]) != values[i]) {
+        return false;
+      }
+    }
+
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    int hashCode = 0;
+    long[] keys = longKeys();
+    long[] values = values();
+    for (int i = 0; i < keys.length; i++) {
+      hashCode += Long.hashCode(keys[i]) ^ Long.hashCode(values[i]);
+    }
+
+    return hashCode;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("{");
+    long[] keys = longKeys();
+    long[] values = values();
+    for (int i = 0; i < keys.length; i++) {
+      if (i > 0) {
+        sb.append(", ");
+      }
+      sb.append(keys[i]).append('=').append(values[i]);
+    }
+
+    return sb.append('}').toString();
+  }
+
+  final boolean containsLongKey(long key) {
+    return key == 0 ? this.containsZeroKey : this.keys[slot(key)] != 0;
+  }
+
+  final long getValue(long key) {
+    if (!containsLongKey(key)) {
+      throw new NoSuchElementException("No value for key " + key);
+    }
+
+    return key == 0 ? this.zeroKeyValue : this.values[slot(key)];
+  }
+
+  /**
+   * Returns the keys of this map in the same order as {@link #values()}.
+   */
+  final long[] longKeys() {
+    long[] result = new long[this.size];
+    int index = 0;
+    if (this.containsZeroKey) {
+      result[index++] = 0;
+    }
+    for (long key : this.keys) {
+      if (key != 0) {
+        result[index++] = key;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Adds the given value to the entry of the given key. If the key is not present yet, the value is stored as is.
+   * Otherwise the new value is {@code op.applyAsLong(oldValue, value)}.
+   */
+  final void accumulate(long key, long value, LongBinaryOperator op) {
+    if (key == 0) {
+      if (this.containsZeroKey) {
+        this.zeroKeyValue = op.applyAsLong(this.zeroKeyValue, value);
+      } else {
+        this.containsZeroKey = true;
+        this.zeroKeyValue = value;
+        this.size++;
+      }
+      return;
+    }
+
+    int slot = slot(key);
+    if (this.keys[slot] != 0) {
+      this.values[slot] = op.applyAsLong(this.values[slot], value);
+    } else {
+      this.keys[slot] = key;
+      this.values[slot] = value;
+      this.size++;
+      // Keep the load factor of the table at or below 0.5
+      if ((this.size << 1) > this.keys.length) {
+        grow();
+      }
+    }
+  }
+
+  /**
+   * Merges the entries of the given map into this map. The values of keys that are present in both maps are combined
+   * with {@code op.applyAsLong(thisValue, otherValue)}.
+   */
+  final void mergeEntries(AbstractLongValueMap other, LongBinaryOperator op) {
+    if (other.containsZeroKey) {
+      accumulate(0, other.zeroKeyValue, op);
+    }
+    for (int i = 0; i < other.keys.length; i++) {
+      if (other.keys[i] != 0) {
+        accumulate(other.keys[i], other.values[i], op);
+      }
+    }
+  }
+
+  /**
+   * Returns the slot containing the given non-zero key or the free slot where the key has to be inserted.
+   */
+  private int slot(long key) {
+    int slot = mix(key) & this.mask;
+    while (this.keys[slot] != 0 && this.keys[slot] != key) {
+      slot = (slot + 1) & this.mask;
+    }
+
+    return slot;
+  }
+
+  private void grow() {
+    if (this.keys.length == MAX_CAPACITY) {
+      throw new IllegalStateException("Map exceeds maximum capacity");
+    }
+
+    long[] oldKeys = this.keys;
+    long[] oldValues = this.values;
+    this.keys = new long[oldKeys.length << 1];
+    this.values = new long[oldValues.length << 1];
+    this.mask = this.keys.length - 1;
+
+    for (int i = 0; i < oldKeys.length; i++) {
+      long key = oldKeys[i];
+      if (key != 0) {
+        int slot = slot(key);
+        this.keys[slot] = key;
+        this.values[slot] = oldValues[i];
+      }
+    }
+  }
+
+  /**
+   * Spreads the key over all bits, so consecutive keys do not end up in one cluster of slots.
+   */
+  private static int mix(long key) {
+    long hash = key * 0x9e3779b97f4a7c15L;
+    return (int) (hash ^ (hash >>> 32));
+  }
+}
@@ -26,32 +26,69 @@ import java.util.Spliterator;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
 import java.util.stream.BaseStream;
 import static java.util.Objects.requireNonNull;
+import static java.util.concurrent.Executors.callable;
 import static java.util.concurrent.ForkJoinTask.adapt;
 
 /**
  * Abstract base class for all parallel streams in this package. It implements all Methods of {@link BaseStream} and
  * holds the {@link ForkJoinPool} and the stream to which subsequent stream operations are delegated. The two methods
- * {@link #execute(Callable)} and {@link #execute(Runnable)} are used to execute terminal operations. In case this
- * stream's {@link #isParallel()} method returns {@code true}, a terminal operation will be executed as
+ * {@link #execute(String, Callable)} and {@link #execute(String, Runnable)} are used to execute terminal operations.
+ * In case this stream's {@link #isParallel()} method returns {@code true}, a terminal operation will be executed as
  * {@link ForkJoinTask} in the {@link #workerPool}. Otherwise the terminal operation will be executed in the calling
- * thread.
+ * thread. If a {@link StreamMetricsListener} is installed, the {@link JfrEvents}, the {@link WorkerPoolMonitoring},
+ * the {@link SlowOperationDetector} or the {@link AdaptiveSplitting} are enabled, a {@link ChromeTrace} is recorded
+ * or the stream is {@link #explain(Consumer) explained} or {@link #profile(Consumer) profiled}, the terminal
+ * operations are measured and reported by the {@link TerminalOperationMonitor}.
  *
  * @param <T> The type of the stream elements.
  * @param <S> Type of stream.
  */
 abstract class AbstractParallelStreamSupport<T, S extends BaseStream<T, S>> implements BaseStream<T, S> {
 
+  /**
+   * Maximum size of an array that can be allocated by a terminal operation (same limit as used by the JDK).
+   */
+  static final long MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
   S delegate;
   final ForkJoinPool workerPool;
+  /**
+   * {@code true} if this stream was created from a source with a known size and only stateless operations that
+   * preserve the size of the stream have been applied so far. This allows to answer {@code count()} directly from the
+   * source without submitting a task to the {@link #workerPool}, unless the stream {@link #isMonitored() is monitored}.
+   */
+  boolean sized;
+  /**
+   * Receives the {@link ExecutionReport} of the next terminal operation if not {@code null}.
+   */
+  Consumer<? super ExecutionReport> reportConsumer;
+  /**
+   * Wraps the functions of intermediate operations if this stream is {@link #profile(Consumer) profiled}. The profiler
+   * is passed on to the streams created by intermediate operations.
+   */
+  StageProfiler profiler = StageProfiler.DISABLED;
+  /**
+   * Where this stream was created if the {@link SlowOperationDetector} or the {@link AdaptiveSplitting} was enabled at
+   * that time.
+   */
+  final StackTraceElement callSite;
 
   AbstractParallelStreamSupport(S delegate, ForkJoinPool workerPool) {
+    this(delegate, workerPool, false);
+  }
+
+  AbstractParallelStreamSupport(S delegate, ForkJoinPool workerPool, boolean sized) {
     requireNonNull(delegate, "Stream must not be null");
     requireNonNull(workerPool, "Worker pool must not be null");
 
     this.delegate = delegate;
     this.workerPool = workerPool;
+    this.sized = sized;
+    this.callSite = SlowOperationDetector.active != null || AdaptiveSplitting.active != null
+        ? TerminalOperationMonitor.callSite() : null;
   }
 
   @Override
@@ -102,8 +139,123 @@ abstract class AbstractParallelStreamSupport<T, S extends BaseStream<T, S>> impl
     this.delegate.close();
   }
 
-  protected void execute(Runnable terminalOperation) {
-    if (isParallel()) {
+  /**
+   * Records the execution of the terminal operation of this stream and passes an {@link ExecutionReport} to the given
+   * consumer after the terminal operation has completed or failed. The report contains the leaves of the split tree
+   * with their depth, their number of elements, their processing time and the thread that processed them. This allows
+   * to find out whether a stream is split into too few or too many leaves, or whether some leaves take much longer
+   * than the others.
+   * <p>
+   * The report is created for the terminal operation of the stream returned by this method. Intermediate operations
+   * that change the type of the stream, e.g. {@code mapToObj()}, return a new stream without the report consumer. So
+   * this method should be called after the last intermediate operation. Since recording the leaves has a slight
+   * overhead, this method is intended for diagnostic purposes. The consumer is called in the thread which invoked the
+   * terminal operation.
+   * </p>
+   *
+   * @param reportConsumer Consumer of the report. Must not be {@code null}.
+   * @return This stream.
+   */
+  @SuppressWarnings("unchecked")
+  public S explain(Consumer<? super ExecutionReport> reportConsumer) {
+    this.reportConsumer = requireNonNull(reportConsumer, "Report consumer must not be null");
+    return (S) this;
+  }
+
+  /**
+   * Same as {@link #profile(Consumer, int)} with a sampling interval of {@code 16}.
+   *
+   * @param profileConsumer Consumer of the profile. Must not be {@code null}.
+   * @return This stream.
+   */
+  public S profile(Consumer<? super PipelineProfile> profileConsumer) {
+    return profile(profileConsumer, StageProfiler.DEFAULT_SAMPLING_INTERVAL);
+  }
+
+  /**
+   * Measures the time spent in the functions of the subsequent intermediate operations and passes a
+   * {@link PipelineProfile} to the given consumer after the terminal operation has completed or failed. The profile
+   * contains a stage for each intermediate operation that takes a function, e.g. {@code filter()}, {@code map()} or
+   * {@code flatMap()}, and shows which of them is the most expensive one. The time of a {@code flatMap()} stage
+   * includes the consumption of the returned streams, but not the downstream operations applied to their elements.
+   * <p>
+   * Only intermediate operations called after this method are profiled. In contrast to
+   * {@link #explain(Consumer) explain()}, the profiling is passed on to the streams created by intermediate
+   * operations that change the type of the stream, e.g. {@code map()} on a {@code Stream} or {@code mapToObj()}.
+   * Intermediate operations which are specific to this library, e.g. {@code windowed()}, return a stream without
+   * profiling. To keep the overhead low, the calls of a function are counted per thread and only every n-th call is
+   * timed. The consumer is called in the thread which invoked the terminal operation.
+   * </p>
+   *
+   * @param profileConsumer Consumer of the profile. Must not be {@code null}.
+   * @param samplingInterval Number of calls of a function per timed call. Must be positive.
+   * @return This stream.
+   */
+  @SuppressWarnings("unchecked")
+  public S profile(Consumer<? super PipelineProfile> profileConsumer, int samplingInterval) {
+    requireNonNull(profileConsumer, "Profile consumer must not be null");
+    this.profiler = new StageProfiler(profileConsumer, StageProfiler.checkSamplingInterval(samplingInterval));
+    return (S) this;
+  }
+
+  /**
+   * Passes the {@link #profiler} of this stream on to a stream created by an intermediate operation.
+   *
+   * @param stream The stream created by the intermediate operation.
+   * @return The given stream.
+   */
+  <R extends AbstractParallelStreamSupport<?, ?>> R derived(R stream) {
+    stream.profiler = this.profiler;
+    return stream;
+  }
+
+  /**
+   * Calculates the size of the leaves when a stream of the given size is split for parallel processing. In contrast to
+   * the JDK, which uses the parallelism of the common pool, the target size is based on the parallelism of the
+   * {@link #workerPool}.
+   *
+   * @param size Size of the stream.
+   * @return The leaf target size, which is at least {@code 1}.
+   */
+  long leafTargetSize(long size) {
+    return Math.max(size / (this.workerPool.getParallelism() << 2), 1);
+  }
+
+  /**
+   * Returns a stream with the same elements as the underlying stream whose leaves of the split tree are reported to
+   * the given listener. The underlying stream is consumed by this method.
+   *
+   * @param listener Listener for the leaves.
+   * @param splitFactor Factor by which the number of leaves is increased ({@code 1} to keep the default splitting).
+   * @return The traced stream.
+   */
+  abstract S traced(TracingSpliterator.LeafListener listener, int splitFactor);
+
+  /**
+   * Replaces the underlying stream with a {@link #traced(TracingSpliterator.LeafListener, int) traced} stream. Must be
+   * called in the thread executing the terminal operation, right before the terminal operation is started.
+   */
+  void traceLeaves(TracingSpliterator.LeafListener listener, int splitFactor) {
+    this.delegate = traced(listener, splitFactor);
+  }
+
+  static int checkArraySize(long size) {
+    if (size >= MAX_ARRAY_SIZE) {
+      throw new IllegalArgumentException("Stream size exceeds max array size");
+    }
+
+    return (int) size;
+  }
+
+  /**
+   * Executes the given terminal operation. The name of the operation, e.g. {@code "collect"}, is reported to the
+   * monitoring if it is enabled.
+   */
+  protected void execute(String operation, Runnable terminalOperation) {
+    StreamMetricsListener listener = StreamMetrics.listener;
+    if (isMonitored(listener)) {
+      TerminalOperationMonitor.execute(this, operation, callable(terminalOperation), listener);
+    } else if (isParallel()) {
       ForkJoinTask<?> task = adapt(terminalOperation);
       this.workerPool.invoke(task);
     } else {
@@ -111,7 +263,40 @@ abstract class AbstractParallelStreamSupport<T, S extends BaseStream<T, S>> impl
     }
   }
 
-  protected <R> R execute(Callable<R> terminalOperation) {
+  /**
+   * Executes the given terminal operation and returns its result. The name of the operation, e.g. {@code "collect"},
+   * is reported to the monitoring if it is enabled.
+   */
+  protected <R> R execute(String operation, Callable<R> terminalOperation) {
+    StreamMetricsListener listener = StreamMetrics.listener;
+    if (isMonitored(listener)) {
+      return TerminalOperationMonitor.execute(this, operation, terminalOperation, listener);
+    }
+
+    return invoke(terminalOperation);
+  }
+
+  /**
+   * Returns {@code true} if the terminal operations of this stream are measured by the
+   * {@link TerminalOperationMonitor}, so they must not be short-circuited without calling {@code execute()}.
+   */
+  boolean isMonitored() {
+    return isMonitored(StreamMetrics.listener);
+  }
+
+  private boolean isMonitored(StreamMetricsListener listener) {
+    return listener != StreamMetrics.NO_OP || this.reportConsumer != null || this.profiler.isEnabled()
+        || JfrEvents.isEnabled() || ChromeTrace.active != null || WorkerPoolMonitoring.enabled
+        || SlowOperationDetector.active != null || AdaptiveSplitting.active != null;
+  }
+
+  /**
+   * Executes the given terminal operation in the {@link #workerPool} or, for sequential streams, in the calling thread.
+   * In contrast to {@link #execute(String, Callable)}, the computation is not monitored and the leaves of this stream
+   * are not traced. So this method is also used for computations that are not the terminal operation of this stream,
+   * e.g. building the hash table of a join or the eagerly computed source of a derived stream.
+   */
+  <R> R invoke(Callable<R> terminalOperation) {
     if (isParallel()) {
       ForkJoinTask<R> task = adapt(terminalOperation);
       return this.workerPool.invoke(task);
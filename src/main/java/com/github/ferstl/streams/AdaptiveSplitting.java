@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Configuration of the adaptive splitting of parallel streams with an imbalanced workload. If a single leaf of the
+ * split tree contains a disproportionate share of expensive elements, the terminal operation has to wait for this leaf
+ * while the other threads are idle. Splitting the stream into more leaves distributes the expensive elements among
+ * more threads.
+ * <p>
+ * While the adaptive splitting is enabled, each stream captures the call site where it was created and the leaves of
+ * each parallel terminal operation are measured. If the {@link ExecutionReport#getImbalance() imbalance} of the
+ * leaves exceeds a threshold, the next terminal operation of a stream created at the same call site is split into
+ * twice as many leaves, up to {@value #MAX_SPLIT_FACTOR} times the number of leaves of the default splitting. Once
+ * the imbalance falls below the threshold, the number of leaves is halved again with each terminal operation until
+ * the default splitting is reached. The adaptive splitting is disabled by default.
+ * </p>
+ */
+public final class AdaptiveSplitting {
+
+  /**
+   * Default imbalance threshold.
+   */
+  public static final double DEFAULT_IMBALANCE_THRESHOLD = 4;
+  /**
+   * Maximum factor by which the number of leaves is increased.
+   */
+  public static final int MAX_SPLIT_FACTOR = 16;
+
+  static final int MAX_CALL_SITES = 1024;
+
+  /**
+   * The enabled configuration or {@code null} if the adaptive splitting is disabled.
+   */
+  static volatile AdaptiveSplitting active;
+
+  private final double imbalanceThreshold;
+  private final Map<StackTraceElement, Integer> splitFactors = new ConcurrentHashMap<>();
+
+  private AdaptiveSplitting(double imbalanceThreshold) {
+    this.imbalanceThreshold = imbalanceThreshold;
+  }
+
+  /**
+   * Enables the adaptive splitting with the {@link #DEFAULT_IMBALANCE_THRESHOLD default imbalance threshold}.
+   */
+  public static void enable() {
+    enable(DEFAULT_IMBALANCE_THRESHOLD);
+  }
+
+  /**
+   * Enables the adaptive splitting for streams created afterwards. The split factors learned so far are discarded.
+   *
+   * @param imbalanceThreshold Ratio of the max and the mean leaf duration above which the number of leaves is
+   * increased. Must be greater than {@code 1}.
+   */
+  public static void enable(double imbalanceThreshold) {
+    if (!(imbalanceThreshold > 1)) {
+      throw new IllegalArgumentException("Imbalance threshold must be greater than 1: " + imbalanceThreshold);
+    }
+
+    active = new AdaptiveSplitting(imbalanceThreshold);
+  }
+
+  /**
+   * Disables the adaptive splitting and discards the split factors learned so far.
+   */
+  public static void disable() {
+    active = null;
+  }
+
+  /**
+   * Returns {@code true} if the adaptive splitting is enabled.
+   *
+   * @return {@code true} if the adaptive splitting is enabled.
+   */
+  public static boolean isEnabled() {
+    return active != null;
+  }
+
+  /**
+   * Returns the factor by which the number of leaves of a stream created at the given call site is increased.
+   */
+  int splitFactor(StackTraceElement callSite) {
+    return this.splitFactors.getOrDefault(callSite, 1);
+  }
+
+  /**
+   * Increases the split factor of the given call site if the terminal operation was imbalanced or decreases it if the
+   * terminal operation was balanced.
+   */
+  void completed(StackTraceElement callSite, int splitFactor, ExecutionReport report) {
+    if (report.getFailure() != null || report.getLeaves().size() <= 1) {
+      return;
+    }
+
+    double imbalance = report.getImbalance();
+    if (imbalance > this.imbalanceThreshold) {
+      // Don't grow without bounds if streams are created at many different call sites
+      if (splitFactor < MAX_SPLIT_FACTOR
+          && (this.splitFactors.size() < MAX_CALL_SITES || this.splitFactors.containsKey(callSite))) {
+        this.splitFactors.put(callSite, splitFactor << 1);
+      }
+    } else if (imbalance < this.imbalanceThreshold && splitFactor > 1) {
+      // The default splitting keeps the SIZED characteristics of the stream
+      if (splitFactor == 2) {
+        this.splitFactors.remove(callSite);
+      } else {
+        this.splitFactors.put(callSite, splitFactor >> 1);
+      }
+    }
+  }
+}
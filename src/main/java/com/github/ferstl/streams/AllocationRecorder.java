@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures the bytes allocated by a terminal operation in the calling thread and in the worker threads. The calling
+ * thread is measured for the whole terminal operation, the worker executing the terminal operation while it is running
+ * and all other workers while they process a leaf of the split tree. Leaves processed by the calling thread or the
+ * worker executing the terminal operation are already included in their measurement.
+ */
+final class AllocationRecorder implements TracingSpliterator.LeafListener {
+
+  private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN = threadMXBean();
+
+  private final Thread caller = Thread.currentThread();
+  private final long callerStart = allocatedBytes();
+  private final LongAdder workerBytes = new LongAdder();
+  private volatile Thread taskThread;
+
+  /**
+   * Returns {@code true} if the JVM supports measuring the allocated bytes of threads and the measurement is enabled.
+   */
+  static boolean isSupported() {
+    return THREAD_MX_BEAN != null && THREAD_MX_BEAN.isThreadAllocatedMemoryEnabled();
+  }
+
+  /**
+   * Called in the thread executing the terminal operation when it starts.
+   *
+   * @return The allocated bytes of the current thread, which have to be passed to {@link #taskCompleted(long)}.
+   */
+  long taskStarted() {
+    this.taskThread = Thread.currentThread();
+    return allocatedBytes();
+  }
+
+  /**
+   * Called in the thread executing the terminal operation when it completes.
+   */
+  void taskCompleted(long start) {
+    if (Thread.currentThread() != this.caller) {
+      this.workerBytes.add(allocatedBytes() - start);
+    }
+  }
+
+  @Override
+  public Object leafStarted(int depth) {
+    Thread thread = Thread.currentThread();
+    return thread != this.caller && thread != this.taskThread ? (Object) allocatedBytes() : null;
+  }
+
+  @Override
+  public void leafCompleted(Object context, int depth, long startTime, long endTime, long elements) {
+    if (context != null) {
+      this.workerBytes.add(allocatedBytes() - (Long) context);
+    }
+  }
+
+  /**
+   * Returns the total number of allocated bytes. Must be called in the calling thread after the terminal operation has
+   * completed.
+   */
+  long totalBytes() {
+    return allocatedBytes() - this.callerStart + this.workerBytes.sum();
+  }
+
+  private static long allocatedBytes() {
+    return THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  private static com.sun.management.ThreadMXBean threadMXBean() {
+    java.lang.management.ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+      com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+      if (sunThreadMXBean.isThreadAllocatedMemorySupported()) {
+        return sunThreadMXBean;
+      }
+    }
+
+    return null;
+  }
+}
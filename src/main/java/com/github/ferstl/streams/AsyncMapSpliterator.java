@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.util.ArrayDeque;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Spliterator mapping the elements of a source spliterator with an asynchronous function. Each spliterator keeps up to
+ * {@code maxInFlight} mapped elements outstanding, so the latency of the asynchronous calls overlaps instead of adding
+ * up.
+ * <p>
+ * If the source is {@link Spliterator#ORDERED ORDERED}, the results are returned in encounter order, i.e. a slow result
+ * holds back the completed results following it. Otherwise the results are returned in their order of completion.
+ * Waiting for a result is done with {@link ForkJoinPool#managedBlock(ForkJoinPool.ManagedBlocker)}, which allows the
+ * worker pool to compensate a waiting worker with a spare thread.
+ * </p>
+ *
+ * @param <T> The type of the source elements.
+ * @param <R> The type of the mapped elements.
+ */
+final class AsyncMapSpliterator<T, R> implements Spliterator<R>, Consumer<T> {
+
+  private final Spliterator<T> source;
+  private final Function<? super T, ? extends CompletionStage<? extends R>> mapper;
+  private final int maxInFlight;
+  private final boolean ordered;
+  /** Outstanding results in encounter order. Only used for ordered sources. */
+  private final ArrayDeque<CompletableFuture<R>> inFlight;
+  /** Completed results in completion order. Only used for unordered sources. */
+  private final LinkedBlockingQueue<CompletableFuture<R>> completed;
+  private int pending;
+  private boolean exhausted;
+
+  AsyncMapSpliterator(Spliterator<T> source, Function<? super T, ? extends CompletionStage<? extends R>> mapper,
+      int maxInFlight) {
+    this.source = source;
+    this.mapper = mapper;
+    this.maxInFlight = maxInFlight;
+    this.ordered = source.hasCharacteristics(Spliterator.ORDERED);
+    this.inFlight = this.ordered ? new ArrayDeque<>() : null;
+    this.completed = this.ordered ? null : new LinkedBlockingQueue<>();
+  }
+
+  static void checkMaxInFlight(int maxInFlight) {
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("Max in flight must be positive: " + maxInFlight);
+    }
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super R> action) {
+    while (!this.exhausted && this.pending < this.maxInFlight) {
+      this.exhausted = !this.source.tryAdvance(this);
+    }
+    if (this.pending == 0) {
+      return false;
+    }
+
+    CompletableFuture<R> next = this.ordered ? this.inFlight.poll() : awaitCompletion();
+    this.pending--;
+    action.accept(next.join());
+    return true;
+  }
+
+  @Override
+  public void accept(T element) {
+    CompletionStage<? extends R> stage = requireNonNull(this.mapper.apply(element), "Mapper returned null");
+    CompletableFuture<R> future = new CompletableFuture<>();
+    LinkedBlockingQueue<CompletableFuture<R>> completed = this.completed;
+    stage.whenComplete((result, e) -> {
+      if (e == null) {
+        future.complete(result);
+      } else {
+        future.completeExceptionally(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+      }
+      if (completed != null) {
+        completed.add(future);
+      }
+    });
+
+    if (this.ordered) {
+      this.inFlight.add(future);
+    }
+    this.pending++;
+  }
+
+  @Override
+  public Spliterator<R> trySplit() {
+    if (this.pending > 0 || this.exhausted) {
+      return null;
+    }
+
+    Spliterator<T> prefix = this.source.trySplit();
+    return prefix != null ? new AsyncMapSpliterator<>(prefix, this.mapper, this.maxInFlight) : null;
+  }
+
+  @Override
+  public long estimateSize() {
+    long size = this.source.estimateSize() + this.pending;
+    return size < 0 ? Long.MAX_VALUE : size;
+  }
+
+  @Override
+  public int characteristics() {
+    return characteristics(this.source);
+  }
+
+  /**
+   * Returns the characteristics of a spliterator mapping the given source. They are also declared by the stream
+   * which creates the spliterator lazily.
+   */
+  static int characteristics(Spliterator<?> source) {
+    return source.characteristics() & (Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED);
+  }
+
+  private CompletableFuture<R> awaitCompletion() {
+    CompletionBlocker blocker = new CompletionBlocker();
+    try {
+      ForkJoinPool.managedBlock(blocker);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CompletionException(e);
+    }
+
+    return blocker.next;
+  }
+
+  private final class CompletionBlocker implements ForkJoinPool.ManagedBlocker {
+
+    CompletableFuture<R> next;
+
+    @Override
+    public boolean block() throws InterruptedException {
+      if (this.next == null) {
+        this.next = AsyncMapSpliterator.this.completed.take();
+      }
+      return true;
+    }
+
+    @Override
+    public boolean isReleasable() {
+      return this.next != null || (this.next = AsyncMapSpliterator.this.completed.poll()) != null;
+    }
+  }
+}
@@ -0,0 +1,388 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Binary heaps holding at most {@code k} elements, which are used to find the top (or bottom) {@code k} elements of a
+ * stream in {@code O(n log k)}. The root of the heap is always the "worst" element that is currently retained, so a new
+ * element either replaces the root or is discarded. Each leaf of a parallel stream accumulates its own heap and the
+ * heaps are merged when the results of the leaves are combined. The heap array is grown on demand, so a large
+ * {@code k} does not allocate its full capacity for small streams.
+ */
+abstract class BoundedHeap {
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  final int k;
+  int size;
+
+  BoundedHeap(int k) {
+    this.k = checkK(k);
+  }
+
+  static int checkK(int k) {
+    if (k < 0) {
+      throw new IllegalArgumentException("k must not be negative: " + k);
+    }
+
+    return k;
+  }
+
+  int initialCapacity() {
+    return Math.min(this.k, INITIAL_CAPACITY);
+  }
+
+  int grownCapacity(int currentCapacity) {
+    return (int) Math.min((long) currentCapacity << 1, this.k);
+  }
+
+  /**
+   * Heap of objects retaining the greatest elements according to the given comparator.
+   *
+   * @param <T> The type of the elements.
+   */
+  static final class OfRef<T> extends BoundedHeap {
+
+    private final Comparator<? super T> comparator;
+    private Object[] heap;
+
+    OfRef(int k, Comparator<? super T> comparator) {
+      super(k);
+      this.comparator = comparator;
+      this.heap = new Object[initialCapacity()];
+    }
+
+    void add(T element) {
+      if (this.size < this.k) {
+        if (this.size == this.heap.length) {
+          this.heap = Arrays.copyOf(this.heap, grownCapacity(this.heap.length));
+        }
+        siftUp(this.size++, element);
+      } else if (this.k > 0 && this.comparator.compare(element, elementAt(0)) > 0) {
+        siftDown(0, element);
+      }
+    }
+
+    void addAll(OfRef<T> other) {
+      for (int i = 0; i < other.size; i++) {
+        add(other.elementAt(i));
+      }
+    }
+
+    /**
+     * Returns the retained elements, the greatest first.
+     */
+    List<T> toSortedList() {
+      List<T> result = new ArrayList<>(this.size);
+      for (int i = 0; i < this.size; i++) {
+        result.add(elementAt(i));
+      }
+      result.sort(this.comparator.reversed());
+      return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T elementAt(int index) {
+      return (T) this.heap[index];
+    }
+
+    private void siftUp(int index, T element) {
+      while (index > 0) {
+        int parent = (index - 1) >>> 1;
+        T parentElement = elementAt(parent);
+        if (this.comparator.compare(element, parentElement) >= 0) {
+          break;
+        }
+        this.heap[index] = parentElement;
+        index = parent;
+      }
+      this.heap[index] = element;
+    }
+
+    private void siftDown(int index, T element) {
+      int half = this.size >>> 1;
+      while (index < half) {
+        int child = (index << 1) + 1;
+        int right = child + 1;
+        if (right < this.size && this.comparator.compare(elementAt(right), elementAt(child)) < 0) {
+          child = right;
+        }
+        if (this.comparator.compare(element, elementAt(child)) <= 0) {
+          break;
+        }
+        this.heap[index] = this.heap[child];
+        index = child;
+      }
+      this.heap[index] = element;
+    }
+  }
+
+  /**
+   * Heap of {@code int} values retaining either the greatest or the smallest values.
+   */
+  static final class OfInt extends BoundedHeap {
+
+    private final boolean greatest;
+    private int[] heap;
+
+    OfInt(int k, boolean greatest) {
+      super(k);
+      this.greatest = greatest;
+      this.heap = new int[initialCapacity()];
+    }
+
+    void add(int value) {
+      if (this.size < this.k) {
+        if (this.size == this.heap.length) {
+          this.heap = Arrays.copyOf(this.heap, grownCapacity(this.heap.length));
+        }
+        siftUp(this.size++, value);
+      } else if (this.k > 0 && worse(this.heap[0], value)) {
+        siftDown(0, value);
+      }
+    }
+
+    void addAll(OfInt other) {
+      for (int i = 0; i < other.size; i++) {
+        add(other.heap[i]);
+      }
+    }
+
+    /**
+     * Returns the retained values, the best value first.
+     */
+    int[] toSortedArray() {
+      int[] result = Arrays.copyOf(this.heap, this.size);
+      Arrays.sort(result);
+      if (this.greatest) {
+        for (int i = 0, j = result.length - 1; i < j; i++, j--) {
+          int tmp = result[i];
+          result[i] = result[j];
+          result[j] = tmp;
+        }
+      }
+      return result;
+    }
+
+    private boolean worse(int a, int b) {
+      return this.greatest ? a < b : a > b;
+    }
+
+    private void siftUp(int index, int value) {
+      while (index > 0) {
+        int parent = (index - 1) >>> 1;
+        if (!worse(value, this.heap[parent])) {
+          break;
+        }
+        this.heap[index] = this.heap[parent];
+        index = parent;
+      }
+      this.heap[index] = value;
+    }
+
+    private void siftDown(int index, int value) {
+      int half = this.size >>> 1;
+      while (index < half) {
+        int child = (index << 1) + 1;
+        int right = child + 1;
+        if (right < this.size && worse(this.heap[right], this.heap[child])) {
+          child = right;
+        }
+        if (!worse(this.heap[child], value)) {
+          break;
+        }
+        this.heap[index] = this.heap[child];
+        index = child;
+      }
+      this.heap[index] = value;
+    }
+  }
+
+  /**
+   * Heap of {@code long} values retaining either the greatest or the smallest values.
+   */
+  static final class OfLong extends BoundedHeap {
+
+    private final boolean greatest;
+    private long[] heap;
+
+    OfLong(int k, boolean greatest) {
+      super(k);
+      this.greatest = greatest;
+      this.heap = new long[initialCapacity()];
+    }
+
+    void add(long value) {
+      if (this.size < this.k) {
+        if (this.size == this.heap.length) {
+          this.heap = Arrays.copyOf(this.heap, grownCapacity(this.heap.length));
+        }
+        siftUp(this.size++, value);
+      } else if (this.k > 0 && worse(this.heap[0], value)) {
+        siftDown(0, value);
+      }
+    }
+
+    void addAll(OfLong other) {
+      for (int i = 0; i < other.size; i++) {
+        add(other.heap[i]);
+      }
+    }
+
+    /**
+     * Returns the retained values, the best value first.
+     */
+    long[] toSortedArray() {
+      long[] result = Arrays.copyOf(this.heap, this.size);
+      Arrays.sort(result);
+      if (this.greatest) {
+        for (int i = 0, j = result.length - 1; i < j; i++, j--) {
+          long tmp = result[i];
+          result[i] = result[j];
+          result[j] = tmp;
+        }
+      }
+      return result;
+    }
+
+    private boolean worse(long a, long b) {
+      return this.greatest ? a < b : a > b;
+    }
+
+    private void siftUp(int index, long value) {
+      while (index > 0) {
+        int parent = (index - 1) >>> 1;
+        if (!worse(value, this.heap[parent])) {
+          break;
+        }
+        this.heap[index] = this.heap[parent];
+        index = parent;
+      }
+      this.heap[index] = value;
+    }
+
+    private void siftDown(int index, long value) {
+      int half = this.size >>> 1;
+      while (index < half) {
+        int child = (index << 1) + 1;
+        int right = child + 1;
+        if (right < this.size && worse(this.heap[right], this.heap[child])) {
+          child = right;
+        }
+        if (!worse(this.heap[child], value)) {
+          break;
+        }
+        this.heap[index] = this.heap[child];
+        index = child;
+      }
+      this.heap[index] = value;
+    }
+  }
+
+  /**
+   * Heap of {@code double} values retaining either the greatest or the smallest values. Values are compared with
+   * {@link Double#compare(double, double)}.
+   */
+  static final class OfDouble extends BoundedHeap {
+
+    private final boolean greatest;
+    private double[] heap;
+
+    OfDouble(int k, boolean greatest) {
+      super(k);
+      this.greatest = greatest;
+      this.heap = new double[initialCapacity()];
+    }
+
+    void add(double value) {
+      if (this.size < this.k) {
+        if (this.size == this.heap.length) {
+          this.heap = Arrays.copyOf(this.heap, grownCapacity(this.heap.length));
+        }
+        siftUp(this.size++, value);
+      } else if (this.k > 0 && worse(this.heap[0], value)) {
+        siftDown(0, value);
+      }
+    }
+
+    void addAll(OfDouble other) {
+      for (int i = 0; i < other.size; i++) {
+        add(other.heap[i]);
+      }
+    }
+
+    /**
+     * Returns the retained values, the best value first.
+     */
+    double[] toSortedArray() {
+      double[] result = Arrays.copyOf(this.heap, this.size);
+      Arrays.sort(result);
+      if (this.greatest) {
+        for (int i = 0, j = result.length - 1; i < j; i++, j--) {
+          double tmp = result[i];
+          result[i] = result[j];
+          result[j] = tmp;
+        }
+      }
+      return result;
+    }
+
+    private boolean worse(double a, double b) {
+      int comparison = Double.compare(a, b);
+      return this.greatest ? comparison < 0 : comparison > 0;
+    }
+
+    private void siftUp(int index, double value) {
+      while (index > 0) {
+        int parent = (index - 1) >>> 1;
+        if (!worse(value, this.heap[parent])) {
+          break;
+        }
+        this.heap[index] = this.heap[parent];
+        index = parent;
+      }
+      this.heap[index] = value;
+    }
+
+    private void siftDown(int index, double value) {
+      int half = this.size >>> 1;
+      while (index < half) {
+        int child = (index << 1) + 1;
+        int right = child + 1;
+        if (right < this.size && worse(this.heap[right], this.heap[child])) {
+          child = right;
+        }
+        if (!worse(this.heap[child], value)) {
+          break;
+        }
+        this.heap[index] = this.heap[child];
+        index = child;
+      }
+      this.heap[index] = value;
+    }
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.util.Arrays;
+
+/**
+ * Mutable container of per-bucket counts, which is used to build histograms of primitive streams without boxing. Each
+ * leaf of a parallel stream counts into its own {@code long[]} and the counters are added up when the leaf results are
+ * combined. This class also contains the helpers to map values to buckets defined by bucket boundaries.
+ */
+final class BucketCounter {
+
+  private final long[] counts;
+
+  BucketCounter(int buckets) {
+    this.counts = new long[buckets];
+  }
+
+  static int checkBucketCount(int buckets) {
+    if (buckets <= 0) {
+      throw new IllegalArgumentException("Number of buckets must be positive: " + buckets);
+    }
+
+    return buckets;
+  }
+
+  void increment(int bucket) {
+    if (bucket < 0 || bucket >= this.counts.length) {
+      throw new IndexOutOfBoundsException("Bucket " + bucket + " is not within [0, " + this.counts.length + ")");
+    }
+
+    this.counts[bucket]++;
+  }
+
+  void merge(BucketCounter other) {
+    for (int i = 0; i < this.counts.length; i++) {
+      this.counts[i] += other.counts[i];
+    }
+  }
+
+  long[] getCounts() {
+    return this.counts;
+  }
+
+  static int[] checkBoundaries(int[] boundaries) {
+    for (int i = 1; i < boundaries.length; i++) {
+      if (boundaries[i - 1] >= boundaries[i]) {
+        throw new IllegalArgumentException("Bucket boundaries must be strictly ascending: " + Arrays.toString(boundaries));
+      }
+    }
+
+    return boundaries.clone();
+  }
+
+  static long[] checkBoundaries(long[] boundaries) {
+    for (int i = 1; i < boundaries.length; i++) {
+      if (boundaries[i - 1] >= boundaries[i]) {
+        throw new IllegalArgumentException("Bucket boundaries must be strictly ascending: " + Arrays.toString(boundaries));
+      }
+    }
+
+    return boundaries.clone();
+  }
+
+  static double[] checkBoundaries(double[] boundaries) {
+    for (int i = 1; i < boundaries.length; i++) {
+      if (!(boundaries[i - 1] < boundaries[i])) {
+        throw new IllegalArgumentException("Bucket boundaries must be strictly ascending: " + Arrays.toString(boundaries));
+      }
+    }
+
+    return boundaries.clone();
+  }
+
+  /**
+   * Returns the bucket of a value. Bucket {@code 0} contains all values below the first boundary, bucket {@code i}
+   * contains the values in {@code [boundaries[i - 1], boundaries[i])} and the last bucket contains all values equal to
+   * or above the last boundary.
+   */
+  static int bucketOf(int[] boundaries, int value) {
+    int index = Arrays.binarySearch(boundaries, value);
+    return index >= 0 ? index + 1 : -(index + 1);
+  }
+
+  static int bucketOf(long[] boundaries, long value) {
+    int index = Arrays.binarySearch(boundaries, value);
+    return index >= 0 ? index + 1 : -(index + 1);
+  }
+
+  static int bucketOf(double[] boundaries, double value) {
+    int index = Arrays.binarySearch(boundaries, value);
+    return index >= 0 ? index + 1 : -(index + 1);
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
+
+/**
+ * Ordered for-each operation that processes the leaves of a spliterator in parallel and emits their elements in
+ * encounter order through a bounded reorder buffer. The leaves are split off the spliterator lazily in encounter order.
+ * A leaf is forked only if the estimated number of buffered elements stays within the limit. The calling thread emits
+ * the leaves one after the other. Whenever no forked leaf is pending, the calling thread keeps the next leaf for itself,
+ * forks the leaves behind it and processes it directly without buffering. The operation is executed in the pool of the
+ * calling thread, i.e. it has to be used within the worker pool of a stream.
+ *
+ * @param <T> The type of the elements.
+ */
+final class BufferedOrderedForEach<T> {
+
+  private final Consumer<? super T> action;
+  private final long leafSize;
+  private final long maxBuffered;
+  private final ArrayDeque<Spliterator<T>> pending = new ArrayDeque<>();
+  private final ArrayDeque<LeafTask<T>> forked = new ArrayDeque<>();
+  private long reserved;
+
+  private BufferedOrderedForEach(Spliterator<T> spliterator, Consumer<? super T> action, long leafSize,
+      long maxBuffered) {
+    this.action = action;
+    this.leafSize = leafSize;
+    this.maxBuffered = maxBuffered;
+    this.pending.push(spliterator);
+  }
+
+  static void checkMaxBuffered(int maxBuffered) {
+    if (maxBuffered < 1) {
+      throw new IllegalArgumentException("Max buffered elements must be positive: " + maxBuffered);
+    }
+  }
+
+  /**
+   * Applies the given action to all elements of the spliterator in encounter order.
+   *
+   * @param spliterator The elements.
+   * @param action Action to apply to each element.
+   * @param parallelism Parallelism of the worker pool.
+   * @param maxBuffered Maximum number of (estimated) elements in the reorder buffer.
+   */
+  static <T> void forEachOrdered(Spliterator<T> spliterator, Consumer<? super T> action, int parallelism,
+      int maxBuffered) {
+    long size = spliterator.getExactSizeIfKnown();
+    long bufferedLeafSize = Math.max(maxBuffered / (parallelism + 1), 1);
+    long leafSize = size < 0 ? bufferedLeafSize : Math.max(Math.min(size / (parallelism << 2), bufferedLeafSize), 1);
+
+    new BufferedOrderedForEach<>(spliterator, action, leafSize, maxBuffered).run();
+  }
+
+  private void run() {
+    try {
+      Spliterator<T> next = nextLeaf();
+      while (next != null || !this.forked.isEmpty()) {
+        // The head is not forked if no other leaf is pending, so it is processed inline without buffering
+        Spliterator<T> head = null;
+        if (this.forked.isEmpty()) {
+          head = next;
+          next = nextLeaf();
+        }
+
+        // Fork the following leaves as long as their elements fit into the buffer
+        while (next != null && this.reserved + estimate(next) <= this.maxBuffered) {
+          LeafTask<T> task = new LeafTask<>(next, estimate(next));
+          this.reserved += task.reserved;
+          this.forked.add(task);
+          task.fork();
+          next = nextLeaf();
+        }
+
+        if (head != null) {
+          head.forEachRemaining(this.action);
+        } else {
+          LeafTask<T> task = this.forked.poll();
+          task.join().forEach(this.action);
+          this.reserved -= task.reserved;
+        }
+      }
+    } finally {
+      this.forked.forEach(task -> task.cancel(false));
+    }
+  }
+
+  private Spliterator<T> nextLeaf() {
+    Spliterator<T> spliterator = this.pending.poll();
+    if (spliterator == null) {
+      return null;
+    }
+
+    Spliterator<T> prefix;
+    while (spliterator.estimateSize() > this.leafSize && (prefix = spliterator.trySplit()) != null) {
+      this.pending.push(spliterator);
+      spliterator = prefix;
+    }
+
+    return spliterator;
+  }
+
+  private long estimate(Spliterator<T> leaf) {
+    return Math.min(leaf.estimateSize(), this.maxBuffered);
+  }
+
+  private static final class LeafTask<T> extends RecursiveTask<List<T>> {
+
+    private static final long serialVersionUID = 1L;
+
+    final Spliterator<T> leaf;
+    /** Estimated number of buffered elements. */
+    final long reserved;
+
+    LeafTask(Spliterator<T> leaf, long reserved) {
+      this.leaf = leaf;
+      this.reserved = reserved;
+    }
+
+    @Override
+    protected List<T> compute() {
+      List<T> buffer = new ArrayList<>();
+      this.leaf.forEachRemaining(buffer::add);
+      return buffer;
+    }
+  }
+}
@@ -0,0 +1,292 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Recorder of a timeline of the terminal operations of all streams in this library, which can be written in the
+ * <a href="https://docs.google.com/document/d/1CvAClvFfyA5R-PhYUmn5OOQtYMH4h6I0nSsKchNAySU">Chrome trace event
+ * format</a> and loaded into {@code chrome://tracing} or <a href="https://ui.perfetto.dev">Perfetto</a>.
+ * <p>
+ * While a trace is recorded, each terminal operation creates a span in the calling thread, a span in the worker thread
+ * executing the operation and a span for each leaf of the split tree, i.e. for each chunk of elements processed by a
+ * single worker. The spans are grouped by the worker pool, so the timeline shows which worker processed which chunk
+ * at which time. Only terminal operations started after {@link #start()} are recorded.
+ * </p>
+ * <p>
+ * All spans are kept in memory until the trace is written, so a trace should only be recorded for a limited time:
+ * </p>
+ * <pre>
+ * try (ChromeTrace trace = ChromeTrace.start()) {
+ *   ...
+ *   trace.stop();
+ *   trace.writeTo(Paths.get("trace.json"));
+ * }
+ * </pre>
+ */
+public final class ChromeTrace implements AutoCloseable {
+
+  /**
+   * The trace currently being recorded or {@code null} if no trace is recorded.
+   */
+  static volatile ChromeTrace active;
+
+  private final long startTime = System.nanoTime();
+  private final ConcurrentLinkedQueue<Span> spans = new ConcurrentLinkedQueue<>();
+  private final Map<String, Integer> processIds = new ConcurrentHashMap<>();
+  private final AtomicInteger nextProcessId = new AtomicInteger(1);
+
+  private ChromeTrace() {
+  }
+
+  /**
+   * Starts recording a new trace.
+   *
+   * @return The new trace.
+   * @throws IllegalStateException if another trace is being recorded.
+   */
+  public static ChromeTrace start() {
+    ChromeTrace trace = new ChromeTrace();
+    synchronized (ChromeTrace.class) {
+      if (active != null) {
+        throw new IllegalStateException("Another trace is already being recorded");
+      }
+      active = trace;
+    }
+
+    return trace;
+  }
+
+  /**
+   * Stops recording this trace. Terminal operations that are still running will complete their spans. Calling this
+   * method on a stopped trace has no effect.
+   */
+  public void stop() {
+    synchronized (ChromeTrace.class) {
+      if (active == this) {
+        active = null;
+      }
+    }
+  }
+
+  /**
+   * Same as {@link #stop()}.
+   */
+  @Override
+  public void close() {
+    stop();
+  }
+
+  /**
+   * Returns {@code true} if this trace is being recorded.
+   *
+   * @return {@code true} if this trace is being recorded.
+   */
+  public boolean isRecording() {
+    return active == this;
+  }
+
+  /**
+   * Writes the trace in the JSON object format of the trace event format.
+   *
+   * @param out Writer to which the trace is written. The writer is not closed by this method.
+   * @throws IOException if writing the trace fails.
+   */
+  public void writeTo(Writer out) throws IOException {
+    List<Span> spans = new ArrayList<>(this.spans);
+    // The first span of each thread in each process provides the thread name
+    Map<String, Span> threads = new LinkedHashMap<>();
+    for (Span span : spans) {
+      threads.putIfAbsent(span.processId + ":" + span.threadId, span);
+    }
+
+    out.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+    String separator = "\n";
+    for (Map.Entry<String, Integer> process : this.processIds.entrySet()) {
+      out.write(separator);
+      writeMetadata(out, "process_name", process.getValue(), 0, process.getKey());
+      separator = ",\n";
+    }
+
+    for (Span thread : threads.values()) {
+      out.write(separator);
+      writeMetadata(out, "thread_name", thread.processId, thread.threadId, thread.threadName);
+      separator = ",\n";
+    }
+
+    for (Span span : spans) {
+      out.write(separator);
+      span.writeTo(out, this.startTime);
+      separator = ",\n";
+    }
+
+    out.write("\n]}\n");
+  }
+
+  /**
+   * Writes the trace to the given file, replacing any existing file.
+   *
+   * @param file File to write the trace to.
+   * @throws IOException if writing the trace fails.
+   */
+  public void writeTo(Path file) throws IOException {
+    try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      writeTo(out);
+    }
+  }
+
+  /**
+   * Records the span of a terminal operation in the calling thread.
+   */
+  void terminalOperation(String operation, Class<?> streamType, ForkJoinPool workerPool, boolean parallel,
+      long startTime, long endTime, long queueWaitTime, Throwable failure) {
+    Object[] args = failure != null
+        ? new Object[]{"streamType", streamType.getName(), "parallel", parallel, "queueWaitTime", queueWaitTime,
+        "failure", failure.toString()}
+        : new Object[]{"streamType", streamType.getName(), "parallel", parallel, "queueWaitTime", queueWaitTime};
+    this.spans.add(new Span(operation, "terminalOperation", processId(workerPool), startTime, endTime, args));
+  }
+
+  /**
+   * Records the span of a terminal operation in the worker thread executing it.
+   */
+  void task(String operation, ForkJoinPool workerPool, long startTime, long endTime) {
+    this.spans.add(new Span(operation, "task", processId(workerPool), startTime, endTime, new Object[0]));
+  }
+
+  /**
+   * Creates a listener which records the spans of the leaves of the given terminal operation.
+   */
+  TracingSpliterator.LeafListener leafListener(String operation, ForkJoinPool workerPool) {
+    int processId = processId(workerPool);
+    return (context, depth, startTime, endTime, elements) -> this.spans.add(new Span(operation, "leaf", processId,
+        startTime, endTime, new Object[]{"depth", depth, "elements", elements}));
+  }
+
+  private int processId(ForkJoinPool workerPool) {
+    return this.processIds.computeIfAbsent(TerminalOperationMonitor.poolName(workerPool),
+        name -> this.nextProcessId.getAndIncrement());
+  }
+
+  private static void writeMetadata(Writer out, String name, int processId, long threadId, String value)
+      throws IOException {
+    out.write("{\"name\":\"" + name + "\",\"ph\":\"M\",\"pid\":" + processId + ",\"tid\":" + threadId
+        + ",\"args\":{\"name\":");
+    writeString(out, value);
+    out.write("}}");
+  }
+
+  private static void writeString(Writer out, String value) throws IOException {
+    out.write('"');
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        out.write('\\');
+        out.write(c);
+      } else if (c < 0x20) {
+        out.write(String.format("\\u%04x", (int) c));
+      } else {
+        out.write(c);
+      }
+    }
+    out.write('"');
+  }
+
+  /**
+   * Writes a duration in nanoseconds as microseconds, which is the time unit of the trace event format.
+   */
+  private static void writeMicros(Writer out, long nanos) throws IOException {
+    if (nanos < 0) {
+      out.write('-');
+      nanos = -nanos;
+    }
+    long fraction = nanos % 1000;
+    out.write(Long.toString(nanos / 1000));
+    out.write(fraction < 10 ? ".00" : fraction < 100 ? ".0" : ".");
+    out.write(Long.toString(fraction));
+  }
+
+  /**
+   * A complete event ({@code "ph":"X"}) in the thread that created the span.
+   */
+  private static final class Span {
+
+    final String name;
+    final String category;
+    final int processId;
+    final long threadId;
+    final String threadName;
+    final long startTime;
+    final long endTime;
+    final Object[] args;
+
+    Span(String name, String category, int processId, long startTime, long endTime, Object[] args) {
+      Thread thread = Thread.currentThread();
+      this.name = name;
+      this.category = category;
+      this.processId = processId;
+      this.threadId = thread.getId();
+      this.threadName = thread.getName();
+      this.startTime = startTime;
+      this.endTime = endTime;
+      this.args = args;
+    }
+
+    void writeTo(Writer out, long traceStartTime) throws IOException {
+      out.write("{\"name\":");
+      writeString(out, this.name);
+      out.write(",\"cat\":\"" + this.category + "\",\"ph\":\"X\",\"ts\":");
+      writeMicros(out, this.startTime - traceStartTime);
+      out.write(",\"dur\":");
+      writeMicros(out, this.endTime - this.startTime);
+      out.write(",\"pid\":" + this.processId + ",\"tid\":" + this.threadId + ",\"args\":{");
+      for (int i = 0; i < this.args.length; i += 2) {
+        if (i > 0) {
+          out.write(',');
+        }
+        writeString(out, (String) this.args[i]);
+        out.write(':');
+        Object value = this.args[i + 1];
+        if (value instanceof String) {
+          writeString(out, (String) value);
+        } else {
+          out.write(String.valueOf(value));
+        }
+      }
+      out.write("}}");
+    }
+  }
+}
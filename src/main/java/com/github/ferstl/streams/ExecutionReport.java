@@ -0,0 +1,348 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Report of the execution of a single terminal operation, which is created by the {@code explain()} method of the
+ * streams in this library. The report contains the leaves of the split tree, i.e. the
+ * chunks of elements that were processed by a single thread, in the order they were started. All times are in
+ * nanoseconds.
+ * <p>
+ * The elements of a leaf are the elements that reached the terminal operation. So a leaf of a filtered stream may
+ * contain less elements than the corresponding part of the stream source. Leaves of a short-circuiting terminal
+ * operation, e.g. {@code findFirst()}, which are not traversed to the end, are not included in the report.
+ * </p>
+ */
+public final class ExecutionReport {
+
+  private static final long STRAGGLER_FACTOR = 2;
+
+  private final String operation;
+  private final Class<?> streamType;
+  private final int parallelism;
+  private final long queueWaitTime;
+  private final long executionTime;
+  private final List<Leaf> leaves;
+  private final Throwable failure;
+
+  ExecutionReport(String operation, Class<?> streamType, int parallelism, long queueWaitTime, long executionTime,
+      List<Leaf> leaves, Throwable failure) {
+    this.operation = operation;
+    this.streamType = streamType;
+    this.parallelism = parallelism;
+    this.queueWaitTime = queueWaitTime;
+    this.executionTime = executionTime;
+    this.leaves = leaves;
+    this.failure = failure;
+  }
+
+  /**
+   * Returns the name of the terminal operation, e.g. {@code collect}.
+   *
+   * @return The name of the terminal operation.
+   */
+  public String getOperation() {
+    return this.operation;
+  }
+
+  /**
+   * Returns the type of the stream, e.g. {@link ParallelIntStreamSupport}.
+   *
+   * @return The type of the stream.
+   */
+  public Class<?> getStreamType() {
+    return this.streamType;
+  }
+
+  /**
+   * Returns the number of threads that could have processed the terminal operation. This is the parallelism of the
+   * worker pool for parallel streams and {@code 1} for sequential streams.
+   *
+   * @return The number of threads that could have processed the terminal operation.
+   */
+  public int getParallelism() {
+    return this.parallelism;
+  }
+
+  /**
+   * Returns the time between the submission of the terminal operation to the worker pool and its start in a worker
+   * thread.
+   *
+   * @return The queue wait time in nanoseconds.
+   */
+  public long getQueueWaitTime() {
+    return this.queueWaitTime;
+  }
+
+  /**
+   * Returns the time between the start and the end of the terminal operation, excluding the queue wait time.
+   *
+   * @return The execution time in nanoseconds.
+   */
+  public long getExecutionTime() {
+    return this.executionTime;
+  }
+
+  /**
+   * Returns the leaves of the split tree in the order they were started.
+   *
+   * @return The leaves of the split tree.
+   */
+  public List<Leaf> getLeaves() {
+    return this.leaves;
+  }
+
+  /**
+   * Returns the total number of elements in all leaves.
+   *
+   * @return The total number of elements in all leaves.
+   */
+  public long getElements() {
+    return this.leaves.stream().mapToLong(Leaf::getElements).sum();
+  }
+
+  /**
+   * Returns the depth of the deepest leaf in the split tree. The root has depth {@code 0}.
+   *
+   * @return The depth of the deepest leaf or {@code -1} if there are no leaves.
+   */
+  public int getMaxDepth() {
+    return this.leaves.stream().mapToInt(Leaf::getDepth).max().orElse(-1);
+  }
+
+  /**
+   * Returns the sum of the durations of all leaves.
+   *
+   * @return The busy time in nanoseconds.
+   */
+  public long getBusyTime() {
+    return this.leaves.stream().mapToLong(Leaf::getDuration).sum();
+  }
+
+  /**
+   * Returns the time the threads were not processing any leaf during the execution of the terminal operation. This is
+   * the difference of {@link #getParallelism()} times the {@link #getExecutionTime() execution time} and the
+   * {@link #getBusyTime() busy time}. The idle time includes splitting, combining the results of the leaves and
+   * waiting for other leaves to complete.
+   *
+   * @return The idle time in nanoseconds.
+   */
+  public long getIdleTime() {
+    return Math.max(this.parallelism * this.executionTime - getBusyTime(), 0);
+  }
+
+  /**
+   * Returns the average duration of the leaves.
+   *
+   * @return The mean leaf duration in nanoseconds or {@code 0} if there are no leaves.
+   */
+  public long getMeanLeafDuration() {
+    return this.leaves.isEmpty() ? 0 : getBusyTime() / this.leaves.size();
+  }
+
+  /**
+   * Returns the duration of the slowest leaf.
+   *
+   * @return The max leaf duration in nanoseconds or {@code 0} if there are no leaves.
+   */
+  public long getMaxLeafDuration() {
+    return this.leaves.stream().mapToLong(Leaf::getDuration).max().orElse(0);
+  }
+
+  /**
+   * Returns the ratio of the {@link #getMaxLeafDuration() max} and the {@link #getMeanLeafDuration() mean} leaf
+   * duration. A value of {@code 1} means that all leaves took the same time. The higher the value, the longer the
+   * terminal operation had to wait for its slowest leaf while the other threads were idle.
+   *
+   * @return The imbalance of the leaves, which is {@code 1} if there are no leaves.
+   */
+  public double getImbalance() {
+    long meanLeafDuration = getMeanLeafDuration();
+    return meanLeafDuration > 0 ? (double) getMaxLeafDuration() / meanLeafDuration : 1;
+  }
+
+  /**
+   * Returns the fraction of the leaves that are stragglers, i.e. that took more than twice the median leaf duration.
+   *
+   * @return The straggler fraction between {@code 0} and {@code 1}.
+   */
+  public double getStragglerFraction() {
+    if (this.leaves.isEmpty()) {
+      return 0;
+    }
+
+    long[] durations = this.leaves.stream().mapToLong(Leaf::getDuration).sorted().toArray();
+    long threshold = STRAGGLER_FACTOR * durations[durations.length / 2];
+    long stragglers = Arrays.stream(durations).filter(duration -> duration > threshold).count();
+
+    return (double) stragglers / durations.length;
+  }
+
+  /**
+   * Returns the exception that terminated the operation.
+   *
+   * @return The exception or {@code null} if the terminal operation completed normally.
+   */
+  public Throwable getFailure() {
+    return this.failure;
+  }
+
+  /**
+   * Returns a multi-line description of this report, which contains one line per leaf.
+   *
+   * @return A description of this report.
+   */
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder()
+        .append(this.operation).append(" on ").append(this.streamType.getSimpleName())
+        .append(": ").append(this.leaves.size()).append(" leaves, max depth ").append(getMaxDepth())
+        .append(", ").append(getElements()).append(" elements, parallelism ").append(this.parallelism)
+        .append(", queue wait time ").append(millis(this.queueWaitTime))
+        .append(", execution time ").append(millis(this.executionTime))
+        .append(", idle time ").append(millis(getIdleTime()))
+        .append(String.format(Locale.ROOT, ", imbalance %.2f, stragglers %.1f%%", getImbalance(),
+            100 * getStragglerFraction()));
+    if (this.failure != null) {
+      sb.append(", failure ").append(this.failure);
+    }
+
+    for (Leaf leaf : this.leaves) {
+      sb.append(System.lineSeparator()).append("  ").append(leaf);
+    }
+
+    return sb.toString();
+  }
+
+  static String millis(long nanos) {
+    return String.format(Locale.ROOT, "%.3f ms", nanos / 1_000_000.0);
+  }
+
+  /**
+   * A leaf of the split tree, i.e. a chunk of elements that was processed by a single thread.
+   */
+  public static final class Leaf {
+
+    private final int depth;
+    private final long elements;
+    private final long startTime;
+    private final long duration;
+    private final String thread;
+
+    Leaf(int depth, long elements, long startTime, long duration, String thread) {
+      this.depth = depth;
+      this.elements = elements;
+      this.startTime = startTime;
+      this.duration = duration;
+      this.thread = thread;
+    }
+
+    /**
+     * Returns the depth of this leaf in the split tree. The root has depth {@code 0}.
+     *
+     * @return The depth of this leaf.
+     */
+    public int getDepth() {
+      return this.depth;
+    }
+
+    /**
+     * Returns the number of elements in this leaf.
+     *
+     * @return The number of elements in this leaf.
+     */
+    public long getElements() {
+      return this.elements;
+    }
+
+    /**
+     * Returns the start time of this leaf relative to the start of the terminal operation.
+     *
+     * @return The start time in nanoseconds.
+     */
+    public long getStartTime() {
+      return this.startTime;
+    }
+
+    /**
+     * Returns the time it took to process this leaf.
+     *
+     * @return The duration in nanoseconds.
+     */
+    public long getDuration() {
+      return this.duration;
+    }
+
+    /**
+     * Returns the name of the thread that processed this leaf.
+     *
+     * @return The name of the thread that processed this leaf.
+     */
+    public String getThread() {
+      return this.thread;
+    }
+
+    @Override
+    public String toString() {
+      return "depth " + this.depth + ", " + this.elements + " elements, start " + millis(this.startTime)
+          + ", duration " + millis(this.duration) + ", " + this.thread;
+    }
+  }
+
+  /**
+   * Collects the leaves of a terminal operation.
+   */
+  static final class Recorder implements TracingSpliterator.LeafListener {
+
+    private final ConcurrentLinkedQueue<Leaf> leaves = new ConcurrentLinkedQueue<>();
+    private volatile long startTime;
+
+    /**
+     * Sets the start time of the terminal operation. Must be called before the first leaf is started.
+     */
+    void start(long startTime) {
+      this.startTime = startTime;
+    }
+
+    @Override
+    public void leafCompleted(Object context, int depth, long startTime, long endTime, long elements) {
+      String thread = Thread.currentThread().getName();
+      this.leaves.add(new Leaf(depth, elements, startTime - this.startTime, endTime - startTime, thread));
+    }
+
+    ExecutionReport createReport(String operation, Class<?> streamType, int parallelism, long queueWaitTime,
+        long executionTime, Throwable failure) {
+      List<Leaf> leaves = new ArrayList<>(this.leaves);
+      leaves.sort(Comparator.comparingLong(Leaf::getStartTime));
+      return new ExecutionReport(operation, streamType, parallelism, queueWaitTime, executionTime,
+          Collections.unmodifiableList(leaves), failure);
+    }
+  }
+}
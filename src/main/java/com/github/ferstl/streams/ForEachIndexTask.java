@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Applies an action to each index of a range by recursively splitting the range in halves. The task is executed in
+ * the pool of the calling thread, i.e. it has to be used within the worker pool of a stream.
+ */
+final class ForEachIndexTask extends RecursiveAction {
+
+  private static final long serialVersionUID = 1L;
+
+  private final int from;
+  private final int to;
+  private final IntConsumer action;
+
+  private ForEachIndexTask(int from, int to, IntConsumer action) {
+    this.from = from;
+    this.to = to;
+    this.action = action;
+  }
+
+  /**
+   * Applies the given action to each index within {@code [0, count)} in parallel.
+   */
+  static void forEachIndex(int count, IntConsumer action) {
+    if (count > 0) {
+      new ForEachIndexTask(0, count, action).invoke();
+    }
+  }
+
+  @Override
+  protected void compute() {
+    if (this.to - this.from > 1) {
+      int middle = (this.from + this.to) >>> 1;
+      invokeAll(new ForEachIndexTask(this.from, middle, this.action), new ForEachIndexTask(middle, this.to, this.action));
+    } else {
+      this.action.accept(this.from);
+    }
+  }
+}
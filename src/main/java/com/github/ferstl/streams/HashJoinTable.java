@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+
+/**
+ * Build side of a hash join. The table is divided into partitions by the hash code of the keys. Building the table
+ * takes two steps, both of which run in parallel without any locking:
+ * <ol>
+ * <li>Each leaf of the source stream distributes its elements into per-partition buffers and the buffers are
+ * concatenated when the leaf results are combined.</li>
+ * <li>The hash map of each partition is built by a separate task from the elements of its buffer.</li>
+ * </ol>
+ * Elements with a {@code null} key are not added to the table, and looking up {@code null} never matches.
+ *
+ * @param <K> The type of the keys.
+ * @param <V> The type of the elements.
+ */
+final class HashJoinTable<K, V> {
+
+  private static final int PARTITIONS_PER_THREAD = 4;
+  private static final int MAX_PARTITIONS = 1 << 12;
+
+  private final Map<K, List<V>>[] partitions;
+  private final int mask;
+
+  @SuppressWarnings("unchecked")
+  private HashJoinTable(int partitionCount) {
+    this.partitions = (Map<K, List<V>>[]) new Map<?, ?>[partitionCount];
+    this.mask = partitionCount - 1;
+  }
+
+  /**
+   * Returns the number of partitions for the given parallelism, which is always a power of two.
+   */
+  static int partitionCount(int parallelism) {
+    int partitions = Math.min(Math.max(parallelism, 1) * PARTITIONS_PER_THREAD, MAX_PARTITIONS);
+    return Integer.highestOneBit(partitions - 1) << 1;
+  }
+
+  /**
+   * Builds the table from the given stream. In case the stream is parallel, this method has to be called within the
+   * worker pool.
+   */
+  static <K, V> HashJoinTable<K, V> build(Stream<V> source, Function<? super V, ? extends K> keyFunction, int partitionCount) {
+    PartitionBuffer<K, V> buffer = source.collect(
+        () -> new PartitionBuffer<>(partitionCount),
+        (partitionBuffer, element) -> partitionBuffer.add(keyFunction.apply(element), element),
+        PartitionBuffer::addAll);
+
+    HashJoinTable<K, V> table = new HashJoinTable<>(partitionCount);
+    if (source.isParallel()) {
+      ForEachIndexTask.forEachIndex(partitionCount, partition -> table.partitions[partition] = buffer.toMap(partition));
+    } else {
+      for (int partition = 0; partition < partitionCount; partition++) {
+        table.partitions[partition] = buffer.toMap(partition);
+      }
+    }
+
+    return table;
+  }
+
+  /**
+   * Returns all elements with the given key or an empty list if there are none.
+   */
+  List<V> get(Object key) {
+    if (key == null) {
+      return emptyList();
+    }
+
+    return this.partitions[partition(key, this.mask)].getOrDefault(key, emptyList());
+  }
+
+  /**
+   * Selects the partition from the upper bits of the mixed hash code. The hash maps of the partitions use the lower
+   * bits of the hash code, so these bits have to stay distributed within each partition.
+   */
+  private static int partition(Object key, int mask) {
+    return ((key.hashCode() * 0x9e3779b9) >>> 16) & mask;
+  }
+
+  private static final class PartitionBuffer<K, V> {
+
+    private final int mask;
+    private final List<K>[] keys;
+    private final List<V>[] elements;
+
+    @SuppressWarnings("unchecked")
+    PartitionBuffer(int partitionCount) {
+      this.mask = partitionCount - 1;
+      this.keys = (List<K>[]) new List<?>[partitionCount];
+      this.elements = (List<V>[]) new List<?>[partitionCount];
+      for (int i = 0; i < partitionCount; i++) {
+        this.keys[i] = new ArrayList<>();
+        this.elements[i] = new ArrayList<>();
+      }
+    }
+
+    void add(K key, V element) {
+      if (key != null) {
+        int partition = partition(key, this.mask);
+        this.keys[partition].add(key);
+        this.elements[partition].add(element);
+      }
+    }
+
+    void addAll(PartitionBuffer<K, V> other) {
+      for (int i = 0; i < this.keys.length; i++) {
+        this.keys[i].addAll(other.keys[i]);
+        this.elements[i].addAll(other.elements[i]);
+      }
+    }
+
+    Map<K, List<V>> toMap(int partition) {
+      List<K> partitionKeys = this.keys[partition];
+      List<V> partitionElements = this.elements[partition];
+      Map<K, List<V>> map = new HashMap<>(Math.max((int) (partitionKeys.size() / 0.75f) + 1, 16));
+      for (int i = 0; i < partitionKeys.size(); i++) {
+        // Most keys of a build side are unique, so start with a singleton list
+        map.merge(partitionKeys.get(i), singletonList(partitionElements.get(i)), HashJoinTable::concat);
+      }
+
+      return map;
+    }
+  }
+
+  private static <V> List<V> concat(List<V> existing, List<V> single) {
+    List<V> result = existing instanceof ArrayList ? existing : new ArrayList<>(existing);
+    result.add(single.get(0));
+    return result;
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+/**
+ * HyperLogLog cardinality estimator (Flajolet et al.: "HyperLogLog: the analysis of a near-optimal cardinality
+ * estimation algorithm"). The sketch consists of {@code 2^precision} registers, each holding the maximum number of
+ * leading zeros (plus one) seen in the hashes that were assigned to this register. Two sketches of the same precision
+ * are merged by taking the maximum of each register.
+ * <p>
+ * The standard error of the estimate is about {@code 1.04 / sqrt(2^precision)}, i.e. 0.8% with the default precision
+ * of 14, which needs 16 KiB of registers.
+ * </p>
+ */
+final class HyperLogLog {
+
+  static final int DEFAULT_PRECISION = 14;
+  static final int MIN_PRECISION = 4;
+  static final int MAX_PRECISION = 18;
+
+  private final int precision;
+  private final byte[] registers;
+
+  HyperLogLog(int precision) {
+    this.precision = precision;
+    this.registers = new byte[1 << precision];
+  }
+
+  static int checkPrecision(int precision) {
+    if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+      throw new IllegalArgumentException(
+          "Precision must be within [" + MIN_PRECISION + ", " + MAX_PRECISION + "]: " + precision);
+    }
+
+    return precision;
+  }
+
+  /**
+   * Spreads the bits of the given value over the whole hash (finalizer of the 64 bit MurmurHash3 variant). Adjacent
+   * values, such as IDs or {@code hashCode()}s of small integers, end up in unrelated registers this way.
+   */
+  static long mix(long value) {
+    long hash = value;
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    hash *= 0xc4ceb9fe1a85ec53L;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+
+  void add(long hash) {
+    int index = (int) (hash >>> (Long.SIZE - this.precision));
+    // Guard bit limits the rank to 64 - precision + 1
+    long remaining = (hash << this.precision) | (1L << (this.precision - 1));
+    byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+    if (rank > this.registers[index]) {
+      this.registers[index] = rank;
+    }
+  }
+
+  void merge(HyperLogLog other) {
+    for (int i = 0; i < this.registers.length; i++) {
+      if (other.registers[i] > this.registers[i]) {
+        this.registers[i] = other.registers[i];
+      }
+    }
+  }
+
+  long estimate() {
+    int m = this.registers.length;
+    double sum = 0;
+    int zeros = 0;
+    for (byte register : this.registers) {
+      sum += Double.longBitsToDouble((1023L - register) << 52);
+      if (register == 0) {
+        zeros++;
+      }
+    }
+
+    double estimate = alpha(m) * m * m / sum;
+    if (estimate <= 2.5 * m && zeros > 0) {
+      // Linear counting is more accurate for small cardinalities
+      estimate = m * Math.log((double) m / zeros);
+    }
+
+    return Math.round(estimate);
+  }
+
+  private static double alpha(int m) {
+    switch (m) {
+      case 16:
+        return 0.673;
+      case 32:
+        return 0.697;
+      case 64:
+        return 0.709;
+      default:
+        return 0.7213 / (1 + 1.079 / m);
+    }
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.util.NoSuchElementException;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Map of {@code int} keys to {@code long} values without boxing. The entries are stored in two parallel arrays using
+ * open addressing with linear probing, so the map does not allocate any objects per entry.
+ * <p>
+ * Instances of this class are created by {@link ParallelStreamSupport#aggregateByIntKey} and cannot be modified
+ * afterwards. Iterating over the entries is possible via {@link #keys()} and {@link #values()}, which return the keys
+ * and their values in the same (unspecified) order.
+ * </p>
+ */
+public final class IntLongMap extends AbstractLongValueMap {
+
+  IntLongMap() {
+  }
+
+  /**
+   * Returns {@code true} if this map contains an entry for the given key.
+   *
+   * @param key Key to look up.
+   * @return {@code true} if this map contains an entry for the given key.
+   */
+  public boolean containsKey(int key) {
+    return containsLongKey(key);
+  }
+
+  /**
+   * Returns the value of the given key.
+   *
+   * @param key Key to look up.
+   * @return The value of the given key.
+   * @throws NoSuchElementException In case this map does not contain the given key.
+   */
+  public long get(int key) {
+    return getValue(key);
+  }
+
+  /**
+   * Returns the value of the given key or the given default value if this map does not contain the key.
+   *
+   * @param key Key to look up.
+   * @param defaultValue Value to return if this map does not contain the key.
+   * @return The value of the given key or {@code defaultValue}.
+   */
+  public long getOrDefault(int key, long defaultValue) {
+    return containsKey(key) ? get(key) : defaultValue;
+  }
+
+  /**
+   * Returns the keys of this map in the same order as {@link #values()}.
+   *
+   * @return A new array containing the keys of this map.
+   */
+  public int[] keys() {
+    long[] keys = longKeys();
+    int[] result = new int[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      result[i] = (int) keys[i];
+    }
+
+    return result;
+  }
+
+  /**
+   * Merges the entries of the given map into this map. The values of keys that are present in both maps are combined
+   * with {@code op.applyAsLong(thisValue, otherValue)}.
+   */
+  IntLongMap merge(IntLongMap other, LongBinaryOperator op) {
+    mergeEntries(other, op);
+    return this;
+  }
+}
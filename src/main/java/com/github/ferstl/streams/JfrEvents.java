@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+/**
+ * Java Flight Recorder events for terminal operations and their leaves. JFR is not available in Java 9 and 10, so this
+ * implementation does nothing. The implementation for Java 11 and later is contained in the
+ * {@code META-INF/versions/11} directory of the multi-release JAR.
+ */
+final class JfrEvents {
+
+  private JfrEvents() {
+  }
+
+  /**
+   * Returns {@code true} if any of the events is enabled in a running recording.
+   */
+  static boolean isEnabled() {
+    return false;
+  }
+
+  static boolean isLeafEnabled() {
+    return false;
+  }
+
+  static Object beginTerminalOperation() {
+    return null;
+  }
+
+  static void commitTerminalOperation(Object event, String operation, Class<?> streamType, String workerPool,
+      int parallelism, boolean parallel, long elements, long queueWaitTime, Throwable failure) {
+  }
+
+  static Object beginLeaf() {
+    return null;
+  }
+
+  static void commitLeaf(Object event, String operation, String workerPool, int depth, long elements) {
+  }
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Mergeable quantile sketch based on the KLL algorithm (Karnin, Lang, Liberty: "Optimal Quantile Approximation in
+ * Streams"). The sketch consists of a hierarchy of compactors, where an item on level {@code h} represents
+ * {@code 2^h} stream elements. When a level exceeds its capacity, it is sorted and every other item (with a random
+ * offset) is promoted to the next level. The capacities decrease geometrically from the top level down, so the sketch
+ * holds about {@code 3k} items independent of the number of elements.
+ * <p>
+ * Each leaf of a parallel stream builds its own sketch and the sketches are merged when the leaf results are combined.
+ * The rank error of a query is roughly proportional to {@code 1/k}. With the default of {@code k = 200}, the normalized
+ * rank error is below 2% with high probability. As long as the sketch did not need to compact any level, the
+ * quantiles are exact.
+ * </p>
+ */
+final class KllSketch {
+
+  static final int DEFAULT_K = 200;
+  static final int MIN_K = 8;
+
+  private static final double CAPACITY_DECAY = 2.0 / 3.0;
+  private static final int MIN_LEVEL_CAPACITY = 2;
+
+  private final int k;
+  private double[][] levels;
+  private int[] levelSizes;
+  private int numLevels;
+  private int size;
+  private int maxSize;
+  private long n;
+  private double min = Double.NaN;
+  private double max = Double.NaN;
+
+  KllSketch(int k) {
+    this.k = k;
+    this.levels = new double[4][];
+    this.levelSizes = new int[4];
+    addLevel();
+  }
+
+  static int checkK(int k) {
+    if (k < MIN_K) {
+      throw new IllegalArgumentException("k must be at least " + MIN_K + ": " + k);
+    }
+
+    return k;
+  }
+
+  static double[] checkQuantiles(double[] quantiles) {
+    for (double quantile : quantiles) {
+      if (!(quantile >= 0.0 && quantile <= 1.0)) {
+        throw new IllegalArgumentException("Quantiles must be within [0, 1]: " + Arrays.toString(quantiles));
+      }
+    }
+
+    return quantiles.clone();
+  }
+
+  void update(double value) {
+    if (Double.isNaN(value)) {
+      return;
+    }
+
+    if (this.n == 0 || value < this.min) {
+      this.min = value;
+    }
+    if (this.n == 0 || value > this.max) {
+      this.max = value;
+    }
+    this.n++;
+
+    append(0, value);
+    this.size++;
+    if (this.size >= this.maxSize) {
+      compress();
+    }
+  }
+
+  void update(long value) {
+    update((double) value);
+  }
+
+  void merge(KllSketch other) {
+    if (other.n == 0) {
+      return;
+    }
+
+    if (this.n == 0 || other.min < this.min) {
+      this.min = other.min;
+    }
+    if (this.n == 0 || other.max > this.max) {
+      this.max = other.max;
+    }
+    this.n += other.n;
+
+    while (this.numLevels < other.numLevels) {
+      addLevel();
+    }
+
+    for (int level = 0; level < other.numLevels; level++) {
+      for (int i = 0; i < other.levelSizes[level]; i++) {
+        append(level, other.levels[level][i]);
+      }
+    }
+
+    this.size += other.size;
+    while (this.size >= this.maxSize) {
+      compress();
+    }
+  }
+
+  /**
+   * Returns the estimated quantiles. Quantile {@code 0.0} is always the exact minimum and {@code 1.0} the exact
+   * maximum. If the sketch is empty, all quantiles are {@code NaN}.
+   */
+  double[] quantiles(double[] quantiles) {
+    double[] result = new double[quantiles.length];
+    if (this.n == 0) {
+      Arrays.fill(result, Double.NaN);
+      return result;
+    }
+
+    double[] items = new double[this.size];
+    long[] weights = new long[this.size];
+    Integer[] order = new Integer[this.size];
+    int index = 0;
+    for (int level = 0; level < this.numLevels; level++) {
+      for (int i = 0; i < this.levelSizes[level]; i++) {
+        items[index] = this.levels[level][i];
+        weights[index] = 1L << level;
+        order[index] = index;
+        index++;
+      }
+    }
+    Arrays.sort(order, (a, b) -> Double.compare(items[a], items[b]));
+
+    long totalWeight = 0;
+    for (long weight : weights) {
+      totalWeight += weight;
+    }
+
+    for (int i = 0; i < quantiles.length; i++) {
+      double quantile = quantiles[i];
+      if (quantile == 0.0) {
+        result[i] = this.min;
+      } else if (quantile == 1.0) {
+        result[i] = this.max;
+      } else {
+        double targetWeight = quantile * totalWeight;
+        long cumulativeWeight = 0;
+        double value = this.max;
+        for (Integer item : order) {
+          cumulativeWeight += weights[item];
+          if (cumulativeWeight >= targetWeight) {
+            value = items[item];
+            break;
+          }
+        }
+        result[i] = value;
+      }
+    }
+
+    return result;
+  }
+
+  private void append(int level, double value) {
+    double[] items = this.levels[level];
+    int levelSize = this.levelSizes[level];
+    if (levelSize == items.length) {
+      items = Arrays.copyOf(items, Math.max(items.length << 1, MIN_LEVEL_CAPACITY));
+      this.levels[level] = items;
+    }
+    items[levelSize] = value;
+    this.levelSizes[level] = levelSize + 1;
+  }
+
+  private void compress() {
+    for (int level = 0; level < this.numLevels; level++) {
+      if (this.levelSizes[level] >= capacity(level)) {
+        if (level + 1 >= this.numLevels) {
+          addLevel();
+        }
+
+        compact(level);
+        if (this.size < this.maxSize) {
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Sorts the given level and promotes one item of each pair to the next level. In case of an odd number of items,
+   * the smallest item stays on the level.
+   */
+  private void compact(int level) {
+    double[] items = this.levels[level];
+    int levelSize = this.levelSizes[level];
+    Arrays.sort(items, 0, levelSize);
+
+    int first = levelSize & 1;
+    int offset = ThreadLocalRandom.current().nextBoolean() ? 1 : 0;
+    for (int i = first + offset; i < levelSize; i += 2) {
+      append(level + 1, items[i]);
+    }
+
+    int promoted = (levelSize - first) >>> 1;
+    this.levelSizes[level] = first;
+    this.size -= promoted;
+  }
+
+  private void addLevel() {
+    if (this.numLevels == this.levels.length) {
+      this.levels = Arrays.copyOf(this.levels, this.numLevels << 1);
+      this.levelSizes = Arrays.copyOf(this.levelSizes, this.numLevels << 1);
+    }
+
+    this.levels[this.numLevels] = new double[0];
+    this.numLevels++;
+
+    int maxSize = 0;
+    for (int level = 0; level < this.numLevels; level++) {
+      maxSize += capacity(level);
+    }
+    this.maxSize = maxSize;
+  }
+
+  private int capacity(int level) {
+    int depth = this.numLevels - level - 1;
+    return Math.max((int) Math.ceil(this.k * Math.pow(CAPACITY_DECAY, depth)), MIN_LEVEL_CAPACITY);
+  }
+}
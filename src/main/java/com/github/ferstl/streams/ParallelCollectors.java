@@ -0,0 +1,370 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+import java.util.stream.Collector.Characteristics;
+import java.util.stream.Collectors;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Collectors which are tuned for the worker pools of the streams in this library.
+ * <p>
+ * The grouping collectors of this class are {@link Characteristics#CONCURRENT concurrent} and
+ * {@link Characteristics#UNORDERED unordered}. So a parallel stream accumulates all elements into a single result
+ * container instead of building a map per leaf and merging these maps pairwise, as
+ * {@link Collectors#groupingBy(Function)} does. Unlike {@link Collectors#groupingByConcurrent(Function)}, the threads
+ * do not share a single {@code ConcurrentHashMap}:
+ * </p>
+ * <ul>
+ * <li>{@link #groupingBy(Function, Collector)} gives each worker thread its own map, which is indexed by
+ * {@link ForkJoinWorkerThread#getPoolIndex()}. Accumulating an element does not require any synchronization and the
+ * maps are merged once at the end. This works best for a moderate number of keys, especially if only few of them are
+ * hot.</li>
+ * <li>{@link #groupingByStriped(Function, Collector, int)} keeps a single copy of each group in a table of
+ * independently locked stripes. This avoids holding and merging one copy of each group per worker thread in case of a
+ * high number of keys.</li>
+ * </ul>
+ * <p>
+ * Since the collectors are unordered, the elements within a group are not guaranteed to be in encounter order. The
+ * collectors can be used with any stream, but they are most efficient with the parallel streams of this library, where
+ * all elements are accumulated by the threads of a single worker pool.
+ * </p>
+ */
+public final class ParallelCollectors {
+
+  private static final int MAX_STRIPES = 1 << 16;
+
+  private ParallelCollectors() {
+  }
+
+  /**
+   * Groups the elements of a stream by the given classifier into lists using worker-local maps. This is the same as
+   * calling {@code groupingBy(classifier, Collectors.toList())}.
+   *
+   * @param classifier Function mapping the elements to their keys. Must not be {@code null}.
+   * @param <T> The type of the stream elements.
+   * @param <K> The type of the keys.
+   * @return A collector grouping the elements into lists.
+   * @see #groupingBy(Function, Collector)
+   */
+  public static <T, K> Collector<T, ?, Map<K, List<T>>> groupingBy(Function<? super T, ? extends K> classifier) {
+    return groupingBy(classifier, Collectors.toList());
+  }
+
+  /**
+   * Groups the elements of a stream by the given classifier and reduces the elements of each group with the given
+   * downstream collector. Each worker thread of the pool accumulates into its own map without any synchronization.
+   * Threads which do not belong to the pool, e.g. the calling thread of a sequential stream, share a synchronized map.
+   * The maps of all threads are merged with the combiner of the downstream collector at the end.
+   *
+   * @param classifier Function mapping the elements to their keys. Must not be {@code null}.
+   * @param downstream Collector reducing the elements of each group. Must not be {@code null}.
+   * @param <T> The type of the stream elements.
+   * @param <K> The type of the keys.
+   * @param <A> The intermediate accumulation type of the downstream collector.
+   * @param <D> The result type of the downstream collector.
+   * @return A collector grouping the elements using worker-local maps.
+   */
+  public static <T, K, A, D> Collector<T, ?, Map<K, D>> groupingBy(
+      Function<? super T, ? extends K> classifier, Collector<? super T, A, D> downstream) {
+    requireNonNull(classifier, "Classifier must not be null");
+    requireNonNull(downstream, "Downstream collector must not be null");
+
+    return groupingCollector(() -> new WorkerLocalGroups<>(downstream), classifier, downstream);
+  }
+
+  /**
+   * Groups the elements of a stream by the given classifier and reduces the elements of each group with the given
+   * downstream collector. The groups are kept in a table of {@code stripes} hash maps, each of which is guarded by its
+   * own lock. Since each group exists only once, this mode is preferable to {@link #groupingBy(Function, Collector)}
+   * for a high number of keys. The number of stripes should be a multiple of the pool's parallelism to keep the
+   * contention low.
+   *
+   * @param classifier Function mapping the elements to their keys. Must not be {@code null}.
+   * @param downstream Collector reducing the elements of each group. Must not be {@code null}.
+   * @param stripes Number of stripes. Must be positive. It is rounded up to the next power of two and
+   * limited to {@code 65536}.
+   * @param <T> The type of the stream elements.
+   * @param <K> The type of the keys.
+   * @param <A> The intermediate accumulation type of the downstream collector.
+   * @param <D> The result type of the downstream collector.
+   * @return A collector grouping the elements into a striped table.
+   */
+  public static <T, K, A, D> Collector<T, ?, Map<K, D>> groupingByStriped(
+      Function<? super T, ? extends K> classifier, Collector<? super T, A, D> downstream, int stripes) {
+    requireNonNull(classifier, "Classifier must not be null");
+    requireNonNull(downstream, "Downstream collector must not be null");
+    if (stripes <= 0) {
+      throw new IllegalArgumentException("Number of stripes must be positive: " + stripes);
+    }
+
+    return groupingCollector(() -> new StripedGroups<>(downstream, stripes), classifier, downstream);
+  }
+
+  private static <T, K, A, D> Collector<T, ?, Map<K, D>> groupingCollector(
+      Supplier<Groups<T, K, A>> groupsSupplier, Function<? super T, ? extends K> classifier,
+      Collector<? super T, A, D> downstream) {
+    BiConsumer<Groups<T, K, A>, T> accumulator = (groups, element) ->
+        groups.accumulate(requireNonNull(classifier.apply(element), "Element cannot be mapped to a null key"), element);
+
+    Function<Groups<T, K, A>, Map<K, D>> finisher;
+    if (downstream.characteristics().contains(Characteristics.IDENTITY_FINISH)) {
+      finisher = groups -> castIntermediateMap(groups.toMap());
+    } else {
+      Function<A, D> downstreamFinisher = downstream.finisher();
+      finisher = groups -> {
+        Map<K, A> intermediate = groups.toMap();
+        intermediate.replaceAll((key, value) -> castDownstreamResult(downstreamFinisher.apply(value)));
+        return castIntermediateMap(intermediate);
+      };
+    }
+
+    return Collector.of(groupsSupplier, accumulator, Groups::combine, finisher,
+        Characteristics.CONCURRENT, Characteristics.UNORDERED);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <K, A, D> Map<K, D> castIntermediateMap(Map<K, A> map) {
+    return (Map<K, D>) map;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <A, D> A castDownstreamResult(D result) {
+    return (A) result;
+  }
+
+  /**
+   * Result container of the grouping collectors.
+   *
+   * @param <T> The type of the stream elements.
+   * @param <K> The type of the keys.
+   * @param <A> The intermediate accumulation type of the downstream collector.
+   */
+  private abstract static class Groups<T, K, A> {
+
+    final Supplier<A> downstreamSupplier;
+    final BiConsumer<A, ? super T> downstreamAccumulator;
+    final BinaryOperator<A> downstreamCombiner;
+
+    Groups(Collector<? super T, A, ?> downstream) {
+      this.downstreamSupplier = downstream.supplier();
+      this.downstreamAccumulator = downstream.accumulator();
+      this.downstreamCombiner = downstream.combiner();
+    }
+
+    /**
+     * Accumulates the given element into its group. May be called concurrently.
+     */
+    abstract void accumulate(K key, T element);
+
+    /**
+     * Merges the given intermediate result into its group. May be called concurrently.
+     */
+    abstract void merge(K key, A value);
+
+    /**
+     * Merges all groups into a single map. Must not be called concurrently with any other method.
+     */
+    abstract Map<K, A> toMap();
+
+    final Groups<T, K, A> combine(Groups<T, K, A> other) {
+      other.toMap().forEach(this::merge);
+      return this;
+    }
+
+    final void accumulate(Map<K, A> map, K key, T element) {
+      A container = map.get(key);
+      if (container == null) {
+        container = this.downstreamSupplier.get();
+        map.put(key, container);
+      }
+
+      this.downstreamAccumulator.accept(container, element);
+    }
+  }
+
+  private static final class WorkerLocalGroups<T, K, A> extends Groups<T, K, A> {
+
+    private final AtomicReference<ForkJoinPool> pool = new AtomicReference<>();
+    private final Map<K, A> externalMap = new HashMap<>();
+    private volatile Map<K, A>[] workerMaps = newMapArray(0);
+
+    WorkerLocalGroups(Collector<? super T, A, ?> downstream) {
+      super(downstream);
+    }
+
+    @Override
+    void accumulate(K key, T element) {
+      Map<K, A> workerMap = workerMap();
+      if (workerMap != null) {
+        accumulate(workerMap, key, element);
+      } else {
+        synchronized (this.externalMap) {
+          accumulate(this.externalMap, key, element);
+        }
+      }
+    }
+
+    @Override
+    void merge(K key, A value) {
+      Map<K, A> workerMap = workerMap();
+      if (workerMap != null) {
+        workerMap.merge(key, value, this.downstreamCombiner);
+      } else {
+        synchronized (this.externalMap) {
+          this.externalMap.merge(key, value, this.downstreamCombiner);
+        }
+      }
+    }
+
+    @Override
+    Map<K, A> toMap() {
+      Map<K, A> result = this.externalMap;
+      for (Map<K, A> workerMap : this.workerMaps) {
+        if (workerMap != null) {
+          if (result.isEmpty()) {
+            result = workerMap;
+          } else {
+            for (Map.Entry<K, A> entry : workerMap.entrySet()) {
+              result.merge(entry.getKey(), entry.getValue(), this.downstreamCombiner);
+            }
+          }
+        }
+      }
+
+      return result;
+    }
+
+    /**
+     * Returns the map of the current thread or {@code null} if the current thread is not a worker of the pool this
+     * container is bound to. Each pool index is owned by exactly one live worker thread, so the map is confined to
+     * the calling thread. Only creating the map requires synchronization because the array might need to grow.
+     */
+    private Map<K, A> workerMap() {
+      Thread thread = Thread.currentThread();
+      if (!(thread instanceof ForkJoinWorkerThread)) {
+        return null;
+      }
+
+      ForkJoinWorkerThread worker = (ForkJoinWorkerThread) thread;
+      ForkJoinPool workerPool = worker.getPool();
+      if (this.pool.get() != workerPool && !this.pool.compareAndSet(null, workerPool)) {
+        return null;
+      }
+
+      int poolIndex = worker.getPoolIndex();
+      Map<K, A>[] workerMaps = this.workerMaps;
+      Map<K, A> workerMap;
+      if (poolIndex < workerMaps.length && (workerMap = workerMaps[poolIndex]) != null) {
+        return workerMap;
+      }
+
+      return createWorkerMap(poolIndex);
+    }
+
+    private synchronized Map<K, A> createWorkerMap(int poolIndex) {
+      Map<K, A>[] workerMaps = this.workerMaps;
+      if (poolIndex >= workerMaps.length) {
+        workerMaps = Arrays.copyOf(workerMaps, Math.max(poolIndex + 1, workerMaps.length << 1));
+      }
+
+      Map<K, A> workerMap = new HashMap<>();
+      workerMaps[poolIndex] = workerMap;
+      this.workerMaps = workerMaps;
+      return workerMap;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, A> Map<K, A>[] newMapArray(int length) {
+      return (Map<K, A>[]) new Map<?, ?>[length];
+    }
+  }
+
+  private static final class StripedGroups<T, K, A> extends Groups<T, K, A> {
+
+    private final Map<K, A>[] stripes;
+    private final int mask;
+
+    @SuppressWarnings("unchecked")
+    StripedGroups(Collector<? super T, A, ?> downstream, int stripes) {
+      super(downstream);
+      int length = stripes > 1 ? Integer.highestOneBit(Math.min(stripes, MAX_STRIPES) - 1) << 1 : 1;
+      this.stripes = (Map<K, A>[]) new Map<?, ?>[length];
+      for (int i = 0; i < length; i++) {
+        this.stripes[i] = new HashMap<>();
+      }
+      this.mask = length - 1;
+    }
+
+    @Override
+    void accumulate(K key, T element) {
+      Map<K, A> stripe = stripe(key);
+      synchronized (stripe) {
+        accumulate(stripe, key, element);
+      }
+    }
+
+    @Override
+    void merge(K key, A value) {
+      Map<K, A> stripe = stripe(key);
+      synchronized (stripe) {
+        stripe.merge(key, value, this.downstreamCombiner);
+      }
+    }
+
+    @Override
+    Map<K, A> toMap() {
+      int size = 0;
+      for (Map<K, A> stripe : this.stripes) {
+        size += stripe.size();
+      }
+
+      // The stripes are disjoint, so no values need to be combined
+      Map<K, A> result = new HashMap<>(Math.max((int) (size / 0.75f) + 1, 16));
+      for (Map<K, A> stripe : this.stripes) {
+        result.putAll(stripe);
+      }
+
+      return result;
+    }
+
+    /**
+     * Selects the stripe from the upper bits of the mixed hash code. The hash maps of the stripes use the lower bits of
+     * the hash code, so these bits have to stay distributed within each stripe.
+     */
+    private Map<K, A> stripe(K key) {
+      return this.stripes[((key.hashCode() * 0x9e3779b9) >>> 16) & this.mask];
+    }
+  }
+}
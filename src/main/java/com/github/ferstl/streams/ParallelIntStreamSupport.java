@@ -108,6 +108,17 @@ public class ParallelIntStreamSupport extends AbstractParallelStreamSupport<Inte
     super(delegate, workerPool);
   }
 
+  /**
+   * Constructor for internal use within this package only.
+   *
+   * @param delegate Stream to delegate each operation.
+   * @param workerPool Worker pool for executing terminal operations in parallel. Must not be {@code null}.
+   * @param sized {@code true} if the stream has a source with a known size.
+   */
+  ParallelIntStreamSupport(IntStream delegate, ForkJoinPool workerPool, boolean sized) {
+    super(delegate, workerPool, sized);
+  }
+
   /**
    * Creates a <strong>parallel</strong> {@code int} stream from the given Array. This operation is similar to calling
    * {@code Arrays.stream(array).parallel()} with the difference that a parallel
@@ -122,7 +133,7 @@ public class ParallelIntStreamSupport extends AbstractParallelStreamSupport<Inte
   public static IntStream parallelStream(int[] array, ForkJoinPool workerPool) {
     requireNonNull(array, "Array must not be null");
 
-    return new ParallelIntStreamSupport(stream(array).parallel(), workerPool);
+    return new ParallelIntStreamSupport(stream(array).parallel(), workerPool, true);
   }
 
   /**
@@ -139,7 +150,7 @@ public class ParallelIntStreamSupport extends AbstractParallelStreamSupport<Inte
   public static IntStream parallelStream(Spliterator.OfInt spliterator, ForkJoinPool workerPool) {
     requireNonNull(spliterator, "Spliterator must not be null");
 
-    return new ParallelIntStreamSupport(intStream(spliterator, true), workerPool);
+    return new ParallelIntStreamSupport(intStream(spliterator, true), workerPool, spliterator.hasCharacteristics(Spliterator.SIZED));
   }
 
   /**
@@ -160,7 +171,7 @@ public class ParallelIntStreamSupport extends AbstractParallelStreamSupport<Inte
   public static IntStream parallelStream(Supplier<? extends Spliterator.OfInt> supplier, int characteristics, ForkJoinPool workerPool) {
     requireNonNull(supplier, "Supplier must not be null");
 
-    return new ParallelIntStreamSupport(intStream(supplier, characteristics, true), workerPool);
+    return new ParallelIntStreamSupport(intStream(supplier, characteristics, true), workerPool, (characteristics & Spliterator.SIZED) != 0);
   }
 
   /**
@@ -177,7 +188,7 @@ public class ParallelIntStreamSupport extends AbstractParallelStreamSupport<Inte
   public static IntStream parallelStream(Builder builder, ForkJoinPool workerPool) {
     requireNonNull(builder, "Builder must not be null");
 
-    return new ParallelIntStreamSupport(builder.build().parallel(), workerPool);
+    return new ParallelIntStreamSupport(builder.build().parallel(), workerPool, true);
   }
 
   /**
@@ -232,7 +243,7 @@ public class ParallelIntStreamSupport extends AbstractParallelStreamSupport<Inte
    * @see IntStream#range(int, int)
    */
   public static IntStream range(int startInclusive, int endExclusive, ForkJoinPool workerPool) {
-    return new ParallelIntStreamSupport(IntStream.range(startInclusive, endExclusive).parallel(), workerPool);
+    return new ParallelIntStreamSupport(IntStream.range(startInclusive, endExclusive).parallel(), workerPool, true);
   }
 
   /**
@@ -250,7 +261,7 @@ public class ParallelIntStreamSupport extends AbstractParallelStreamSupport<Inte
    * @see IntStream#rangeClosed(int, int)
    */
   public static IntStream rangeClosed(int startInclusive, int endInclusive, ForkJoinPool workerPool) {
-    return new ParallelIntStreamSupport(IntStream.rangeClosed(startInclusive, endInclusive).parallel(), workerPool);
+    return new ParallelIntStreamSupport(IntStream.rangeClosed(startInclusive, endInclusive).parallel(), workerPool, true);
   }
 
   /**
@@ -273,179 +284,411 @@ public class ParallelIntStreamSupport extends AbstractParallelStreamSupport<Inte
     return new ParallelIntStreamSupport(IntStream.concat(a, b).parallel(), workerPool);
   }
 
+  /**
+   * Creates a lazily zipped <strong>parallel</strong> int stream whose elements are the results of applying the given
+   * function to the elements of both streams at the same position. The resulting stream is as long as the shorter one
+   * of both streams. In case both streams have a source with a known size, such as an array or a range, they are split
+   * at identical positions so that a parallel
+   * <a href="https://docs.oracle.com/javase/8/docs/api/java/util/stream/package-summary.html#StreamOps">terminal
+   * operation</a> processes them in the given {@link ForkJoinPool} without buffering. Otherwise the streams are read in
+   * sequential batches. The resulting stream is ordered if both streams are ordered.
+   *
+   * @param a The first stream. Must not be {@code null}.
+   * @param b The second stream. Must not be {@code null}.
+   * @param zipper Function combining the elements of both streams. Must not be {@code null}.
+   * @param workerPool Thread pool for parallel execution of a terminal operation. Must not be {@code null}.
+   * @return A parallel int stream that executes a terminal operation in the given {@link ForkJoinPool}.
+   */
+  public static IntStream zip(IntStream a, IntStream b, IntBinaryOperator zipper, ForkJoinPool workerPool) {
+    requireNonNull(a, "Stream a must not be null");
+    requireNonNull(b, "Stream b must not be null");
+    requireNonNull(zipper, "Zipper must not be null");
+
+    Spliterator.OfInt spliterator = new ZipSpliterator.OfInt(a.spliterator(), b.spliterator(), zipper);
+    IntStream zipped = StreamSupport.intStream(spliterator, true).onClose(a::close).onClose(b::close);
+    return new ParallelIntStreamSupport(zipped, workerPool, spliterator.hasCharacteristics(Spliterator.SIZED));
+  }
+
   @Override
   public IntStream filter(IntPredicate predicate) {
-    this.delegate = this.delegate.filter(predicate);
+    this.delegate = this.delegate.filter(this.profiler.intPredicate("filter", predicate));
+    this.sized = false;
     return this;
   }
 
   @Override
   public IntStream map(IntUnaryOperator mapper) {
-    this.delegate = this.delegate.map(mapper);
+    this.delegate = this.delegate.map(this.profiler.intUnaryOperator("map", mapper));
     return this;
   }
 
   @Override
   public <U> Stream<U> mapToObj(IntFunction<? extends U> mapper) {
-    return new ParallelStreamSupport<U>(this.delegate.mapToObj(mapper), this.workerPool);
+    Stream<U> stream = this.delegate.mapToObj(this.profiler.intFunction("mapToObj", mapper));
+    return derived(new ParallelStreamSupport<U>(stream, this.workerPool, this.sized));
   }
 
   @Override
   public LongStream mapToLong(IntToLongFunction mapper) {
-    return new ParallelLongStreamSupport(this.delegate.mapToLong(mapper), this.workerPool);
+    LongStream stream = this.delegate.mapToLong(this.profiler.intToLongFunction("mapToLong", mapper));
+    return derived(new ParallelLongStreamSupport(stream, this.workerPool, this.sized));
   }
 
   @Override
   public DoubleStream mapToDouble(IntToDoubleFunction mapper) {
-    return new ParallelDoubleStreamSupport(this.delegate.mapToDouble(mapper), this.workerPool);
+    DoubleStream stream = this.delegate.mapToDouble(this.profiler.intToDoubleFunction("mapToDouble", mapper));
+    return derived(new ParallelDoubleStreamSupport(stream, this.workerPool, this.sized));
   }
 
   @Override
   public IntStream flatMap(IntFunction<? extends IntStream> mapper) {
-    this.delegate = this.delegate.flatMap(mapper);
+    this.delegate = this.delegate.flatMap(this.profiler.intFlatMapFunction("flatMap", mapper));
+    this.sized = false;
     return this;
   }
 
   @Override
   public IntStream distinct() {
     this.delegate = this.delegate.distinct();
+    this.sized = false;
     return this;
   }
 
   @Override
   public IntStream sorted() {
     this.delegate = this.delegate.sorted();
+    this.sized = false;
     return this;
   }
 
   @Override
   public IntStream peek(IntConsumer action) {
-    this.delegate = this.delegate.peek(action);
+    this.delegate = this.delegate.peek(this.profiler.intConsumer("peek", action));
     return this;
   }
 
   @Override
   public IntStream limit(long maxSize) {
     this.delegate = this.delegate.limit(maxSize);
+    this.sized = false;
     return this;
   }
 
   @Override
   public IntStream skip(long n) {
     this.delegate = this.delegate.skip(n);
+    this.sized = false;
     return this;
   }
 
   @Override
   public IntStream takeWhile(IntPredicate predicate) {
-    this.delegate = this.delegate.takeWhile(predicate);
+    this.delegate = this.delegate.takeWhile(this.profiler.intPredicate("takeWhile", predicate));
+    this.sized = false;
     return this;
   }
 
   @Override
   public IntStream dropWhile(IntPredicate predicate) {
-    this.delegate = this.delegate.dropWhile(predicate);
+    this.delegate = this.delegate.dropWhile(this.profiler.intPredicate("dropWhile", predicate));
+    this.sized = false;
     return this;
   }
 
+  /**
+   * Returns a stream consisting of the cumulative results of applying the given operator to the elements of this
+   * stream (inclusive prefix scan), i.e. the n-th element of the resulting stream is
+   * {@code identity op e[0] op e[1] op ... op e[n]}. The prefix is computed in two parallel passes within the worker
+   * pool of this stream, similar to {@link Arrays#parallelPrefix(int[], IntBinaryOperator)}.
+   * <p>
+   * This is a stateful intermediate operation. The elements of this stream are collected into an array when the
+   * terminal operation of the resulting stream commences. The prefix is then computed in place on that array.
+   * </p>
+   *
+   * @param identity The identity value for the operator.
+   * @param op An associative function for combining two values. Must not be {@code null}.
+   * @return A {@code int} stream containing the cumulative results, which executes a terminal operation in the worker
+   * pool of this stream.
+   */
+  public IntStream scan(int identity, IntBinaryOperator op) {
+    requireNonNull(op, "Operator must not be null");
+
+    Supplier<Spliterator.OfInt> supplier = () -> Arrays.spliterator(scanToArray(identity, op));
+    int characteristics = Spliterator.ORDERED | Spliterator.IMMUTABLE | Spliterator.SIZED | Spliterator.SUBSIZED;
+    IntStream stream = intStream(supplier, characteristics, isParallel()).onClose(this.delegate::close);
+
+    return new ParallelIntStreamSupport(stream, this.workerPool);
+  }
+
+  /**
+   * Returns a stream consisting of the running totals of the elements of this stream. This is a special case of
+   * {@link #scan(int, IntBinaryOperator)} and equivalent to:
+   * <pre>
+   *     return scan(0, Integer::sum);
+   * </pre>
+   *
+   * @return A {@code int} stream containing the running totals, which executes a terminal operation in the worker
+   * pool of this stream.
+   * @see #scan(int, IntBinaryOperator)
+   */
+  public IntStream prefixSum() {
+    return scan(0, Integer::sum);
+  }
+
+  /**
+   * Returns a stream consisting of the chunks of {@code size} consecutive values of this stream. The last chunk
+   * contains the remaining values and may be smaller.
+   * <p>
+   * In case this stream has a source with a known size and supports exact splitting, e.g. a list, an array or a range,
+   * the chunks are split at chunk-aligned boundaries. So the chunks are built in parallel without collecting the
+   * elements into a global buffer first. Other sources are chunked sequentially in batches, which are then processed
+   * in parallel. This stream is evaluated when the terminal operation of the returned stream is executed.
+   * </p>
+   *
+   * @param size Number of values per chunk. Must be positive.
+   * @return A stream of arrays, which executes a terminal operation in the worker pool of this stream.
+   * @see #windowed(int, int)
+   */
+  public Stream<int[]> chunked(int size) {
+    return windows(size, size, true);
+  }
+
+  /**
+   * Returns a stream consisting of windows of {@code size} consecutive values of this stream, where the window
+   * {@code w} starts at the value with index {@code w * step}. The windows overlap if {@code step < size} and
+   * values are skipped if {@code step > size}. Only complete windows are returned, so a stream with less than
+   * {@code size} values results in an empty stream. Apart from that, this method works like {@link #chunked(int)}.
+   *
+   * @param size Number of values per window. Must be positive.
+   * @param step Distance between the first values of two consecutive windows. Must be positive.
+   * @return A stream of arrays, which executes a terminal operation in the worker pool of this stream.
+   * @see #chunked(int)
+   */
+  public Stream<int[]> windowed(int size, int step) {
+    return windows(size, step, false);
+  }
+
   @Override
   public void forEach(IntConsumer action) {
-    execute(() -> this.delegate.forEach(action));
+    execute("forEach", () -> this.delegate.forEach(action));
   }
 
   @Override
   public void forEachOrdered(IntConsumer action) {
-    execute(() -> this.delegate.forEachOrdered(action));
+    execute("forEachOrdered", () -> this.delegate.forEachOrdered(action));
   }
 
   @Override
   public int[] toArray() {
-    return execute(() -> this.delegate.toArray());
+    return execute("toArray", () -> isParallel() ? presizedToArray() : this.delegate.toArray());
   }
 
   @Override
   public int reduce(int identity, IntBinaryOperator op) {
-    return execute(() -> this.delegate.reduce(identity, op));
+    return execute("reduce", () -> this.delegate.reduce(identity, op));
   }
 
   @Override
   public OptionalInt reduce(IntBinaryOperator op) {
-    return execute(() -> this.delegate.reduce(op));
+    return execute("reduce", () -> this.delegate.reduce(op));
   }
 
   @Override
   public <R> R collect(Supplier<R> supplier, ObjIntConsumer<R> accumulator, BiConsumer<R, R> combiner) {
-    return execute(() -> this.delegate.collect(supplier, accumulator, combiner));
+    return execute("collect", () -> this.delegate.collect(supplier, accumulator, combiner));
   }
 
   @Override
   public int sum() {
-    return execute(() -> this.delegate.sum());
+    return execute("sum", () -> this.delegate.sum());
   }
 
   @Override
   public OptionalInt min() {
-    return execute(() -> this.delegate.min());
+    return execute("min", () -> this.delegate.min());
   }
 
   @Override
   public OptionalInt max() {
-    return execute(() -> this.delegate.max());
+    return execute("max", () -> this.delegate.max());
   }
 
   @Override
   public long count() {
-    return execute(() -> this.delegate.count());
+    // A monitored count is executed as terminal operation, so it is reported like any other operation
+    if (this.sized && !isMonitored()) {
+      // Answer directly from the source without submitting a task to the worker pool
+      Spliterator.OfInt spliterator = this.delegate.spliterator();
+      long size = spliterator.getExactSizeIfKnown();
+      if (size >= 0) {
+        return size;
+      }
+
+      // Continue with a stream of the spliterator, which a monitored terminal operation can trace again
+      IntStream consumed = this.delegate;
+      this.delegate = intStream(spliterator, isParallel()).onClose(consumed::close);
+    }
+
+    return execute("count", () -> this.delegate.count());
   }
 
   @Override
   public OptionalDouble average() {
-    return execute(() -> this.delegate.average());
+    return execute("average", () -> this.delegate.average());
   }
 
   @Override
   public IntSummaryStatistics summaryStatistics() {
-    return execute(() -> this.delegate.summaryStatistics());
+    return execute("summaryStatistics", () -> this.delegate.summaryStatistics());
   }
 
   @Override
   public boolean anyMatch(IntPredicate predicate) {
-    return execute(() -> this.delegate.anyMatch(predicate));
+    return execute("anyMatch", () -> this.delegate.anyMatch(predicate));
   }
 
   @Override
   public boolean allMatch(IntPredicate predicate) {
-    return execute(() -> this.delegate.allMatch(predicate));
+    return execute("allMatch", () -> this.delegate.allMatch(predicate));
   }
 
   @Override
   public boolean noneMatch(IntPredicate predicate) {
-    return execute(() -> this.delegate.noneMatch(predicate));
+    return execute("noneMatch", () -> this.delegate.noneMatch(predicate));
   }
 
   @Override
   public OptionalInt findFirst() {
-    return execute(() -> this.delegate.findFirst());
+    return execute("findFirst", () -> this.delegate.findFirst());
   }
 
   @Override
   public OptionalInt findAny() {
-    return execute(() -> this.delegate.findAny());
+    return execute("findAny", () -> this.delegate.findAny());
+  }
+
+  /**
+   * Returns the {@code k} greatest values of this stream, the greatest value first. The result is the same as of
+   * {@code boxed().sorted(reverseOrder()).limit(k)} but the values are neither boxed nor sorted. Instead, each leaf of
+   * the parallel computation retains its {@code k} greatest values in a bounded heap and the heaps are merged when the
+   * leaf results are combined. So the operation takes {@code O(n log k)} time and requires memory for {@code k} values
+   * per leaf.
+   * <p>
+   * This is a terminal operation.
+   * </p>
+   *
+   * @param k Number of values to return. Must not be negative.
+   * @return An array of at most {@code k} values, the greatest value first.
+   * @see #bottomK(int)
+   */
+  public int[] topK(int k) {
+    return boundedHeap(k, true).toSortedArray();
+  }
+
+  /**
+   * Returns the {@code k} smallest values of this stream, the smallest value first. The result is the same as of
+   * {@code sorted().limit(k).toArray()} but the values are not sorted. Instead, each leaf of the parallel computation
+   * retains its {@code k} smallest values in a bounded heap and the heaps are merged when the leaf results are
+   * combined. So the operation takes {@code O(n log k)} time and requires memory for {@code k} values per leaf.
+   * <p>
+   * This is a terminal operation.
+   * </p>
+   *
+   * @param k Number of values to return. Must not be negative.
+   * @return An array of at most {@code k} values, the smallest value first.
+   * @see #topK(int)
+   */
+  public int[] bottomK(int k) {
+    return boundedHeap(k, false).toSortedArray();
+  }
+
+  /**
+   * Counts the values of this stream per bucket, where the buckets are defined by the given boundaries. Bucket
+   * {@code 0} counts the values below {@code boundaries[0]}, bucket {@code i} counts the values within
+   * {@code [boundaries[i - 1], boundaries[i])} and the last bucket counts the values equal to or greater than the last
+   * boundary. Each leaf of the parallel computation counts into its own {@code long[]} and the counters are added up
+   * when the leaf results are combined, so neither the values are boxed nor any maps are involved.
+   * <p>
+   * This is a terminal operation.
+   * </p>
+   *
+   * @param boundaries Strictly ascending bucket boundaries. Must not be {@code null}.
+   * @return An array of length {@code boundaries.length + 1} containing the number of values in each bucket.
+   * @see #countByBucket(int, IntUnaryOperator)
+   */
+  public long[] histogram(int[] boundaries) {
+    requireNonNull(boundaries, "Boundaries must not be null");
+    int[] bucketBoundaries = BucketCounter.checkBoundaries(boundaries);
+
+    return countByBucket("histogram", bucketBoundaries.length + 1,
+        value -> BucketCounter.bucketOf(bucketBoundaries, value));
+  }
+
+  /**
+   * Counts the values of this stream per bucket, where the bucket of each value is determined by the given function.
+   * Each leaf of the parallel computation counts into its own {@code long[]} and the counters are added up when the
+   * leaf results are combined, so neither the values are boxed nor any maps are involved.
+   * <p>
+   * This is a terminal operation.
+   * </p>
+   *
+   * @param buckets Number of buckets. Must be positive.
+   * @param bucketFunction Function returning the bucket of a value within {@code [0, buckets)}. Must not be
+   * {@code null}.
+   * @return An array of length {@code buckets} containing the number of values in each bucket.
+   * @throws IndexOutOfBoundsException In case the bucket function returns a bucket outside of {@code [0, buckets)}.
+   */
+  public long[] countByBucket(int buckets, IntUnaryOperator bucketFunction) {
+    BucketCounter.checkBucketCount(buckets);
+    requireNonNull(bucketFunction, "Bucket function must not be null");
+
+    return countByBucket("countByBucket", buckets, bucketFunction);
+  }
+
+  private long[] countByBucket(String operation, int buckets, IntUnaryOperator bucketFunction) {
+    return execute(operation, () -> this.delegate.collect(
+        () -> new BucketCounter(buckets),
+        (counter, value) -> counter.increment(bucketFunction.applyAsInt(value)),
+        BucketCounter::merge))
+        .getCounts();
+  }
+
+  /**
+   * Estimates the number of distinct values of this stream. In contrast to {@code distinct().count()}, the values are
+   * not collected in a set. Instead, each leaf of the parallel computation builds a HyperLogLog sketch of
+   * {@code 2^precision} one-byte registers from the hashes of its values and the sketches are merged when the leaf
+   * results are combined. The standard error of the estimate is about {@code 1.04 / sqrt(2^precision)}, e.g. 0.8% for a
+   * precision of {@code 14}.
+   * <p>
+   * This is a terminal operation.
+   * </p>
+   *
+   * @param precision Precision of the estimate within {@code [4, 18]}.
+   * @return The estimated number of distinct values.
+   */
+  public long approximateDistinctCount(int precision) {
+    HyperLogLog.checkPrecision(precision);
+
+    return execute("approximateDistinctCount", () -> this.delegate.collect(
+        () -> new HyperLogLog(precision),
+        (sketch, value) -> sketch.add(HyperLogLog.mix(value)),
+        HyperLogLog::merge))
+        .estimate();
   }
 
   @Override
   public LongStream asLongStream() {
-    return new ParallelLongStreamSupport(this.delegate.asLongStream(), this.workerPool);
+    return derived(new ParallelLongStreamSupport(this.delegate.asLongStream(), this.workerPool, this.sized));
   }
 
   @Override
   public DoubleStream asDoubleStream() {
-    return new ParallelDoubleStreamSupport(this.delegate.asDoubleStream(), this.workerPool);
+    return derived(new ParallelDoubleStreamSupport(this.delegate.asDoubleStream(), this.workerPool, this.sized));
   }
 
   @Override
   public Stream<Integer> boxed() {
-    return new ParallelStreamSupport<>(this.delegate.boxed(), this.workerPool);
+    return derived(new ParallelStreamSupport<>(this.delegate.boxed(), this.workerPool, this.sized));
   }
 
   @Override
@@ -457,4 +700,55 @@ public class ParallelIntStreamSupport extends AbstractParallelStreamSupport<Inte
   public java.util.Spliterator.OfInt spliterator() {
     return this.delegate.spliterator();
   }
+
+  private Stream<int[]> windows(int size, int step, boolean partialWindows) {
+    WindowSpliterator.checkWindow(size, step);
+
+    boolean parallel = isParallel();
+    Spliterator.OfInt source = this.delegate.spliterator();
+    Supplier<Spliterator<int[]>> supplier = () -> new WindowSpliterator.OfInt(source, size, step, partialWindows);
+    Stream<int[]> stream = StreamSupport.stream(supplier, WindowSpliterator.characteristics(source), parallel)
+        .onClose(this.delegate::close);
+
+    return new ParallelStreamSupport<>(stream, this.workerPool);
+  }
+
+  /**
+   * Writes the elements of a SIZED pipeline directly into a presized array. Other pipelines are evaluated by the
+   * underlying stream. Must be called within the worker pool.
+   */
+  private int[] presizedToArray() {
+    Spliterator.OfInt spliterator = this.delegate.spliterator();
+    long size = spliterator.getExactSizeIfKnown();
+    if (size < 0 || !spliterator.hasCharacteristics(Spliterator.SUBSIZED)) {
+      return intStream(spliterator, true).toArray();
+    }
+
+    int[] array = new int[checkArraySize(size)];
+    new SizedToArrayTask.OfInt(spliterator, array, leafTargetSize(size)).invoke();
+    return array;
+  }
+
+  private int[] scanToArray(int identity, IntBinaryOperator op) {
+    // Executed by the terminal operation of the scanned stream, which is monitored instead
+    return invoke(() -> {
+      boolean parallel = isParallel();
+      int[] array = parallel ? presizedToArray() : this.delegate.toArray();
+      PrefixScan.scan(array, identity, op, parallel ? leafTargetSize(array.length) : array.length);
+      return array;
+    });
+  }
+
+  private BoundedHeap.OfInt boundedHeap(int k, boolean greatest) {
+    BoundedHeap.checkK(k);
+
+    return execute(greatest ? "topK" : "bottomK", () -> this.delegate
+        .collect(() -> new BoundedHeap.OfInt(k, greatest), BoundedHeap.OfInt::add, BoundedHeap.OfInt::addAll));
+  }
+
+  @Override
+  IntStream traced(TracingSpliterator.LeafListener listener, int splitFactor) {
+    Spliterator.OfInt spliterator = new TracingSpliterator.OfInt(this.delegate.spliterator(), listener, splitFactor);
+    return StreamSupport.intStream(spliterator, isParallel()).onClose(this.delegate::close);
+  }
 }
@@ -24,8 +24,11 @@ package com.github.ferstl.streams;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Spliterator;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinTask;
 import java.util.function.BiConsumer;
@@ -34,6 +37,7 @@ import java.util.function.BinaryOperator;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.IntFunction;
+import java.util.function.LongBinaryOperator;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.function.ToDoubleFunction;
@@ -107,6 +111,17 @@ public class ParallelStreamSupport<T> extends AbstractParallelStreamSupport<T, S
     super(delegate, workerPool);
   }
 
+  /**
+   * Constructor for internal use within this package only.
+   *
+   * @param delegate Stream to delegate each operation.
+   * @param workerPool Worker pool for executing terminal operations in parallel. Must not be {@code null}.
+   * @param sized {@code true} if the stream has a source with a known size.
+   */
+  ParallelStreamSupport(Stream<T> delegate, ForkJoinPool workerPool, boolean sized) {
+    super(delegate, workerPool, sized);
+  }
+
   /**
    * Creates a <strong>parallel</strong> stream from the given Collection. This operation is similar to
    * {@link Collection#parallelStream()} with the difference that a parallel
@@ -122,7 +137,7 @@ public class ParallelStreamSupport<T> extends AbstractParallelStreamSupport<T, S
   public static <T> Stream<T> parallelStream(Collection<T> collection, ForkJoinPool workerPool) {
     requireNonNull(collection, "Collection must not be null");
 
-    return new ParallelStreamSupport<>(collection.parallelStream(), workerPool);
+    return new ParallelStreamSupport<>(collection.parallelStream(), workerPool, true);
   }
 
   /**
@@ -140,7 +155,7 @@ public class ParallelStreamSupport<T> extends AbstractParallelStreamSupport<T, S
   public static <T> Stream<T> parallelStream(T[] array, ForkJoinPool workerPool) {
     requireNonNull(array, "Array must not be null");
 
-    return new ParallelStreamSupport<>(stream(array).parallel(), workerPool);
+    return new ParallelStreamSupport<>(stream(array).parallel(), workerPool, true);
   }
 
   /**
@@ -158,7 +173,7 @@ public class ParallelStreamSupport<T> extends AbstractParallelStreamSupport<T, S
   public static <T> Stream<T> parallelStream(Spliterator<T> spliterator, ForkJoinPool workerPool) {
     requireNonNull(spliterator, "Spliterator must not be null");
 
-    return new ParallelStreamSupport<>(stream(spliterator, true), workerPool);
+    return new ParallelStreamSupport<>(stream(spliterator, true), workerPool, spliterator.hasCharacteristics(Spliterator.SIZED));
   }
 
   /**
@@ -179,7 +194,7 @@ public class ParallelStreamSupport<T> extends AbstractParallelStreamSupport<T, S
   public static <T> Stream<T> parallelStream(Supplier<? extends Spliterator<T>> supplier, int characteristics, ForkJoinPool workerPool) {
     requireNonNull(supplier, "Supplier must not be null");
 
-    return new ParallelStreamSupport<>(stream(supplier, characteristics, true), workerPool);
+    return new ParallelStreamSupport<>(stream(supplier, characteristics, true), workerPool, (characteristics & Spliterator.SIZED) != 0);
   }
 
   /**
@@ -197,7 +212,7 @@ public class ParallelStreamSupport<T> extends AbstractParallelStreamSupport<T, S
   public static <T> Stream<T> parallelStream(Builder<T> builder, ForkJoinPool workerPool) {
     requireNonNull(builder, "Builder must not be null");
 
-    return new ParallelStreamSupport<>(builder.build().parallel(), workerPool);
+    return new ParallelStreamSupport<>(builder.build().parallel(), workerPool, true);
   }
 
   /**
@@ -260,184 +275,657 @@ public class ParallelStreamSupport<T> extends AbstractParallelStreamSupport<T, S
     return new ParallelStreamSupport<>(Stream.concat(a, b).parallel(), workerPool);
   }
 
+  /**
+   * Creates a lazily zipped <strong>parallel</strong> stream whose elements are the results of applying the given
+   * function to the elements of both streams at the same position. The resulting stream is as long as the shorter one
+   * of both streams. In case both streams have a source with a known size, such as a list, an array or a range, they
+   * are split at identical positions so that a parallel
+   * <a href="https://docs.oracle.com/javase/8/docs/api/java/util/stream/package-summary.html#StreamOps">terminal
+   * operation</a> processes them in the given {@link ForkJoinPool} without buffering. Otherwise the streams are read in
+   * sequential batches. The resulting stream is ordered if both streams are ordered.
+   *
+   * @param <A> The type of elements in the first stream.
+   * @param <B> The type of elements in the second stream.
+   * @param <R> The type of elements in the resulting stream.
+   * @param a The first stream. Must not be {@code null}.
+   * @param b The second stream. Must not be {@code null}.
+   * @param zipper Function combining the elements of both streams. Must not be {@code null}.
+   * @param workerPool Thread pool for parallel execution of a terminal operation. Must not be {@code null}.
+   * @return A parallel stream that executes a terminal operation in the given {@link ForkJoinPool}.
+   */
+  @SuppressWarnings("unchecked")
+  public static <A, B, R> Stream<R> zip(Stream<? extends A> a, Stream<? extends B> b,
+      BiFunction<? super A, ? super B, ? extends R> zipper, ForkJoinPool workerPool) {
+    requireNonNull(a, "Stream a must not be null");
+    requireNonNull(b, "Stream b must not be null");
+    requireNonNull(zipper, "Zipper must not be null");
+
+    Spliterator<R> spliterator =
+        new ZipSpliterator.OfRef<>((Spliterator<A>) a.spliterator(), (Spliterator<B>) b.spliterator(), zipper);
+    Stream<R> zipped = stream(spliterator, true).onClose(a::close).onClose(b::close);
+    return new ParallelStreamSupport<>(zipped, workerPool, spliterator.hasCharacteristics(Spliterator.SIZED));
+  }
+
   @Override
   public Stream<T> filter(Predicate<? super T> predicate) {
-    this.delegate = this.delegate.filter(predicate);
+    this.delegate = this.delegate.filter(this.profiler.predicate("filter", predicate));
+    this.sized = false;
     return this;
   }
 
   @Override
   public <R> Stream<R> map(Function<? super T, ? extends R> mapper) {
-    return new ParallelStreamSupport<>(this.delegate.map(mapper), this.workerPool);
+    Stream<R> stream = this.delegate.map(this.profiler.function("map", mapper));
+    return derived(new ParallelStreamSupport<>(stream, this.workerPool, this.sized));
   }
 
   @Override
   public IntStream mapToInt(ToIntFunction<? super T> mapper) {
-    return new ParallelIntStreamSupport(this.delegate.mapToInt(mapper), this.workerPool);
+    IntStream stream = this.delegate.mapToInt(this.profiler.toIntFunction("mapToInt", mapper));
+    return derived(new ParallelIntStreamSupport(stream, this.workerPool, this.sized));
   }
 
   @Override
   public LongStream mapToLong(ToLongFunction<? super T> mapper) {
-    return new ParallelLongStreamSupport(this.delegate.mapToLong(mapper), this.workerPool);
+    LongStream stream = this.delegate.mapToLong(this.profiler.toLongFunction("mapToLong", mapper));
+    return derived(new ParallelLongStreamSupport(stream, this.workerPool, this.sized));
   }
 
   @Override
   public DoubleStream mapToDouble(ToDoubleFunction<? super T> mapper) {
-    return new ParallelDoubleStreamSupport(this.delegate.mapToDouble(mapper), this.workerPool);
+    DoubleStream stream = this.delegate.mapToDouble(this.profiler.toDoubleFunction("mapToDouble", mapper));
+    return derived(new ParallelDoubleStreamSupport(stream, this.workerPool, this.sized));
   }
 
   @Override
   public <R> Stream<R> flatMap(Function<? super T, ? extends Stream<? extends R>> mapper) {
-    return new ParallelStreamSupport<>(this.delegate.flatMap(mapper), this.workerPool);
+    Stream<R> stream = this.delegate.flatMap(this.profiler.flatMapFunction("flatMap", mapper));
+    return derived(new ParallelStreamSupport<>(stream, this.workerPool));
   }
 
   @Override
   public IntStream flatMapToInt(Function<? super T, ? extends IntStream> mapper) {
-    return new ParallelIntStreamSupport(this.delegate.flatMapToInt(mapper), this.workerPool);
+    IntStream stream = this.delegate.flatMapToInt(this.profiler.flatMapToIntFunction("flatMapToInt", mapper));
+    return derived(new ParallelIntStreamSupport(stream, this.workerPool));
   }
 
   @Override
   public LongStream flatMapToLong(Function<? super T, ? extends LongStream> mapper) {
-    return new ParallelLongStreamSupport(this.delegate.flatMapToLong(mapper), this.workerPool);
+    LongStream stream = this.delegate.flatMapToLong(this.profiler.flatMapToLongFunction("flatMapToLong", mapper));
+    return derived(new ParallelLongStreamSupport(stream, this.workerPool));
   }
 
   @Override
   public DoubleStream flatMapToDouble(Function<? super T, ? extends DoubleStream> mapper) {
-    return new ParallelDoubleStreamSupport(this.delegate.flatMapToDouble(mapper), this.workerPool);
+    DoubleStream stream = this.delegate.flatMapToDouble(this.profiler.flatMapToDoubleFunction("flatMapToDouble", mapper));
+    return derived(new ParallelDoubleStreamSupport(stream, this.workerPool));
   }
 
   @Override
   public Stream<T> distinct() {
     this.delegate = this.delegate.distinct();
+    this.sized = false;
     return this;
   }
 
   @Override
   public Stream<T> sorted() {
     this.delegate = this.delegate.sorted();
+    this.sized = false;
     return this;
   }
 
   @Override
   public Stream<T> sorted(Comparator<? super T> comparator) {
     this.delegate = this.delegate.sorted(comparator);
+    this.sized = false;
     return this;
   }
 
   @Override
   public Stream<T> peek(Consumer<? super T> action) {
-    this.delegate = this.delegate.peek(action);
+    this.delegate = this.delegate.peek(this.profiler.consumer("peek", action));
     return this;
   }
 
   @Override
   public Stream<T> limit(long maxSize) {
     this.delegate = this.delegate.limit(maxSize);
+    this.sized = false;
     return this;
   }
 
   @Override
   public Stream<T> skip(long n) {
     this.delegate = this.delegate.skip(n);
+    this.sized = false;
     return this;
   }
 
   @Override
   public Stream<T> takeWhile(Predicate<? super T> predicate) {
-    this.delegate = this.delegate.takeWhile(predicate);
+    this.delegate = this.delegate.takeWhile(this.profiler.predicate("takeWhile", predicate));
+    this.sized = false;
     return this;
   }
 
   @Override
   public Stream<T> dropWhile(Predicate<? super T> predicate) {
-    this.delegate = this.delegate.dropWhile(predicate);
+    this.delegate = this.delegate.dropWhile(this.profiler.predicate("dropWhile", predicate));
+    this.sized = false;
     return this;
   }
 
+  /**
+   * Returns a stream consisting of the results of applying the given combiner to each pair of elements of this stream
+   * and the other stream that have equal keys (inner join). Elements of this stream without a matching element in the
+   * other stream are dropped.
+   * <p>
+   * This is a hash join. The other stream is the build side and should be the smaller one. It is consumed when the
+   * terminal operation of the returned stream starts: In case this stream is parallel, the hash table is built in
+   * parallel within the worker pool of this stream. The elements of the other stream are distributed into partitions
+   * by their key and the hash table of each partition is built by a separate task, so no locking is involved. This
+   * stream is the probe side and is evaluated lazily, like any other intermediate operation.
+   * </p>
+   * <p>
+   * Elements with a {@code null} key never match. The order of the matches for an element of this stream is
+   * unspecified.
+   * </p>
+   *
+   * @param other Stream to join with (build side). Must not be {@code null}.
+   * @param keyFunction Function returning the key of an element of this stream. Must not be {@code null}.
+   * @param otherKeyFunction Function returning the key of an element of the other stream. Must not be {@code null}.
+   * @param combiner Function combining two matching elements. Must not be {@code null}.
+   * @param <U> The type of the elements of the other stream.
+   * @param <K> The type of the keys.
+   * @param <R> The type of the resulting stream elements.
+   * @return A stream of the combined matching elements.
+   * @see #leftJoin(Stream, Function, Function, BiFunction)
+   */
+  public <U, K, R> Stream<R> join(Stream<U> other, Function<? super T, ? extends K> keyFunction,
+      Function<? super U, ? extends K> otherKeyFunction, BiFunction<? super T, ? super U, ? extends R> combiner) {
+    return hashJoin(other, keyFunction, otherKeyFunction, combiner, false);
+  }
+
+  /**
+   * Returns a stream consisting of the results of applying the given combiner to each pair of elements of this stream
+   * and the other stream that have equal keys (left outer join). Elements of this stream without a matching element in
+   * the other stream are combined with {@code null}. Apart from that, this method works like
+   * {@link #join(Stream, Function, Function, BiFunction)}.
+   *
+   * @param other Stream to join with (build side). Must not be {@code null}.
+   * @param keyFunction Function returning the key of an element of this stream. Must not be {@code null}.
+   * @param otherKeyFunction Function returning the key of an element of the other stream. Must not be {@code null}.
+   * @param combiner Function combining two matching elements. The second argument is {@code null} for elements without
+   * a match. Must not be {@code null}.
+   * @param <U> The type of the elements of the other stream.
+   * @param <K> The type of the keys.
+   * @param <R> The type of the resulting stream elements.
+   * @return A stream of the combined elements.
+   * @see #join(Stream, Function, Function, BiFunction)
+   */
+  public <U, K, R> Stream<R> leftJoin(Stream<U> other, Function<? super T, ? extends K> keyFunction,
+      Function<? super U, ? extends K> otherKeyFunction, BiFunction<? super T, ? super U, ? extends R> combiner) {
+    return hashJoin(other, keyFunction, otherKeyFunction, combiner, true);
+  }
+
+  /**
+   * Returns a stream consisting of the results of applying the given combiner to each pair of elements of this stream
+   * and the other stream that have equal {@code long} keys (inner join). Both streams have to be sorted by their keys
+   * in ascending order, e.g. time series keyed by timestamps. Unlike {@link #join(Stream, Function, Function, BiFunction)},
+   * this join does not build a hash table.
+   * <p>
+   * Both streams are evaluated when the terminal operation of the returned stream is executed. In case this stream is
+   * parallel, both streams are collected into arrays in parallel and the arrays are divided into partitions by
+   * key-range splitters, which are sampled from this stream and located in the other stream via binary search. The
+   * partitions are then merged independently as tasks of the worker pool. The result is ordered by key and, within
+   * equal keys, by the encounter order of this stream and then of the other stream.
+   * </p>
+   *
+   * @param other Stream to join with, sorted by key. Must not be {@code null}.
+   * @param keyFunction Function returning the key of an element of this stream. Must not be {@code null}.
+   * @param otherKeyFunction Function returning the key of an element of the other stream. Must not be {@code null}.
+   * @param combiner Function combining two matching elements. Must not be {@code null}.
+   * @param <U> The type of the elements of the other stream.
+   * @param <R> The type of the resulting stream elements.
+   * @return A stream of the combined matching elements, which executes a terminal operation in the worker pool of this
+   * stream. The terminal operation throws an {@link IllegalArgumentException} in case one of the streams is not sorted
+   * by key.
+   * @see #leftMergeJoin(Stream, ToLongFunction, ToLongFunction, BiFunction)
+   */
+  public <U, R> Stream<R> mergeJoin(Stream<U> other, ToLongFunction<? super T> keyFunction,
+      ToLongFunction<? super U> otherKeyFunction, BiFunction<? super T, ? super U, ? extends R> combiner) {
+    return sortMergeJoin(other, keyFunction, otherKeyFunction, combiner, false);
+  }
+
+  /**
+   * Returns a stream consisting of the results of applying the given combiner to each pair of elements of this stream
+   * and the other stream that have equal {@code long} keys (left outer join). Elements of this stream without a
+   * matching element in the other stream are combined with {@code null}. Apart from that, this method works like
+   * {@link #mergeJoin(Stream, ToLongFunction, ToLongFunction, BiFunction)}.
+   *
+   * @param other Stream to join with, sorted by key. Must not be {@code null}.
+   * @param keyFunction Function returning the key of an element of this stream. Must not be {@code null}.
+   * @param otherKeyFunction Function returning the key of an element of the other stream. Must not be {@code null}.
+   * @param combiner Function combining two matching elements. The second argument is {@code null} for elements without
+   * a match. Must not be {@code null}.
+   * @param <U> The type of the elements of the other stream.
+   * @param <R> The type of the resulting stream elements.
+   * @return A stream of the combined elements, which executes a terminal operation in the worker pool of this stream.
+   * @see #mergeJoin(Stream, ToLongFunction, ToLongFunction, BiFunction)
+   */
+  public <U, R> Stream<R> leftMergeJoin(Stream<U> other, ToLongFunction<? super T> keyFunction,
+      ToLongFunction<? super U> otherKeyFunction, BiFunction<? super T, ? super U, ? extends R> combiner) {
+    return sortMergeJoin(other, keyFunction, otherKeyFunction, combiner, true);
+  }
+
+  /**
+   * Returns a stream consisting of the chunks of {@code size} consecutive elements of this stream. The last chunk
+   * contains the remaining elements and may be smaller.
+   * <p>
+   * In case this stream has a source with a known size and supports exact splitting, e.g. a list, an array or a range,
+   * the chunks are split at chunk-aligned boundaries. So the chunks are built in parallel without collecting the
+   * elements into a global buffer first. Other sources are chunked sequentially in batches, which are then processed
+   * in parallel. This stream is evaluated when the terminal operation of the returned stream is executed.
+   * </p>
+   *
+   * @param size Number of elements per chunk. Must be positive.
+   * @return A stream of fixed-size lists, which executes a terminal operation in the worker pool of this stream.
+   * @see #windowed(int, int)
+   */
+  public Stream<List<T>> chunked(int size) {
+    return windows(size, size, true);
+  }
+
+  /**
+   * Returns a stream consisting of windows of {@code size} consecutive elements of this stream, where the window
+   * {@code w} starts at the element with index {@code w * step}. The windows overlap if {@code step < size} and
+   * elements are skipped if {@code step > size}. Only complete windows are returned, so a stream with less than
+   * {@code size} elements results in an empty stream. Apart from that, this method works like {@link #chunked(int)}.
+   *
+   * @param size Number of elements per window. Must be positive.
+   * @param step Distance between the first elements of two consecutive windows. Must be positive.
+   * @return A stream of fixed-size lists, which executes a terminal operation in the worker pool of this stream.
+   * @see #chunked(int)
+   */
+  public Stream<List<T>> windowed(int size, int step) {
+    return windows(size, step, false);
+  }
+
+  /**
+   * Returns a stream consisting of the results of applying the given asynchronous function to the elements of this
+   * stream. Instead of waiting for each result before the next element is mapped, every leaf task of a terminal
+   * operation keeps up to {@code maxInFlight} results outstanding. So the latency of asynchronous calls, e.g. of a
+   * non-blocking I/O client, overlaps instead of being serialized. While a leaf task waits for a result, the worker pool
+   * may compensate with a spare thread (see {@link ForkJoinPool#managedBlock(ForkJoinPool.ManagedBlocker)}).
+   * <p>
+   * The results of an ordered stream are returned in encounter order. Call {@link #unordered()} before this method
+   * to receive the results in their order of completion instead. A failed result terminates the terminal operation with
+   * a {@link java.util.concurrent.CompletionException CompletionException}. Results that are still outstanding when the
+   * terminal operation completes, e.g. because of a short-circuiting operation, are not cancelled. This stream is
+   * evaluated when the terminal operation of the returned stream is executed. Like {@link #map(Function)}, the returned
+   * stream keeps the known size of this stream, so {@code count()} may be answered without calling the mapper.
+   * </p>
+   *
+   * @param mapper Function returning the {@link CompletionStage} for an element. Must not be {@code null}.
+   * @param maxInFlight Maximum number of outstanding results per leaf task. Must be positive.
+   * @param <R> The element type of the new stream.
+   * @return A stream of the mapped elements, which executes a terminal operation in the worker pool of this stream.
+   */
+  public <R> Stream<R> mapAsync(Function<? super T, ? extends CompletionStage<? extends R>> mapper, int maxInFlight) {
+    requireNonNull(mapper, "Mapper must not be null");
+    AsyncMapSpliterator.checkMaxInFlight(maxInFlight);
+
+    boolean parallel = isParallel();
+    Spliterator<T> source = this.delegate.spliterator();
+    Supplier<Spliterator<R>> supplier = () -> new AsyncMapSpliterator<>(source, mapper, maxInFlight);
+    Stream<R> stream = stream(supplier, AsyncMapSpliterator.characteristics(source), parallel).onClose(this.delegate::close);
+
+    // Each element is mapped to exactly one result, so the size of this stream is preserved
+    return new ParallelStreamSupport<>(stream, this.workerPool, this.sized);
+  }
+
   // Terminal operations
 
   @Override
   public void forEach(Consumer<? super T> action) {
-    execute(() -> this.delegate.forEach(action));
+    execute("forEach", () -> this.delegate.forEach(action));
   }
 
   @Override
   public void forEachOrdered(Consumer<? super T> action) {
-    execute(() -> this.delegate.forEachOrdered(action));
+    execute("forEachOrdered", () -> this.delegate.forEachOrdered(action));
+  }
+
+  /**
+   * Performs an action for each element of this stream in encounter order, like {@link #forEachOrdered(Consumer)}.
+   * The difference is that the elements are computed in parallel by the worker pool while the calling worker applies
+   * the action to the computed elements in encounter order. Computed elements waiting for their turn are kept in a
+   * reorder buffer of about {@code maxBuffered} elements, so ordered output can be written, e.g. to a file, at nearly
+   * parallel throughput with capped memory. Since the buffer is based on the estimated size of the split parts of this
+   * stream, operations like {@link #flatMap(Function)} may exceed the limit.
+   *
+   * @param action Action to perform on the elements. Must not be {@code null}.
+   * @param maxBuffered Maximum number of computed elements waiting to be processed. Must be positive.
+   * @see #forEachOrdered(Consumer)
+   */
+  public void forEachOrderedBuffered(Consumer<? super T> action, int maxBuffered) {
+    requireNonNull(action, "Action must not be null");
+    BufferedOrderedForEach.checkMaxBuffered(maxBuffered);
+
+    execute("forEachOrderedBuffered", () -> {
+      if (isParallel()) {
+        int parallelism = this.workerPool.getParallelism();
+        BufferedOrderedForEach.forEachOrdered(this.delegate.spliterator(), action, parallelism, maxBuffered);
+      } else {
+        this.delegate.forEachOrdered(action);
+      }
+    });
   }
 
   @Override
   public Object[] toArray() {
-    return execute(() -> this.delegate.toArray());
+    return execute("toArray", () -> isParallel() ? presizedToArray(Object[]::new) : this.delegate.toArray());
   }
 
   @Override
   public <A> A[] toArray(IntFunction<A[]> generator) {
-    return execute(() -> this.delegate.toArray(generator));
+    return execute("toArray", () -> isParallel() ? presizedToArray(generator) : this.delegate.toArray(generator));
   }
 
   @Override
   public T reduce(T identity, BinaryOperator<T> accumulator) {
-    return execute(() -> this.delegate.reduce(identity, accumulator));
+    return execute("reduce", () -> this.delegate.reduce(identity, accumulator));
   }
 
   @Override
   public Optional<T> reduce(BinaryOperator<T> accumulator) {
-    return execute(() -> this.delegate.reduce(accumulator));
+    return execute("reduce", () -> this.delegate.reduce(accumulator));
   }
 
   @Override
   public <U> U reduce(U identity, BiFunction<U, ? super T, U> accumulator, BinaryOperator<U> combiner) {
-    return execute(() -> this.delegate.reduce(identity, accumulator, combiner));
+    return execute("reduce", () -> this.delegate.reduce(identity, accumulator, combiner));
   }
 
   @Override
   public <R> R collect(Supplier<R> supplier, BiConsumer<R, ? super T> accumulator, BiConsumer<R, R> combiner) {
-    return execute(() -> this.delegate.collect(supplier, accumulator, combiner));
+    return execute("collect", () -> this.delegate.collect(supplier, accumulator, combiner));
   }
 
   @Override
   public <R, A> R collect(Collector<? super T, A, R> collector) {
-    return execute(() -> this.delegate.collect(collector));
+    return execute("collect", () -> this.delegate.collect(collector));
   }
 
   @Override
   public Optional<T> min(Comparator<? super T> comparator) {
-    return execute(() -> this.delegate.min(comparator));
+    return execute("min", () -> this.delegate.min(comparator));
   }
 
   @Override
   public Optional<T> max(Comparator<? super T> comparator) {
-    return execute(() -> this.delegate.max(comparator));
+    return execute("max", () -> this.delegate.max(comparator));
   }
 
   @Override
   public long count() {
-    return execute(() -> this.delegate.count());
+    // A monitored count is executed as terminal operation, so it is reported like any other operation
+    if (this.sized && !isMonitored()) {
+      // Answer directly from the source without submitting a task to the worker pool
+      Spliterator<T> spliterator = this.delegate.spliterator();
+      long size = spliterator.getExactSizeIfKnown();
+      if (size >= 0) {
+        return size;
+      }
+
+      // Continue with a stream of the spliterator, which a monitored terminal operation can trace again
+      Stream<T> consumed = this.delegate;
+      this.delegate = stream(spliterator, isParallel()).onClose(consumed::close);
+    }
+
+    return execute("count", () -> this.delegate.count());
   }
 
   @Override
   public boolean anyMatch(Predicate<? super T> predicate) {
-    return execute(() -> this.delegate.anyMatch(predicate));
+    return execute("anyMatch", () -> this.delegate.anyMatch(predicate));
   }
 
   @Override
   public boolean allMatch(Predicate<? super T> predicate) {
-    return execute(() -> this.delegate.allMatch(predicate));
+    return execute("allMatch", () -> this.delegate.allMatch(predicate));
   }
 
   @Override
   public boolean noneMatch(Predicate<? super T> predicate) {
-    return execute(() -> this.delegate.noneMatch(predicate));
+    return execute("noneMatch", () -> this.delegate.noneMatch(predicate));
   }
 
   @Override
   public Optional<T> findFirst() {
-    return execute(() -> this.delegate.findFirst());
+    return execute("findFirst", () -> this.delegate.findFirst());
   }
 
   @Override
   public Optional<T> findAny() {
-    return execute(() -> this.delegate.findAny());
+    return execute("findAny", () -> this.delegate.findAny());
+  }
+
+  /**
+   * Returns the {@code k} greatest elements of this stream according to the given comparator, the greatest element
+   * first. The result is the same as of {@code sorted(comparator.reversed()).limit(k).collect(toList())} but the
+   * elements are not sorted. Instead, each leaf of the parallel computation retains its {@code k} greatest elements in a
+   * bounded heap and the heaps are merged when the leaf results are combined. So the operation takes
+   * {@code O(n log k)} time and requires memory for {@code k} elements per leaf.
+   * <p>
+   * This is a terminal operation. In case several elements compare equal, it is unspecified which of them are
+   * retained.
+   * </p>
+   *
+   * @param k Number of elements to return. Must not be negative.
+   * @param comparator Comparator to compare the elements of this stream. Must not be {@code null}.
+   * @return A list of at most {@code k} elements, the greatest element first.
+   */
+  public List<T> topK(int k, Comparator<? super T> comparator) {
+    BoundedHeap.checkK(k);
+    requireNonNull(comparator, "Comparator must not be null");
+
+    return execute("topK", () -> this.delegate
+        .collect(() -> new BoundedHeap.OfRef<T>(k, comparator), BoundedHeap.OfRef::add, BoundedHeap.OfRef::addAll)
+        .toSortedList());
+  }
+
+  /**
+   * Estimates the number of distinct elements of this stream based on their {@link Object#hashCode() hash codes}. This
+   * is the same as calling {@link #approximateDistinctCount(ToLongFunction, int)} with a hash function returning the
+   * element's hash code. Since hash codes are only 32 bits wide, prefer a 64 bit hash function for cardinalities in the
+   * range of several hundred million and more.
+   * <p>
+   * This is a terminal operation.
+   * </p>
+   *
+   * @param precision Precision of the estimate within {@code [4, 18]}.
+   * @return The estimated number of distinct elements.
+   * @see #approximateDistinctCount(ToLongFunction, int)
+   */
+  public long approximateDistinctCount(int precision) {
+    return approximateDistinctCount(Objects::hashCode, precision);
+  }
+
+  /**
+   * Estimates the number of distinct elements of this stream. In contrast to {@code distinct().count()}, the elements
+   * are not collected in a set. Instead, each leaf of the parallel computation builds a HyperLogLog sketch of
+   * {@code 2^precision} one-byte registers from the hashes of its elements and the sketches are merged when the leaf
+   * results are combined. The standard error of the estimate is about {@code 1.04 / sqrt(2^precision)}, e.g. 0.8% for a
+   * precision of {@code 14}. The hash function should distinguish the elements the same way {@code equals()} does.
+   * The returned hashes are additionally mixed, so they do not need to be well distributed.
+   * <p>
+   * This is a terminal operation.
+   * </p>
+   *
+   * @param hashFunction Function returning a 64 bit hash of an element. Must not be {@code null}.
+   * @param precision Precision of the estimate within {@code [4, 18]}.
+   * @return The estimated number of distinct elements.
+   */
+  public long approximateDistinctCount(ToLongFunction<? super T> hashFunction, int precision) {
+    requireNonNull(hashFunction, "Hash function must not be null");
+    HyperLogLog.checkPrecision(precision);
+
+    return execute("approximateDistinctCount", () -> this.delegate.collect(
+        () -> new HyperLogLog(precision),
+        (sketch, element) -> sketch.add(HyperLogLog.mix(hashFunction.applyAsLong(element))),
+        HyperLogLog::merge))
+        .estimate();
+  }
+
+  /**
+   * Groups the elements of this stream by an {@code int} key and reduces the {@code long} values of each group with the
+   * given operator. The result is the same as of
+   * {@code collect(groupingBy(keyFunction, reducing(valueFunction, op)))} but neither the keys nor the values are boxed.
+   * Each leaf of the parallel computation aggregates into its own {@link IntLongMap} and the maps are merged when the
+   * leaf results are combined.
+   * <p>
+   * This is a terminal operation. The operator has to be associative. The first value of each key is taken as is, so
+   * the operator does not need an identity value.
+   * </p>
+   *
+   * @param keyFunction Function returning the key of an element. Must not be {@code null}.
+   * @param valueFunction Function returning the value of an element. Must not be {@code null}.
+   * @param op Operator to combine two values of the same key, e.g. {@code Long::sum}. Must not be {@code null}.
+   * @return A map containing the aggregated value of each key.
+   */
+  public IntLongMap aggregateByIntKey(ToIntFunction<? super T> keyFunction, ToLongFunction<? super T> valueFunction, LongBinaryOperator op) {
+    requireNonNull(keyFunction, "Key function must not be null");
+    requireNonNull(valueFunction, "Value function must not be null");
+    requireNonNull(op, "Operator must not be null");
+
+    return execute("aggregateByIntKey", () -> this.delegate.collect(
+        IntLongMap::new,
+        (map, element) -> map.accumulate(keyFunction.applyAsInt(element), valueFunction.applyAsLong(element), op),
+        (left, right) -> left.merge(right, op)));
+  }
+
+  /**
+   * Groups the elements of this stream by a {@code long} key and reduces the {@code long} values of each group with
+   * the given operator. This is the same as {@link #aggregateByIntKey(ToIntFunction, ToLongFunction, LongBinaryOperator)}
+   * for keys that do not fit into an {@code int}, e.g. IDs or timestamps. Each leaf of the parallel computation
+   * aggregates into its own {@link LongLongMap} and the maps are merged when the leaf results are combined.
+   * <p>
+   * This is a terminal operation. The operator has to be associative. The first value of each key is taken as is, so
+   * the operator does not need an identity value.
+   * </p>
+   *
+   * @param keyFunction Function returning the key of an element. Must not be {@code null}.
+   * @param valueFunction Function returning the value of an element. Must not be {@code null}.
+   * @param op Operator to combine two values of the same key, e.g. {@code Long::sum}. Must not be {@code null}.
+   * @return A map containing the aggregated value of each key.
+   */
+  public LongLongMap aggregateByLongKey(ToLongFunction<? super T> keyFunction, ToLongFunction<? super T> valueFunction, LongBinaryOperator op) {
+    requireNonNull(keyFunction, "Key function must not be null");
+    requireNonNull(valueFunction, "Value function must not be null");
+    requireNonNull(op, "Operator must not be null");
+
+    return execute("aggregateByLongKey", () -> this.delegate.collect(
+        LongLongMap::new,
+        (map, element) -> map.accumulate(keyFunction.applyAsLong(element), valueFunction.applyAsLong(element), op),
+        (left, right) -> left.merge(right, op)));
+  }
+
+  private <U, K, R> Stream<R> hashJoin(Stream<U> other, Function<? super T, ? extends K> keyFunction,
+      Function<? super U, ? extends K> otherKeyFunction, BiFunction<? super T, ? super U, ? extends R> combiner, boolean leftJoin) {
+    requireNonNull(other, "Other stream must not be null");
+    requireNonNull(keyFunction, "Key function must not be null");
+    requireNonNull(otherKeyFunction, "Other key function must not be null");
+    requireNonNull(combiner, "Combiner must not be null");
+
+    boolean parallel = isParallel();
+    int partitionCount = parallel ? HashJoinTable.partitionCount(this.workerPool.getParallelism()) : 1;
+    Spliterator<T> source = this.delegate.spliterator();
+    // Executed by the terminal operation of the joined stream, which is monitored instead
+    Supplier<Spliterator<R>> supplier = () -> {
+      HashJoinTable<K, U> table = invoke(() -> HashJoinTable.build(parallel ? other.parallel() : other.sequential(), otherKeyFunction, partitionCount));
+
+      return stream(source, parallel).<R>flatMap(element -> {
+        List<U> matches = table.get(keyFunction.apply(element));
+        if (matches.isEmpty()) {
+          return leftJoin ? Stream.of(combiner.apply(element, null)) : Stream.empty();
+        }
+
+        return matches.stream().map(match -> combiner.apply(element, match));
+      }).spliterator();
+    };
+    // flatMap() keeps only the encounter order of the source
+    int characteristics = source.characteristics() & Spliterator.ORDERED;
+    Stream<R> joined = stream(supplier, characteristics, parallel).onClose(this.delegate::close).onClose(other::close);
+
+    return new ParallelStreamSupport<>(joined, this.workerPool);
+  }
+
+  private <U, R> Stream<R> sortMergeJoin(Stream<U> other, ToLongFunction<? super T> keyFunction,
+      ToLongFunction<? super U> otherKeyFunction, BiFunction<? super T, ? super U, ? extends R> combiner, boolean leftJoin) {
+    requireNonNull(other, "Other stream must not be null");
+    requireNonNull(keyFunction, "Key function must not be null");
+    requireNonNull(otherKeyFunction, "Other key function must not be null");
+    requireNonNull(combiner, "Combiner must not be null");
+
+    boolean parallel = isParallel();
+    // Executed by the terminal operation of the joined stream, which is monitored instead
+    Supplier<Spliterator<R>> supplier = () -> Arrays.spliterator(ParallelStreamSupport.<R>castArray(invoke(() -> {
+      T[] left = castArray(parallel ? presizedToArray(Object[]::new) : this.delegate.toArray());
+      U[] right = castArray((parallel ? other.parallel() : other.sequential()).toArray());
+      long[] leftKeys = SortMergeJoin.sortedKeys(left, keyFunction, parallel);
+      long[] rightKeys = SortMergeJoin.sortedKeys(right, otherKeyFunction, parallel);
+      int partitionCount = parallel ? this.workerPool.getParallelism() << 2 : 1;
+
+      return SortMergeJoin.join(left, leftKeys, right, rightKeys, combiner, leftJoin, partitionCount, parallel);
+    })));
+    int characteristics = Spliterator.ORDERED | Spliterator.IMMUTABLE | Spliterator.SIZED | Spliterator.SUBSIZED;
+    Stream<R> stream = stream(supplier, characteristics, parallel).onClose(this.delegate::close).onClose(other::close);
+
+    return new ParallelStreamSupport<>(stream, this.workerPool);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <E> E[] castArray(Object[] array) {
+    return (E[]) array;
+  }
+
+  private Stream<List<T>> windows(int size, int step, boolean partialWindows) {
+    WindowSpliterator.checkWindow(size, step);
+
+    boolean parallel = isParallel();
+    Spliterator<T> source = this.delegate.spliterator();
+    Supplier<Spliterator<List<T>>> supplier = () -> new WindowSpliterator.OfRef<>(source, size, step, partialWindows);
+    Stream<List<T>> stream = stream(supplier, WindowSpliterator.characteristics(source), parallel)
+        .onClose(this.delegate::close);
+
+    return new ParallelStreamSupport<>(stream, this.workerPool);
+  }
+
+  /**
+   * Writes the elements of a SIZED pipeline directly into a presized array. Other pipelines are evaluated by the
+   * underlying stream. Must be called within the worker pool.
+   */
+  private <A> A[] presizedToArray(IntFunction<A[]> generator) {
+    Spliterator<T> spliterator = this.delegate.spliterator();
+    long size = spliterator.getExactSizeIfKnown();
+    if (size < 0 || !spliterator.hasCharacteristics(Spliterator.SUBSIZED)) {
+      return stream(spliterator, true).toArray(generator);
+    }
+
+    A[] array = generator.apply(checkArraySize(size));
+    if (array.length != size) {
+      throw new IllegalStateException("Generator returned an array of length " + array.length + " instead of " + size);
+    }
+
+    new SizedToArrayTask.OfRef<>(spliterator, array, leafTargetSize(size)).invoke();
+    return array;
+  }
+
+  @Override
+  Stream<T> traced(TracingSpliterator.LeafListener listener, int splitFactor) {
+    Spliterator<T> spliterator = new TracingSpliterator.OfRef<>(this.delegate.spliterator(), listener, splitFactor);
+    return StreamSupport.stream(spliterator, isParallel()).onClose(this.delegate::close);
   }
 }
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.util.List;
+import java.util.Locale;
+import static com.github.ferstl.streams.ExecutionReport.millis;
+
+/**
+ * Breakdown of the time spent in the intermediate operations of a stream, which is created by the {@code profile()}
+ * method of the streams in this library. Each intermediate operation taking a function, e.g. {@code filter()} or
+ * {@code map()}, is a stage of the profile. All times are in nanoseconds.
+ * <p>
+ * The time of a stage is the time spent in its function, not including the subsequent stages. Only every n-th call of
+ * a function is timed, where n is the {@link #getSamplingInterval() sampling interval}, so the time of a stage is an
+ * estimate that is extrapolated from the timed calls.
+ * </p>
+ */
+public final class PipelineProfile {
+
+  private final String operation;
+  private final int samplingInterval;
+  private final List<Stage> stages;
+
+  PipelineProfile(String operation, int samplingInterval, List<Stage> stages) {
+    this.operation = operation;
+    this.samplingInterval = samplingInterval;
+    this.stages = stages;
+  }
+
+  /**
+   * Returns the name of the terminal operation, e.g. {@code collect}.
+   *
+   * @return The name of the terminal operation.
+   */
+  public String getOperation() {
+    return this.operation;
+  }
+
+  /**
+   * Returns the number of calls of a function per timed call.
+   *
+   * @return The sampling interval.
+   */
+  public int getSamplingInterval() {
+    return this.samplingInterval;
+  }
+
+  /**
+   * Returns the stages in the order of the intermediate operations.
+   *
+   * @return The stages.
+   */
+  public List<Stage> getStages() {
+    return this.stages;
+  }
+
+  /**
+   * Returns the sum of the estimated times of all stages.
+   *
+   * @return The estimated time in nanoseconds.
+   */
+  public long getEstimatedTime() {
+    return this.stages.stream().mapToLong(Stage::getEstimatedTime).sum();
+  }
+
+  /**
+   * Returns a multi-line description of this profile, which contains one line per stage.
+   *
+   * @return A description of this profile.
+   */
+  @Override
+  public String toString() {
+    long estimatedTime = getEstimatedTime();
+    StringBuilder sb = new StringBuilder()
+        .append(this.operation).append(": ").append(this.stages.size()).append(" stages, sampling interval ")
+        .append(this.samplingInterval).append(", estimated time ").append(millis(estimatedTime));
+    for (Stage stage : this.stages) {
+      sb.append(System.lineSeparator()).append("  ").append(stage);
+      if (estimatedTime > 0) {
+        sb.append(String.format(Locale.ROOT, " (%.1f%%)", 100.0 * stage.getEstimatedTime() / estimatedTime));
+      }
+    }
+
+    return sb.toString();
+  }
+
+  /**
+   * An intermediate operation of the profiled stream.
+   */
+  public static final class Stage {
+
+    private final int index;
+    private final String name;
+    private final long calls;
+    private final long sampledCalls;
+    private final long sampledTime;
+
+    Stage(int index, String name, long calls, long sampledCalls, long sampledTime) {
+      this.index = index;
+      this.name = name;
+      this.calls = calls;
+      this.sampledCalls = sampledCalls;
+      this.sampledTime = sampledTime;
+    }
+
+    /**
+     * Returns the position of this stage in the stream, starting with {@code 0}.
+     *
+     * @return The position of this stage.
+     */
+    public int getIndex() {
+      return this.index;
+    }
+
+    /**
+     * Returns the name of the intermediate operation, e.g. {@code map}.
+     *
+     * @return The name of the intermediate operation.
+     */
+    public String getName() {
+      return this.name;
+    }
+
+    /**
+     * Returns the number of calls of the function of this stage, i.e. the number of elements that reached this stage.
+     *
+     * @return The number of calls.
+     */
+    public long getCalls() {
+      return this.calls;
+    }
+
+    /**
+     * Returns the number of timed calls of the function of this stage.
+     *
+     * @return The number of timed calls.
+     */
+    public long getSampledCalls() {
+      return this.sampledCalls;
+    }
+
+    /**
+     * Returns the sum of the times of all timed calls.
+     *
+     * @return The sampled time in nanoseconds.
+     */
+    public long getSampledTime() {
+      return this.sampledTime;
+    }
+
+    /**
+     * Returns the estimated time of all calls, which is the average time of the timed calls multiplied by the number
+     * of calls.
+     *
+     * @return The estimated time in nanoseconds or {@code 0} if no call was timed.
+     */
+    public long getEstimatedTime() {
+      return this.sampledCalls > 0 ? (long) ((double) this.sampledTime / this.sampledCalls * this.calls) : 0;
+    }
+
+    @Override
+    public String toString() {
+      return this.index + " " + this.name + ": " + this.calls + " calls, " + this.sampledCalls + " sampled, "
+          + "estimated time " + millis(getEstimatedTime());
+    }
+  }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.IntBinaryOperator;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Two-pass parallel prefix computation (inclusive scan) on primitive arrays. The array is divided into chunks of the
+ * given leaf size. The first pass reduces each chunk in parallel, then the carry of each chunk is computed
+ * sequentially from the (few) chunk results and finally the second pass computes the prefix of each chunk in
+ * parallel, starting with the carry of the chunk. Both passes are executed as {@link ForEachIndexTask}s in the pool of
+ * the calling thread, i.e. this class has to be used within the worker pool of a stream.
+ * <p>
+ * The operator has to be associative and {@code identity} has to be an identity value for the operator.
+ * </p>
+ */
+final class PrefixScan {
+
+  private PrefixScan() {
+  }
+
+  static void scan(int[] array, int identity, IntBinaryOperator op, long leafSize) {
+    int chunkSize = chunkSize(leafSize);
+    int chunks = chunks(array.length, chunkSize);
+    int[] carries = new int[chunks];
+
+    ForEachIndexTask.forEachIndex(chunks, chunk -> {
+      int from = chunk * chunkSize;
+      int to = Math.min(from + chunkSize, array.length);
+      int result = array[from];
+      for (int i = from + 1; i < to; i++) {
+        result = op.applyAsInt(result, array[i]);
+      }
+      carries[chunk] = result;
+    });
+
+    int carry = identity;
+    for (int chunk = 0; chunk < chunks; chunk++) {
+      int chunkResult = carries[chunk];
+      carries[chunk] = carry;
+      carry = op.applyAsInt(carry, chunkResult);
+    }
+
+    ForEachIndexTask.forEachIndex(chunks, chunk -> {
+      int from = chunk * chunkSize;
+      int to = Math.min(from + chunkSize, array.length);
+      int result = carries[chunk];
+      for (int i = from; i < to; i++) {
+        result = op.applyAsInt(result, array[i]);
+        array[i] = result;
+      }
+    });
+  }
+
+  static void scan(long[] array, long identity, LongBinaryOperator op, long leafSize) {
+    int chunkSize = chunkSize(leafSize);
+    int chunks = chunks(array.length, chunkSize);
+    long[] carries = new long[chunks];
+
+    ForEachIndexTask.forEachIndex(chunks, chunk -> {
+      int from = chunk * chunkSize;
+      int to = Math.min(from + chunkSize, array.length);
+      long result = array[from];
+      for (int i = from + 1; i < to; i++) {
+        result = op.applyAsLong(result, array[i]);
+      }
+      carries[chunk] = result;
+    });
+
+    long carry = identity;
+    for (int chunk = 0; chunk < chunks; chunk++) {
+      long chunkResult = carries[chunk];
+      carries[chunk] = carry;
+      carry = op.applyAsLong(carry, chunkResult);
+    }
+
+    ForEachIndexTask.forEachIndex(chunks, chunk -> {
+      int from = chunk * chunkSize;
+      int to = Math.min(from + chunkSize, array.length);
+      long result = carries[chunk];
+      for (int i = from; i < to; i++) {
+        result = op.applyAsLong(result, array[i]);
+        array[i] = result;
+      }
+    });
+  }
+
+  static void scan(double[] array, double identity, DoubleBinaryOperator op, long leafSize) {
+    int chunkSize = chunkSize(leafSize);
+    int chunks = chunks(array.length, chunkSize);
+    double[] carries = new double[chunks];
+
+    ForEachIndexTask.forEachIndex(chunks, chunk -> {
+      int from = chunk * chunkSize;
+      int to = Math.min(from + chunkSize, array.length);
+      double result = array[from];
+      for (int i = from + 1; i < to; i++) {
+        result = op.applyAsDouble(result, array[i]);
+      }
+      carries[chunk] = result;
+    });
+
+    double carry = identity;
+    for (int chunk = 0; chunk < chunks; chunk++) {
+      double chunkResult = carries[chunk];
+      carries[chunk] = carry;
+      carry = op.applyAsDouble(carry, chunkResult);
+    }
+
+    ForEachIndexTask.forEachIndex(chunks, chunk -> {
+      int from = chunk * chunkSize;
+      int to = Math.min(from + chunkSize, array.length);
+      double result = carries[chunk];
+      for (int i = from; i < to; i++) {
+        result = op.applyAsDouble(result, array[i]);
+        array[i] = result;
+      }
+    });
+  }
+
+  private static int chunkSize(long leafSize) {
+    return (int) Math.max(Math.min(leafSize, Integer.MAX_VALUE), 1);
+  }
+
+  private static int chunks(int length, int chunkSize) {
+    return (int) ((length + (long) chunkSize - 1) / chunkSize);
+  }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.util.Spliterator;
+import java.util.concurrent.CountedCompleter;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * {@link CountedCompleter} which traverses a {@link Spliterator#SIZED SIZED} and {@link Spliterator#SUBSIZED SUBSIZED}
+ * spliterator in parallel and writes the elements directly into a presized array. Since the exact size of each split
+ * is known, every leaf task writes into its own offset range of the array and no intermediate buffers are required.
+ * The spliterator is split until the leaves reach the given target size, which is usually derived from the
+ * parallelism of the worker pool (see {@link AbstractParallelStreamSupport#leafTargetSize(long)}).
+ *
+ * @param <S> Type of the spliterator.
+ * @param <K> Type of the concrete task.
+ */
+abstract class SizedToArrayTask<S extends Spliterator<?>, K extends SizedToArrayTask<S, K>> extends CountedCompleter<Void> {
+
+  private static final long serialVersionUID = 1L;
+
+  final S spliterator;
+  final long leafSize;
+  final int offset;
+  int index;
+
+  SizedToArrayTask(S spliterator, long leafSize) {
+    this.spliterator = spliterator;
+    this.leafSize = leafSize;
+    this.offset = 0;
+  }
+
+  SizedToArrayTask(K parent, S spliterator, int offset) {
+    super(parent);
+    this.spliterator = spliterator;
+    this.leafSize = parent.leafSize;
+    this.offset = offset;
+  }
+
+  abstract K makeChild(S spliterator, int offset);
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public void compute() {
+    S rightSplit = this.spliterator;
+    S leftSplit;
+    int offset = this.offset;
+    while (rightSplit.estimateSize() > this.leafSize && (leftSplit = (S) rightSplit.trySplit()) != null) {
+      // Get the size before forking since the child will consume the spliterator
+      int leftSize = (int) leftSplit.getExactSizeIfKnown();
+      addToPendingCount(1);
+      makeChild(leftSplit, offset).fork();
+      offset += leftSize;
+    }
+
+    this.index = offset;
+    traverse(rightSplit);
+    tryComplete();
+  }
+
+  /**
+   * Writes the remaining elements of the given spliterator into the array, starting at {@link #index}.
+   *
+   * @param spliterator The spliterator of the leaf.
+   */
+  abstract void traverse(S spliterator);
+
+  static final class OfRef<T> extends SizedToArrayTask<Spliterator<T>, OfRef<T>> implements Consumer<T> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Object[] array;
+
+    OfRef(Spliterator<T> spliterator, Object[] array, long leafSize) {
+      super(spliterator, leafSize);
+      this.array = array;
+    }
+
+    private OfRef(OfRef<T> parent, Spliterator<T> spliterator, int offset) {
+      super(parent, spliterator, offset);
+      this.array = parent.array;
+    }
+
+    @Override
+    OfRef<T> makeChild(Spliterator<T> spliterator, int offset) {
+      return new OfRef<>(this, spliterator, offset);
+    }
+
+    @Override
+    void traverse(Spliterator<T> spliterator) {
+      spliterator.forEachRemaining(this);
+    }
+
+    @Override
+    public void accept(T t) {
+      this.array[this.index++] = t;
+    }
+  }
+
+  static final class OfInt extends SizedToArrayTask<Spliterator.OfInt, OfInt> implements IntConsumer {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int[] array;
+
+    OfInt(Spliterator.OfInt spliterator, int[] array, long leafSize) {
+      super(spliterator, leafSize);
+      this.array = array;
+    }
+
+    private OfInt(OfInt parent, Spliterator.OfInt spliterator, int offset) {
+      super(parent, spliterator, offset);
+      this.array = parent.array;
+    }
+
+    @Override
+    OfInt makeChild(Spliterator.OfInt spliterator, int offset) {
+      return new OfInt(this, spliterator, offset);
+    }
+
+    @Override
+    void traverse(Spliterator.OfInt spliterator) {
+      spliterator.forEachRemaining(this);
+    }
+
+    @Override
+    public void accept(int value) {
+      this.array[this.index++] = value;
+    }
+  }
+
+  static final class OfLong extends SizedToArrayTask<Spliterator.OfLong, OfLong> implements LongConsumer {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long[] array;
+
+    OfLong(Spliterator.OfLong spliterator, long[] array, long leafSize) {
+      super(spliterator, leafSize);
+      this.array = array;
+    }
+
+    private OfLong(OfLong parent, Spliterator.OfLong spliterator, int offset) {
+      super(parent, spliterator, offset);
+      this.array = parent.array;
+    }
+
+    @Override
+    OfLong makeChild(Spliterator.OfLong spliterator, int offset) {
+      return new OfLong(this, spliterator, offset);
+    }
+
+    @Override
+    void traverse(Spliterator.OfLong spliterator) {
+      spliterator.forEachRemaining(this);
+    }
+
+    @Override
+    public void accept(long value) {
+      this.array[this.index++] = value;
+    }
+  }
+
+  static final class OfDouble extends SizedToArrayTask<Spliterator.OfDouble, OfDouble> implements DoubleConsumer {
+
+    private static final long serialVersionUID = 1L;
+
+    private final double[] array;
+
+    OfDouble(Spliterator.OfDouble spliterator, double[] array, long leafSize) {
+      super(spliterator, leafSize);
+      this.array = array;
+    }
+
+    private OfDouble(OfDouble parent, Spliterator.OfDouble spliterator, int offset) {
+      super(parent, spliterator, offset);
+      this.array = parent.array;
+    }
+
+    @Override
+    OfDouble makeChild(Spliterator.OfDouble spliterator, int offset) {
+      return new OfDouble(this, spliterator, offset);
+    }
+
+    @Override
+    void traverse(Spliterator.OfDouble spliterator) {
+      spliterator.forEachRemaining(this);
+    }
+
+    @Override
+    public void accept(double value) {
+      this.array[this.index++] = value;
+    }
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.lang.System.Logger.Level;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Watchdog that detects terminal operations which take longer than a configurable threshold. A slow terminal operation
+ * is logged once with the {@link System.Logger} named after this class at level {@code WARNING}. The log message
+ * contains the call site where the stream was created and the stack traces of the calling thread and of all worker
+ * threads of the pool, which shows what the terminal operation is waiting for.
+ * <p>
+ * The detector is disabled by default. While it is enabled, each stream captures its call site when it is created and
+ * each terminal operation is tracked while it is running. Streams created before the detector was enabled are tracked
+ * as well but are logged without a call site.
+ * </p>
+ */
+public final class SlowOperationDetector {
+
+  private static final System.Logger LOGGER = System.getLogger(SlowOperationDetector.class.getName());
+  private static final long MIN_CHECK_INTERVAL = TimeUnit.MILLISECONDS.toNanos(10);
+
+  /**
+   * The enabled detector or {@code null} if the detection is disabled.
+   */
+  static volatile SlowOperationDetector active;
+
+  private final long threshold;
+  private final Set<InFlightOperation> inFlightOperations = ConcurrentHashMap.newKeySet();
+  private final ScheduledExecutorService scheduler;
+
+  private SlowOperationDetector(long threshold) {
+    this.threshold = threshold;
+    this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "slow-operation-detector");
+      thread.setDaemon(true);
+      return thread;
+    });
+    // Slow operations are detected within 125% of the threshold
+    long checkInterval = Math.max(threshold / 4, MIN_CHECK_INTERVAL);
+    this.scheduler.scheduleWithFixedDelay(this::check, checkInterval, checkInterval, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Enables the detection of terminal operations which take longer than the given threshold. If the detection is
+   * already enabled, the threshold is replaced. Terminal operations which are already running are not tracked.
+   *
+   * @param threshold The threshold. Must be positive.
+   */
+  public static synchronized void enable(Duration threshold) {
+    requireNonNull(threshold, "Threshold must not be null");
+    if (threshold.isNegative() || threshold.isZero()) {
+      throw new IllegalArgumentException("Threshold must be positive: " + threshold);
+    }
+
+    disable();
+    active = new SlowOperationDetector(threshold.toNanos());
+  }
+
+  /**
+   * Disables the detection of slow terminal operations.
+   */
+  public static synchronized void disable() {
+    SlowOperationDetector detector = active;
+    if (detector != null) {
+      active = null;
+      detector.scheduler.shutdownNow();
+    }
+  }
+
+  /**
+   * Returns {@code true} if the detection of slow terminal operations is enabled.
+   *
+   * @return {@code true} if the detection is enabled.
+   */
+  public static boolean isEnabled() {
+    return active != null;
+  }
+
+  /**
+   * Starts tracking the given terminal operation.
+   */
+  InFlightOperation started(String operation, AbstractParallelStreamSupport<?, ?> stream, long startTime) {
+    InFlightOperation inFlightOperation = new InFlightOperation(operation, stream.getClass(), stream.workerPool,
+        stream.callSite, Thread.currentThread(), startTime);
+    this.inFlightOperations.add(inFlightOperation);
+    return inFlightOperation;
+  }
+
+  /**
+   * Stops tracking the given terminal operation.
+   */
+  void completed(InFlightOperation inFlightOperation) {
+    this.inFlightOperations.remove(inFlightOperation);
+  }
+
+  /**
+   * Logs all terminal operations that exceeded the threshold and have not been logged yet.
+   */
+  void check() {
+    long now = System.nanoTime();
+    Map<Thread, StackTraceElement[]> stackTraces = null;
+    for (InFlightOperation inFlightOperation : this.inFlightOperations) {
+      long duration = now - inFlightOperation.startTime;
+      if (duration > this.threshold && !inFlightOperation.logged) {
+        inFlightOperation.logged = true;
+        if (stackTraces == null) {
+          stackTraces = Thread.getAllStackTraces();
+        }
+        LOGGER.log(Level.WARNING, inFlightOperation.describe(duration, this.threshold, stackTraces));
+      }
+    }
+  }
+
+  /**
+   * A terminal operation which is currently running.
+   */
+  static final class InFlightOperation {
+
+    final String operation;
+    final Class<?> streamType;
+    final ForkJoinPool workerPool;
+    final StackTraceElement callSite;
+    final Thread caller;
+    final long startTime;
+    /**
+     * Only accessed by the thread of the detector.
+     */
+    boolean logged;
+
+    InFlightOperation(String operation, Class<?> streamType, ForkJoinPool workerPool, StackTraceElement callSite,
+        Thread caller, long startTime) {
+      this.operation = operation;
+      this.streamType = streamType;
+      this.workerPool = workerPool;
+      this.callSite = callSite;
+      this.caller = caller;
+      this.startTime = startTime;
+    }
+
+    String describe(long duration, long threshold, Map<Thread, StackTraceElement[]> stackTraces) {
+      StringBuilder sb = new StringBuilder()
+          .append("Terminal operation ").append(this.operation).append(" on ").append(this.streamType.getSimpleName())
+          .append(" in ").append(TerminalOperationMonitor.poolName(this.workerPool))
+          .append(" has been running for ").append(ExecutionReport.millis(duration))
+          .append(" (threshold ").append(ExecutionReport.millis(threshold)).append(")");
+      if (this.callSite != null) {
+        sb.append(", stream created at ").append(this.callSite);
+      }
+
+      appendStackTrace(sb, this.caller, "caller", stackTraces.get(this.caller));
+      for (Map.Entry<Thread, StackTraceElement[]> entry : stackTraces.entrySet()) {
+        Thread thread = entry.getKey();
+        if (thread != this.caller && thread instanceof ForkJoinWorkerThread
+            && ((ForkJoinWorkerThread) thread).getPool() == this.workerPool) {
+          appendStackTrace(sb, thread, "worker", entry.getValue());
+        }
+      }
+
+      return sb.toString();
+    }
+
+    private static void appendStackTrace(StringBuilder sb, Thread thread, String role, StackTraceElement[] stackTrace) {
+      sb.append(System.lineSeparator()).append('"').append(thread.getName()).append("\" (").append(role).append(") ")
+          .append(thread.getState());
+      if (stackTrace != null) {
+        for (StackTraceElement element : stackTrace) {
+          sb.append(System.lineSeparator()).append("\tat ").append(element);
+        }
+      }
+    }
+  }
+}
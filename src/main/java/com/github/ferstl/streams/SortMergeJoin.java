@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Sort-merge join of two arrays which are sorted by a {@code long} key. Both arrays are divided into partitions by
+ * key-range splitters, which are sampled from the left side at equidistant positions. The boundaries of each key range
+ * are found in both arrays via binary search, so each partition can be merged independently of the others. In
+ * parallel mode, the key extraction and the partitions are processed as tasks in the pool of the calling thread, i.e.
+ * this class has to be used within the worker pool of a stream.
+ */
+final class SortMergeJoin {
+
+  private SortMergeJoin() {
+  }
+
+  /**
+   * Extracts the keys of the given elements and verifies that they are sorted in ascending order.
+   *
+   * @throws IllegalArgumentException In case the keys are not sorted.
+   */
+  static <E> long[] sortedKeys(E[] elements, ToLongFunction<? super E> keyFunction, boolean parallel) {
+    long[] keys = new long[elements.length];
+    if (parallel) {
+      Arrays.parallelSetAll(keys, i -> keyFunction.applyAsLong(elements[i]));
+    } else {
+      Arrays.setAll(keys, i -> keyFunction.applyAsLong(elements[i]));
+    }
+
+    for (int i = 1; i < keys.length; i++) {
+      if (keys[i - 1] > keys[i]) {
+        throw new IllegalArgumentException("Stream is not sorted by key at index " + i + ": " + keys[i - 1] + " > " + keys[i]);
+      }
+    }
+
+    return keys;
+  }
+
+  static <T, U, R> Object[] join(T[] left, long[] leftKeys, U[] right, long[] rightKeys,
+      BiFunction<? super T, ? super U, ? extends R> combiner, boolean leftJoin, int partitionCount, boolean parallel) {
+    int partitions = Math.max(Math.min(partitionCount, left.length), 1);
+    int[] leftBounds = new int[partitions + 1];
+    int[] rightBounds = new int[partitions + 1];
+    for (int partition = 1; partition < partitions; partition++) {
+      long splitter = leftKeys[(int) ((long) partition * left.length / partitions)];
+      leftBounds[partition] = lowerBound(leftKeys, splitter);
+      rightBounds[partition] = lowerBound(rightKeys, splitter);
+    }
+    leftBounds[partitions] = left.length;
+    rightBounds[partitions] = right.length;
+
+    @SuppressWarnings("unchecked")
+    List<R>[] results = (List<R>[]) new List<?>[partitions];
+    if (parallel) {
+      ForEachIndexTask.forEachIndex(partitions, partition -> results[partition] = merge(
+          left, leftKeys, leftBounds[partition], leftBounds[partition + 1],
+          right, rightKeys, rightBounds[partition], rightBounds[partition + 1], combiner, leftJoin));
+    } else {
+      for (int partition = 0; partition < partitions; partition++) {
+        results[partition] = merge(
+            left, leftKeys, leftBounds[partition], leftBounds[partition + 1],
+            right, rightKeys, rightBounds[partition], rightBounds[partition + 1], combiner, leftJoin);
+      }
+    }
+
+    long size = 0;
+    for (List<R> result : results) {
+      size += result.size();
+    }
+
+    Object[] joined = new Object[AbstractParallelStreamSupport.checkArraySize(size)];
+    int offset = 0;
+    for (List<R> result : results) {
+      for (R element : result) {
+        joined[offset++] = element;
+      }
+    }
+
+    return joined;
+  }
+
+  private static <T, U, R> List<R> merge(T[] left, long[] leftKeys, int leftFrom, int leftTo,
+      U[] right, long[] rightKeys, int rightFrom, int rightTo,
+      BiFunction<? super T, ? super U, ? extends R> combiner, boolean leftJoin) {
+    List<R> result = new ArrayList<>();
+    int i = leftFrom;
+    int j = rightFrom;
+    while (i < leftTo && j < rightTo) {
+      long leftKey = leftKeys[i];
+      long rightKey = rightKeys[j];
+      if (leftKey < rightKey) {
+        if (leftJoin) {
+          result.add(combiner.apply(left[i], null));
+        }
+        i++;
+      } else if (leftKey > rightKey) {
+        j++;
+      } else {
+        // Combine the runs of equal keys on both sides
+        int rightRunEnd = j + 1;
+        while (rightRunEnd < rightTo && rightKeys[rightRunEnd] == leftKey) {
+          rightRunEnd++;
+        }
+        for (; i < leftTo && leftKeys[i] == leftKey; i++) {
+          for (int k = j; k < rightRunEnd; k++) {
+            result.add(combiner.apply(left[i], right[k]));
+          }
+        }
+        j = rightRunEnd;
+      }
+    }
+
+    if (leftJoin) {
+      for (; i < leftTo; i++) {
+        result.add(combiner.apply(left[i], null));
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Returns the index of the first key that is equal to or greater than the given key.
+   */
+  private static int lowerBound(long[] keys, long key) {
+    int low = 0;
+    int high = keys.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (keys[middle] < key) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+
+    return low;
+  }
+}
@@ -0,0 +1,862 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleFunction;
+import java.util.function.DoublePredicate;
+import java.util.function.DoubleToIntFunction;
+import java.util.function.DoubleToLongFunction;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntToLongFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import java.util.function.LongPredicate;
+import java.util.function.LongToDoubleFunction;
+import java.util.function.LongToIntFunction;
+import java.util.function.LongUnaryOperator;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * Creates the stages of a {@link PipelineProfile}. Each method wraps the function of an intermediate operation into a
+ * function that counts the calls and times every n-th call. The counters are held per thread, so the threads
+ * processing the stream do not contend on them. The {@link #DISABLED} profiler returns the functions unchanged.
+ */
+final class StageProfiler {
+
+  static final StageProfiler DISABLED = new StageProfiler(null, 1);
+  static final int DEFAULT_SAMPLING_INTERVAL = 16;
+
+  private final Consumer<? super PipelineProfile> profileConsumer;
+  private final int samplingInterval;
+  private final List<Stage> stages = new CopyOnWriteArrayList<>();
+
+  StageProfiler(Consumer<? super PipelineProfile> profileConsumer, int samplingInterval) {
+    this.profileConsumer = profileConsumer;
+    this.samplingInterval = samplingInterval;
+  }
+
+  static int checkSamplingInterval(int samplingInterval) {
+    if (samplingInterval <= 0) {
+      throw new IllegalArgumentException("Sampling interval must be positive: " + samplingInterval);
+    }
+
+    return samplingInterval;
+  }
+
+  boolean isEnabled() {
+    return this != DISABLED;
+  }
+
+  /**
+   * Passes the profile of the given terminal operation to the consumer of this profiler.
+   */
+  void report(String operation) {
+    List<PipelineProfile.Stage> stages = new ArrayList<>(this.stages.size());
+    for (Stage stage : this.stages) {
+      stages.add(stage.createStage());
+    }
+
+    this.profileConsumer.accept(new PipelineProfile(operation, this.samplingInterval, unmodifiableList(stages)));
+  }
+
+  <T> Predicate<T> predicate(String name, Predicate<T> predicate) {
+    if (this == DISABLED) {
+      return predicate;
+    }
+
+    Stage stage = addStage(name);
+    return t -> {
+      Accumulator accumulator = stage.accumulators.get();
+      long start = accumulator.start();
+      boolean result = predicate.test(t);
+      accumulator.stop(start);
+      return result;
+    };
+  }
+
+  <T, R> Function<T, R> function(String name, Function<T, R> function) {
+    if (this == DISABLED) {
+      return function;
+    }
+
+    Stage stage = addStage(name);
+    return t -> {
+      Accumulator accumulator = stage.accumulators.get();
+      long start = accumulator.start();
+      R result = function.apply(t);
+      accumulator.stop(start);
+      return result;
+    };
+  }
+
+  <T> ToIntFunction<T> toIntFunction(String name, ToIntFunction<T> toIntFunction) {
+    if (this == DISABLED) {
+      return toIntFunction;
+    }
+
+    Stage stage = addStage(name);
+    return t -> {
+      Accumulator accumulator = stage.accumulators.get();
+      long start = accumulator.start();
+      int result = toIntFunction.applyAsInt(t);
+      accumulator.stop(start);
+      return result;
+    };
+  }
+
+  <T> ToLongFunction<T> toLongFunction(String name, ToLongFunction<T> toLongFunction) {
+    if (this == DISABLED) {
+      return toLongFunction;
+    }
+
+    Stage stage = addStage(name);
+    return t -> {
+      Accumulator accumulator = stage.accumulators.get();
+      long start = accumulator.start();
+      long result = toLongFunction.applyAsLong(t);
+      accumulator.stop(start);
+      return result;
+    };
+  }
+
+  <T> ToDoubleFunction<T> toDoubleFunction(String name, ToDoubleFunction<T> toDoubleFunction) {
+    if (this == DISABLED) {
+      return toDoubleFunction;
+    }
+
+    Stage stage = addStage(name);
+    return t -> {
+      Accumulator accumulator = stage.accumulators.get();
+      long start = accumulator.start();
+      double result = toDoubleFunction.applyAsDouble(t);
+      accumulator.stop(start);
+      return result;
+    };
+  }
+
+  <T> Consumer<T> consumer(String name, Consumer<T> consumer) {
+    if (this == DISABLED) {
+      return consumer;
+    }
+
+    Stage stage = addStage(name);
+    return t -> {
+      Accumulator accumulator = stage.accumulators.get();
+      long start = accumulator.start();
+      consumer.accept(t);
+      accumulator.stop(start);
+    };
+  }
+
+  IntPredicate intPredicate(String name, IntPredicate intPredicate) {
+    if (this == DISABLED) {
+      return intPredicate;
+    }
+
+    Stage stage = addStage(name);
+    return i -> {
+      Accumulator accumulator = stage.accumulators.get();
+      long start = accumulator.start();
+      boolean result = intPredicate.test(i);
+      accumulator.stop(start);
+      return result;
+    };
+  }
+
+  IntUnaryOperator intUnaryOperator(String name, IntUnaryOperator intUnaryOperator) {
+    if (this == DISABLED) {
+      return intUnaryOperator;
+    }
+
+    Stage stage = addStage(name);
+    return i -> {
+      Accumulator accumulator = stage.accumulators.get();
+      long start = accumulator.start();
+      int result = intUnaryOperator.applyAsInt(i);
+      accumulator.stop(start);
+      return result;
+    };
+  }
+
+  <R> IntFunction<R> intFunction(String name, IntFunction<R> intFunction) {
+    if (this == DISABLED) {
+      return intFunction;
+    }
+
+    Stage stage = addStage(name);
+    return i -> {
+      Accumulator accumulator = stage.accumulators.get();
+      long start = accumulator.start();
+      R result = intFunction.apply(i);
+      accumulator.stop(start);
+      return result;
+    };
+  }
+
+  IntToLongFunction intToLongFunction(String name, IntToLongFunction intToLongFunction) {
+    if (this == DISABLED) {
+      return intToLongFunction;
+    }
+
+    Stage stage = addStage(name);
+    return i -> {
+      Accumulator accumulator = stage.accumulators.get();
+      long start = accumulator.start();
+      long result = intToLongFunction.applyAsLong(i);
+      accumulator.stop(start);
+      return result;
+    };
+  }
+
+  IntToDoubleFunction intToDoubleFunction(String name, IntToDoubleFunction intToDoubleFunction) {
+    if (this == DISABLED) {
+      return intToDoubleFunction;
+    }
+
+    Stage stage = addStage(name);
+    return i -> {
+      Accumulator accumulator = stage.accumulators.get();
+      long start = accumulator.start();
+      double result = intToDoubleFunction.applyAsDouble(i);
+      accumulator.stop(start);
+      return result;
+    };
+  }
+
+  IntConsumer intConsumer(String name, IntConsumer intConsumer) {
+    if (this == DISABLED) {
+      return intConsumer;
+    }
+
+    Stage stage = addStage(name);
+    return i -> {
+      Accumulator accumulator = stage.accumulators.get();
+      long start = accumulator.start();
+      intConsumer.accept(i);
+      accumulator.stop(start);
+    };
+  }
+
+  LongPredicate longPredicate(String name, LongPredicate longPredicate) {
+    if (this == DISABLED) {
+      return longPredicate;
+    }
+
+    Stage stage = addStage(name);
+    return l -> {
+      Accumulator accumulator = stage.accumulators.get();
+      long start = accumulator.start();
+      boolean result = longPredicate.test(l);
+      accumulator.stop(start);
+      return result;
+    };
+  }
+
+  LongUnaryOperator longUnaryOperator(String name, LongUnaryOperator longUnaryOperator) {
+    if (this == DISABLED) {
+      return longUnaryOperator;
+    }
+
+    Stage stage = addStage(name);
+    return l -> {
+      Accumulator accumulator = stage.accumulators.get();
+      long start = accumulator.start();
+      long result = longUnaryOperator.applyAsLong(l);
+      accumulator.stop(start);
+      return result;
+    };
+  }
+
+  <R> LongFunction<R> longFunction(String name, LongFunction<R> longFunction) {
+    if (this == DISABLED) {
+      return longFunction;
+    }
+
+    Stage stage = addStage(name);
+    return l -> {
+      Accumulator accumulator = stage.accumulators.get();
+      long start = accumulator.start();
+      R result = longFunction.apply(l);
+      accumulator.stop(start);
+      return result;
+    };
+  }
+
+  LongToIntFunction longToIntFunction(String name, LongToIntFunction longToIntFunction) {
+    if (this == DISABLED) {
+      return longToIntFunction;
+    }
+
+    Stage stage = addStage(name);
+    return l -> {
+      Accumulator accumulator = stage.accumulators.get();
+      long start = accumulator.start();
+      int result = longToIntFunction.applyAsInt(l);
+      accumulator.stop(start);
+      return result;
+    };
+  }
+
+  LongToDoubleFunction longToDoubleFunction(String name, LongToDoubleFunction longToDoubleFunction) {
+    if (this == DISABLED) {
+      return longToDoubleFunction;
+    }
+
+    Stage stage = addStage(name);
+    return l -> {
+      Accumulator accumulator = stage.accumulators.get();
+      long start = accumulator.start();
+      double result = longToDoubleFunction.applyAsDouble(l);
+      accumulator.stop(start);
+      return result;
+    };
+  }
+
+  LongConsumer longConsumer(String name, LongConsumer longConsumer) {
+    if (this == DISABLED) {
+      return longConsumer;
+    }
+
+    Stage stage = addStage(name);
+    return l -> {
+      Accumulator accumulator = stage.accumulators.get();
+      long start = accumulator.start();
+      longConsumer.accept(l);
+      accumulator.stop(start);
+    };
+  }
+
+  DoublePredicate doublePredicate(String name, DoublePredicate doublePredicate) {
+    if (this == DISABLED) {
+      return doublePredicate;
+    }
+
+    Stage stage = addStage(name);
+    return d -> {
+      Accumulator accumulator = stage.accumulators.get();
+      long start = accumulator.start();
+      boolean result = doublePredicate.test(d);
+      accumulator.stop(start);
+      return result;
+    };
+  }
+
+  DoubleUnaryOperator doubleUnaryOperator(String name, DoubleUnaryOperator doubleUnaryOperator) {
+    if (this == DISABLED) {
+      return doubleUnaryOperator;
+    }
+
+    Stage stage = addStage(name);
+    return d -> {
+      Accumulator accumulator = stage.accumulators.get();
+      long start = accumulator.start();
+      double result = doubleUnaryOperator.applyAsDouble(d);
+      accumulator.stop(start);
+      return result;
+    };
+  }
+
+  <R> DoubleFunction<R> doubleFunction(String name, DoubleFunction<R> doubleFunction) {
+    if (this == DISABLED) {
+      return doubleFunction;
+    }
+
+    Stage stage = addStage(name);
+    return d -> {
+      Accumulator accumulator = stage.accumulators.get();
+      long start = accumulator.start();
+      R result = doubleFunction.apply(d);
+      accumulator.stop(start);
+      return result;
+    };
+  }
+
+  DoubleToIntFunction doubleToIntFunction(String name, DoubleToIntFunction doubleToIntFunction) {
+    if (this == DISABLED) {
+      return doubleToIntFunction;
+    }
+
+    Stage stage = addStage(name);
+    return d -> {
+      Accumulator accumulator = stage.accumulators.get();
+      long start = accumulator.start();
+      int result = doubleToIntFunction.applyAsInt(d);
+      accumulator.stop(start);
+      return result;
+    };
+  }
+
+  DoubleToLongFunction doubleToLongFunction(String name, DoubleToLongFunction doubleToLongFunction) {
+    if (this == DISABLED) {
+      return doubleToLongFunction;
+    }
+
+    Stage stage = addStage(name);
+    return d -> {
+      Accumulator accumulator = stage.accumulators.get();
+      long start = accumulator.start();
+      long result = doubleToLongFunction.applyAsLong(d);
+      accumulator.stop(start);
+      return result;
+    };
+  }
+
+  DoubleConsumer doubleConsumer(String name, DoubleConsumer doubleConsumer) {
+    if (this == DISABLED) {
+      return doubleConsumer;
+    }
+
+    Stage stage = addStage(name);
+    return d -> {
+      Accumulator accumulator = stage.accumulators.get();
+      long start = accumulator.start();
+      doubleConsumer.accept(d);
+      accumulator.stop(start);
+    };
+  }
+
+  <T, R> Function<T, ? extends Stream<? extends R>> flatMapFunction(
+      String name, Function<T, ? extends Stream<? extends R>> function) {
+    if (this == DISABLED) {
+      return function;
+    }
+
+    return this.<T, Stream<? extends R>>flatMapper(name, function::apply, StageProfiler::timedStream);
+  }
+
+  <T> Function<T, ? extends IntStream> flatMapToIntFunction(String name, Function<T, ? extends IntStream> function) {
+    if (this == DISABLED) {
+      return function;
+    }
+
+    return flatMapper(name, function::apply, StageProfiler::timedIntStream);
+  }
+
+  <T> Function<T, ? extends LongStream> flatMapToLongFunction(String name, Function<T, ? extends LongStream> function) {
+    if (this == DISABLED) {
+      return function;
+    }
+
+    return flatMapper(name, function::apply, StageProfiler::timedLongStream);
+  }
+
+  <T> Function<T, ? extends DoubleStream> flatMapToDoubleFunction(
+      String name, Function<T, ? extends DoubleStream> function) {
+    if (this == DISABLED) {
+      return function;
+    }
+
+    return flatMapper(name, function::apply, StageProfiler::timedDoubleStream);
+  }
+
+  IntFunction<? extends IntStream> intFlatMapFunction(String name, IntFunction<? extends IntStream> intFunction) {
+    if (this == DISABLED) {
+      return intFunction;
+    }
+
+    Stage stage = addStage(name);
+    return i -> {
+      Accumulator accumulator = stage.accumulators.get();
+      long start = accumulator.start();
+      IntStream result = intFunction.apply(i);
+      accumulator.stop(start);
+      return result != null && start != Accumulator.NOT_SAMPLED ? timedIntStream(result, accumulator) : result;
+    };
+  }
+
+  LongFunction<? extends LongStream> longFlatMapFunction(String name, LongFunction<? extends LongStream> longFunction) {
+    if (this == DISABLED) {
+      return longFunction;
+    }
+
+    Stage stage = addStage(name);
+    return l -> {
+      Accumulator accumulator = stage.accumulators.get();
+      long start = accumulator.start();
+      LongStream result = longFunction.apply(l);
+      accumulator.stop(start);
+      return result != null && start != Accumulator.NOT_SAMPLED ? timedLongStream(result, accumulator) : result;
+    };
+  }
+
+  DoubleFunction<? extends DoubleStream> doubleFlatMapFunction(
+      String name, DoubleFunction<? extends DoubleStream> doubleFunction) {
+    if (this == DISABLED) {
+      return doubleFunction;
+    }
+
+    Stage stage = addStage(name);
+    return d -> {
+      Accumulator accumulator = stage.accumulators.get();
+      long start = accumulator.start();
+      DoubleStream result = doubleFunction.apply(d);
+      accumulator.stop(start);
+      return result != null && start != Accumulator.NOT_SAMPLED ? timedDoubleStream(result, accumulator) : result;
+    };
+  }
+
+  /**
+   * Wraps the function of a {@code flatMap()} operation. The returned streams are lazy, so the streams of the sampled
+   * calls are wrapped as well in order to time their consumption.
+   */
+  private <T, S> Function<T, S> flatMapper(String name, Function<T, S> function, BiFunction<S, Accumulator, S> timing) {
+    Stage stage = addStage(name);
+    return t -> {
+      Accumulator accumulator = stage.accumulators.get();
+      long start = accumulator.start();
+      S result = function.apply(t);
+      accumulator.stop(start);
+      return result != null && start != Accumulator.NOT_SAMPLED ? timing.apply(result, accumulator) : result;
+    };
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <R> Stream<? extends R> timedStream(Stream<? extends R> stream, Accumulator accumulator) {
+    // The elements are only read, so the spliterator can be treated as a spliterator of the supertype
+    Spliterator<R> source = (Spliterator<R>) stream.spliterator();
+    return StreamSupport.stream(new TimedSpliterator.OfRef<>(source, accumulator), false).onClose(stream::close);
+  }
+
+  private static IntStream timedIntStream(IntStream stream, Accumulator accumulator) {
+    return StreamSupport.intStream(new TimedSpliterator.OfInt(stream.spliterator(), accumulator), false)
+        .onClose(stream::close);
+  }
+
+  private static LongStream timedLongStream(LongStream stream, Accumulator accumulator) {
+    return StreamSupport.longStream(new TimedSpliterator.OfLong(stream.spliterator(), accumulator), false)
+        .onClose(stream::close);
+  }
+
+  private static DoubleStream timedDoubleStream(DoubleStream stream, Accumulator accumulator) {
+    return StreamSupport.doubleStream(new TimedSpliterator.OfDouble(stream.spliterator(), accumulator), false)
+        .onClose(stream::close);
+  }
+
+  private Stage addStage(String name) {
+    Stage stage = new Stage(this.stages.size(), name, this.samplingInterval);
+    this.stages.add(stage);
+    return stage;
+  }
+
+  private static final class Stage {
+
+    final int index;
+    final String name;
+    final ConcurrentLinkedQueue<Accumulator> allAccumulators = new ConcurrentLinkedQueue<>();
+    final ThreadLocal<Accumulator> accumulators;
+
+    Stage(int index, String name, int samplingInterval) {
+      this.index = index;
+      this.name = name;
+      this.accumulators = ThreadLocal.withInitial(() -> {
+        Accumulator accumulator = new Accumulator(samplingInterval);
+        this.allAccumulators.add(accumulator);
+        return accumulator;
+      });
+    }
+
+    PipelineProfile.Stage createStage() {
+      long calls = 0;
+      long sampledCalls = 0;
+      long sampledTime = 0;
+      // The accumulators are not written anymore once the terminal operation has completed
+      for (Accumulator accumulator : this.allAccumulators) {
+        calls += accumulator.calls;
+        sampledCalls += accumulator.sampledCalls;
+        sampledTime += accumulator.sampledTime;
+      }
+
+      return new PipelineProfile.Stage(this.index, this.name, calls, sampledCalls, sampledTime);
+    }
+  }
+
+  /**
+   * Counters of a stage in a single thread.
+   */
+  private static final class Accumulator {
+
+    private static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+    private final int samplingInterval;
+    // The first call in each thread is timed, so short streams are timed as well
+    private int countdown = 1;
+    long calls;
+    long sampledCalls;
+    long sampledTime;
+
+    Accumulator(int samplingInterval) {
+      this.samplingInterval = samplingInterval;
+    }
+
+    long start() {
+      this.calls++;
+      if (--this.countdown > 0) {
+        return NOT_SAMPLED;
+      }
+
+      this.countdown = this.samplingInterval;
+      return System.nanoTime();
+    }
+
+    void stop(long start) {
+      if (start != NOT_SAMPLED) {
+        this.sampledTime += System.nanoTime() - start;
+        this.sampledCalls++;
+      }
+    }
+
+    void addTime(long time) {
+      this.sampledTime += time;
+    }
+  }
+
+  /**
+   * Spliterator of a stream returned by a sampled call of a {@code flatMap()} function. The time spent in the source
+   * stream is added to the sampled time of the stage, whereas the time spent in the downstream operations is not.
+   * The JDK consumes these streams sequentially in the thread that called the function, so the accumulator of that
+   * thread is not written concurrently.
+   */
+  private abstract static class TimedSpliterator<T, S extends Spliterator<T>> implements Spliterator<T> {
+
+    final S source;
+    private final Accumulator accumulator;
+    private long downstreamTime;
+
+    TimedSpliterator(S source, Accumulator accumulator) {
+      this.source = source;
+      this.accumulator = accumulator;
+    }
+
+    long start() {
+      this.downstreamTime = 0;
+      return System.nanoTime();
+    }
+
+    void stop(long start) {
+      this.accumulator.addTime(System.nanoTime() - start - this.downstreamTime);
+    }
+
+    void downstreamCompleted(long downstreamStart) {
+      this.downstreamTime += System.nanoTime() - downstreamStart;
+    }
+
+    @Override
+    public S trySplit() {
+      return null;
+    }
+
+    @Override
+    public long estimateSize() {
+      return this.source.estimateSize();
+    }
+
+    @Override
+    public int characteristics() {
+      return this.source.characteristics();
+    }
+
+    @Override
+    public Comparator<? super T> getComparator() {
+      return this.source.getComparator();
+    }
+
+    static final class OfRef<T> extends TimedSpliterator<T, Spliterator<T>> {
+
+      OfRef(Spliterator<T> source, Accumulator accumulator) {
+        super(source, accumulator);
+      }
+
+      @Override
+      public boolean tryAdvance(Consumer<? super T> action) {
+        long start = start();
+        try {
+          return this.source.tryAdvance(t -> {
+            long downstreamStart = System.nanoTime();
+            action.accept(t);
+            downstreamCompleted(downstreamStart);
+          });
+        } finally {
+          stop(start);
+        }
+      }
+
+      @Override
+      public void forEachRemaining(Consumer<? super T> action) {
+        long start = start();
+        try {
+          this.source.forEachRemaining((Consumer<? super T>) t -> {
+            long downstreamStart = System.nanoTime();
+            action.accept(t);
+            downstreamCompleted(downstreamStart);
+          });
+        } finally {
+          stop(start);
+        }
+      }
+    }
+
+    static final class OfInt extends TimedSpliterator<Integer, Spliterator.OfInt> implements Spliterator.OfInt {
+
+      OfInt(Spliterator.OfInt source, Accumulator accumulator) {
+        super(source, accumulator);
+      }
+
+      @Override
+      public Spliterator.OfInt trySplit() {
+        return null;
+      }
+
+      @Override
+      public boolean tryAdvance(IntConsumer action) {
+        long start = start();
+        try {
+          return this.source.tryAdvance((IntConsumer) i -> {
+            long downstreamStart = System.nanoTime();
+            action.accept(i);
+            downstreamCompleted(downstreamStart);
+          });
+        } finally {
+          stop(start);
+        }
+      }
+
+      @Override
+      public void forEachRemaining(IntConsumer action) {
+        long start = start();
+        try {
+          this.source.forEachRemaining((IntConsumer) i -> {
+            long downstreamStart = System.nanoTime();
+            action.accept(i);
+            downstreamCompleted(downstreamStart);
+          });
+        } finally {
+          stop(start);
+        }
+      }
+    }
+
+    static final class OfLong extends TimedSpliterator<Long, Spliterator.OfLong> implements Spliterator.OfLong {
+
+      OfLong(Spliterator.OfLong source, Accumulator accumulator) {
+        super(source, accumulator);
+      }
+
+      @Override
+      public Spliterator.OfLong trySplit() {
+        return null;
+      }
+
+      @Override
+      public boolean tryAdvance(LongConsumer action) {
+        long start = start();
+        try {
+          return this.source.tryAdvance((LongConsumer) l -> {
+            long downstreamStart = System.nanoTime();
+            action.accept(l);
+            downstreamCompleted(downstreamStart);
+          });
+        } finally {
+          stop(start);
+        }
+      }
+
+      @Override
+      public void forEachRemaining(LongConsumer action) {
+        long start = start();
+        try {
+          this.source.forEachRemaining((LongConsumer) l -> {
+            long downstreamStart = System.nanoTime();
+            action.accept(l);
+            downstreamCompleted(downstreamStart);
+          });
+        } finally {
+          stop(start);
+        }
+      }
+    }
+
+    static final class OfDouble extends TimedSpliterator<Double, Spliterator.OfDouble>
+        implements Spliterator.OfDouble {
+
+      OfDouble(Spliterator.OfDouble source, Accumulator accumulator) {
+        super(source, accumulator);
+      }
+
+      @Override
+      public Spliterator.OfDouble trySplit() {
+        return null;
+      }
+
+      @Override
+      public boolean tryAdvance(DoubleConsumer action) {
+        long start = start();
+        try {
+          return this.source.tryAdvance((DoubleConsumer) d -> {
+            long downstreamStart = System.nanoTime();
+            action.accept(d);
+            downstreamCompleted(downstreamStart);
+          });
+        } finally {
+          stop(start);
+        }
+      }
+
+      @Override
+      public void forEachRemaining(DoubleConsumer action) {
+        long start = start();
+        try {
+          this.source.forEachRemaining((DoubleConsumer) d -> {
+            long downstreamStart = System.nanoTime();
+            action.accept(d);
+            downstreamCompleted(downstreamStart);
+          });
+        } finally {
+          stop(start);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.util.ServiceLoader;
+
+/**
+ * Configuration of the {@link StreamMetricsListener} which is notified about the terminal operations of all streams in
+ * this library.
+ * <p>
+ * By default, the first listener provided via {@link ServiceLoader} is used. If there is none, metrics are disabled
+ * and terminal operations are executed without any measurements. The listener can be replaced at runtime with
+ * {@link #setListener(StreamMetricsListener)}, which affects all terminal operations started afterwards.
+ * </p>
+ */
+public final class StreamMetrics {
+
+  static final StreamMetricsListener NO_OP = metrics -> {
+  };
+
+  static volatile StreamMetricsListener listener = loadListener();
+  static volatile boolean allocationTracking;
+
+  private StreamMetrics() {
+  }
+
+  /**
+   * Sets the listener to be notified about terminal operations.
+   *
+   * @param listener The listener or {@code null} to disable metrics.
+   */
+  public static void setListener(StreamMetricsListener listener) {
+    StreamMetrics.listener = listener != null ? listener : NO_OP;
+  }
+
+  /**
+   * Returns the listener that is notified about terminal operations.
+   *
+   * @return The listener or {@code null} if metrics are disabled.
+   */
+  public static StreamMetricsListener getListener() {
+    StreamMetricsListener current = listener;
+    return current != NO_OP ? current : null;
+  }
+
+  /**
+   * Enables or disables the measurement of the bytes allocated by terminal operations, which are reported as
+   * {@link TerminalOperationMetrics#getAllocatedBytes()}. The allocations are measured per thread with
+   * {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}, which requires each leaf of the split tree
+   * to be tracked. So this measurement is disabled by default.
+   *
+   * @param enabled {@code true} to enable the allocation tracking.
+   */
+  public static void setAllocationTracking(boolean enabled) {
+    allocationTracking = enabled;
+  }
+
+  /**
+   * Returns {@code true} if the bytes allocated by terminal operations are measured.
+   *
+   * @return {@code true} if the allocation tracking is enabled.
+   */
+  public static boolean isAllocationTracking() {
+    return allocationTracking;
+  }
+
+  private static StreamMetricsListener loadListener() {
+    return ServiceLoader.load(StreamMetricsListener.class).findFirst().orElse(NO_OP);
+  }
+}
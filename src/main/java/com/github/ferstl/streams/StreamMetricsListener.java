@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+/**
+ * Listener for the execution of terminal operations of the streams in this library. A listener is installed with
+ * {@link StreamMetrics#setListener(StreamMetricsListener)} or provided as service via {@link java.util.ServiceLoader}.
+ * <p>
+ * The listener is called synchronously in the thread which invoked the terminal operation, after the operation has
+ * completed or failed. Since the same listener is used for all streams, it has to be thread-safe and should return
+ * quickly. Exceptions thrown by the listener are propagated to the caller of the terminal operation.
+ * </p>
+ */
+@FunctionalInterface
+public interface StreamMetricsListener {
+
+  /**
+   * Called after a terminal operation has completed or failed.
+   *
+   * @param metrics Metrics of the terminal operation.
+   */
+  void terminalOperationCompleted(TerminalOperationMetrics metrics);
+}
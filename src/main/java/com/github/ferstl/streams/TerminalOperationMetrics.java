@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Metrics of a single terminal operation, which are reported to a {@link StreamMetricsListener}. All times are in
+ * nanoseconds.
+ */
+public final class TerminalOperationMetrics {
+
+  private final String operation;
+  private final Class<?> streamType;
+  private final ForkJoinPool workerPool;
+  private final boolean parallel;
+  private final long queueWaitTime;
+  private final long wallTime;
+  private final long callerCpuTime;
+  private final long stealCount;
+  private final long allocatedBytes;
+  private final Throwable failure;
+
+  TerminalOperationMetrics(String operation, Class<?> streamType, ForkJoinPool workerPool, boolean parallel,
+      long queueWaitTime, long wallTime, long callerCpuTime, long stealCount, long allocatedBytes, Throwable failure) {
+    this.operation = operation;
+    this.streamType = streamType;
+    this.workerPool = workerPool;
+    this.parallel = parallel;
+    this.queueWaitTime = queueWaitTime;
+    this.wallTime = wallTime;
+    this.callerCpuTime = callerCpuTime;
+    this.stealCount = stealCount;
+    this.allocatedBytes = allocatedBytes;
+    this.failure = failure;
+  }
+
+  /**
+   * Returns the name of the terminal operation, e.g. {@code collect}.
+   *
+   * @return The name of the terminal operation.
+   */
+  public String getOperation() {
+    return this.operation;
+  }
+
+  /**
+   * Returns the type of the stream, e.g. {@link ParallelIntStreamSupport}.
+   *
+   * @return The type of the stream.
+   */
+  public Class<?> getStreamType() {
+    return this.streamType;
+  }
+
+  /**
+   * Returns the worker pool of the stream.
+   *
+   * @return The worker pool of the stream.
+   */
+  public ForkJoinPool getWorkerPool() {
+    return this.workerPool;
+  }
+
+  /**
+   * Returns {@code true} if the terminal operation was executed in the worker pool. Otherwise it was executed in the
+   * calling thread.
+   *
+   * @return {@code true} if the terminal operation was executed in the worker pool.
+   */
+  public boolean isParallel() {
+    return this.parallel;
+  }
+
+  /**
+   * Returns the time between the submission of the terminal operation to the worker pool and its start in a worker
+   * thread. This time is {@code 0} for sequential terminal operations.
+   *
+   * @return The queue wait time in nanoseconds.
+   */
+  public long getQueueWaitTime() {
+    return this.queueWaitTime;
+  }
+
+  /**
+   * Returns the elapsed time of the terminal operation, including the queue wait time.
+   *
+   * @return The wall time in nanoseconds.
+   */
+  public long getWallTime() {
+    return this.wallTime;
+  }
+
+  /**
+   * Returns the CPU time of the calling thread during the terminal operation. A caller outside the worker pool mostly
+   * waits for a parallel terminal operation, so this time only includes the work done in the calling thread. The time
+   * is {@code -1} if the JVM does not support measuring the CPU time of threads.
+   *
+   * @return The CPU time of the calling thread in nanoseconds or {@code -1}.
+   */
+  public long getCallerCpuTime() {
+    return this.callerCpuTime;
+  }
+
+  /**
+   * Returns the number of tasks that were stolen between the worker threads during the terminal operation. This is
+   * the difference of {@link ForkJoinPool#getStealCount()} and may include steals of other tasks running in the same
+   * pool at the same time.
+   *
+   * @return The steal count of the worker pool during the terminal operation.
+   */
+  public long getStealCount() {
+    return this.stealCount;
+  }
+
+  /**
+   * Returns the number of bytes allocated on the heap by the calling thread and the worker threads during the terminal
+   * operation. The allocations of the workers are measured while they execute the terminal operation itself or
+   * process a leaf of the split tree, i.e. a chunk of elements. Allocations of other workers while combining the
+   * results of the leaves are not included. The number is {@code -1} if the
+   * {@link StreamMetrics#setAllocationTracking(boolean) allocation tracking} is disabled or if the JVM does not support
+   * measuring the allocated bytes of threads.
+   *
+   * @return The allocated bytes or {@code -1}.
+   */
+  public long getAllocatedBytes() {
+    return this.allocatedBytes;
+  }
+
+  /**
+   * Returns the exception that terminated the operation.
+   *
+   * @return The exception or {@code null} if the terminal operation completed normally.
+   */
+  public Throwable getFailure() {
+    return this.failure;
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName()
+        + "[operation=" + this.operation
+        + ", streamType=" + this.streamType.getSimpleName()
+        + ", parallel=" + this.parallel
+        + ", queueWaitTime=" + this.queueWaitTime
+        + ", wallTime=" + this.wallTime
+        + ", callerCpuTime=" + this.callerCpuTime
+        + ", stealCount=" + this.stealCount
+        + ", allocatedBytes=" + this.allocatedBytes
+        + ", failure=" + this.failure
+        + "]";
+  }
+}
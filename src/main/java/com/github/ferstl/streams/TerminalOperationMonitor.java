@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.lang.StackWalker.StackFrame;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Executes a terminal operation while measuring the metrics for a {@link StreamMetricsListener}, including the
+ * allocations of the {@link AllocationRecorder}, recording the {@link JfrEvents} and the {@link ChromeTrace}, updating
+ * the {@link WorkerPoolMXBean}, tracking slow operations with the {@link SlowOperationDetector}, adapting the
+ * splitting with the {@link AdaptiveSplitting} and creating the {@link ExecutionReport} and the
+ * {@link PipelineProfile}. This class is only used if any of them is enabled, so streams without monitoring do not pay
+ * for any of the measurements.
+ */
+final class TerminalOperationMonitor {
+
+  private static final StackWalker STACK_WALKER = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+  private static final ThreadMXBean THREAD_MX_BEAN = ManagementFactory.getThreadMXBean();
+
+  private TerminalOperationMonitor() {
+  }
+
+  static <R> R execute(AbstractParallelStreamSupport<?, ?> stream, String operation, Callable<R> terminalOperation,
+      StreamMetricsListener listener) {
+    ForkJoinPool workerPool = stream.workerPool;
+    boolean parallel = stream.isParallel();
+    boolean metricsEnabled = listener != StreamMetrics.NO_OP;
+    boolean jfrEnabled = JfrEvents.isEnabled();
+    Consumer<? super ExecutionReport> reportConsumer = stream.reportConsumer;
+    ChromeTrace trace = ChromeTrace.active;
+    SlowOperationDetector detector = SlowOperationDetector.active;
+
+    Object event = null;
+    JfrLeafListener jfrLeafListener = null;
+    if (jfrEnabled) {
+      event = JfrEvents.beginTerminalOperation();
+      jfrLeafListener = new JfrLeafListener(operation, poolName(workerPool));
+    }
+
+    AdaptiveSplitting adaptiveSplitting = parallel && stream.callSite != null ? AdaptiveSplitting.active : null;
+    int splitFactor = adaptiveSplitting != null ? adaptiveSplitting.splitFactor(stream.callSite) : 1;
+    ExecutionReport.Recorder recorder =
+        reportConsumer != null || adaptiveSplitting != null ? new ExecutionReport.Recorder() : null;
+    TracingSpliterator.LeafListener traceListener = trace != null ? trace.leafListener(operation, workerPool) : null;
+    AllocationRecorder allocationRecorder = metricsEnabled && StreamMetrics.allocationTracking
+        && AllocationRecorder.isSupported() ? new AllocationRecorder() : null;
+    TracingSpliterator.LeafListener leafListener = TracingSpliterator.LeafListener.combine(
+        TracingSpliterator.LeafListener.combine(jfrLeafListener, recorder),
+        TracingSpliterator.LeafListener.combine(traceListener, allocationRecorder));
+
+    WorkerPoolStats poolStats = WorkerPoolMonitoring.enabled ? WorkerPoolMonitoring.stats(workerPool) : null;
+    if (poolStats != null) {
+      poolStats.operationStarted();
+    }
+
+    long stealCount = metricsEnabled ? workerPool.getStealCount() : 0;
+    long cpuTime = metricsEnabled ? currentThreadCpuTime() : -1;
+    long submitted = System.nanoTime();
+    SlowOperationDetector.InFlightOperation inFlightOperation =
+        detector != null ? detector.started(operation, stream, submitted) : null;
+    // Written by the worker and read after invoke() returned, which provides the necessary memory visibility
+    long[] started = {submitted};
+
+    Throwable failure = null;
+    try {
+      return stream.invoke(() -> {
+        long taskStarted = System.nanoTime();
+        if (parallel) {
+          started[0] = taskStarted;
+        }
+        if (leafListener != null) {
+          if (recorder != null) {
+            recorder.start(taskStarted);
+          }
+          stream.traceLeaves(leafListener, splitFactor);
+        }
+        long taskAllocatedBytes = allocationRecorder != null ? allocationRecorder.taskStarted() : 0;
+        try {
+          return terminalOperation.call();
+        } finally {
+          if (allocationRecorder != null) {
+            allocationRecorder.taskCompleted(taskAllocatedBytes);
+          }
+          if (trace != null && parallel) {
+            trace.task(operation, workerPool, taskStarted, System.nanoTime());
+          }
+        }
+      });
+    } catch (RuntimeException | Error e) {
+      failure = e;
+      throw e;
+    } finally {
+      long end = System.nanoTime();
+      long cpuTimeAfter = metricsEnabled ? currentThreadCpuTime() : -1;
+      long queueWaitTime = started[0] - submitted;
+      if (inFlightOperation != null) {
+        detector.completed(inFlightOperation);
+      }
+      if (poolStats != null) {
+        poolStats.operationCompleted(end - submitted, end, failure != null);
+      }
+      if (event != null) {
+        JfrEvents.commitTerminalOperation(event, operation, stream.getClass(), jfrLeafListener.workerPool,
+            workerPool.getParallelism(), parallel, jfrLeafListener.elements.sum(), queueWaitTime, failure);
+      }
+
+      if (trace != null) {
+        trace.terminalOperation(operation, stream.getClass(), workerPool, parallel, submitted, end, queueWaitTime,
+            failure);
+      }
+
+      // All consumers are notified, even if one of them fails
+      Throwable notificationFailure = null;
+      if (metricsEnabled) {
+        TerminalOperationMetrics metrics = new TerminalOperationMetrics(operation, stream.getClass(), workerPool,
+            parallel, queueWaitTime, end - submitted, cpuTime < 0 ? -1 : cpuTimeAfter - cpuTime,
+            workerPool.getStealCount() - stealCount, allocationRecorder != null ? allocationRecorder.totalBytes() : -1,
+            failure);
+        notificationFailure = notify(() -> listener.terminalOperationCompleted(metrics), failure, notificationFailure);
+      }
+
+      if (recorder != null) {
+        ExecutionReport report = recorder.createReport(operation, stream.getClass(),
+            parallel ? workerPool.getParallelism() : 1, queueWaitTime, end - started[0], failure);
+        if (adaptiveSplitting != null) {
+          adaptiveSplitting.completed(stream.callSite, splitFactor, report);
+        }
+        if (reportConsumer != null) {
+          notificationFailure = notify(() -> reportConsumer.accept(report), failure, notificationFailure);
+        }
+      }
+
+      StageProfiler profiler = stream.profiler;
+      if (profiler.isEnabled()) {
+        notificationFailure = notify(() -> profiler.report(operation), failure, notificationFailure);
+      }
+
+      // Only set if the terminal operation succeeded
+      if (notificationFailure instanceof Error) {
+        throw (Error) notificationFailure;
+      } else if (notificationFailure != null) {
+        throw (RuntimeException) notificationFailure;
+      }
+    }
+  }
+
+  /**
+   * Returns a name identifying the given pool, which is the same as the first part of its {@code toString()}
+   * representation.
+   */
+  static String poolName(ForkJoinPool workerPool) {
+    return workerPool.getClass().getSimpleName() + "@" + Integer.toHexString(System.identityHashCode(workerPool));
+  }
+
+  /**
+   * Returns the first frame outside the stream classes of this library, i.e. the code which created a stream or called
+   * an intermediate operation.
+   */
+  static StackTraceElement callSite() {
+    return STACK_WALKER.walk(frames -> frames
+        .skip(1)
+        .filter(frame -> !AbstractParallelStreamSupport.class.isAssignableFrom(frame.getDeclaringClass()))
+        .findFirst())
+        .map(StackFrame::toStackTraceElement)
+        .orElse(null);
+  }
+
+  private static long currentThreadCpuTime() {
+    return THREAD_MX_BEAN.isCurrentThreadCpuTimeSupported() ? THREAD_MX_BEAN.getCurrentThreadCpuTime() : -1;
+  }
+
+  /**
+   * Runs the given notification and returns the exception to be thrown after all notifications have been run. The
+   * exception of a failing notification is only returned if neither the terminal operation nor a previous notification
+   * failed. Otherwise it is added as suppressed exception to the earlier failure.
+   */
+  private static Throwable notify(Runnable notification, Throwable failure, Throwable notificationFailure) {
+    try {
+      notification.run();
+    } catch (RuntimeException | Error e) {
+      // Don't hide the failure of the terminal operation
+      if (failure != null) {
+        failure.addSuppressed(e);
+      } else if (notificationFailure != null) {
+        notificationFailure.addSuppressed(e);
+      } else {
+        return e;
+      }
+    }
+
+    return notificationFailure;
+  }
+
+  /**
+   * Counts the elements of all leaves and records the leaf events.
+   */
+  private static final class JfrLeafListener implements TracingSpliterator.LeafListener {
+
+    final String operation;
+    final String workerPool;
+    final LongAdder elements = new LongAdder();
+
+    JfrLeafListener(String operation, String workerPool) {
+      this.operation = operation;
+      this.workerPool = workerPool;
+    }
+
+    @Override
+    public Object leafStarted(int depth) {
+      return JfrEvents.isLeafEnabled() ? JfrEvents.beginLeaf() : null;
+    }
+
+    @Override
+    public void leafCompleted(Object context, int depth, long startTime, long endTime, long elements) {
+      this.elements.add(elements);
+      if (context != null) {
+        JfrEvents.commitLeaf(context, this.operation, this.workerPool, depth, elements);
+      }
+    }
+  }
+}
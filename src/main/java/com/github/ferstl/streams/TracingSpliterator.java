@@ -0,0 +1,327 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Spliterator reporting the traversal of each leaf of the split tree to a {@link LeafListener}. A leaf is a
+ * spliterator whose elements are traversed after splitting has stopped. The leaf starts with the first call of
+ * {@code tryAdvance()} or {@code forEachRemaining()} and completes when the source is exhausted. Leaves of a
+ * short-circuiting terminal operation, which are not traversed to the end, are not reported as completed.
+ * <p>
+ * With a split factor greater than {@code 1}, the split tree gets approximately that many times more leaves. The
+ * stream framework stops splitting when the estimated size of a spliterator falls below a target size, which is
+ * derived from the estimated size of the root. So the estimated size of all spliterators except the unsplit root is
+ * multiplied by the split factor, and the spliterator is neither {@code SIZED} nor {@code SUBSIZED}.
+ * </p>
+ *
+ * @param <T> The type of the elements.
+ */
+abstract class TracingSpliterator<T> implements Spliterator<T> {
+
+  /**
+   * Listener for the leaves of a {@link TracingSpliterator}. The listener is called in the thread which traverses the
+   * leaf and has to be thread-safe.
+   */
+  interface LeafListener {
+
+    /**
+     * Called before the first element of a leaf is traversed.
+     *
+     * @param depth Depth of the leaf in the split tree, starting with {@code 0} for the root.
+     * @return An arbitrary object that is passed to {@link #leafCompleted}.
+     */
+    default Object leafStarted(int depth) {
+      return null;
+    }
+
+    /**
+     * Called after the last element of a leaf has been traversed.
+     *
+     * @param context The object returned by {@link #leafStarted(int)}.
+     * @param depth Depth of the leaf in the split tree, starting with {@code 0} for the root.
+     * @param startTime Value of {@link System#nanoTime()} when the leaf started.
+     * @param endTime Value of {@link System#nanoTime()} when the leaf completed.
+     * @param elements Number of elements in the leaf.
+     */
+    void leafCompleted(Object context, int depth, long startTime, long endTime, long elements);
+
+    /**
+     * Combines two listeners, each of which may be {@code null}.
+     *
+     * @return A listener calling both listeners or {@code null} if both listeners are {@code null}.
+     */
+    static LeafListener combine(LeafListener first, LeafListener second) {
+      if (first == null || second == null) {
+        return first != null ? first : second;
+      }
+
+      return new LeafListener() {
+        @Override
+        public Object leafStarted(int depth) {
+          return new Object[]{first.leafStarted(depth), second.leafStarted(depth)};
+        }
+
+        @Override
+        public void leafCompleted(Object context, int depth, long startTime, long endTime, long elements) {
+          Object[] contexts = (Object[]) context;
+          first.leafCompleted(contexts[0], depth, startTime, endTime, elements);
+          second.leafCompleted(contexts[1], depth, startTime, endTime, elements);
+        }
+      };
+    }
+  }
+
+  final Spliterator<T> source;
+  final LeafListener listener;
+  final int splitFactor;
+  int depth;
+  long elements;
+  private long startTime;
+  private Object context;
+  private boolean started;
+  private boolean completed;
+
+  TracingSpliterator(Spliterator<T> source, LeafListener listener, int splitFactor, int depth) {
+    this.source = source;
+    this.listener = listener;
+    this.splitFactor = splitFactor;
+    this.depth = depth;
+  }
+
+  abstract TracingSpliterator<T> newSpliterator(Spliterator<T> prefix, int depth);
+
+  @Override
+  public Spliterator<T> trySplit() {
+    if (this.started) {
+      return null;
+    }
+
+    Spliterator<T> prefix = this.source.trySplit();
+    if (prefix == null) {
+      return null;
+    }
+
+    this.depth++;
+    return newSpliterator(prefix, this.depth);
+  }
+
+  @Override
+  public long estimateSize() {
+    long estimatedSize = this.source.estimateSize();
+    if (this.splitFactor == 1 || this.depth == 0) {
+      return estimatedSize;
+    }
+
+    return estimatedSize <= Long.MAX_VALUE / this.splitFactor ? estimatedSize * this.splitFactor : Long.MAX_VALUE;
+  }
+
+  @Override
+  public long getExactSizeIfKnown() {
+    return this.splitFactor == 1 ? this.source.getExactSizeIfKnown() : -1;
+  }
+
+  @Override
+  public int characteristics() {
+    int characteristics = this.source.characteristics();
+    return this.splitFactor == 1 ? characteristics : characteristics & ~(Spliterator.SIZED | Spliterator.SUBSIZED);
+  }
+
+  @Override
+  public Comparator<? super T> getComparator() {
+    return this.source.getComparator();
+  }
+
+  final void start() {
+    if (!this.started) {
+      this.started = true;
+      this.context = this.listener.leafStarted(this.depth);
+      this.startTime = System.nanoTime();
+    }
+  }
+
+  final boolean advanced(boolean advanced) {
+    if (advanced) {
+      this.elements++;
+    } else {
+      complete();
+    }
+
+    return advanced;
+  }
+
+  final void complete() {
+    if (!this.completed) {
+      this.completed = true;
+      this.listener.leafCompleted(this.context, this.depth, this.startTime, System.nanoTime(), this.elements);
+    }
+  }
+
+  static final class OfRef<T> extends TracingSpliterator<T> {
+
+    OfRef(Spliterator<T> source, LeafListener listener, int splitFactor) {
+      this(source, listener, splitFactor, 0);
+    }
+
+    private OfRef(Spliterator<T> source, LeafListener listener, int splitFactor, int depth) {
+      super(source, listener, splitFactor, depth);
+    }
+
+    @Override
+    TracingSpliterator<T> newSpliterator(Spliterator<T> prefix, int depth) {
+      return new OfRef<>(prefix, this.listener, this.splitFactor, depth);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+      start();
+      return advanced(this.source.tryAdvance(action));
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+      start();
+      this.source.forEachRemaining(element -> {
+        this.elements++;
+        action.accept(element);
+      });
+      complete();
+    }
+  }
+
+  static final class OfInt extends TracingSpliterator<Integer> implements Spliterator.OfInt {
+
+    OfInt(Spliterator.OfInt source, LeafListener listener, int splitFactor) {
+      this(source, listener, splitFactor, 0);
+    }
+
+    private OfInt(Spliterator.OfInt source, LeafListener listener, int splitFactor, int depth) {
+      super(source, listener, splitFactor, depth);
+    }
+
+    @Override
+    TracingSpliterator<Integer> newSpliterator(Spliterator<Integer> prefix, int depth) {
+      return new TracingSpliterator.OfInt((Spliterator.OfInt) prefix, this.listener, this.splitFactor, depth);
+    }
+
+    @Override
+    public Spliterator.OfInt trySplit() {
+      return (Spliterator.OfInt) super.trySplit();
+    }
+
+    @Override
+    public boolean tryAdvance(IntConsumer action) {
+      start();
+      return advanced(((Spliterator.OfInt) this.source).tryAdvance(action));
+    }
+
+    @Override
+    public void forEachRemaining(IntConsumer action) {
+      start();
+      ((Spliterator.OfInt) this.source).forEachRemaining((int element) -> {
+        this.elements++;
+        action.accept(element);
+      });
+      complete();
+    }
+  }
+
+  static final class OfLong extends TracingSpliterator<Long> implements Spliterator.OfLong {
+
+    OfLong(Spliterator.OfLong source, LeafListener listener, int splitFactor) {
+      this(source, listener, splitFactor, 0);
+    }
+
+    private OfLong(Spliterator.OfLong source, LeafListener listener, int splitFactor, int depth) {
+      super(source, listener, splitFactor, depth);
+    }
+
+    @Override
+    TracingSpliterator<Long> newSpliterator(Spliterator<Long> prefix, int depth) {
+      return new TracingSpliterator.OfLong((Spliterator.OfLong) prefix, this.listener, this.splitFactor, depth);
+    }
+
+    @Override
+    public Spliterator.OfLong trySplit() {
+      return (Spliterator.OfLong) super.trySplit();
+    }
+
+    @Override
+    public boolean tryAdvance(LongConsumer action) {
+      start();
+      return advanced(((Spliterator.OfLong) this.source).tryAdvance(action));
+    }
+
+    @Override
+    public void forEachRemaining(LongConsumer action) {
+      start();
+      ((Spliterator.OfLong) this.source).forEachRemaining((long element) -> {
+        this.elements++;
+        action.accept(element);
+      });
+      complete();
+    }
+  }
+
+  static final class OfDouble extends TracingSpliterator<Double> implements Spliterator.OfDouble {
+
+    OfDouble(Spliterator.OfDouble source, LeafListener listener, int splitFactor) {
+      this(source, listener, splitFactor, 0);
+    }
+
+    private OfDouble(Spliterator.OfDouble source, LeafListener listener, int splitFactor, int depth) {
+      super(source, listener, splitFactor, depth);
+    }
+
+    @Override
+    TracingSpliterator<Double> newSpliterator(Spliterator<Double> prefix, int depth) {
+      return new TracingSpliterator.OfDouble((Spliterator.OfDouble) prefix, this.listener, this.splitFactor, depth);
+    }
+
+    @Override
+    public Spliterator.OfDouble trySplit() {
+      return (Spliterator.OfDouble) super.trySplit();
+    }
+
+    @Override
+    public boolean tryAdvance(DoubleConsumer action) {
+      start();
+      return advanced(((Spliterator.OfDouble) this.source).tryAdvance(action));
+    }
+
+    @Override
+    public void forEachRemaining(DoubleConsumer action) {
+      start();
+      ((Spliterator.OfDouble) this.source).forEachRemaining((double element) -> {
+        this.elements++;
+        action.accept(element);
+      });
+      complete();
+    }
+  }
+}
@@ -0,0 +1,498 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntConsumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Spliterator producing windows of {@code size} consecutive elements of a source spliterator, where window {@code w}
+ * starts at the element with index {@code w * step}. Chunks are windows with {@code step == size}.
+ * <p>
+ * In case the source is {@link Spliterator#SIZED SIZED} and {@link Spliterator#SUBSIZED SUBSIZED}, the number of
+ * windows is known and each split is aligned to a window boundary: The source is split as usual and the windows
+ * starting before the split point are assigned to the prefix. Since the last of these windows may extend into the
+ * suffix, the prefix gets a copy of the first (at most {@code size - 1}) elements of the suffix. These elements are
+ * read from a small piece split off the front of the suffix, because many sources, e.g. the spliterators of stream
+ * pipelines, cannot be split anymore once they have been advanced. So the source of a spliterator may consist of
+ * several pieces, which are split at their boundaries first. This way the windows are built in parallel without
+ * buffering more than one window per spliterator. Other sources are split by reading batches of windows sequentially.
+ * </p>
+ *
+ * @param <A> The type of the arrays holding the source elements.
+ * @param <R> The type of the windows.
+ */
+abstract class WindowSpliterator<A, R> implements Spliterator<R> {
+
+  static final int CHARACTERISTICS = Spliterator.ORDERED | Spliterator.NONNULL;
+
+  private static final int BATCH_UNIT = 1 << 10;
+  private static final int MAX_BATCH = 1 << 25;
+
+  final int size;
+  final int step;
+  final boolean partialWindows;
+
+  /** The piece of the source that is currently read. */
+  Spliterator<?> source;
+  /** The pieces of the source following {@link #source}, which have not been read yet. */
+  private final ArrayDeque<Spliterator<?>> nextSources = new ArrayDeque<>();
+  /** Elements preceding the source. */
+  private A head;
+  private int headIndex;
+  private int headLength;
+  /** Elements following the source. */
+  private A tail;
+  private int tailIndex;
+  private int tailLength;
+  /** Global index of the next element to be read. */
+  private long origin;
+
+  /** Window range {@code [windowFrom, windowTo)} or {@code windowTo < 0} if the number of windows is unknown. */
+  private long windowFrom;
+  private long windowTo;
+
+  /** Elements of the current window starting at the global index {@code bufferStart}. */
+  private A buffer;
+  private long bufferStart;
+  private int bufferLength;
+  private boolean exhausted;
+  private int batchSize;
+
+  WindowSpliterator(Spliterator<?> source, int size, int step, boolean partialWindows) {
+    this.source = source;
+    this.size = size;
+    this.step = step;
+    this.partialWindows = partialWindows;
+    this.head = newArray(0);
+    this.tail = newArray(0);
+    this.windowTo = -1;
+
+    if (isSized(source)) {
+      long elements = source.getExactSizeIfKnown();
+      if (partialWindows) {
+        this.windowTo = (elements + step - 1) / step;
+      } else {
+        this.windowTo = elements >= size ? (elements - size) / step + 1 : 0;
+      }
+    }
+  }
+
+  static void checkWindow(int size, int step) {
+    if (size <= 0) {
+      throw new IllegalArgumentException("Window size must be positive: " + size);
+    }
+    if (step <= 0) {
+      throw new IllegalArgumentException("Window step must be positive: " + step);
+    }
+  }
+
+  /**
+   * Returns the characteristics of a window spliterator of the given source.
+   */
+  static int characteristics(Spliterator<?> source) {
+    return isSized(source) ? CHARACTERISTICS | Spliterator.SIZED | Spliterator.SUBSIZED : CHARACTERISTICS;
+  }
+
+  private static boolean isSized(Spliterator<?> source) {
+    return source.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED);
+  }
+
+  abstract A newArray(int length);
+
+  abstract R toWindow(A array, int length);
+
+  /**
+   * Reads the next element of the source into the given array.
+   */
+  abstract boolean readSource(A array, int index);
+
+  abstract WindowSpliterator<A, R> newSpliterator(Spliterator<?> source);
+
+  @Override
+  public boolean tryAdvance(Consumer<? super R> action) {
+    if (this.exhausted || (this.windowTo >= 0 && this.windowFrom >= this.windowTo)) {
+      return false;
+    }
+
+    if (this.buffer == null) {
+      this.buffer = newArray(this.size);
+    }
+
+    long start = this.windowFrom * this.step;
+    long bufferEnd = this.bufferStart + this.bufferLength;
+    if (start < bufferEnd) {
+      // Keep the overlap with the previous window
+      int retained = (int) (bufferEnd - start);
+      System.arraycopy(this.buffer, (int) (start - this.bufferStart), this.buffer, 0, retained);
+      this.bufferLength = retained;
+    } else {
+      this.bufferLength = 0;
+      while (this.origin < start) {
+        if (!read(this.buffer, 0)) {
+          this.exhausted = true;
+          return false;
+        }
+      }
+    }
+    this.bufferStart = start;
+
+    while (this.bufferLength < this.size && read(this.buffer, this.bufferLength)) {
+      this.bufferLength++;
+    }
+
+    if (this.bufferLength < this.size) {
+      this.exhausted = true;
+      if (!this.partialWindows || this.bufferLength == 0) {
+        return false;
+      }
+    }
+
+    this.windowFrom++;
+    action.accept(toWindow(this.buffer, this.bufferLength));
+    return true;
+  }
+
+  @Override
+  public Spliterator<R> trySplit() {
+    if (this.windowTo < 0) {
+      return trySplitBatch();
+    }
+
+    // Aligned splits are only possible before the traversal has started
+    if (this.buffer != null) {
+      return null;
+    }
+
+    Spliterator<?> prefixSource;
+    ArrayDeque<Spliterator<?>> prefixNextSources = new ArrayDeque<>();
+    long prefixElements;
+    if (this.nextSources.isEmpty()) {
+      prefixSource = this.source.trySplit();
+      if (prefixSource == null) {
+        return null;
+      }
+      prefixElements = prefixSource.getExactSizeIfKnown();
+    } else {
+      // Split before the last piece, which is the largest one and has not been read yet
+      prefixSource = this.source;
+      prefixElements = prefixSource.getExactSizeIfKnown();
+      while (this.nextSources.size() > 1) {
+        Spliterator<?> piece = this.nextSources.poll();
+        prefixNextSources.add(piece);
+        prefixElements += piece.getExactSizeIfKnown();
+      }
+      this.source = this.nextSources.poll();
+    }
+
+    // Global index of the first element of the remaining source
+    long splitIndex = this.origin + (this.headLength - this.headIndex) + prefixElements;
+    long splitWindow = Math.min(Math.max((splitIndex + this.step - 1) / this.step, this.windowFrom), this.windowTo);
+
+    WindowSpliterator<A, R> prefix = newSpliterator(prefixSource);
+    prefix.nextSources.addAll(prefixNextSources);
+    prefix.head = this.head;
+    prefix.headIndex = this.headIndex;
+    prefix.headLength = this.headLength;
+    prefix.origin = this.origin;
+    prefix.windowFrom = this.windowFrom;
+    prefix.windowTo = splitWindow;
+
+    // The last window of the prefix may extend into the remaining elements
+    this.head = newArray(0);
+    this.headIndex = 0;
+    this.headLength = 0;
+    this.origin = splitIndex;
+    long prefixEnd = splitWindow > this.windowFrom ? (splitWindow - 1) * this.step + this.size : splitIndex;
+    int borrowed = (int) Math.max(prefixEnd - splitIndex, 0);
+    splitOffFront(borrowed);
+    A overlap = newArray(borrowed);
+    int available = 0;
+    while (available < borrowed && read(overlap, available)) {
+      available++;
+    }
+
+    prefix.tail = overlap;
+    prefix.tailLength = available;
+    this.head = overlap;
+    this.headLength = available;
+    this.origin = splitIndex;
+    this.windowFrom = splitWindow;
+
+    return prefix;
+  }
+
+  @Override
+  public long estimateSize() {
+    return this.windowTo >= 0 ? this.windowTo - this.windowFrom : Long.MAX_VALUE;
+  }
+
+  @Override
+  public int characteristics() {
+    // The number of windows is exact if it is known, also after aligned splits
+    return this.windowTo >= 0 ? CHARACTERISTICS | Spliterator.SIZED | Spliterator.SUBSIZED : CHARACTERISTICS;
+  }
+
+  /**
+   * Splits pieces off the front of the source until the first piece holds at most the given number of elements. So
+   * reading these elements advances only the first piece and the following pieces can still be split.
+   */
+  private void splitOffFront(int elements) {
+    if (elements == 0) {
+      return;
+    }
+
+    Spliterator<?> front = this.source;
+    Spliterator<?> prefix;
+    while (front.estimateSize() > elements && (prefix = front.trySplit()) != null) {
+      this.nextSources.addFirst(front);
+      front = prefix;
+    }
+    this.source = front;
+  }
+
+  /**
+   * Reads a batch of windows sequentially, in the same way as {@link Spliterators.AbstractSpliterator} does.
+   */
+  private Spliterator<R> trySplitBatch() {
+    int batch = Math.min(this.batchSize + BATCH_UNIT, MAX_BATCH);
+    Object[] windows = new Object[batch];
+    int count = 0;
+    WindowHolder<R> holder = new WindowHolder<>();
+    while (count < batch && tryAdvance(holder)) {
+      windows[count++] = holder.window;
+    }
+
+    if (count == 0) {
+      return null;
+    }
+
+    this.batchSize = count;
+    return Spliterators.spliterator(windows, 0, count, CHARACTERISTICS);
+  }
+
+  /**
+   * Reads the next element of the sequence formed by the head, the source and the tail into the given array.
+   */
+  private boolean read(A array, int index) {
+    boolean read;
+    if (this.headIndex < this.headLength) {
+      System.arraycopy(this.head, this.headIndex++, array, index, 1);
+      read = true;
+    } else if (readNextSource(array, index)) {
+      read = true;
+    } else if (this.tailIndex < this.tailLength) {
+      System.arraycopy(this.tail, this.tailIndex++, array, index, 1);
+      read = true;
+    } else {
+      read = false;
+    }
+
+    if (read) {
+      this.origin++;
+    }
+    return read;
+  }
+
+  /**
+   * Reads the next element of the source pieces into the given array.
+   */
+  private boolean readNextSource(A array, int index) {
+    while (!readSource(array, index)) {
+      Spliterator<?> next = this.nextSources.poll();
+      if (next == null) {
+        return false;
+      }
+      this.source = next;
+    }
+
+    return true;
+  }
+
+  private static final class WindowHolder<R> implements Consumer<R> {
+
+    R window;
+
+    @Override
+    public void accept(R window) {
+      this.window = window;
+    }
+  }
+
+  static final class OfRef<T> extends WindowSpliterator<Object[], List<T>> implements Consumer<T> {
+
+    private Object[] target;
+    private int targetIndex;
+
+    OfRef(Spliterator<T> source, int size, int step, boolean partialWindows) {
+      super(source, size, step, partialWindows);
+    }
+
+    @Override
+    Object[] newArray(int length) {
+      return new Object[length];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    List<T> toWindow(Object[] array, int length) {
+      return (List<T>) Arrays.asList(Arrays.copyOf(array, length));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    boolean readSource(Object[] array, int index) {
+      this.target = array;
+      this.targetIndex = index;
+      return ((Spliterator<T>) this.source).tryAdvance(this);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    WindowSpliterator<Object[], List<T>> newSpliterator(Spliterator<?> source) {
+      return new OfRef<>((Spliterator<T>) source, this.size, this.step, this.partialWindows);
+    }
+
+    @Override
+    public void accept(T element) {
+      this.target[this.targetIndex] = element;
+    }
+  }
+
+  static final class OfInt extends WindowSpliterator<int[], int[]> implements IntConsumer {
+
+    private int[] target;
+    private int targetIndex;
+
+    OfInt(Spliterator.OfInt source, int size, int step, boolean partialWindows) {
+      super(source, size, step, partialWindows);
+    }
+
+    @Override
+    int[] newArray(int length) {
+      return new int[length];
+    }
+
+    @Override
+    int[] toWindow(int[] array, int length) {
+      return Arrays.copyOf(array, length);
+    }
+
+    @Override
+    boolean readSource(int[] array, int index) {
+      this.target = array;
+      this.targetIndex = index;
+      return ((Spliterator.OfInt) this.source).tryAdvance((IntConsumer) this);
+    }
+
+    @Override
+    WindowSpliterator<int[], int[]> newSpliterator(Spliterator<?> source) {
+      return new OfInt((Spliterator.OfInt) source, this.size, this.step, this.partialWindows);
+    }
+
+    @Override
+    public void accept(int value) {
+      this.target[this.targetIndex] = value;
+    }
+  }
+
+  static final class OfLong extends WindowSpliterator<long[], long[]> implements LongConsumer {
+
+    private long[] target;
+    private int targetIndex;
+
+    OfLong(Spliterator.OfLong source, int size, int step, boolean partialWindows) {
+      super(source, size, step, partialWindows);
+    }
+
+    @Override
+    long[] newArray(int length) {
+      return new long[length];
+    }
+
+    @Override
+    long[] toWindow(long[] array, int length) {
+      return Arrays.copyOf(array, length);
+    }
+
+    @Override
+    boolean readSource(long[] array, int index) {
+      this.target = array;
+      this.targetIndex = index;
+      return ((Spliterator.OfLong) this.source).tryAdvance((LongConsumer) this);
+    }
+
+    @Override
+    WindowSpliterator<long[], long[]> newSpliterator(Spliterator<?> source) {
+      return new OfLong((Spliterator.OfLong) source, this.size, this.step, this.partialWindows);
+    }
+
+    @Override
+    public void accept(long value) {
+      this.target[this.targetIndex] = value;
+    }
+  }
+
+  static final class OfDouble extends WindowSpliterator<double[], double[]> implements DoubleConsumer {
+
+    private double[] target;
+    private int targetIndex;
+
+    OfDouble(Spliterator.OfDouble source, int size, int step, boolean partialWindows) {
+      super(source, size, step, partialWindows);
+    }
+
+    @Override
+    double[] newArray(int length) {
+      return new double[length];
+    }
+
+    @Override
+    double[] toWindow(double[] array, int length) {
+      return Arrays.copyOf(array, length);
+    }
+
+    @Override
+    boolean readSource(double[] array, int index) {
+      this.target = array;
+      this.targetIndex = index;
+      return ((Spliterator.OfDouble) this.source).tryAdvance((DoubleConsumer) this);
+    }
+
+    @Override
+    WindowSpliterator<double[], double[]> newSpliterator(Spliterator<?> source) {
+      return new OfDouble((Spliterator.OfDouble) source, this.size, this.step, this.partialWindows);
+    }
+
+    @Override
+    public void accept(double value) {
+      this.target[this.targetIndex] = value;
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+/**
+ * Management interface of a worker pool used by the streams in this library. The MXBeans are registered by
+ * {@link WorkerPoolMonitoring} with the object name
+ * {@code com.github.ferstl.streams:type=WorkerPool,name=<pool>}, where {@code <pool>} is the class name and the
+ * identity hash code of the pool, e.g. {@code ForkJoinPool@1b6d3586}.
+ * <p>
+ * The statistics of the terminal operations, i.e. the throughput and the latencies, are calculated from the most recent
+ * 1024 terminal operations executed in the pool. Latencies include the time a terminal operation waited in the queue
+ * of the pool.
+ * </p>
+ */
+public interface WorkerPoolMXBean {
+
+  /**
+   * Returns the name of the pool, which is the last part of the object name.
+   *
+   * @return The name of the pool.
+   */
+  String getName();
+
+  /**
+   * Returns the targeted parallelism of the pool.
+   *
+   * @return The parallelism or {@code 0} if the pool has been garbage collected.
+   * @see java.util.concurrent.ForkJoinPool#getParallelism()
+   */
+  int getParallelism();
+
+  /**
+   * Returns the number of worker threads that have started but not yet terminated.
+   *
+   * @return The number of worker threads.
+   * @see java.util.concurrent.ForkJoinPool#getPoolSize()
+   */
+  int getPoolSize();
+
+  /**
+   * Returns an estimate of the number of threads that are currently stealing or executing tasks.
+   *
+   * @return The number of active threads.
+   * @see java.util.concurrent.ForkJoinPool#getActiveThreadCount()
+   */
+  int getActiveThreadCount();
+
+  /**
+   * Returns an estimate of the number of worker threads that are not blocked waiting to join tasks.
+   *
+   * @return The number of running threads.
+   * @see java.util.concurrent.ForkJoinPool#getRunningThreadCount()
+   */
+  int getRunningThreadCount();
+
+  /**
+   * Returns an estimate of the number of tasks currently held in the queues of the worker threads.
+   *
+   * @return The number of queued tasks.
+   * @see java.util.concurrent.ForkJoinPool#getQueuedTaskCount()
+   */
+  long getQueuedTaskCount();
+
+  /**
+   * Returns an estimate of the number of tasks submitted to the pool that have not yet begun executing.
+   *
+   * @return The number of queued submissions.
+   * @see java.util.concurrent.ForkJoinPool#getQueuedSubmissionCount()
+   */
+  int getQueuedSubmissionCount();
+
+  /**
+   * Returns an estimate of the total number of tasks stolen from one thread's work queue by another.
+   *
+   * @return The steal count.
+   * @see java.util.concurrent.ForkJoinPool#getStealCount()
+   */
+  long getStealCount();
+
+  /**
+   * Returns the number of terminal operations that are currently executed in the pool.
+   *
+   * @return The number of terminal operations in flight.
+   */
+  long getInFlightOperations();
+
+  /**
+   * Returns the number of terminal operations that have completed, either normally or with a failure, since the
+   * monitoring of the pool was started.
+   *
+   * @return The number of completed terminal operations.
+   */
+  long getCompletedOperations();
+
+  /**
+   * Returns the number of terminal operations that have failed since the monitoring of the pool was started.
+   *
+   * @return The number of failed terminal operations.
+   */
+  long getFailedOperations();
+
+  /**
+   * Returns the number of recent terminal operations completed per second.
+   *
+   * @return The throughput in operations per second.
+   */
+  double getThroughput();
+
+  /**
+   * Returns the median latency of the recent terminal operations.
+   *
+   * @return The latency in milliseconds.
+   */
+  double getLatencyMedian();
+
+  /**
+   * Returns the 95th percentile of the latencies of the recent terminal operations.
+   *
+   * @return The latency in milliseconds.
+   */
+  double getLatency95thPercentile();
+
+  /**
+   * Returns the 99th percentile of the latencies of the recent terminal operations.
+   *
+   * @return The latency in milliseconds.
+   */
+  double getLatency99thPercentile();
+
+  /**
+   * Returns the maximum latency of the recent terminal operations.
+   *
+   * @return The latency in milliseconds.
+   */
+  double getLatencyMax();
+}
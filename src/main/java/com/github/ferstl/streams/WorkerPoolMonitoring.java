@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Configuration of the JMX monitoring of the worker pools used by the streams in this library.
+ * <p>
+ * While the monitoring is enabled, a {@link WorkerPoolMXBean} is registered in the platform MBean server for each
+ * worker pool in which a terminal operation is executed. The MXBeans of pools that have been terminated or garbage
+ * collected are unregistered when the MXBean of another pool is registered. The monitoring is disabled by default.
+ * Each terminal operation only updates a few counters of its pool, so the overhead of the monitoring is negligible
+ * compared to the submission of the terminal operation to the pool.
+ * </p>
+ */
+public final class WorkerPoolMonitoring {
+
+  static final String DOMAIN = "com.github.ferstl.streams";
+
+  static volatile boolean enabled;
+
+  private static final Object LOCK = new Object();
+  private static final WorkerPoolStats[] NO_STATS = new WorkerPoolStats[0];
+
+  /**
+   * Statistics of the pools with a registered MXBean. The array is replaced while holding {@link #LOCK}, so terminal
+   * operations can look up the statistics of their pool without locking.
+   */
+  private static volatile WorkerPoolStats[] registeredStats = NO_STATS;
+
+  private WorkerPoolMonitoring() {
+  }
+
+  /**
+   * Enables the JMX monitoring of the worker pools for all terminal operations started afterwards.
+   */
+  public static void enable() {
+    enabled = true;
+  }
+
+  /**
+   * Disables the JMX monitoring of the worker pools and unregisters all MXBeans.
+   */
+  public static void disable() {
+    synchronized (LOCK) {
+      enabled = false;
+      for (WorkerPoolStats stats : registeredStats) {
+        unregister(stats);
+      }
+      registeredStats = NO_STATS;
+    }
+  }
+
+  /**
+   * Returns {@code true} if the JMX monitoring of the worker pools is enabled.
+   *
+   * @return {@code true} if the monitoring is enabled.
+   */
+  public static boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns the object name of the MXBean of the given pool.
+   *
+   * @param workerPool The worker pool. Must not be {@code null}.
+   * @return The object name.
+   */
+  public static ObjectName objectName(ForkJoinPool workerPool) {
+    return objectName(TerminalOperationMonitor.poolName(workerPool));
+  }
+
+  /**
+   * Returns the name of the given pool as used in the object name of its MXBean, in the Java Flight Recorder events and
+   * in the {@link ChromeTrace}. The name consists of the simple class name and the identity hash code of the pool.
+   *
+   * @param workerPool The worker pool. Must not be {@code null}.
+   * @return The name of the pool.
+   */
+  public static String poolName(ForkJoinPool workerPool) {
+    return TerminalOperationMonitor.poolName(workerPool);
+  }
+
+  /**
+   * Returns the statistics of the given pool and registers its MXBean if it is not yet registered. Only the
+   * registration takes a lock.
+   */
+  static WorkerPoolStats stats(ForkJoinPool workerPool) {
+    for (WorkerPoolStats stats : registeredStats) {
+      if (stats.isFor(workerPool)) {
+        return stats;
+      }
+    }
+
+    synchronized (LOCK) {
+      WorkerPoolStats[] current = registeredStats;
+      List<WorkerPoolStats> retained = new ArrayList<>(current.length + 1);
+      for (WorkerPoolStats stats : current) {
+        if (stats.isFor(workerPool)) {
+          // Registered by another thread in the meantime
+          return stats;
+        }
+
+        if (stats.isObsolete()) {
+          unregister(stats);
+        } else {
+          retained.add(stats);
+        }
+      }
+
+      WorkerPoolStats stats = new WorkerPoolStats(workerPool);
+      register(stats);
+      retained.add(stats);
+      registeredStats = retained.toArray(NO_STATS);
+      return stats;
+    }
+  }
+
+  private static void register(WorkerPoolStats stats) {
+    try {
+      platformMBeanServer().registerMBean(stats, objectName(stats.getName()));
+      stats.registered = true;
+    } catch (InstanceAlreadyExistsException e) {
+      // Two pools with the same identity hash code. The statistics are still updated but not visible via JMX.
+    } catch (JMException e) {
+      throw new IllegalStateException("Unable to register MXBean for " + stats.getName(), e);
+    }
+  }
+
+  private static void unregister(WorkerPoolStats stats) {
+    if (!stats.registered) {
+      return;
+    }
+
+    try {
+      platformMBeanServer().unregisterMBean(objectName(stats.getName()));
+    } catch (InstanceNotFoundException e) {
+      // Already unregistered by someone else
+    } catch (JMException e) {
+      throw new IllegalStateException("Unable to unregister MXBean for " + stats.getName(), e);
+    }
+  }
+
+  private static ObjectName objectName(String poolName) {
+    try {
+      return new ObjectName(DOMAIN + ":type=WorkerPool,name=" + poolName);
+    } catch (JMException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static MBeanServer platformMBeanServer() {
+    return ManagementFactory.getPlatformMBeanServer();
+  }
+}
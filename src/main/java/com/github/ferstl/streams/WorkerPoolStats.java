@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * Implementation of the {@link WorkerPoolMXBean}. Terminal operations only update counters and write their latency
+ * into a ring buffer of the recent operations. The percentiles are calculated when they are read.
+ */
+final class WorkerPoolStats implements WorkerPoolMXBean {
+
+  static final int RECENT_OPERATIONS = 1024;
+
+  private final String name;
+  // The MXBean must not keep a pool alive that is not used anymore
+  private final WeakReference<ForkJoinPool> workerPool;
+  private final LongAdder started = new LongAdder();
+  private final LongAdder completed = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+  private final AtomicLong recentIndex = new AtomicLong();
+  private final AtomicLongArray recentLatencies = new AtomicLongArray(RECENT_OPERATIONS);
+  private final AtomicLongArray recentEndTimes = new AtomicLongArray(RECENT_OPERATIONS);
+  /**
+   * {@code true} if the MXBean has been registered. Guarded by the lock of {@link WorkerPoolMonitoring}.
+   */
+  boolean registered;
+
+  WorkerPoolStats(ForkJoinPool workerPool) {
+    this.name = TerminalOperationMonitor.poolName(workerPool);
+    this.workerPool = new WeakReference<>(workerPool);
+  }
+
+  void operationStarted() {
+    this.started.increment();
+  }
+
+  void operationCompleted(long latency, long endTime, boolean failed) {
+    int index = (int) (this.recentIndex.getAndIncrement() % RECENT_OPERATIONS);
+    this.recentLatencies.set(index, latency);
+    this.recentEndTimes.set(index, endTime);
+    if (failed) {
+      this.failed.increment();
+    }
+    // Incremented last, so the number of operations in flight does not become negative
+    this.completed.increment();
+  }
+
+  boolean isFor(ForkJoinPool workerPool) {
+    return this.workerPool.get() == workerPool;
+  }
+
+  /**
+   * Returns {@code true} if the pool of these stats has been garbage collected or terminated.
+   */
+  boolean isObsolete() {
+    ForkJoinPool workerPool = this.workerPool.get();
+    return workerPool == null || workerPool.isTerminated();
+  }
+
+  @Override
+  public String getName() {
+    return this.name;
+  }
+
+  @Override
+  public int getParallelism() {
+    return (int) fromPool(ForkJoinPool::getParallelism);
+  }
+
+  @Override
+  public int getPoolSize() {
+    return (int) fromPool(ForkJoinPool::getPoolSize);
+  }
+
+  @Override
+  public int getActiveThreadCount() {
+    return (int) fromPool(ForkJoinPool::getActiveThreadCount);
+  }
+
+  @Override
+  public int getRunningThreadCount() {
+    return (int) fromPool(ForkJoinPool::getRunningThreadCount);
+  }
+
+  @Override
+  public long getQueuedTaskCount() {
+    return fromPool(ForkJoinPool::getQueuedTaskCount);
+  }
+
+  @Override
+  public int getQueuedSubmissionCount() {
+    return (int) fromPool(ForkJoinPool::getQueuedSubmissionCount);
+  }
+
+  @Override
+  public long getStealCount() {
+    return fromPool(ForkJoinPool::getStealCount);
+  }
+
+  @Override
+  public long getInFlightOperations() {
+    long completed = this.completed.sum();
+    return Math.max(this.started.sum() - completed, 0);
+  }
+
+  @Override
+  public long getCompletedOperations() {
+    return this.completed.sum();
+  }
+
+  @Override
+  public long getFailedOperations() {
+    return this.failed.sum();
+  }
+
+  @Override
+  public double getThroughput() {
+    int count = recentCount();
+    if (count == 0) {
+      return 0;
+    }
+
+    long oldestEndTime = Long.MAX_VALUE;
+    for (int i = 0; i < count; i++) {
+      oldestEndTime = Math.min(oldestEndTime, this.recentEndTimes.get(i));
+    }
+    long period = System.nanoTime() - oldestEndTime;
+
+    return period > 0 ? count * 1_000_000_000.0 / period : 0;
+  }
+
+  @Override
+  public double getLatencyMedian() {
+    return latencyPercentile(0.5);
+  }
+
+  @Override
+  public double getLatency95thPercentile() {
+    return latencyPercentile(0.95);
+  }
+
+  @Override
+  public double getLatency99thPercentile() {
+    return latencyPercentile(0.99);
+  }
+
+  @Override
+  public double getLatencyMax() {
+    return latencyPercentile(1.0);
+  }
+
+  private long fromPool(ToLongFunction<ForkJoinPool> value) {
+    ForkJoinPool workerPool = this.workerPool.get();
+    return workerPool != null ? value.applyAsLong(workerPool) : 0;
+  }
+
+  private int recentCount() {
+    return (int) Math.min(this.recentIndex.get(), RECENT_OPERATIONS);
+  }
+
+  private double latencyPercentile(double percentile) {
+    int count = recentCount();
+    if (count == 0) {
+      return 0;
+    }
+
+    long[] latencies = new long[count];
+    for (int i = 0; i < count; i++) {
+      latencies[i] = this.recentLatencies.get(i);
+    }
+    Arrays.sort(latencies);
+    int rank = (int) Math.ceil(percentile * count) - 1;
+
+    return latencies[Math.max(rank, 0)] / 1_000_000.0;
+  }
+}
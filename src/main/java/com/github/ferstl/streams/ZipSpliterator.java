@@ -0,0 +1,618 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleConsumer;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntConsumer;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongConsumer;
+
+/**
+ * Spliterator combining the elements of two spliterators pairwise. The result ends with the shorter of both sources.
+ * <p>
+ * In case both sources are {@link Spliterator#SIZED SIZED} and {@link Spliterator#SUBSIZED SUBSIZED}, they are split
+ * at identical indices: Both sources are split as usual and if the sizes of the two prefixes differ, the difference is
+ * moved from the front of the remaining elements of one source to the end of its prefix. For sources that split in
+ * halves, such as arrays, lists or ranges, both prefixes have the same size and nothing needs to be moved. Other
+ * sources are split by reading batches of elements sequentially.
+ * </p>
+ *
+ * @param <T> The type of the resulting elements.
+ * @param <S> The type of this spliterator.
+ */
+abstract class ZipSpliterator<T, S extends ZipSpliterator<T, S>> implements Spliterator<T> {
+
+  private static final int BATCH_UNIT = 1 << 10;
+  private static final int MAX_BATCH = 1 << 25;
+  private static final int CHARACTERISTICS_MASK = Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+
+  Spliterator<?> left;
+  Spliterator<?> right;
+  /** Elements following the left and right source. */
+  Object leftTail;
+  Object rightTail;
+  int leftTailIndex;
+  int rightTailIndex;
+  int leftTailLength;
+  int rightTailLength;
+  int batchSize;
+
+  ZipSpliterator(Spliterator<?> left, Spliterator<?> right) {
+    this.left = left;
+    this.right = right;
+  }
+
+  abstract S newSpliterator(Spliterator<?> left, Spliterator<?> right);
+
+  /**
+   * Creates a spliterator over a batch of already zipped elements.
+   */
+  abstract S newBatchSpliterator(Spliterator<T> batch);
+
+  abstract Spliterator<?> emptySource();
+
+  /**
+   * Reads up to {@code count} elements of the left source, followed by its tail, into a new array.
+   */
+  abstract Object drainLeft(int count);
+
+  abstract Object drainRight(int count);
+
+  /**
+   * Reads up to {@code batch} zipped elements sequentially into a new spliterator.
+   */
+  abstract Spliterator<T> readBatch(int batch);
+
+  @Override
+  public S trySplit() {
+    int coSplit = Spliterator.SIZED | Spliterator.SUBSIZED;
+    if (!this.left.hasCharacteristics(coSplit) || !this.right.hasCharacteristics(coSplit)) {
+      return trySplitBatch();
+    }
+
+    Spliterator<?> leftPrefix = this.left.trySplit();
+    if (leftPrefix == null) {
+      return null;
+    }
+    Spliterator<?> rightPrefix = this.right.trySplit();
+    S prefix = newSpliterator(leftPrefix, rightPrefix != null ? rightPrefix : emptySource());
+
+    long leftSize = leftPrefix.getExactSizeIfKnown();
+    long rightSize = rightPrefix != null ? rightPrefix.getExactSizeIfKnown() : 0;
+    // Never borrow more than the other side has left, the rest would be truncated anyway
+    if (leftSize < rightSize) {
+      long remaining = this.left.estimateSize() + (this.leftTailLength - this.leftTailIndex);
+      Object tail = drainLeft((int) Math.min(Math.min(rightSize - leftSize, remaining), Integer.MAX_VALUE));
+      prefix.leftTail = tail;
+      prefix.leftTailLength = Array.getLength(tail);
+    } else if (rightSize < leftSize) {
+      long remaining = this.right.estimateSize() + (this.rightTailLength - this.rightTailIndex);
+      Object tail = drainRight((int) Math.min(Math.min(leftSize - rightSize, remaining), Integer.MAX_VALUE));
+      prefix.rightTail = tail;
+      prefix.rightTailLength = Array.getLength(tail);
+    }
+
+    return prefix;
+  }
+
+  @Override
+  public long estimateSize() {
+    long leftSize = this.left.estimateSize() + (this.leftTailLength - this.leftTailIndex);
+    long rightSize = this.right.estimateSize() + (this.rightTailLength - this.rightTailIndex);
+    return Math.min(leftSize < 0 ? Long.MAX_VALUE : leftSize, rightSize < 0 ? Long.MAX_VALUE : rightSize);
+  }
+
+  @Override
+  public int characteristics() {
+    return this.left.characteristics() & this.right.characteristics() & CHARACTERISTICS_MASK;
+  }
+
+  private S trySplitBatch() {
+    int batch = Math.min(this.batchSize + BATCH_UNIT, MAX_BATCH);
+    Spliterator<T> prefix = readBatch(batch);
+    if (prefix == null) {
+      return null;
+    }
+
+    this.batchSize = (int) prefix.estimateSize();
+    return newBatchSpliterator(prefix);
+  }
+
+  static final class OfRef<A, B, R> extends ZipSpliterator<R, OfRef<A, B, R>> {
+
+    private final BiFunction<? super A, ? super B, ? extends R> zipper;
+    private final Holder<A> leftValue = new Holder<>();
+    private final Holder<B> rightValue = new Holder<>();
+    /** Prefix of already zipped elements, created by a batch split. */
+    private Spliterator<R> batch;
+
+    OfRef(Spliterator<A> left, Spliterator<B> right, BiFunction<? super A, ? super B, ? extends R> zipper) {
+      super(left, right);
+      this.zipper = zipper;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    OfRef<A, B, R> newSpliterator(Spliterator<?> left, Spliterator<?> right) {
+      return new OfRef<>((Spliterator<A>) left, (Spliterator<B>) right, this.zipper);
+    }
+
+    @Override
+    OfRef<A, B, R> newBatchSpliterator(Spliterator<R> batch) {
+      OfRef<A, B, R> prefix = new OfRef<>(Spliterators.emptySpliterator(), Spliterators.emptySpliterator(), this.zipper);
+      prefix.batch = batch;
+      return prefix;
+    }
+
+    @Override
+    Spliterator<?> emptySource() {
+      return Spliterators.emptySpliterator();
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super R> action) {
+      if (this.batch != null) {
+        return this.batch.tryAdvance(action);
+      }
+      if (!advanceLeft() || !advanceRight()) {
+        return false;
+      }
+
+      action.accept(this.zipper.apply(this.leftValue.value, this.rightValue.value));
+      return true;
+    }
+
+    @Override
+    public OfRef<A, B, R> trySplit() {
+      return this.batch != null ? null : super.trySplit();
+    }
+
+    @Override
+    public long estimateSize() {
+      return this.batch != null ? this.batch.estimateSize() : super.estimateSize();
+    }
+
+    @Override
+    public int characteristics() {
+      return this.batch != null ? this.batch.characteristics() : super.characteristics();
+    }
+
+    @Override
+    Object drainLeft(int count) {
+      Object[] array = new Object[count];
+      int read = 0;
+      while (read < count && advanceLeft()) {
+        array[read++] = this.leftValue.value;
+      }
+      return Arrays.copyOf(array, read);
+    }
+
+    @Override
+    Object drainRight(int count) {
+      Object[] array = new Object[count];
+      int read = 0;
+      while (read < count && advanceRight()) {
+        array[read++] = this.rightValue.value;
+      }
+      return Arrays.copyOf(array, read);
+    }
+
+    @Override
+    Spliterator<R> readBatch(int batch) {
+      Object[] array = new Object[batch];
+      Holder<R> holder = new Holder<>();
+      int read = 0;
+      while (read < batch && tryAdvance(holder)) {
+        array[read++] = holder.value;
+      }
+      return read > 0 ? Spliterators.spliterator(array, 0, read, Spliterator.ORDERED) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean advanceLeft() {
+      if (((Spliterator<A>) this.left).tryAdvance(this.leftValue)) {
+        return true;
+      }
+      if (this.leftTailIndex < this.leftTailLength) {
+        this.leftValue.value = (A) ((Object[]) this.leftTail)[this.leftTailIndex++];
+        return true;
+      }
+      return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean advanceRight() {
+      if (((Spliterator<B>) this.right).tryAdvance(this.rightValue)) {
+        return true;
+      }
+      if (this.rightTailIndex < this.rightTailLength) {
+        this.rightValue.value = (B) ((Object[]) this.rightTail)[this.rightTailIndex++];
+        return true;
+      }
+      return false;
+    }
+  }
+
+  static final class OfInt extends ZipSpliterator<Integer, OfInt> implements Spliterator.OfInt {
+
+    private final IntBinaryOperator zipper;
+    private final PrimitiveHolder leftValue = new PrimitiveHolder();
+    private final PrimitiveHolder rightValue = new PrimitiveHolder();
+    private Spliterator.OfInt batch;
+
+    OfInt(Spliterator.OfInt left, Spliterator.OfInt right, IntBinaryOperator zipper) {
+      super(left, right);
+      this.zipper = zipper;
+    }
+
+    @Override
+    ZipSpliterator.OfInt newSpliterator(Spliterator<?> left, Spliterator<?> right) {
+      return new ZipSpliterator.OfInt((Spliterator.OfInt) left, (Spliterator.OfInt) right, this.zipper);
+    }
+
+    @Override
+    ZipSpliterator.OfInt newBatchSpliterator(Spliterator<Integer> batch) {
+      Spliterator.OfInt empty = Spliterators.emptyIntSpliterator();
+      ZipSpliterator.OfInt prefix = new ZipSpliterator.OfInt(empty, empty, this.zipper);
+      prefix.batch = (Spliterator.OfInt) batch;
+      return prefix;
+    }
+
+    @Override
+    Spliterator<?> emptySource() {
+      return Spliterators.emptyIntSpliterator();
+    }
+
+    @Override
+    public boolean tryAdvance(IntConsumer action) {
+      if (this.batch != null) {
+        return this.batch.tryAdvance(action);
+      }
+      if (!advance((Spliterator.OfInt) this.left, this.leftValue, (int[]) this.leftTail, true)
+          || !advance((Spliterator.OfInt) this.right, this.rightValue, (int[]) this.rightTail, false)) {
+        return false;
+      }
+
+      action.accept(this.zipper.applyAsInt(this.leftValue.intValue, this.rightValue.intValue));
+      return true;
+    }
+
+    @Override
+    public ZipSpliterator.OfInt trySplit() {
+      return this.batch != null ? null : super.trySplit();
+    }
+
+    @Override
+    public long estimateSize() {
+      return this.batch != null ? this.batch.estimateSize() : super.estimateSize();
+    }
+
+    @Override
+    public int characteristics() {
+      return this.batch != null ? this.batch.characteristics() : super.characteristics();
+    }
+
+    @Override
+    Object drainLeft(int count) {
+      int[] array = new int[count];
+      int read = 0;
+      while (read < count && advance((Spliterator.OfInt) this.left, this.leftValue, (int[]) this.leftTail, true)) {
+        array[read++] = this.leftValue.intValue;
+      }
+      return Arrays.copyOf(array, read);
+    }
+
+    @Override
+    Object drainRight(int count) {
+      int[] array = new int[count];
+      int read = 0;
+      while (read < count && advance((Spliterator.OfInt) this.right, this.rightValue, (int[]) this.rightTail, false)) {
+        array[read++] = this.rightValue.intValue;
+      }
+      return Arrays.copyOf(array, read);
+    }
+
+    @Override
+    Spliterator<Integer> readBatch(int batch) {
+      int[] array = new int[batch];
+      PrimitiveHolder holder = new PrimitiveHolder();
+      int read = 0;
+      while (read < batch && tryAdvance((IntConsumer) holder)) {
+        array[read++] = holder.intValue;
+      }
+      return read > 0 ? Spliterators.spliterator(array, 0, read, Spliterator.ORDERED) : null;
+    }
+
+    private boolean advance(Spliterator.OfInt source, PrimitiveHolder holder, int[] tail, boolean leftSide) {
+      if (source.tryAdvance((IntConsumer) holder)) {
+        return true;
+      }
+      if (tail != null) {
+        if (leftSide && this.leftTailIndex < this.leftTailLength) {
+          holder.intValue = tail[this.leftTailIndex++];
+          return true;
+        }
+        if (!leftSide && this.rightTailIndex < this.rightTailLength) {
+          holder.intValue = tail[this.rightTailIndex++];
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  static final class OfLong extends ZipSpliterator<Long, OfLong> implements Spliterator.OfLong {
+
+    private final LongBinaryOperator zipper;
+    private final PrimitiveHolder leftValue = new PrimitiveHolder();
+    private final PrimitiveHolder rightValue = new PrimitiveHolder();
+    private Spliterator.OfLong batch;
+
+    OfLong(Spliterator.OfLong left, Spliterator.OfLong right, LongBinaryOperator zipper) {
+      super(left, right);
+      this.zipper = zipper;
+    }
+
+    @Override
+    ZipSpliterator.OfLong newSpliterator(Spliterator<?> left, Spliterator<?> right) {
+      return new ZipSpliterator.OfLong((Spliterator.OfLong) left, (Spliterator.OfLong) right, this.zipper);
+    }
+
+    @Override
+    ZipSpliterator.OfLong newBatchSpliterator(Spliterator<Long> batch) {
+      Spliterator.OfLong empty = Spliterators.emptyLongSpliterator();
+      ZipSpliterator.OfLong prefix = new ZipSpliterator.OfLong(empty, empty, this.zipper);
+      prefix.batch = (Spliterator.OfLong) batch;
+      return prefix;
+    }
+
+    @Override
+    Spliterator<?> emptySource() {
+      return Spliterators.emptyLongSpliterator();
+    }
+
+    @Override
+    public boolean tryAdvance(LongConsumer action) {
+      if (this.batch != null) {
+        return this.batch.tryAdvance(action);
+      }
+      if (!advance((Spliterator.OfLong) this.left, this.leftValue, (long[]) this.leftTail, true)
+          || !advance((Spliterator.OfLong) this.right, this.rightValue, (long[]) this.rightTail, false)) {
+        return false;
+      }
+
+      action.accept(this.zipper.applyAsLong(this.leftValue.longValue, this.rightValue.longValue));
+      return true;
+    }
+
+    @Override
+    public ZipSpliterator.OfLong trySplit() {
+      return this.batch != null ? null : super.trySplit();
+    }
+
+    @Override
+    public long estimateSize() {
+      return this.batch != null ? this.batch.estimateSize() : super.estimateSize();
+    }
+
+    @Override
+    public int characteristics() {
+      return this.batch != null ? this.batch.characteristics() : super.characteristics();
+    }
+
+    @Override
+    Object drainLeft(int count) {
+      long[] array = new long[count];
+      int read = 0;
+      while (read < count && advance((Spliterator.OfLong) this.left, this.leftValue, (long[]) this.leftTail, true)) {
+        array[read++] = this.leftValue.longValue;
+      }
+      return Arrays.copyOf(array, read);
+    }
+
+    @Override
+    Object drainRight(int count) {
+      long[] array = new long[count];
+      int read = 0;
+      while (read < count && advance((Spliterator.OfLong) this.right, this.rightValue, (long[]) this.rightTail, false)) {
+        array[read++] = this.rightValue.longValue;
+      }
+      return Arrays.copyOf(array, read);
+    }
+
+    @Override
+    Spliterator<Long> readBatch(int batch) {
+      long[] array = new long[batch];
+      PrimitiveHolder holder = new PrimitiveHolder();
+      int read = 0;
+      while (read < batch && tryAdvance((LongConsumer) holder)) {
+        array[read++] = holder.longValue;
+      }
+      return read > 0 ? Spliterators.spliterator(array, 0, read, Spliterator.ORDERED) : null;
+    }
+
+    private boolean advance(Spliterator.OfLong source, PrimitiveHolder holder, long[] tail, boolean leftSide) {
+      if (source.tryAdvance((LongConsumer) holder)) {
+        return true;
+      }
+      if (tail != null) {
+        if (leftSide && this.leftTailIndex < this.leftTailLength) {
+          holder.longValue = tail[this.leftTailIndex++];
+          return true;
+        }
+        if (!leftSide && this.rightTailIndex < this.rightTailLength) {
+          holder.longValue = tail[this.rightTailIndex++];
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  static final class OfDouble extends ZipSpliterator<Double, OfDouble> implements Spliterator.OfDouble {
+
+    private final DoubleBinaryOperator zipper;
+    private final PrimitiveHolder leftValue = new PrimitiveHolder();
+    private final PrimitiveHolder rightValue = new PrimitiveHolder();
+    private Spliterator.OfDouble batch;
+
+    OfDouble(Spliterator.OfDouble left, Spliterator.OfDouble right, DoubleBinaryOperator zipper) {
+      super(left, right);
+      this.zipper = zipper;
+    }
+
+    @Override
+    ZipSpliterator.OfDouble newSpliterator(Spliterator<?> left, Spliterator<?> right) {
+      return new ZipSpliterator.OfDouble((Spliterator.OfDouble) left, (Spliterator.OfDouble) right, this.zipper);
+    }
+
+    @Override
+    ZipSpliterator.OfDouble newBatchSpliterator(Spliterator<Double> batch) {
+      Spliterator.OfDouble empty = Spliterators.emptyDoubleSpliterator();
+      ZipSpliterator.OfDouble prefix = new ZipSpliterator.OfDouble(empty, empty, this.zipper);
+      prefix.batch = (Spliterator.OfDouble) batch;
+      return prefix;
+    }
+
+    @Override
+    Spliterator<?> emptySource() {
+      return Spliterators.emptyDoubleSpliterator();
+    }
+
+    @Override
+    public boolean tryAdvance(DoubleConsumer action) {
+      if (this.batch != null) {
+        return this.batch.tryAdvance(action);
+      }
+      if (!advance((Spliterator.OfDouble) this.left, this.leftValue, (double[]) this.leftTail, true)
+          || !advance((Spliterator.OfDouble) this.right, this.rightValue, (double[]) this.rightTail, false)) {
+        return false;
+      }
+
+      action.accept(this.zipper.applyAsDouble(this.leftValue.doubleValue, this.rightValue.doubleValue));
+      return true;
+    }
+
+    @Override
+    public ZipSpliterator.OfDouble trySplit() {
+      return this.batch != null ? null : super.trySplit();
+    }
+
+    @Override
+    public long estimateSize() {
+      return this.batch != null ? this.batch.estimateSize() : super.estimateSize();
+    }
+
+    @Override
+    public int characteristics() {
+      return this.batch != null ? this.batch.characteristics() : super.characteristics();
+    }
+
+    @Override
+    Object drainLeft(int count) {
+      double[] array = new double[count];
+      int read = 0;
+      while (read < count && advance((Spliterator.OfDouble) this.left, this.leftValue, (double[]) this.leftTail, true)) {
+        array[read++] = this.leftValue.doubleValue;
+      }
+      return Arrays.copyOf(array, read);
+    }
+
+    @Override
+    Object drainRight(int count) {
+      double[] array = new double[count];
+      int read = 0;
+      while (read < count && advance((Spliterator.OfDouble) this.right, this.rightValue, (double[]) this.rightTail, false)) {
+        array[read++] = this.rightValue.doubleValue;
+      }
+      return Arrays.copyOf(array, read);
+    }
+
+    @Override
+    Spliterator<Double> readBatch(int batch) {
+      double[] array = new double[batch];
+      PrimitiveHolder holder = new PrimitiveHolder();
+      int read = 0;
+      while (read < batch && tryAdvance((DoubleConsumer) holder)) {
+        array[read++] = holder.doubleValue;
+      }
+      return read > 0 ? Spliterators.spliterator(array, 0, read, Spliterator.ORDERED) : null;
+    }
+
+    private boolean advance(Spliterator.OfDouble source, PrimitiveHolder holder, double[] tail, boolean leftSide) {
+      if (source.tryAdvance((DoubleConsumer) holder)) {
+        return true;
+      }
+      if (tail != null) {
+        if (leftSide && this.leftTailIndex < this.leftTailLength) {
+          holder.doubleValue = tail[this.leftTailIndex++];
+          return true;
+        }
+        if (!leftSide && this.rightTailIndex < this.rightTailLength) {
+          holder.doubleValue = tail[this.rightTailIndex++];
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  private static final class Holder<E> implements Consumer<E> {
+
+    E value;
+
+    @Override
+    public void accept(E value) {
+      this.value = value;
+    }
+  }
+
+  private static final class PrimitiveHolder implements IntConsumer, LongConsumer, DoubleConsumer {
+
+    int intValue;
+    long longValue;
+    double doubleValue;
+
+    @Override
+    public void accept(int value) {
+      this.intValue = value;
+    }
+
+    @Override
+    public void accept(long value) {
+      this.longValue = value;
+    }
+
+    @Override
+    public void accept(double value) {
+      this.doubleValue = value;
+    }
+  }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder events for terminal operations and their leaves. The events are only created if they are
+ * enabled in a running recording.
+ */
+final class JfrEvents {
+
+  private static final EventType TERMINAL_OPERATION_TYPE = EventType.getEventType(TerminalOperationEvent.class);
+  private static final EventType LEAF_TYPE = EventType.getEventType(LeafEvent.class);
+
+  private JfrEvents() {
+  }
+
+  /**
+   * Returns {@code true} if any of the events is enabled in a running recording.
+   */
+  static boolean isEnabled() {
+    return TERMINAL_OPERATION_TYPE.isEnabled() || LEAF_TYPE.isEnabled();
+  }
+
+  static boolean isLeafEnabled() {
+    return LEAF_TYPE.isEnabled();
+  }
+
+  static Object beginTerminalOperation() {
+    TerminalOperationEvent event = new TerminalOperationEvent();
+    event.begin();
+    return event;
+  }
+
+  static void commitTerminalOperation(Object event, String operation, Class<?> streamType, String workerPool,
+      int parallelism, boolean parallel, long elements, long queueWaitTime, Throwable failure) {
+    TerminalOperationEvent terminalOperationEvent = (TerminalOperationEvent) event;
+    terminalOperationEvent.end();
+    if (terminalOperationEvent.shouldCommit()) {
+      terminalOperationEvent.operation = operation;
+      terminalOperationEvent.streamType = streamType;
+      terminalOperationEvent.workerPool = workerPool;
+      terminalOperationEvent.parallelism = parallelism;
+      terminalOperationEvent.parallel = parallel;
+      terminalOperationEvent.elements = elements;
+      terminalOperationEvent.queueWaitTime = queueWaitTime;
+      terminalOperationEvent.failure = failure != null ? failure.getClass().getName() : null;
+      terminalOperationEvent.commit();
+    }
+  }
+
+  static Object beginLeaf() {
+    LeafEvent event = new LeafEvent();
+    event.begin();
+    return event;
+  }
+
+  static void commitLeaf(Object event, String operation, String workerPool, int depth, long elements) {
+    LeafEvent leafEvent = (LeafEvent) event;
+    leafEvent.end();
+    if (leafEvent.shouldCommit()) {
+      leafEvent.operation = operation;
+      leafEvent.workerPool = workerPool;
+      leafEvent.depth = depth;
+      leafEvent.elements = elements;
+      leafEvent.commit();
+    }
+  }
+
+  @Name("com.github.ferstl.streams.TerminalOperation")
+  @Label("Terminal Operation")
+  @Description("Terminal operation of a parallel stream")
+  @Category("Parallel Stream Support")
+  static final class TerminalOperationEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Stream Type")
+    Class<?> streamType;
+
+    @Label("Worker Pool")
+    String workerPool;
+
+    @Label("Parallelism")
+    int parallelism;
+
+    @Label("Parallel")
+    boolean parallel;
+
+    @Label("Elements")
+    @Description("Number of elements that reached the terminal operation")
+    long elements;
+
+    @Label("Queue Wait Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long queueWaitTime;
+
+    @Label("Failure")
+    String failure;
+  }
+
+  @Name("com.github.ferstl.streams.Leaf")
+  @Label("Leaf")
+  @Description("Leaf chunk of a terminal operation processed by a single thread")
+  @Category("Parallel Stream Support")
+  static final class LeafEvent extends Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Worker Pool")
+    String workerPool;
+
+    @Label("Depth")
+    @Description("Depth of the leaf in the split tree")
+    int depth;
+
+    @Label("Elements")
+    long elements;
+  }
+}
@@ -134,11 +134,44 @@ public abstract class AbstractParallelStreamSupportTest<T, S extends BaseStream<
     verify(this.delegateMock).close();
   }
 
+  @Test
+  void explain() {
+    BaseStream<?, ?> stream = this.parallelStreamSupportMock.explain(report -> {
+    });
+
+    assertSame(this.parallelStreamSupportMock, stream);
+  }
+
+  @Test
+  void explainWithNullConsumer() {
+    assertThrows(NullPointerException.class, () -> this.parallelStreamSupportMock.explain(null));
+  }
+
+  @Test
+  void profile() {
+    BaseStream<?, ?> stream = this.parallelStreamSupportMock.profile(profile -> {
+    });
+
+    assertSame(this.parallelStreamSupportMock, stream);
+    assertTrue(this.parallelStreamSupportMock.profiler.isEnabled());
+  }
+
+  @Test
+  void profileWithNullConsumer() {
+    assertThrows(NullPointerException.class, () -> this.parallelStreamSupportMock.profile(null));
+  }
+
+  @Test
+  void profileWithInvalidSamplingInterval() {
+    assertThrows(IllegalArgumentException.class, () -> this.parallelStreamSupportMock.profile(profile -> {
+    }, 0));
+  }
+
   @Test
   void executeWithRunnable() {
     AtomicBoolean b = new AtomicBoolean(false);
 
-    this.parallelStreamSupportMock.execute(() -> b.set(true));
+    this.parallelStreamSupportMock.execute("test", () -> b.set(true));
 
     assertTrue(b.get());
   }
@@ -149,7 +182,7 @@ public abstract class AbstractParallelStreamSupportTest<T, S extends BaseStream<
       throw new RuntimeException("boom");
     };
 
-    assertThrows(RuntimeException.class, () -> this.parallelStreamSupportMock.execute(r));
+    assertThrows(RuntimeException.class, () -> this.parallelStreamSupportMock.execute("test", r));
   }
 
   @Test
@@ -160,7 +193,7 @@ public abstract class AbstractParallelStreamSupportTest<T, S extends BaseStream<
       return null;
     };
 
-    this.parallelStreamSupportMock.execute(c);
+    this.parallelStreamSupportMock.execute("test", c);
 
     assertTrue(b.get());
   }
@@ -171,7 +204,7 @@ public abstract class AbstractParallelStreamSupportTest<T, S extends BaseStream<
       throw new AssertionError("boom");
     };
 
-    assertThrows(AssertionError.class, () -> this.parallelStreamSupportMock.execute(c));
+    assertThrows(AssertionError.class, () -> this.parallelStreamSupportMock.execute("test", c));
   }
 
   @Test
@@ -182,7 +215,7 @@ public abstract class AbstractParallelStreamSupportTest<T, S extends BaseStream<
         throw e;
       };
 
-      this.parallelStreamSupportMock.execute(c);
+      this.parallelStreamSupportMock.execute("test", c);
       fail("Expect runtime exception.");
     } catch (RuntimeException rte) {
       assertEquals(e, rte.getCause());
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdaptiveSplittingTest {
+
+  private ForkJoinPool workerPool;
+
+  @BeforeEach
+  void before() {
+    this.workerPool = new ForkJoinPool(4);
+  }
+
+  @AfterEach
+  void after() throws InterruptedException {
+    AdaptiveSplitting.disable();
+    this.workerPool.shutdown();
+    this.workerPool.awaitTermination(1, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void imbalancedOperation() {
+    AdaptiveSplitting.enable(2);
+    List<Integer> leaves = new ArrayList<>();
+
+    for (int i = 0; i < 6; i++) {
+      ParallelIntStreamSupport stream = (ParallelIntStreamSupport) ParallelIntStreamSupport.range(0, 1024,
+          this.workerPool);
+      assertNotNull(stream.callSite);
+
+      int sum = stream.explain(report -> leaves.add(report.getLeaves().size())).map(j -> {
+        if (j == 0) {
+          sleep(20);
+        }
+        return j;
+      }).sum();
+      assertEquals(523776, sum);
+    }
+
+    // The number of leaves doubles until the maximum split factor is reached
+    assertEquals(2 * leaves.get(0), (int) leaves.get(1));
+    assertEquals(AdaptiveSplitting.MAX_SPLIT_FACTOR * leaves.get(0), (int) leaves.get(4));
+    assertEquals(leaves.get(4), leaves.get(5));
+  }
+
+  @Test
+  void balancedOperation() {
+    AdaptiveSplitting.enable(1000);
+    List<Integer> leaves = new ArrayList<>();
+
+    for (int i = 0; i < 3; i++) {
+      ((ParallelIntStreamSupport) ParallelIntStreamSupport.range(0, 1024, this.workerPool))
+          .explain(report -> leaves.add(report.getLeaves().size()))
+          .sum();
+    }
+
+    assertEquals(leaves.get(0), leaves.get(1));
+    assertEquals(leaves.get(0), leaves.get(2));
+  }
+
+  @Test
+  void splitFactorDecreasesWhenBalanced() {
+    AdaptiveSplitting.enable(2);
+    AdaptiveSplitting adaptiveSplitting = AdaptiveSplitting.active;
+    StackTraceElement callSite = new StackTraceElement(getClass().getName(), "run", "AdaptiveSplittingTest.java", 42);
+
+    for (int i = 0; i < 5; i++) {
+      adaptiveSplitting.completed(callSite, adaptiveSplitting.splitFactor(callSite), report(null, 10, 1, 1, 1));
+    }
+    assertEquals(AdaptiveSplitting.MAX_SPLIT_FACTOR, adaptiveSplitting.splitFactor(callSite));
+
+    adaptiveSplitting.completed(callSite, AdaptiveSplitting.MAX_SPLIT_FACTOR, report(null, 1, 1, 1, 1));
+    assertEquals(AdaptiveSplitting.MAX_SPLIT_FACTOR / 2, adaptiveSplitting.splitFactor(callSite));
+
+    // Failed terminal operations don't change the split factor
+    adaptiveSplitting.completed(callSite, 8, report(new IllegalStateException(), 1, 1, 1, 1));
+    assertEquals(8, adaptiveSplitting.splitFactor(callSite));
+
+    for (int i = 0; i < 3; i++) {
+      adaptiveSplitting.completed(callSite, adaptiveSplitting.splitFactor(callSite), report(null, 1, 1, 1, 1));
+    }
+    assertEquals(1, adaptiveSplitting.splitFactor(callSite));
+
+    adaptiveSplitting.completed(callSite, 1, report(null, 1, 1, 1, 1));
+    assertEquals(1, adaptiveSplitting.splitFactor(callSite));
+  }
+
+  @Test
+  void streamCreatedBeforeEnabled() {
+    ParallelIntStreamSupport stream = new ParallelIntStreamSupport(IntStream.range(0, 2).parallel(), this.workerPool);
+
+    AdaptiveSplitting.enable();
+
+    assertNull(stream.callSite);
+    assertEquals(1, stream.sum());
+  }
+
+  @Test
+  void disable() {
+    AdaptiveSplitting.enable();
+    assertTrue(AdaptiveSplitting.isEnabled());
+
+    AdaptiveSplitting.disable();
+
+    assertFalse(AdaptiveSplitting.isEnabled());
+    assertNull(((ParallelIntStreamSupport) ParallelIntStreamSupport.range(0, 2, this.workerPool)).callSite);
+  }
+
+  @Test
+  void invalidThreshold() {
+    assertThrows(IllegalArgumentException.class, () -> AdaptiveSplitting.enable(1));
+    assertThrows(IllegalArgumentException.class, () -> AdaptiveSplitting.enable(Double.NaN));
+  }
+
+  private static ExecutionReport report(Throwable failure, long... leafDurations) {
+    List<ExecutionReport.Leaf> leaves = new ArrayList<>();
+    for (long duration : leafDurations) {
+      leaves.add(new ExecutionReport.Leaf(2, 10, 0, duration, "worker"));
+    }
+
+    return new ExecutionReport("sum", ParallelIntStreamSupport.class, 4, 0, 10, leaves, failure);
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ChromeTraceTest {
+
+  private ForkJoinPool workerPool;
+  private ChromeTrace trace;
+
+  @BeforeEach
+  void before() {
+    this.workerPool = new ForkJoinPool(2);
+    this.trace = ChromeTrace.start();
+  }
+
+  @AfterEach
+  void after() throws InterruptedException {
+    this.trace.stop();
+    this.workerPool.shutdown();
+    this.workerPool.awaitTermination(1, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void parallelTerminalOperation() throws IOException {
+    long sum = ParallelLongStreamSupport.range(0, 1000, this.workerPool).sum();
+    this.trace.stop();
+
+    String json = write(this.trace);
+    assertEquals(499500, sum);
+    assertTrue(json.startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":["));
+    assertTrue(json.contains("{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":1,\"tid\":0,\"args\":{\"name\":\""
+        + TerminalOperationMonitor.poolName(this.workerPool) + "\"}}"));
+    assertTrue(json.contains("\"args\":{\"name\":\"" + Thread.currentThread().getName() + "\"}"));
+    assertTrue(json.contains("\"args\":{\"name\":\"ForkJoinPool-"));
+    assertTrue(json.contains("{\"name\":\"sum\",\"cat\":\"terminalOperation\",\"ph\":\"X\""));
+    assertTrue(json.contains("\"args\":{\"streamType\":\"" + ParallelLongStreamSupport.class.getName()
+        + "\",\"parallel\":true,\"queueWaitTime\":"));
+    assertTrue(json.contains("{\"name\":\"sum\",\"cat\":\"task\",\"ph\":\"X\""));
+    assertTrue(json.contains("{\"name\":\"sum\",\"cat\":\"leaf\",\"ph\":\"X\""));
+    assertTrue(json.contains("\"args\":{\"depth\":"));
+  }
+
+  @Test
+  void sequentialTerminalOperation() throws IOException {
+    ParallelIntStreamSupport.range(0, 10, this.workerPool).sequential().forEach(i -> {
+    });
+
+    String json = write(this.trace);
+    assertTrue(json.contains("{\"name\":\"forEach\",\"cat\":\"terminalOperation\",\"ph\":\"X\""));
+    assertTrue(json.contains("\"parallel\":false"));
+    assertTrue(json.contains("\"args\":{\"depth\":0,\"elements\":10}"));
+    assertFalse(json.contains("\"cat\":\"task\""));
+  }
+
+  @Test
+  void join() throws IOException {
+    Stream<Integer> stream = ParallelStreamSupport.parallelStream(new Integer[]{1, 2, 3}, this.workerPool);
+
+    long count = ((ParallelStreamSupport<Integer>) stream)
+        .join(Stream.of(1, 2), i -> i, i -> i, (left, right) -> left)
+        .count();
+
+    String json = write(this.trace);
+    assertEquals(2, count);
+    assertTrue(json.contains("{\"name\":\"count\",\"cat\":\"leaf\",\"ph\":\"X\""));
+    assertFalse(json.contains("\"name\":\"hashJoin\""));
+  }
+
+  @Test
+  void mergeJoin() throws IOException {
+    Stream<Integer> stream = ParallelStreamSupport.parallelStream(new Integer[]{1, 2, 3}, this.workerPool);
+
+    long count = ((ParallelStreamSupport<Integer>) stream)
+        .mergeJoin(Stream.of(1, 2), i -> i, i -> i, (left, right) -> left)
+        .count();
+
+    String json = write(this.trace);
+    assertEquals(2, count);
+    assertTrue(json.contains("{\"name\":\"count\",\"cat\":\"terminalOperation\",\"ph\":\"X\""));
+    assertFalse(json.contains("\"name\":\"sortMergeJoin\""));
+  }
+
+  @Test
+  void failure() throws IOException {
+    assertThrows(IllegalStateException.class, () -> ParallelStreamSupport.parallelStream(new String[]{"a"},
+        this.workerPool).forEach(s -> {
+          throw new IllegalStateException("\"boom\"");
+        }));
+
+    String json = write(this.trace);
+    // The exception may be wrapped by the worker pool
+    assertTrue(json.contains("\"failure\":\"java.lang.IllegalStateException: "));
+    assertTrue(json.contains("\\\"boom\\\"\"}}"));
+  }
+
+  @Test
+  void stop() throws IOException {
+    assertTrue(this.trace.isRecording());
+    this.trace.close();
+    assertFalse(this.trace.isRecording());
+
+    ParallelIntStreamSupport.range(0, 10, this.workerPool).sum();
+    assertEquals("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n]}\n", write(this.trace));
+  }
+
+  @Test
+  void startTwice() {
+    assertThrows(IllegalStateException.class, ChromeTrace::start);
+
+    this.trace.stop();
+    ChromeTrace.start().stop();
+  }
+
+  private static String write(ChromeTrace trace) throws IOException {
+    StringWriter out = new StringWriter();
+    trace.writeTo(out);
+    return out.toString();
+  }
+}
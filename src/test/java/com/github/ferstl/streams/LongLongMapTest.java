@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LongLongMapTest {
+
+  private LongLongMap map;
+
+  @BeforeEach
+  void init() {
+    this.map = new LongLongMap();
+  }
+
+  @Test
+  void emptyMap() {
+    assertTrue(this.map.isEmpty());
+    assertEquals(0, this.map.size());
+    assertFalse(this.map.containsKey(0));
+    assertFalse(this.map.containsKey(1));
+    assertEquals(0, this.map.keys().length);
+    assertEquals(0, this.map.values().length);
+  }
+
+  @Test
+  void accumulate() {
+    this.map.accumulate(1, 10, Long::sum);
+    this.map.accumulate(2, 20, Long::sum);
+    this.map.accumulate(1, 5, Long::sum);
+
+    assertEquals(2, this.map.size());
+    assertEquals(15, this.map.get(1));
+    assertEquals(20, this.map.get(2));
+  }
+
+  @Test
+  void accumulateZeroKey() {
+    this.map.accumulate(0, 3, Math::max);
+    this.map.accumulate(0, 7, Math::max);
+    this.map.accumulate(0, 5, Math::max);
+
+    assertEquals(1, this.map.size());
+    assertTrue(this.map.containsKey(0));
+    assertEquals(7, this.map.get(0));
+  }
+
+  @Test
+  void accumulateManyKeys() {
+    Random random = new Random(42);
+    Map<Long, Long> expected = new HashMap<>();
+    for (int i = 0; i < 100_000; i++) {
+      long key = (random.nextInt(50_000) - 25_000) * 0x1_0000_0001L;
+      this.map.accumulate(key, i, Long::sum);
+      expected.merge(key, (long) i, Long::sum);
+    }
+
+    assertEquals(expected.size(), this.map.size());
+    expected.forEach((key, value) -> assertEquals((long) value, this.map.get(key)));
+  }
+
+  @Test
+  void getWithMissingKey() {
+    this.map.accumulate(1, 1, Long::sum);
+
+    assertThrows(NoSuchElementException.class, () -> this.map.get(2));
+    assertThrows(NoSuchElementException.class, () -> this.map.get(0));
+  }
+
+  @Test
+  void getOrDefault() {
+    this.map.accumulate(1, 1, Long::sum);
+
+    assertEquals(1, this.map.getOrDefault(1, -1));
+    assertEquals(-1, this.map.getOrDefault(2, -1));
+  }
+
+  @Test
+  void keysAndValues() {
+    this.map.accumulate(0, 100, Long::sum);
+    this.map.accumulate(-5, 50, Long::sum);
+    this.map.accumulate(Long.MAX_VALUE, 70, Long::sum);
+
+    long[] keys = this.map.keys();
+    long[] values = this.map.values();
+
+    assertEquals(3, keys.length);
+    for (int i = 0; i < keys.length; i++) {
+      assertEquals(this.map.get(keys[i]), values[i]);
+    }
+  }
+
+  @Test
+  void merge() {
+    this.map.accumulate(1, 1, Long::sum);
+    this.map.accumulate(2, 2, Long::sum);
+    LongLongMap other = new LongLongMap();
+    other.accumulate(2, 20, Long::sum);
+    other.accumulate(0, 30, Long::sum);
+
+    this.map.merge(other, Long::sum);
+
+    assertEquals(3, this.map.size());
+    assertEquals(1, this.map.get(1));
+    assertEquals(22, this.map.get(2));
+    assertEquals(30, this.map.get(0));
+  }
+
+  @Test
+  void equalsAndHashCode() {
+    LongLongMap other = new LongLongMap();
+    this.map.accumulate(1, 1, Long::sum);
+    this.map.accumulate(2, 2, Long::sum);
+    other.accumulate(2, 2, Long::sum);
+    other.accumulate(1, 1, Long::sum);
+
+    assertEquals(this.map, other);
+    assertEquals(this.map.hashCode(), other.hashCode());
+
+    other.accumulate(1, 1, Long::sum);
+    assertNotEquals(this.map, other);
+  }
+
+  @Test
+  void toStringWithEntries() {
+    this.map.accumulate(0, 1, Long::sum);
+
+    assertEquals("{0=1}", this.map.toString());
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyMap;
+import static java.util.stream.Collectors.counting;
+import static java.util.stream.Collectors.summingInt;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ParallelCollectorsTest {
+
+  private ForkJoinPool workerPool;
+  private List<Integer> values;
+
+  @BeforeEach
+  void before() {
+    this.workerPool = new ForkJoinPool(4);
+    this.values = IntStream.range(0, 100_000).boxed().collect(toList());
+  }
+
+  @AfterEach
+  void after() throws InterruptedException {
+    this.workerPool.shutdown();
+    this.workerPool.awaitTermination(1, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void groupingBy() {
+    Map<Integer, List<Integer>> result = ParallelStreamSupport.parallelStream(asList(1, 2, 3, 4, 5), this.workerPool)
+        .collect(ParallelCollectors.groupingBy(i -> i % 2));
+
+    assertEquals(2, result.size());
+    assertThat(result.get(0), containsInAnyOrder(2, 4));
+    assertThat(result.get(1), containsInAnyOrder(1, 3, 5));
+  }
+
+  @Test
+  void groupingByWithDownstream() {
+    Map<Integer, Long> result = ParallelStreamSupport.parallelStream(this.values, this.workerPool)
+        .collect(ParallelCollectors.groupingBy(i -> i % 7, counting()));
+
+    assertEquals(this.values.stream().collect(Collectors.groupingBy(i -> i % 7, counting())), result);
+  }
+
+  @Test
+  void groupingByWithSkewedKeys() {
+    Map<Integer, Integer> result = ParallelStreamSupport.parallelStream(this.values, this.workerPool)
+        .collect(ParallelCollectors.groupingBy(i -> i % 100 == 0 ? i : 0, summingInt(i -> 1)));
+
+    assertEquals(this.values.stream().collect(Collectors.groupingBy(i -> i % 100 == 0 ? i : 0, summingInt(i -> 1))), result);
+  }
+
+  @Test
+  void groupingBySequential() {
+    Map<Integer, Long> result = ParallelStreamSupport.parallelStream(this.values, this.workerPool)
+        .sequential()
+        .collect(ParallelCollectors.groupingBy(i -> i % 7, counting()));
+
+    assertEquals(this.values.stream().collect(Collectors.groupingBy(i -> i % 7, counting())), result);
+  }
+
+  @Test
+  void groupingByWithOtherPool() {
+    Map<Integer, Long> result = this.values.parallelStream()
+        .collect(ParallelCollectors.groupingBy(i -> i % 7, counting()));
+
+    assertEquals(this.values.stream().collect(Collectors.groupingBy(i -> i % 7, counting())), result);
+  }
+
+  @Test
+  void groupingByWithEmptyStream() {
+    Map<Integer, List<Integer>> result = ParallelStreamSupport.parallelStream(new ArrayList<Integer>(), this.workerPool)
+        .collect(ParallelCollectors.groupingBy(i -> i));
+
+    assertEquals(emptyMap(), result);
+  }
+
+  @Test
+  void groupingByWithNullKey() {
+    Stream<String> stream = ParallelStreamSupport.parallelStream(asList("a", "b"), this.workerPool);
+
+    assertThrows(NullPointerException.class, () -> stream.collect(ParallelCollectors.groupingBy(s -> null)));
+  }
+
+  @Test
+  void groupingByWithNullClassifier() {
+    assertThrows(NullPointerException.class, () -> ParallelCollectors.groupingBy(null));
+  }
+
+  @Test
+  void groupingByStriped() {
+    Map<Integer, Long> result = ParallelStreamSupport.parallelStream(this.values, this.workerPool)
+        .collect(ParallelCollectors.groupingByStriped(i -> i % 10_000, counting(), 16));
+
+    assertEquals(this.values.stream().collect(Collectors.groupingBy(i -> i % 10_000, counting())), result);
+  }
+
+  @Test
+  void groupingByStripedWithSingleStripe() {
+    Map<Integer, List<Integer>> result = ParallelStreamSupport.parallelStream(asList(1, 2, 3, 4, 5), this.workerPool)
+        .collect(ParallelCollectors.groupingByStriped(i -> i % 2, toList(), 1));
+
+    assertThat(result.get(0), containsInAnyOrder(2, 4));
+    assertThat(result.get(1), containsInAnyOrder(1, 3, 5));
+  }
+
+  @Test
+  void groupingByStripedWithInvalidStripes() {
+    assertThrows(IllegalArgumentException.class, () -> ParallelCollectors.groupingByStriped(i -> i, counting(), 0));
+  }
+}
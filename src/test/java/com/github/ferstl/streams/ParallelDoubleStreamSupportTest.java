@@ -22,9 +22,12 @@
 package com.github.ferstl.streams;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.DoubleSummaryStatistics;
+import java.util.List;
 import java.util.OptionalDouble;
 import java.util.PrimitiveIterator;
+import java.util.Random;
 import java.util.Spliterator;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinWorkerThread;
@@ -48,6 +51,7 @@ import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static java.lang.Thread.currentThread;
+import static java.util.stream.Collectors.toList;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
@@ -238,6 +242,31 @@ public class ParallelDoubleStreamSupportTest extends AbstractParallelStreamSuppo
     assertThrows(NullPointerException.class, () -> ParallelDoubleStreamSupport.concat(DoubleStream.of(42.0), null, this.workerPool));
   }
 
+  @Test
+  void zip() {
+    DoubleStream a = DoubleStream.of(1.0, 2.0, 3.0);
+    DoubleStream b = DoubleStream.of(4.0, 5.0, 6.0, 7.0);
+    DoubleStream stream = ParallelDoubleStreamSupport.zip(a, b, (i, j) -> i * j, this.workerPool);
+
+    assertThat(stream, instanceOf(ParallelDoubleStreamSupport.class));
+    assertTrue(stream.isParallel());
+    assertArrayEquals(stream.toArray(), new double[]{4.0, 10.0, 18.0}, 0.000001);
+  }
+
+  @Test
+  void zipWithUnsizedSource() {
+    DoubleStream a = DoubleStream.iterate(0, i -> i + 1).limit(5000);
+    DoubleStream b = IntStream.range(0, 10000).asDoubleStream();
+    DoubleStream stream = ParallelDoubleStreamSupport.zip(a, b, (i, j) -> i - j, this.workerPool);
+
+    assertEquals(5000, stream.filter(i -> i == 0).count());
+  }
+
+  @Test
+  void zipWithNullZipper() {
+    assertThrows(NullPointerException.class, () -> ParallelDoubleStreamSupport.zip(DoubleStream.of(42.0), DoubleStream.of(42.0), null, this.workerPool));
+  }
+
   @Test
   void filter() {
     DoublePredicate p = d -> true;
@@ -361,6 +390,122 @@ public class ParallelDoubleStreamSupportTest extends AbstractParallelStreamSuppo
     assertSame(this.parallelStreamSupportMock, stream);
   }
 
+  @Test
+  void scan() {
+    ParallelDoubleStreamSupport stream = (ParallelDoubleStreamSupport) ParallelDoubleStreamSupport.parallelStream(IntStream.rangeClosed(1, 1000).asDoubleStream().toArray(), this.workerPool);
+
+    double[] result = stream.scan(0.0, (a, b) -> a + b).toArray();
+
+    double[] expected = new double[1000];
+    double acc = 0.0;
+    for (int i = 0; i < expected.length; i++) {
+      acc = acc + i + 1;
+      expected[i] = acc;
+    }
+    assertArrayEquals(expected, result);
+  }
+
+  @Test
+  void scanWithEmptyStream() {
+    ParallelDoubleStreamSupport stream = (ParallelDoubleStreamSupport) ParallelDoubleStreamSupport.parallelStream(new double[0], this.workerPool);
+
+    assertArrayEquals(new double[0], stream.scan(0.0, (a, b) -> a + b).toArray());
+  }
+
+  @Test
+  void scanWithNullOperator() {
+    assertThrows(NullPointerException.class, () -> this.parallelDoubleStreamSupport.scan(0.0, null));
+  }
+
+  @Test
+  void scanSequential() {
+    this.parallelDoubleStreamSupport.sequential();
+    Thread thisThread = currentThread();
+    AtomicReference<Thread> threadRef = new AtomicReference<>();
+
+    this.parallelDoubleStreamSupport.peek(i -> threadRef.set(currentThread()));
+    this.parallelDoubleStreamSupport.scan(0.0, (a, b) -> a + b).toArray();
+
+    assertEquals(thisThread, threadRef.get());
+  }
+
+  @Test
+  void scanParallel() {
+    this.parallelDoubleStreamSupport.parallel();
+    AtomicReference<Thread> threadRef = new AtomicReference<>();
+
+    this.parallelDoubleStreamSupport.scan(0.0, (a, b) -> {
+      threadRef.set(currentThread());
+      return a + b;
+    }).toArray();
+
+    assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
+  }
+
+  @Test
+  void prefixSum() {
+    ParallelDoubleStreamSupport stream = (ParallelDoubleStreamSupport) ParallelDoubleStreamSupport.parallelStream(new double[]{1.0, 2.0, 3.0, 4.0}, this.workerPool);
+
+    assertArrayEquals(new double[]{1.0, 3.0, 6.0, 10.0}, stream.prefixSum().toArray());
+  }
+
+  @Test
+  void chunked() {
+    double[] values = IntStream.range(0, 1000).asDoubleStream().toArray();
+    ParallelDoubleStreamSupport stream = (ParallelDoubleStreamSupport) ParallelDoubleStreamSupport.parallelStream(values, this.workerPool);
+
+    List<double[]> chunks = stream.chunked(7).collect(toList());
+
+    assertEquals(143, chunks.size());
+    for (int i = 0; i < chunks.size(); i++) {
+      assertArrayEquals(Arrays.copyOfRange(values, i * 7, Math.min(i * 7 + 7, values.length)), chunks.get(i));
+    }
+  }
+
+  @Test
+  void chunkedWithUnsizedSource() {
+    ParallelDoubleStreamSupport stream = (ParallelDoubleStreamSupport) ParallelDoubleStreamSupport.parallelStream(new double[]{1, 2, 3, 4, 5}, this.workerPool);
+    stream.filter(v -> v != 3);
+
+    List<double[]> chunks = stream.chunked(3).collect(toList());
+
+    assertEquals(2, chunks.size());
+    assertArrayEquals(new double[]{1, 2, 4}, chunks.get(0));
+    assertArrayEquals(new double[]{5}, chunks.get(1));
+  }
+
+  @Test
+  void chunkedWithInvalidSize() {
+    assertThrows(IllegalArgumentException.class, () -> this.parallelDoubleStreamSupport.chunked(0));
+  }
+
+  @Test
+  void windowed() {
+    ParallelDoubleStreamSupport stream = (ParallelDoubleStreamSupport) ParallelDoubleStreamSupport.parallelStream(new double[]{1, 2, 3, 4, 5, 6}, this.workerPool);
+
+    List<double[]> windows = stream.windowed(3, 2).collect(toList());
+
+    assertEquals(2, windows.size());
+    assertArrayEquals(new double[]{1, 2, 3}, windows.get(0));
+    assertArrayEquals(new double[]{3, 4, 5}, windows.get(1));
+  }
+
+  @Test
+  void windowedWithInvalidStep() {
+    assertThrows(IllegalArgumentException.class, () -> this.parallelDoubleStreamSupport.windowed(1, 0));
+  }
+
+  @Test
+  void chunkedParallel() {
+    this.parallelDoubleStreamSupport.parallel();
+    AtomicReference<Thread> threadRef = new AtomicReference<>();
+
+    this.parallelDoubleStreamSupport.peek(v -> threadRef.set(currentThread()));
+    this.parallelDoubleStreamSupport.chunked(1).collect(toList());
+
+    assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
+  }
+
   @Test
   void forEach() {
     DoubleConsumer c = d -> {
@@ -454,6 +599,24 @@ public class ParallelDoubleStreamSupportTest extends AbstractParallelStreamSuppo
     assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
   }
 
+  @Test
+  void toArrayParallelWithSizedPipeline() {
+    double[] array = ParallelDoubleStreamSupport.parallelStream(IntStream.range(0, 1000).asDoubleStream().toArray(), this.workerPool)
+        .map(d -> d * 2)
+        .toArray();
+
+    assertArrayEquals(IntStream.range(0, 1000).asDoubleStream().map(d -> d * 2).toArray(), array);
+  }
+
+  @Test
+  void toArrayParallelWithUnsizedPipeline() {
+    double[] array = ParallelDoubleStreamSupport.parallelStream(IntStream.range(0, 1000).asDoubleStream().toArray(), this.workerPool)
+        .filter(d -> d % 3 == 0)
+        .toArray();
+
+    assertArrayEquals(IntStream.range(0, 1000).asDoubleStream().filter(d -> d % 3 == 0).toArray(), array);
+  }
+
   @Test
   void reduceWithIdentityAndAccumulator() {
     DoubleBinaryOperator accumulator = (a, b) -> b;
@@ -703,6 +866,18 @@ public class ParallelDoubleStreamSupportTest extends AbstractParallelStreamSuppo
     assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
   }
 
+  @Test
+  void countWithSizedSource() {
+    // Counting a sized pipeline does not require the worker pool
+    this.workerPool.shutdown();
+
+    long count = ParallelDoubleStreamSupport.parallelStream(new double[1000], this.workerPool)
+        .map(d -> d * 2)
+        .count();
+
+    assertEquals(1000, count);
+  }
+
   @Test
   void average() {
     OptionalDouble result = this.parallelStreamSupportMock.average();
@@ -940,6 +1115,205 @@ public class ParallelDoubleStreamSupportTest extends AbstractParallelStreamSuppo
     assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
   }
 
+  @Test
+  void topK() {
+    double[] values = new Random(42).doubles(10_000, -1000, 1000).toArray();
+    ParallelDoubleStreamSupport stream = (ParallelDoubleStreamSupport) ParallelDoubleStreamSupport.parallelStream(values, this.workerPool);
+
+    double[] result = stream.topK(100);
+
+    double[] expected = DoubleStream.of(values).map(d -> -d).sorted().map(d -> -d).limit(100).toArray();
+    assertArrayEquals(expected, result);
+  }
+
+  @Test
+  void topKWithLessElementsThanK() {
+    ParallelDoubleStreamSupport stream = (ParallelDoubleStreamSupport) ParallelDoubleStreamSupport.parallelStream(new double[]{2, 3, 1}, this.workerPool);
+
+    assertArrayEquals(new double[]{3, 2, 1}, stream.topK(5));
+  }
+
+  @Test
+  void topKWithNegativeK() {
+    assertThrows(IllegalArgumentException.class, () -> this.parallelDoubleStreamSupport.topK(-1));
+  }
+
+  @Test
+  void topKParallel() {
+    this.parallelDoubleStreamSupport.parallel();
+    AtomicReference<Thread> threadRef = new AtomicReference<>();
+
+    this.parallelDoubleStreamSupport.peek(i -> threadRef.set(currentThread()));
+    this.parallelDoubleStreamSupport.topK(1);
+
+    assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
+  }
+
+  @Test
+  void bottomK() {
+    double[] values = new Random(42).doubles(10_000, -1000, 1000).toArray();
+    ParallelDoubleStreamSupport stream = (ParallelDoubleStreamSupport) ParallelDoubleStreamSupport.parallelStream(values, this.workerPool);
+
+    double[] result = stream.bottomK(100);
+
+    double[] expected = DoubleStream.of(values).sorted().limit(100).toArray();
+    assertArrayEquals(expected, result);
+  }
+
+  @Test
+  void bottomKWithZeroK() {
+    ParallelDoubleStreamSupport stream = (ParallelDoubleStreamSupport) ParallelDoubleStreamSupport.parallelStream(new double[]{2, 3, 1}, this.workerPool);
+
+    assertArrayEquals(new double[0], stream.bottomK(0));
+  }
+
+  @Test
+  void histogram() {
+    double[] values = new Random(42).doubles(10_000, -100, 100).toArray();
+    ParallelDoubleStreamSupport stream = (ParallelDoubleStreamSupport) ParallelDoubleStreamSupport.parallelStream(values, this.workerPool);
+
+    long[] histogram = stream.histogram(new double[]{-50, 0, 50});
+
+    long[] expected = new long[]{
+        DoubleStream.of(values).filter(v -> v < -50).count(),
+        DoubleStream.of(values).filter(v -> v >= -50 && v < 0).count(),
+        DoubleStream.of(values).filter(v -> v >= 0 && v < 50).count(),
+        DoubleStream.of(values).filter(v -> v >= 50).count()};
+    assertArrayEquals(expected, histogram);
+  }
+
+  @Test
+  void histogramWithoutBoundaries() {
+    ParallelDoubleStreamSupport stream = (ParallelDoubleStreamSupport) ParallelDoubleStreamSupport.parallelStream(new double[]{1, 2, 3}, this.workerPool);
+
+    assertArrayEquals(new long[]{3}, stream.histogram(new double[0]));
+  }
+
+  @Test
+  void histogramWithUnorderedBoundaries() {
+    assertThrows(IllegalArgumentException.class, () -> this.parallelDoubleStreamSupport.histogram(new double[]{1, 1}));
+  }
+
+  @Test
+  void histogramParallel() {
+    this.parallelDoubleStreamSupport.parallel();
+    AtomicReference<Thread> threadRef = new AtomicReference<>();
+
+    this.parallelDoubleStreamSupport.peek(i -> threadRef.set(currentThread()));
+    this.parallelDoubleStreamSupport.histogram(new double[]{0});
+
+    assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
+  }
+
+  @Test
+  void countByBucket() {
+    double[] values = new Random(42).doubles(10_000, -100, 100).toArray();
+    DoubleToIntFunction bucketFunction = v -> (int) Math.abs(v) % 10;
+    ParallelDoubleStreamSupport stream = (ParallelDoubleStreamSupport) ParallelDoubleStreamSupport.parallelStream(values, this.workerPool);
+
+    long[] counts = stream.countByBucket(10, bucketFunction);
+
+    long[] expected = new long[10];
+    DoubleStream.of(values).forEach(v -> expected[bucketFunction.applyAsInt(v)]++);
+    assertArrayEquals(expected, counts);
+  }
+
+  @Test
+  void countByBucketWithInvalidBucket() {
+    ParallelDoubleStreamSupport stream = (ParallelDoubleStreamSupport) ParallelDoubleStreamSupport.parallelStream(new double[]{1, 2, 3}, this.workerPool);
+
+    assertThrows(IndexOutOfBoundsException.class, () -> stream.countByBucket(2, v -> 2));
+  }
+
+  @Test
+  void countByBucketWithoutBuckets() {
+    assertThrows(IllegalArgumentException.class, () -> this.parallelDoubleStreamSupport.countByBucket(0, v -> 0));
+  }
+
+  @Test
+  void quantiles() {
+    ParallelDoubleStreamSupport stream = (ParallelDoubleStreamSupport) ParallelDoubleStreamSupport.parallelStream(new double[]{5, 1, 4, 2, 3}, this.workerPool);
+
+    double[] quantiles = stream.quantiles(0.0, 0.5, 1.0);
+
+    assertArrayEquals(new double[]{1, 3, 5}, quantiles);
+  }
+
+  @Test
+  void quantilesWithLargeStream() {
+    double[] values = LongStream.range(0, 100_000).mapToDouble(v -> (v * 7_919) % 100_000).toArray();
+    ParallelDoubleStreamSupport stream = (ParallelDoubleStreamSupport) ParallelDoubleStreamSupport.parallelStream(values, this.workerPool);
+
+    double[] quantiles = stream.quantiles(new double[]{0.0, 0.1, 0.5, 0.99, 1.0}, 200);
+
+    assertEquals(0, quantiles[0]);
+    assertEquals(10_000, quantiles[1], 2_000);
+    assertEquals(50_000, quantiles[2], 2_000);
+    assertEquals(99_000, quantiles[3], 2_000);
+    assertEquals(99_999, quantiles[4]);
+  }
+
+  @Test
+  void quantilesWithEmptyStream() {
+    ParallelDoubleStreamSupport stream = (ParallelDoubleStreamSupport) ParallelDoubleStreamSupport.parallelStream(new double[0], this.workerPool);
+
+    assertArrayEquals(new double[]{Double.NaN}, stream.quantiles(0.5));
+  }
+
+  @Test
+  void quantilesWithInvalidQuantile() {
+    assertThrows(IllegalArgumentException.class, () -> this.parallelDoubleStreamSupport.quantiles(1.5));
+  }
+
+  @Test
+  void quantilesWithTooSmallK() {
+    assertThrows(IllegalArgumentException.class, () -> this.parallelDoubleStreamSupport.quantiles(new double[]{0.5}, 4));
+  }
+
+  @Test
+  void quantilesParallel() {
+    this.parallelDoubleStreamSupport.parallel();
+    AtomicReference<Thread> threadRef = new AtomicReference<>();
+
+    this.parallelDoubleStreamSupport.peek(i -> threadRef.set(currentThread()));
+    this.parallelDoubleStreamSupport.quantiles(0.5);
+
+    assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
+  }
+
+  @Test
+  void approximateDistinctCount() {
+    double[] values = LongStream.range(0, 100_000).mapToDouble(v -> v % 50_000).toArray();
+    ParallelDoubleStreamSupport stream = (ParallelDoubleStreamSupport) ParallelDoubleStreamSupport.parallelStream(values, this.workerPool);
+
+    long count = stream.approximateDistinctCount(14);
+
+    assertEquals(50_000, count, 2_000);
+  }
+
+  @Test
+  void approximateDistinctCountWithSmallCardinality() {
+    ParallelDoubleStreamSupport stream = (ParallelDoubleStreamSupport) ParallelDoubleStreamSupport.parallelStream(new double[]{1, 2, 2, 3, 3, 3}, this.workerPool);
+
+    assertEquals(3, stream.approximateDistinctCount(14));
+  }
+
+  @Test
+  void approximateDistinctCountWithInvalidPrecision() {
+    assertThrows(IllegalArgumentException.class, () -> this.parallelDoubleStreamSupport.approximateDistinctCount(3));
+  }
+
+  @Test
+  void approximateDistinctCountParallel() {
+    this.parallelDoubleStreamSupport.parallel();
+    AtomicReference<Thread> threadRef = new AtomicReference<>();
+
+    this.parallelDoubleStreamSupport.peek(i -> threadRef.set(currentThread()));
+    this.parallelDoubleStreamSupport.approximateDistinctCount(4);
+
+    assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
+  }
+
   @Test
   void boxed() {
     Stream<Double> stream = this.parallelStreamSupportMock.boxed();
@@ -22,13 +22,17 @@
 package com.github.ferstl.streams;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.IntSummaryStatistics;
+import java.util.List;
 import java.util.OptionalDouble;
 import java.util.OptionalInt;
 import java.util.PrimitiveIterator;
+import java.util.Random;
 import java.util.Spliterator;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 import java.util.function.IntBinaryOperator;
@@ -49,6 +53,8 @@ import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static java.lang.Thread.currentThread;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
@@ -258,6 +264,31 @@ public class ParallelIntStreamSupportTest extends AbstractParallelStreamSupportT
     assertThrows(NullPointerException.class, () -> ParallelIntStreamSupport.concat(IntStream.of(42), null, this.workerPool));
   }
 
+  @Test
+  void zip() {
+    IntStream a = IntStream.of(1, 2, 3);
+    IntStream b = IntStream.of(4, 5, 6, 7);
+    IntStream stream = ParallelIntStreamSupport.zip(a, b, (i, j) -> i * j, this.workerPool);
+
+    assertThat(stream, instanceOf(ParallelIntStreamSupport.class));
+    assertTrue(stream.isParallel());
+    assertArrayEquals(stream.toArray(), new int[]{4, 10, 18});
+  }
+
+  @Test
+  void zipWithUnsizedSource() {
+    IntStream a = IntStream.iterate(0, i -> i + 1).limit(5000);
+    IntStream b = IntStream.range(0, 10000);
+    IntStream stream = ParallelIntStreamSupport.zip(a, b, (i, j) -> i - j, this.workerPool);
+
+    assertEquals(5000, stream.filter(i -> i == 0).count());
+  }
+
+  @Test
+  void zipWithNullZipper() {
+    assertThrows(NullPointerException.class, () -> ParallelIntStreamSupport.zip(IntStream.of(42), IntStream.of(42), null, this.workerPool));
+  }
+
   @Test
   void filter() {
     IntPredicate p = i -> true;
@@ -381,6 +412,122 @@ public class ParallelIntStreamSupportTest extends AbstractParallelStreamSupportT
     assertSame(this.parallelStreamSupportMock, stream);
   }
 
+  @Test
+  void scan() {
+    ParallelIntStreamSupport stream = (ParallelIntStreamSupport) ParallelIntStreamSupport.range(1, 1001, this.workerPool);
+
+    int[] result = stream.scan(0, (a, b) -> a + b).toArray();
+
+    int[] expected = new int[1000];
+    int acc = 0;
+    for (int i = 0; i < expected.length; i++) {
+      acc = acc + i + 1;
+      expected[i] = acc;
+    }
+    assertArrayEquals(expected, result);
+  }
+
+  @Test
+  void scanWithEmptyStream() {
+    ParallelIntStreamSupport stream = (ParallelIntStreamSupport) ParallelIntStreamSupport.parallelStream(new int[0], this.workerPool);
+
+    assertArrayEquals(new int[0], stream.scan(0, (a, b) -> a + b).toArray());
+  }
+
+  @Test
+  void scanWithNullOperator() {
+    assertThrows(NullPointerException.class, () -> this.parallelIntStreamSupport.scan(0, null));
+  }
+
+  @Test
+  void scanSequential() {
+    this.parallelIntStreamSupport.sequential();
+    Thread thisThread = currentThread();
+    AtomicReference<Thread> threadRef = new AtomicReference<>();
+
+    this.parallelIntStreamSupport.peek(i -> threadRef.set(currentThread()));
+    this.parallelIntStreamSupport.scan(0, (a, b) -> a + b).toArray();
+
+    assertEquals(thisThread, threadRef.get());
+  }
+
+  @Test
+  void scanParallel() {
+    this.parallelIntStreamSupport.parallel();
+    AtomicReference<Thread> threadRef = new AtomicReference<>();
+
+    this.parallelIntStreamSupport.scan(0, (a, b) -> {
+      threadRef.set(currentThread());
+      return a + b;
+    }).toArray();
+
+    assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
+  }
+
+  @Test
+  void prefixSum() {
+    ParallelIntStreamSupport stream = (ParallelIntStreamSupport) ParallelIntStreamSupport.parallelStream(new int[]{1, 2, 3, 4}, this.workerPool);
+
+    assertArrayEquals(new int[]{1, 3, 6, 10}, stream.prefixSum().toArray());
+  }
+
+  @Test
+  void chunked() {
+    int[] values = IntStream.range(0, 1000).toArray();
+    ParallelIntStreamSupport stream = (ParallelIntStreamSupport) ParallelIntStreamSupport.parallelStream(values, this.workerPool);
+
+    List<int[]> chunks = stream.chunked(7).collect(toList());
+
+    assertEquals(143, chunks.size());
+    for (int i = 0; i < chunks.size(); i++) {
+      assertArrayEquals(Arrays.copyOfRange(values, i * 7, Math.min(i * 7 + 7, values.length)), chunks.get(i));
+    }
+  }
+
+  @Test
+  void chunkedWithUnsizedSource() {
+    ParallelIntStreamSupport stream = (ParallelIntStreamSupport) ParallelIntStreamSupport.parallelStream(new int[]{1, 2, 3, 4, 5}, this.workerPool);
+    stream.filter(v -> v != 3);
+
+    List<int[]> chunks = stream.chunked(3).collect(toList());
+
+    assertEquals(2, chunks.size());
+    assertArrayEquals(new int[]{1, 2, 4}, chunks.get(0));
+    assertArrayEquals(new int[]{5}, chunks.get(1));
+  }
+
+  @Test
+  void chunkedWithInvalidSize() {
+    assertThrows(IllegalArgumentException.class, () -> this.parallelIntStreamSupport.chunked(0));
+  }
+
+  @Test
+  void windowed() {
+    ParallelIntStreamSupport stream = (ParallelIntStreamSupport) ParallelIntStreamSupport.parallelStream(new int[]{1, 2, 3, 4, 5, 6}, this.workerPool);
+
+    List<int[]> windows = stream.windowed(3, 2).collect(toList());
+
+    assertEquals(2, windows.size());
+    assertArrayEquals(new int[]{1, 2, 3}, windows.get(0));
+    assertArrayEquals(new int[]{3, 4, 5}, windows.get(1));
+  }
+
+  @Test
+  void windowedWithInvalidStep() {
+    assertThrows(IllegalArgumentException.class, () -> this.parallelIntStreamSupport.windowed(1, 0));
+  }
+
+  @Test
+  void chunkedParallel() {
+    this.parallelIntStreamSupport.parallel();
+    AtomicReference<Thread> threadRef = new AtomicReference<>();
+
+    this.parallelIntStreamSupport.peek(v -> threadRef.set(currentThread()));
+    this.parallelIntStreamSupport.chunked(1).collect(toList());
+
+    assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
+  }
+
   @Test
   void forEach() {
     IntConsumer c = i -> {
@@ -474,6 +621,24 @@ public class ParallelIntStreamSupportTest extends AbstractParallelStreamSupportT
     assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
   }
 
+  @Test
+  void toArrayParallelWithSizedPipeline() {
+    int[] array = ParallelIntStreamSupport.range(0, 1000, this.workerPool)
+        .map(i -> i * 2)
+        .toArray();
+
+    assertArrayEquals(IntStream.range(0, 1000).map(i -> i * 2).toArray(), array);
+  }
+
+  @Test
+  void toArrayParallelWithUnsizedPipeline() {
+    int[] array = ParallelIntStreamSupport.range(0, 1000, this.workerPool)
+        .filter(i -> i % 3 == 0)
+        .toArray();
+
+    assertArrayEquals(IntStream.range(0, 1000).filter(i -> i % 3 == 0).toArray(), array);
+  }
+
   @Test
   void reduceWithIdentityAndAccumulator() {
     IntBinaryOperator accumulator = (a, b) -> b;
@@ -723,6 +888,18 @@ public class ParallelIntStreamSupportTest extends AbstractParallelStreamSupportT
     assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
   }
 
+  @Test
+  void countWithSizedSource() {
+    // Counting a sized pipeline does not require the worker pool
+    this.workerPool.shutdown();
+
+    long count = ParallelIntStreamSupport.range(0, 1000, this.workerPool)
+        .map(i -> i * 2)
+        .count();
+
+    assertEquals(1000, count);
+  }
+
   @Test
   void average() {
     OptionalDouble result = this.parallelStreamSupportMock.average();
@@ -960,6 +1137,154 @@ public class ParallelIntStreamSupportTest extends AbstractParallelStreamSupportT
     assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
   }
 
+  @Test
+  void topK() {
+    int[] values = new Random(42).ints(10_000, -1000, 1000).toArray();
+    ParallelIntStreamSupport stream = (ParallelIntStreamSupport) ParallelIntStreamSupport.parallelStream(values, this.workerPool);
+
+    int[] result = stream.topK(100);
+
+    int[] expected = IntStream.of(values).map(i -> -i).sorted().map(i -> -i).limit(100).toArray();
+    assertArrayEquals(expected, result);
+  }
+
+  @Test
+  void topKWithLessElementsThanK() {
+    ParallelIntStreamSupport stream = (ParallelIntStreamSupport) ParallelIntStreamSupport.parallelStream(new int[]{2, 3, 1}, this.workerPool);
+
+    assertArrayEquals(new int[]{3, 2, 1}, stream.topK(5));
+  }
+
+  @Test
+  void topKWithNegativeK() {
+    assertThrows(IllegalArgumentException.class, () -> this.parallelIntStreamSupport.topK(-1));
+  }
+
+  @Test
+  void topKParallel() {
+    this.parallelIntStreamSupport.parallel();
+    AtomicReference<Thread> threadRef = new AtomicReference<>();
+
+    this.parallelIntStreamSupport.peek(i -> threadRef.set(currentThread()));
+    this.parallelIntStreamSupport.topK(1);
+
+    assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
+  }
+
+  @Test
+  void bottomK() {
+    int[] values = new Random(42).ints(10_000, -1000, 1000).toArray();
+    ParallelIntStreamSupport stream = (ParallelIntStreamSupport) ParallelIntStreamSupport.parallelStream(values, this.workerPool);
+
+    int[] result = stream.bottomK(100);
+
+    int[] expected = IntStream.of(values).sorted().limit(100).toArray();
+    assertArrayEquals(expected, result);
+  }
+
+  @Test
+  void bottomKWithZeroK() {
+    ParallelIntStreamSupport stream = (ParallelIntStreamSupport) ParallelIntStreamSupport.parallelStream(new int[]{2, 3, 1}, this.workerPool);
+
+    assertArrayEquals(new int[0], stream.bottomK(0));
+  }
+
+  @Test
+  void histogram() {
+    int[] values = new Random(42).ints(10_000, -100, 100).toArray();
+    ParallelIntStreamSupport stream = (ParallelIntStreamSupport) ParallelIntStreamSupport.parallelStream(values, this.workerPool);
+
+    long[] histogram = stream.histogram(new int[]{-50, 0, 50});
+
+    long[] expected = new long[]{
+        IntStream.of(values).filter(v -> v < -50).count(),
+        IntStream.of(values).filter(v -> v >= -50 && v < 0).count(),
+        IntStream.of(values).filter(v -> v >= 0 && v < 50).count(),
+        IntStream.of(values).filter(v -> v >= 50).count()};
+    assertArrayEquals(expected, histogram);
+  }
+
+  @Test
+  void histogramWithoutBoundaries() {
+    ParallelIntStreamSupport stream = (ParallelIntStreamSupport) ParallelIntStreamSupport.parallelStream(new int[]{1, 2, 3}, this.workerPool);
+
+    assertArrayEquals(new long[]{3}, stream.histogram(new int[0]));
+  }
+
+  @Test
+  void histogramWithUnorderedBoundaries() {
+    assertThrows(IllegalArgumentException.class, () -> this.parallelIntStreamSupport.histogram(new int[]{1, 1}));
+  }
+
+  @Test
+  void histogramParallel() {
+    this.parallelIntStreamSupport.parallel();
+    AtomicReference<Thread> threadRef = new AtomicReference<>();
+
+    this.parallelIntStreamSupport.peek(i -> threadRef.set(currentThread()));
+    this.parallelIntStreamSupport.histogram(new int[]{0});
+
+    assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
+  }
+
+  @Test
+  void countByBucket() {
+    int[] values = new Random(42).ints(10_000, -100, 100).toArray();
+    IntUnaryOperator bucketFunction = v -> Math.floorMod(v, 10);
+    ParallelIntStreamSupport stream = (ParallelIntStreamSupport) ParallelIntStreamSupport.parallelStream(values, this.workerPool);
+
+    long[] counts = stream.countByBucket(10, bucketFunction);
+
+    long[] expected = new long[10];
+    IntStream.of(values).forEach(v -> expected[bucketFunction.applyAsInt(v)]++);
+    assertArrayEquals(expected, counts);
+  }
+
+  @Test
+  void countByBucketWithInvalidBucket() {
+    ParallelIntStreamSupport stream = (ParallelIntStreamSupport) ParallelIntStreamSupport.parallelStream(new int[]{1, 2, 3}, this.workerPool);
+
+    assertThrows(IndexOutOfBoundsException.class, () -> stream.countByBucket(2, v -> 2));
+  }
+
+  @Test
+  void countByBucketWithoutBuckets() {
+    assertThrows(IllegalArgumentException.class, () -> this.parallelIntStreamSupport.countByBucket(0, v -> 0));
+  }
+
+  @Test
+  void approximateDistinctCount() {
+    int[] values = IntStream.range(0, 100_000).map(v -> v % 50_000).toArray();
+    ParallelIntStreamSupport stream = (ParallelIntStreamSupport) ParallelIntStreamSupport.parallelStream(values, this.workerPool);
+
+    long count = stream.approximateDistinctCount(14);
+
+    assertEquals(50_000, count, 2_000);
+  }
+
+  @Test
+  void approximateDistinctCountWithSmallCardinality() {
+    ParallelIntStreamSupport stream = (ParallelIntStreamSupport) ParallelIntStreamSupport.parallelStream(new int[]{1, 2, 2, 3, 3, 3}, this.workerPool);
+
+    assertEquals(3, stream.approximateDistinctCount(14));
+  }
+
+  @Test
+  void approximateDistinctCountWithInvalidPrecision() {
+    assertThrows(IllegalArgumentException.class, () -> this.parallelIntStreamSupport.approximateDistinctCount(3));
+  }
+
+  @Test
+  void approximateDistinctCountParallel() {
+    this.parallelIntStreamSupport.parallel();
+    AtomicReference<Thread> threadRef = new AtomicReference<>();
+
+    this.parallelIntStreamSupport.peek(i -> threadRef.set(currentThread()));
+    this.parallelIntStreamSupport.approximateDistinctCount(4);
+
+    assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
+  }
+
   @Test
   void asLongStream() {
     LongStream stream = this.parallelStreamSupportMock.asLongStream();
@@ -1007,4 +1332,33 @@ public class ParallelIntStreamSupportTest extends AbstractParallelStreamSupportT
     verify(this.delegateMock).spliterator();
     assertSame(this.spliteratorMock, spliterator);
   }
+
+  @Test
+  void traceLeaves() {
+    ParallelIntStreamSupport stream = new ParallelIntStreamSupport(IntStream.range(0, 1000).parallel(), this.workerPool);
+    AtomicLong elements = new AtomicLong();
+
+    stream.traceLeaves((context, depth, startTime, endTime, count) -> elements.addAndGet(count), 1);
+
+    assertEquals(499500, stream.sum());
+    assertEquals(1000, elements.get());
+  }
+
+  @Test
+  void profile() {
+    AtomicReference<PipelineProfile> profileRef = new AtomicReference<>();
+
+    ParallelIntStreamSupport stream = new ParallelIntStreamSupport(IntStream.range(0, 100).parallel(), this.workerPool);
+
+    List<String> result = stream.profile(profileRef::set)
+        .map(i -> i * 2)
+        .mapToObj(String::valueOf)
+        .filter(s -> s.endsWith("0"))
+        .collect(toList());
+
+    assertEquals(20, result.size());
+    List<PipelineProfile.Stage> stages = profileRef.get().getStages();
+    assertEquals(asList("map", "mapToObj", "filter"), stages.stream().map(PipelineProfile.Stage::getName).collect(toList()));
+    assertEquals(asList(100L, 100L, 100L), stages.stream().map(PipelineProfile.Stage::getCalls).collect(toList()));
+  }
 }
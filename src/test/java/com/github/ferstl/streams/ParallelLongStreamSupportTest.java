@@ -22,10 +22,13 @@
 package com.github.ferstl.streams;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.LongSummaryStatistics;
 import java.util.OptionalDouble;
 import java.util.OptionalLong;
 import java.util.PrimitiveIterator;
+import java.util.Random;
 import java.util.Spliterator;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinWorkerThread;
@@ -49,6 +52,7 @@ import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static java.lang.Thread.currentThread;
+import static java.util.stream.Collectors.toList;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.instanceOf;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
@@ -256,6 +260,31 @@ public class ParallelLongStreamSupportTest extends AbstractParallelStreamSupport
     assertThrows(NullPointerException.class, () -> ParallelLongStreamSupport.concat(LongStream.of(42), null, this.workerPool));
   }
 
+  @Test
+  void zip() {
+    LongStream a = LongStream.of(1, 2, 3);
+    LongStream b = LongStream.of(4, 5, 6, 7);
+    LongStream stream = ParallelLongStreamSupport.zip(a, b, (i, j) -> i * j, this.workerPool);
+
+    assertThat(stream, instanceOf(ParallelLongStreamSupport.class));
+    assertTrue(stream.isParallel());
+    assertArrayEquals(stream.toArray(), new long[]{4, 10, 18});
+  }
+
+  @Test
+  void zipWithUnsizedSource() {
+    LongStream a = LongStream.iterate(0, i -> i + 1).limit(5000);
+    LongStream b = LongStream.range(0, 10000);
+    LongStream stream = ParallelLongStreamSupport.zip(a, b, (i, j) -> i - j, this.workerPool);
+
+    assertEquals(5000, stream.filter(i -> i == 0).count());
+  }
+
+  @Test
+  void zipWithNullZipper() {
+    assertThrows(NullPointerException.class, () -> ParallelLongStreamSupport.zip(LongStream.of(42L), LongStream.of(42L), null, this.workerPool));
+  }
+
   @Test
   void filter() {
     LongPredicate p = i -> true;
@@ -379,6 +408,122 @@ public class ParallelLongStreamSupportTest extends AbstractParallelStreamSupport
     assertSame(this.parallelStreamSupportMock, stream);
   }
 
+  @Test
+  void scan() {
+    ParallelLongStreamSupport stream = (ParallelLongStreamSupport) ParallelLongStreamSupport.rangeClosed(1, 1000, this.workerPool);
+
+    long[] result = stream.scan(0L, (a, b) -> a + b).toArray();
+
+    long[] expected = new long[1000];
+    long acc = 0L;
+    for (int i = 0; i < expected.length; i++) {
+      acc = acc + i + 1;
+      expected[i] = acc;
+    }
+    assertArrayEquals(expected, result);
+  }
+
+  @Test
+  void scanWithEmptyStream() {
+    ParallelLongStreamSupport stream = (ParallelLongStreamSupport) ParallelLongStreamSupport.parallelStream(new long[0], this.workerPool);
+
+    assertArrayEquals(new long[0], stream.scan(0L, (a, b) -> a + b).toArray());
+  }
+
+  @Test
+  void scanWithNullOperator() {
+    assertThrows(NullPointerException.class, () -> this.parallelLongStreamSupport.scan(0L, null));
+  }
+
+  @Test
+  void scanSequential() {
+    this.parallelLongStreamSupport.sequential();
+    Thread thisThread = currentThread();
+    AtomicReference<Thread> threadRef = new AtomicReference<>();
+
+    this.parallelLongStreamSupport.peek(i -> threadRef.set(currentThread()));
+    this.parallelLongStreamSupport.scan(0L, (a, b) -> a + b).toArray();
+
+    assertEquals(thisThread, threadRef.get());
+  }
+
+  @Test
+  void scanParallel() {
+    this.parallelLongStreamSupport.parallel();
+    AtomicReference<Thread> threadRef = new AtomicReference<>();
+
+    this.parallelLongStreamSupport.scan(0L, (a, b) -> {
+      threadRef.set(currentThread());
+      return a + b;
+    }).toArray();
+
+    assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
+  }
+
+  @Test
+  void prefixSum() {
+    ParallelLongStreamSupport stream = (ParallelLongStreamSupport) ParallelLongStreamSupport.parallelStream(new long[]{1L, 2L, 3L, 4L}, this.workerPool);
+
+    assertArrayEquals(new long[]{1L, 3L, 6L, 10L}, stream.prefixSum().toArray());
+  }
+
+  @Test
+  void chunked() {
+    long[] values = LongStream.range(0, 1000).toArray();
+    ParallelLongStreamSupport stream = (ParallelLongStreamSupport) ParallelLongStreamSupport.parallelStream(values, this.workerPool);
+
+    List<long[]> chunks = stream.chunked(7).collect(toList());
+
+    assertEquals(143, chunks.size());
+    for (int i = 0; i < chunks.size(); i++) {
+      assertArrayEquals(Arrays.copyOfRange(values, i * 7, Math.min(i * 7 + 7, values.length)), chunks.get(i));
+    }
+  }
+
+  @Test
+  void chunkedWithUnsizedSource() {
+    ParallelLongStreamSupport stream = (ParallelLongStreamSupport) ParallelLongStreamSupport.parallelStream(new long[]{1, 2, 3, 4, 5}, this.workerPool);
+    stream.filter(v -> v != 3);
+
+    List<long[]> chunks = stream.chunked(3).collect(toList());
+
+    assertEquals(2, chunks.size());
+    assertArrayEquals(new long[]{1, 2, 4}, chunks.get(0));
+    assertArrayEquals(new long[]{5}, chunks.get(1));
+  }
+
+  @Test
+  void chunkedWithInvalidSize() {
+    assertThrows(IllegalArgumentException.class, () -> this.parallelLongStreamSupport.chunked(0));
+  }
+
+  @Test
+  void windowed() {
+    ParallelLongStreamSupport stream = (ParallelLongStreamSupport) ParallelLongStreamSupport.parallelStream(new long[]{1, 2, 3, 4, 5, 6}, this.workerPool);
+
+    List<long[]> windows = stream.windowed(3, 2).collect(toList());
+
+    assertEquals(2, windows.size());
+    assertArrayEquals(new long[]{1, 2, 3}, windows.get(0));
+    assertArrayEquals(new long[]{3, 4, 5}, windows.get(1));
+  }
+
+  @Test
+  void windowedWithInvalidStep() {
+    assertThrows(IllegalArgumentException.class, () -> this.parallelLongStreamSupport.windowed(1, 0));
+  }
+
+  @Test
+  void chunkedParallel() {
+    this.parallelLongStreamSupport.parallel();
+    AtomicReference<Thread> threadRef = new AtomicReference<>();
+
+    this.parallelLongStreamSupport.peek(v -> threadRef.set(currentThread()));
+    this.parallelLongStreamSupport.chunked(1).collect(toList());
+
+    assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
+  }
+
   @Test
   void forEach() {
     LongConsumer c = i -> {
@@ -472,6 +617,24 @@ public class ParallelLongStreamSupportTest extends AbstractParallelStreamSupport
     assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
   }
 
+  @Test
+  void toArrayParallelWithSizedPipeline() {
+    long[] array = ParallelLongStreamSupport.range(0, 1000, this.workerPool)
+        .map(i -> i * 2)
+        .toArray();
+
+    assertArrayEquals(LongStream.range(0, 1000).map(i -> i * 2).toArray(), array);
+  }
+
+  @Test
+  void toArrayParallelWithUnsizedPipeline() {
+    long[] array = ParallelLongStreamSupport.range(0, 1000, this.workerPool)
+        .filter(i -> i % 3 == 0)
+        .toArray();
+
+    assertArrayEquals(LongStream.range(0, 1000).filter(i -> i % 3 == 0).toArray(), array);
+  }
+
   @Test
   void reduceWithIdentityAndAccumulator() {
     LongBinaryOperator accumulator = (a, b) -> b;
@@ -721,6 +884,18 @@ public class ParallelLongStreamSupportTest extends AbstractParallelStreamSupport
     assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
   }
 
+  @Test
+  void countWithSizedSource() {
+    // Counting a sized pipeline does not require the worker pool
+    this.workerPool.shutdown();
+
+    long count = ParallelLongStreamSupport.range(0, 1000, this.workerPool)
+        .map(i -> i * 2)
+        .count();
+
+    assertEquals(1000, count);
+  }
+
   @Test
   void average() {
     OptionalDouble result = this.parallelStreamSupportMock.average();
@@ -958,6 +1133,205 @@ public class ParallelLongStreamSupportTest extends AbstractParallelStreamSupport
     assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
   }
 
+  @Test
+  void topK() {
+    long[] values = new Random(42).longs(10_000, -1000, 1000).toArray();
+    ParallelLongStreamSupport stream = (ParallelLongStreamSupport) ParallelLongStreamSupport.parallelStream(values, this.workerPool);
+
+    long[] result = stream.topK(100);
+
+    long[] expected = LongStream.of(values).map(i -> -i).sorted().map(i -> -i).limit(100).toArray();
+    assertArrayEquals(expected, result);
+  }
+
+  @Test
+  void topKWithLessElementsThanK() {
+    ParallelLongStreamSupport stream = (ParallelLongStreamSupport) ParallelLongStreamSupport.parallelStream(new long[]{2, 3, 1}, this.workerPool);
+
+    assertArrayEquals(new long[]{3, 2, 1}, stream.topK(5));
+  }
+
+  @Test
+  void topKWithNegativeK() {
+    assertThrows(IllegalArgumentException.class, () -> this.parallelLongStreamSupport.topK(-1));
+  }
+
+  @Test
+  void topKParallel() {
+    this.parallelLongStreamSupport.parallel();
+    AtomicReference<Thread> threadRef = new AtomicReference<>();
+
+    this.parallelLongStreamSupport.peek(i -> threadRef.set(currentThread()));
+    this.parallelLongStreamSupport.topK(1);
+
+    assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
+  }
+
+  @Test
+  void bottomK() {
+    long[] values = new Random(42).longs(10_000, -1000, 1000).toArray();
+    ParallelLongStreamSupport stream = (ParallelLongStreamSupport) ParallelLongStreamSupport.parallelStream(values, this.workerPool);
+
+    long[] result = stream.bottomK(100);
+
+    long[] expected = LongStream.of(values).sorted().limit(100).toArray();
+    assertArrayEquals(expected, result);
+  }
+
+  @Test
+  void bottomKWithZeroK() {
+    ParallelLongStreamSupport stream = (ParallelLongStreamSupport) ParallelLongStreamSupport.parallelStream(new long[]{2, 3, 1}, this.workerPool);
+
+    assertArrayEquals(new long[0], stream.bottomK(0));
+  }
+
+  @Test
+  void histogram() {
+    long[] values = new Random(42).longs(10_000, -100, 100).toArray();
+    ParallelLongStreamSupport stream = (ParallelLongStreamSupport) ParallelLongStreamSupport.parallelStream(values, this.workerPool);
+
+    long[] histogram = stream.histogram(new long[]{-50, 0, 50});
+
+    long[] expected = new long[]{
+        LongStream.of(values).filter(v -> v < -50).count(),
+        LongStream.of(values).filter(v -> v >= -50 && v < 0).count(),
+        LongStream.of(values).filter(v -> v >= 0 && v < 50).count(),
+        LongStream.of(values).filter(v -> v >= 50).count()};
+    assertArrayEquals(expected, histogram);
+  }
+
+  @Test
+  void histogramWithoutBoundaries() {
+    ParallelLongStreamSupport stream = (ParallelLongStreamSupport) ParallelLongStreamSupport.parallelStream(new long[]{1, 2, 3}, this.workerPool);
+
+    assertArrayEquals(new long[]{3}, stream.histogram(new long[0]));
+  }
+
+  @Test
+  void histogramWithUnorderedBoundaries() {
+    assertThrows(IllegalArgumentException.class, () -> this.parallelLongStreamSupport.histogram(new long[]{1, 1}));
+  }
+
+  @Test
+  void histogramParallel() {
+    this.parallelLongStreamSupport.parallel();
+    AtomicReference<Thread> threadRef = new AtomicReference<>();
+
+    this.parallelLongStreamSupport.peek(i -> threadRef.set(currentThread()));
+    this.parallelLongStreamSupport.histogram(new long[]{0});
+
+    assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
+  }
+
+  @Test
+  void countByBucket() {
+    long[] values = new Random(42).longs(10_000, -100, 100).toArray();
+    LongToIntFunction bucketFunction = v -> (int) Math.floorMod(v, 10L);
+    ParallelLongStreamSupport stream = (ParallelLongStreamSupport) ParallelLongStreamSupport.parallelStream(values, this.workerPool);
+
+    long[] counts = stream.countByBucket(10, bucketFunction);
+
+    long[] expected = new long[10];
+    LongStream.of(values).forEach(v -> expected[bucketFunction.applyAsInt(v)]++);
+    assertArrayEquals(expected, counts);
+  }
+
+  @Test
+  void countByBucketWithInvalidBucket() {
+    ParallelLongStreamSupport stream = (ParallelLongStreamSupport) ParallelLongStreamSupport.parallelStream(new long[]{1, 2, 3}, this.workerPool);
+
+    assertThrows(IndexOutOfBoundsException.class, () -> stream.countByBucket(2, v -> 2));
+  }
+
+  @Test
+  void countByBucketWithoutBuckets() {
+    assertThrows(IllegalArgumentException.class, () -> this.parallelLongStreamSupport.countByBucket(0, v -> 0));
+  }
+
+  @Test
+  void quantiles() {
+    ParallelLongStreamSupport stream = (ParallelLongStreamSupport) ParallelLongStreamSupport.parallelStream(new long[]{5, 1, 4, 2, 3}, this.workerPool);
+
+    double[] quantiles = stream.quantiles(0.0, 0.5, 1.0);
+
+    assertArrayEquals(new double[]{1, 3, 5}, quantiles);
+  }
+
+  @Test
+  void quantilesWithLargeStream() {
+    long[] values = LongStream.range(0, 100_000).map(v -> (v * 7_919) % 100_000).toArray();
+    ParallelLongStreamSupport stream = (ParallelLongStreamSupport) ParallelLongStreamSupport.parallelStream(values, this.workerPool);
+
+    double[] quantiles = stream.quantiles(new double[]{0.0, 0.1, 0.5, 0.99, 1.0}, 200);
+
+    assertEquals(0, quantiles[0]);
+    assertEquals(10_000, quantiles[1], 2_000);
+    assertEquals(50_000, quantiles[2], 2_000);
+    assertEquals(99_000, quantiles[3], 2_000);
+    assertEquals(99_999, quantiles[4]);
+  }
+
+  @Test
+  void quantilesWithEmptyStream() {
+    ParallelLongStreamSupport stream = (ParallelLongStreamSupport) ParallelLongStreamSupport.parallelStream(new long[0], this.workerPool);
+
+    assertArrayEquals(new double[]{Double.NaN}, stream.quantiles(0.5));
+  }
+
+  @Test
+  void quantilesWithInvalidQuantile() {
+    assertThrows(IllegalArgumentException.class, () -> this.parallelLongStreamSupport.quantiles(1.5));
+  }
+
+  @Test
+  void quantilesWithTooSmallK() {
+    assertThrows(IllegalArgumentException.class, () -> this.parallelLongStreamSupport.quantiles(new double[]{0.5}, 4));
+  }
+
+  @Test
+  void quantilesParallel() {
+    this.parallelLongStreamSupport.parallel();
+    AtomicReference<Thread> threadRef = new AtomicReference<>();
+
+    this.parallelLongStreamSupport.peek(i -> threadRef.set(currentThread()));
+    this.parallelLongStreamSupport.quantiles(0.5);
+
+    assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
+  }
+
+  @Test
+  void approximateDistinctCount() {
+    long[] values = LongStream.range(0, 100_000).map(v -> v % 50_000).toArray();
+    ParallelLongStreamSupport stream = (ParallelLongStreamSupport) ParallelLongStreamSupport.parallelStream(values, this.workerPool);
+
+    long count = stream.approximateDistinctCount(14);
+
+    assertEquals(50_000, count, 2_000);
+  }
+
+  @Test
+  void approximateDistinctCountWithSmallCardinality() {
+    ParallelLongStreamSupport stream = (ParallelLongStreamSupport) ParallelLongStreamSupport.parallelStream(new long[]{1, 2, 2, 3, 3, 3}, this.workerPool);
+
+    assertEquals(3, stream.approximateDistinctCount(14));
+  }
+
+  @Test
+  void approximateDistinctCountWithInvalidPrecision() {
+    assertThrows(IllegalArgumentException.class, () -> this.parallelLongStreamSupport.approximateDistinctCount(3));
+  }
+
+  @Test
+  void approximateDistinctCountParallel() {
+    this.parallelLongStreamSupport.parallel();
+    AtomicReference<Thread> threadRef = new AtomicReference<>();
+
+    this.parallelLongStreamSupport.peek(i -> threadRef.set(currentThread()));
+    this.parallelLongStreamSupport.approximateDistinctCount(4);
+
+    assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
+  }
+
   @Test
   void asDoubleStream() {
     DoubleStream stream = this.parallelStreamSupportMock.asDoubleStream();
@@ -26,11 +26,21 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Random;
 import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
@@ -52,11 +62,24 @@ import java.util.stream.Stream.Builder;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static java.lang.Thread.currentThread;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static java.util.Collections.singletonList;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.CompletableFuture.failedStage;
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.summingLong;
 import static java.util.stream.Collectors.toList;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertSame;
@@ -256,6 +279,42 @@ public class ParallelStreamSupportTest extends AbstractParallelStreamSupportTest
     assertThrows(NullPointerException.class, () -> ParallelStreamSupport.concat(Stream.of("a"), null, this.workerPool));
   }
 
+  @Test
+  void zip() {
+    List<Integer> a = IntStream.range(0, 1000).boxed().collect(toList());
+    Stream<String> b = IntStream.range(0, 1500).mapToObj(String::valueOf).collect(toList()).stream();
+    Stream<String> stream = ParallelStreamSupport.zip(a.stream(), b, (i, s) -> i + s, this.workerPool);
+
+    assertThat(stream, instanceOf(ParallelStreamSupport.class));
+    assertTrue(stream.isParallel());
+    assertEquals(IntStream.range(0, 1000).mapToObj(i -> i + String.valueOf(i)).collect(toList()), stream.collect(toList()));
+  }
+
+  @Test
+  void zipWithUnsizedSource() {
+    Stream<Integer> a = Stream.iterate(0, i -> i + 1).limit(5000);
+    Stream<Integer> b = IntStream.range(0, 10000).boxed();
+    Stream<Integer> stream = ParallelStreamSupport.zip(a, b, (i, j) -> i * j, this.workerPool);
+
+    assertEquals(IntStream.range(0, 5000).mapToObj(i -> i * i).collect(toList()), stream.collect(toList()));
+  }
+
+  @Test
+  void zipClosesBothStreams() {
+    AtomicInteger closed = new AtomicInteger();
+    Stream<String> a = Stream.of("a").onClose(closed::incrementAndGet);
+    Stream<String> b = Stream.of("b").onClose(closed::incrementAndGet);
+
+    ParallelStreamSupport.zip(a, b, String::concat, this.workerPool).close();
+
+    assertEquals(2, closed.get());
+  }
+
+  @Test
+  void zipWithNullZipper() {
+    assertThrows(NullPointerException.class, () -> ParallelStreamSupport.zip(Stream.of("a"), Stream.of("b"), null, this.workerPool));
+  }
+
   @Test
   void filter() {
     Predicate<String> p = s -> true;
@@ -549,6 +608,36 @@ public class ParallelStreamSupportTest extends AbstractParallelStreamSupportTest
     assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
   }
 
+  @Test
+  void toArrayWithGeneratorParallelWithSizedPipeline() {
+    List<Integer> list = IntStream.range(0, 1000).boxed().collect(toList());
+
+    String[] array = ParallelStreamSupport.parallelStream(list, this.workerPool)
+        .map(String::valueOf)
+        .toArray(String[]::new);
+
+    assertArrayEquals(list.stream().map(String::valueOf).toArray(String[]::new), array);
+  }
+
+  @Test
+  void toArrayWithGeneratorParallelWithUnsizedPipeline() {
+    List<Integer> list = IntStream.range(0, 1000).boxed().collect(toList());
+
+    String[] array = ParallelStreamSupport.parallelStream(list, this.workerPool)
+        .filter(i -> i % 3 == 0)
+        .map(String::valueOf)
+        .toArray(String[]::new);
+
+    assertArrayEquals(list.stream().filter(i -> i % 3 == 0).map(String::valueOf).toArray(String[]::new), array);
+  }
+
+  @Test
+  void toArrayWithGeneratorParallelWithWrongArraySize() {
+    Stream<String> stream = ParallelStreamSupport.parallelStream(new String[]{"a", "b"}, this.workerPool);
+
+    assertThrows(IllegalStateException.class, () -> stream.toArray(size -> new String[size + 1]));
+  }
+
   @Test
   void reduceWithIdentityAndAccumulator() {
     BinaryOperator<String> accumulator = (a, b) -> b;
@@ -840,6 +929,43 @@ public class ParallelStreamSupportTest extends AbstractParallelStreamSupportTest
     assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
   }
 
+  @Test
+  void countWithSizedSource() {
+    // Counting a sized pipeline does not require the worker pool
+    this.workerPool.shutdown();
+
+    long count = ParallelStreamSupport.parallelStream(IntStream.range(0, 1000).boxed().collect(toList()), this.workerPool)
+        .map(String::valueOf)
+        .count();
+
+    assertEquals(1000, count);
+  }
+
+  @Test
+  void countWithUnsizedCollection() {
+    Collection<Integer> collection = new ConcurrentLinkedQueue<>(IntStream.range(0, 1000).boxed().collect(toList()));
+
+    long count = ParallelStreamSupport.parallelStream(collection, this.workerPool)
+        .map(String::valueOf)
+        .count();
+
+    assertEquals(1000, count);
+  }
+
+  @Test
+  void countWithUnsizedCollectionExplained() {
+    Collection<Integer> collection = new ConcurrentLinkedQueue<>(IntStream.range(0, 1000).boxed().collect(toList()));
+    AtomicReference<ExecutionReport> reportRef = new AtomicReference<>();
+
+    long count = new ParallelStreamSupport<>(collection.parallelStream(), this.workerPool, true)
+        .explain(reportRef::set)
+        .count();
+
+    assertEquals(1000, count);
+    assertEquals("count", reportRef.get().getOperation());
+    assertEquals(1000, reportRef.get().getElements());
+  }
+
   @Test
   void anyMatch() {
     Predicate<String> p = s -> true;
@@ -1010,4 +1136,795 @@ public class ParallelStreamSupportTest extends AbstractParallelStreamSupportTest
 
     assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
   }
+
+  @Test
+  void topK() {
+    List<Integer> values = new Random(42).ints(10_000, -1000, 1000).boxed().collect(toList());
+    ParallelStreamSupport<Integer> stream = (ParallelStreamSupport<Integer>) ParallelStreamSupport.parallelStream(values, this.workerPool);
+
+    List<Integer> result = stream.topK(100, Comparator.naturalOrder());
+
+    assertEquals(values.stream().sorted(Comparator.reverseOrder()).limit(100).collect(toList()), result);
+  }
+
+  @Test
+  void topKWithLessElementsThanK() {
+    ParallelStreamSupport<String> stream = (ParallelStreamSupport<String>) ParallelStreamSupport.parallelStream(new String[]{"b", "c", "a"}, this.workerPool);
+
+    assertThat(stream.topK(5, Comparator.naturalOrder()), contains("c", "b", "a"));
+  }
+
+  @Test
+  void topKWithZeroK() {
+    assertEquals(emptyList(), this.parallelStreamSupport.topK(0, Comparator.naturalOrder()));
+  }
+
+  @Test
+  void topKWithNegativeK() {
+    assertThrows(IllegalArgumentException.class, () -> this.parallelStreamSupport.topK(-1, Comparator.naturalOrder()));
+  }
+
+  @Test
+  void topKWithNullComparator() {
+    assertThrows(NullPointerException.class, () -> this.parallelStreamSupport.topK(1, null));
+  }
+
+  @Test
+  void topKParallel() {
+    this.parallelStreamSupport.parallel();
+    AtomicReference<Thread> threadRef = new AtomicReference<>();
+
+    this.parallelStreamSupport.peek(s -> threadRef.set(currentThread()));
+    this.parallelStreamSupport.topK(1, Comparator.naturalOrder());
+
+    assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
+  }
+
+  @Test
+  void approximateDistinctCount() {
+    List<String> values = IntStream.range(0, 100_000).mapToObj(i -> "user-" + (i % 50_000)).collect(toList());
+    ParallelStreamSupport<String> stream = (ParallelStreamSupport<String>) ParallelStreamSupport.parallelStream(values, this.workerPool);
+
+    long count = stream.approximateDistinctCount(14);
+
+    assertEquals(50_000, count, 2_000);
+  }
+
+  @Test
+  void approximateDistinctCountWithHashFunction() {
+    List<Long> values = LongStream.range(0, 100_000).mapToObj(i -> i % 50_000).collect(toList());
+    ParallelStreamSupport<Long> stream = (ParallelStreamSupport<Long>) ParallelStreamSupport.parallelStream(values, this.workerPool);
+
+    long count = stream.approximateDistinctCount(Long::longValue, 14);
+
+    assertEquals(50_000, count, 2_000);
+  }
+
+  @Test
+  void approximateDistinctCountWithInvalidPrecision() {
+    assertThrows(IllegalArgumentException.class, () -> this.parallelStreamSupport.approximateDistinctCount(19));
+  }
+
+  @Test
+  void approximateDistinctCountWithNullHashFunction() {
+    assertThrows(NullPointerException.class, () -> this.parallelStreamSupport.approximateDistinctCount(null, 14));
+  }
+
+  @Test
+  void approximateDistinctCountParallel() {
+    this.parallelStreamSupport.parallel();
+    AtomicReference<Thread> threadRef = new AtomicReference<>();
+
+    this.parallelStreamSupport.peek(s -> threadRef.set(currentThread()));
+    this.parallelStreamSupport.approximateDistinctCount(4);
+
+    assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
+  }
+
+  @Test
+  void aggregateByIntKey() {
+    List<Integer> values = new Random(42).ints(100_000, -1000, 1000).boxed().collect(toList());
+    ParallelStreamSupport<Integer> stream = (ParallelStreamSupport<Integer>) ParallelStreamSupport.parallelStream(values, this.workerPool);
+
+    IntLongMap result = stream.aggregateByIntKey(i -> i % 100, i -> i, Long::sum);
+
+    Map<Integer, Long> expected = values.stream().collect(groupingBy(i -> i % 100, summingLong(i -> i)));
+    assertEquals(expected.size(), result.size());
+    expected.forEach((key, value) -> assertEquals((long) value, result.get(key)));
+  }
+
+  @Test
+  void aggregateByIntKeyWithEmptyStream() {
+    ParallelStreamSupport<String> stream = (ParallelStreamSupport<String>) ParallelStreamSupport.parallelStream(new String[0], this.workerPool);
+
+    assertTrue(stream.aggregateByIntKey(String::length, String::length, Long::sum).isEmpty());
+  }
+
+  @Test
+  void aggregateByIntKeyWithNullOperator() {
+    assertThrows(NullPointerException.class, () -> this.parallelStreamSupport.aggregateByIntKey(String::length, String::length, null));
+  }
+
+  @Test
+  void aggregateByIntKeyParallel() {
+    this.parallelStreamSupport.parallel();
+    AtomicReference<Thread> threadRef = new AtomicReference<>();
+
+    this.parallelStreamSupport.peek(s -> threadRef.set(currentThread()));
+    this.parallelStreamSupport.aggregateByIntKey(String::length, String::length, Long::sum);
+
+    assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
+  }
+
+  @Test
+  void aggregateByLongKey() {
+    List<Long> values = new Random(42).longs(100_000, -1000, 1000).boxed().collect(toList());
+    ParallelStreamSupport<Long> stream = (ParallelStreamSupport<Long>) ParallelStreamSupport.parallelStream(values, this.workerPool);
+
+    LongLongMap result = stream.aggregateByLongKey(l -> (l % 100) << 32, l -> l, Long::sum);
+
+    Map<Long, Long> expected = values.stream().collect(groupingBy(l -> (l % 100) << 32, summingLong(l -> l)));
+    assertEquals(expected.size(), result.size());
+    expected.forEach((key, value) -> assertEquals((long) value, result.get(key)));
+  }
+
+  @Test
+  void aggregateByLongKeyWithEmptyStream() {
+    ParallelStreamSupport<String> stream = (ParallelStreamSupport<String>) ParallelStreamSupport.parallelStream(new String[0], this.workerPool);
+
+    assertTrue(stream.aggregateByLongKey(String::length, String::length, Long::sum).isEmpty());
+  }
+
+  @Test
+  void aggregateByLongKeyWithNullOperator() {
+    assertThrows(NullPointerException.class, () -> this.parallelStreamSupport.aggregateByLongKey(String::length, String::length, null));
+  }
+
+  @Test
+  void aggregateByLongKeyParallel() {
+    this.parallelStreamSupport.parallel();
+    AtomicReference<Thread> threadRef = new AtomicReference<>();
+
+    this.parallelStreamSupport.peek(s -> threadRef.set(currentThread()));
+    this.parallelStreamSupport.aggregateByLongKey(String::length, String::length, Long::sum);
+
+    assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
+  }
+
+  @Test
+  void join() {
+    List<Integer> facts = IntStream.range(0, 10_000).boxed().collect(toList());
+    List<Integer> dimension = IntStream.range(0, 200).boxed().collect(toList());
+    Stream<Integer> stream = ParallelStreamSupport.parallelStream(facts, this.workerPool);
+
+    List<String> result = ((ParallelStreamSupport<Integer>) stream)
+        .join(dimension.stream(), fact -> fact % 300, dim -> dim, (fact, dim) -> fact + ":" + dim)
+        .collect(toList());
+
+    List<String> expected = facts.stream().filter(fact -> fact % 300 < 200).map(fact -> fact + ":" + fact % 300).collect(toList());
+    assertEquals(expected, result);
+  }
+
+  @Test
+  void joinExplained() {
+    List<Integer> facts = IntStream.range(0, 10_000).boxed().collect(toList());
+    List<ExecutionReport> reports = new ArrayList<>();
+    ParallelStreamSupport<Integer> stream = new ParallelStreamSupport<>(facts.parallelStream(), this.workerPool);
+    stream.explain(reports::add);
+
+    Stream<Integer> joined = stream.join(IntStream.range(0, 200).boxed(), fact -> fact % 300, dim -> dim, (fact, dim) -> fact);
+    List<Integer> result = ((ParallelStreamSupport<Integer>) joined).explain(reports::add).collect(toList());
+
+    // Building the hash table is not reported, only the terminal operation of the joined stream
+    assertEquals(6700, result.size());
+    assertEquals(1, reports.size());
+    assertEquals("collect", reports.get(0).getOperation());
+    assertEquals(6700, reports.get(0).getElements());
+  }
+
+  @Test
+  void joinWithDuplicateKeys() {
+    Stream<String> stream = ParallelStreamSupport.parallelStream(asList("a1", "b1", "c1"), this.workerPool);
+
+    List<String> result = ((ParallelStreamSupport<String>) stream)
+        .join(Stream.of("a2", "a3", "b2"), s -> s.charAt(0), s -> s.charAt(0), (left, right) -> left + right)
+        .sorted()
+        .collect(toList());
+
+    assertEquals(asList("a1a2", "a1a3", "b1b2"), result);
+  }
+
+  @Test
+  void joinBuildsTableInTerminalOperation() {
+    AtomicInteger consumed = new AtomicInteger();
+    Stream<String> stream = ParallelStreamSupport.parallelStream(asList("a1", "b1", "c1"), this.workerPool);
+
+    Stream<String> joined = ((ParallelStreamSupport<String>) stream)
+        .join(Stream.of("a2", "b2").peek(s -> consumed.incrementAndGet()), s -> s.charAt(0), s -> s.charAt(0), (left, right) -> left + right);
+
+    assertEquals(0, consumed.get());
+    assertEquals(asList("a1a2", "b1b2"), joined.collect(toList()));
+    assertEquals(2, consumed.get());
+  }
+
+  @Test
+  void joinWithNullKeys() {
+    Stream<String> stream = ParallelStreamSupport.parallelStream(asList("a", "b"), this.workerPool);
+
+    long count = ((ParallelStreamSupport<String>) stream)
+        .join(Stream.of("a", "b"), s -> null, s -> null, (left, right) -> left + right)
+        .count();
+
+    assertEquals(0, count);
+  }
+
+  @Test
+  void joinWithNullCombiner() {
+    assertThrows(NullPointerException.class, () -> this.parallelStreamSupport.join(Stream.of("a"), s -> s, s -> s, null));
+  }
+
+  @Test
+  void joinReturnsParallelStreamSupport() {
+    Stream<String> stream = this.parallelStreamSupport.join(Stream.of("x"), s -> s, s -> s, (left, right) -> left + right);
+
+    assertThat(stream, instanceOf(ParallelStreamSupport.class));
+    assertSame(this.workerPool, ((ParallelStreamSupport<String>) stream).workerPool);
+    assertEquals(singletonList("xx"), stream.collect(toList()));
+  }
+
+  @Test
+  void leftJoin() {
+    Stream<String> stream = ParallelStreamSupport.parallelStream(asList("a1", "b1", "c1"), this.workerPool);
+
+    List<String> result = ((ParallelStreamSupport<String>) stream)
+        .leftJoin(Stream.of("a2", "b2"), s -> s.charAt(0), s -> s.charAt(0), (left, right) -> left + right)
+        .collect(toList());
+
+    assertEquals(asList("a1a2", "b1b2", "c1null"), result);
+  }
+
+  @Test
+  void joinSequential() {
+    AtomicReference<Thread> threadRef = new AtomicReference<>();
+    this.parallelStreamSupport.sequential();
+
+    this.parallelStreamSupport.join(Stream.of("x").peek(s -> threadRef.set(currentThread())), s -> s, s -> s, (left, right) -> left).collect(toList());
+
+    assertEquals(currentThread(), threadRef.get());
+  }
+
+  @Test
+  void joinParallel() {
+    AtomicReference<Thread> threadRef = new AtomicReference<>();
+    this.parallelStreamSupport.parallel();
+
+    this.parallelStreamSupport.join(Stream.of("x").peek(s -> threadRef.set(currentThread())), s -> s, s -> s, (left, right) -> left).collect(toList());
+
+    assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
+  }
+
+  @Test
+  void mergeJoin() {
+    Random random = new Random(42);
+    List<Long> left = random.longs(5_000, 0, 2_000).sorted().boxed().collect(toList());
+    List<Long> right = random.longs(2_000, 0, 4_000).sorted().boxed().collect(toList());
+    Stream<Long> stream = ParallelStreamSupport.parallelStream(left, this.workerPool);
+
+    List<String> result = ((ParallelStreamSupport<Long>) stream)
+        .mergeJoin(right.stream(), Long::longValue, Long::longValue, (l, r) -> l + ":" + r)
+        .collect(toList());
+
+    List<String> expected = left.stream()
+        .flatMap(l -> right.stream().filter(r -> r.equals(l)).map(r -> l + ":" + r))
+        .collect(toList());
+    assertEquals(expected, result);
+  }
+
+  @Test
+  void mergeJoinWithDuplicateKeys() {
+    Stream<String> stream = ParallelStreamSupport.parallelStream(asList("1a", "1b", "2a", "3a"), this.workerPool);
+
+    List<String> result = ((ParallelStreamSupport<String>) stream)
+        .mergeJoin(Stream.of("1x", "1y", "3x"), s -> s.charAt(0), s -> s.charAt(0), (l, r) -> l + r)
+        .collect(toList());
+
+    assertEquals(asList("1a1x", "1a1y", "1b1x", "1b1y", "3a3x"), result);
+  }
+
+  @Test
+  void mergeJoinWithUnsortedStream() {
+    Stream<String> stream = ParallelStreamSupport.parallelStream(asList("2", "1"), this.workerPool);
+    Stream<String> joined = ((ParallelStreamSupport<String>) stream)
+        .mergeJoin(Stream.of("1"), Long::parseLong, Long::parseLong, (l, r) -> l + r);
+
+    assertThrows(IllegalArgumentException.class, joined::count);
+  }
+
+  @Test
+  void mergeJoinWithEmptyStreams() {
+    Stream<String> stream = ParallelStreamSupport.parallelStream(new String[0], this.workerPool);
+
+    long count = ((ParallelStreamSupport<String>) stream)
+        .mergeJoin(Stream.<String>empty(), Long::parseLong, Long::parseLong, (l, r) -> l + r)
+        .count();
+
+    assertEquals(0, count);
+  }
+
+  @Test
+  void leftMergeJoin() {
+    Stream<String> stream = ParallelStreamSupport.parallelStream(asList("1a", "2a", "3a"), this.workerPool);
+
+    List<String> result = ((ParallelStreamSupport<String>) stream)
+        .leftMergeJoin(Stream.of("0x", "2x"), s -> s.charAt(0), s -> s.charAt(0), (l, r) -> l + r)
+        .collect(toList());
+
+    assertEquals(asList("1anull", "2a2x", "3anull"), result);
+  }
+
+  @Test
+  void mergeJoinSequential() {
+    AtomicReference<Thread> threadRef = new AtomicReference<>();
+    this.parallelStreamSupport.sequential();
+    this.parallelStreamSupport.peek(s -> threadRef.set(currentThread()));
+
+    this.parallelStreamSupport.mergeJoin(Stream.of("x"), String::length, String::length, (l, r) -> l).count();
+
+    assertEquals(currentThread(), threadRef.get());
+  }
+
+  @Test
+  void mergeJoinParallel() {
+    AtomicReference<Thread> threadRef = new AtomicReference<>();
+    this.parallelStreamSupport.parallel();
+    this.parallelStreamSupport.peek(s -> threadRef.set(currentThread()));
+
+    this.parallelStreamSupport.mergeJoin(Stream.of("x"), String::length, String::length, (l, r) -> l).count();
+
+    assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
+  }
+
+  @Test
+  void chunked() {
+    List<Integer> values = IntStream.range(0, 1000).boxed().collect(toList());
+    Stream<Integer> stream = ParallelStreamSupport.parallelStream(values, this.workerPool);
+
+    List<List<Integer>> chunks = ((ParallelStreamSupport<Integer>) stream).chunked(7).collect(toList());
+
+    assertEquals(143, chunks.size());
+    for (int i = 0; i < chunks.size(); i++) {
+      assertEquals(values.subList(i * 7, Math.min(i * 7 + 7, values.size())), chunks.get(i));
+    }
+  }
+
+  @Test
+  void chunkedWithUnsizedSource() {
+    Stream<String> stream = ParallelStreamSupport.parallelStream(asList("a", "b", "c", "d", "e"), this.workerPool)
+        .filter(s -> !s.equals("c"));
+
+    List<List<String>> chunks = ((ParallelStreamSupport<String>) stream).chunked(3).collect(toList());
+
+    assertEquals(asList(asList("a", "b", "d"), singletonList("e")), chunks);
+  }
+
+  @Test
+  void chunkedWithInvalidSize() {
+    assertThrows(IllegalArgumentException.class, () -> this.parallelStreamSupport.chunked(0));
+  }
+
+  @Test
+  void windowed() {
+    List<Integer> values = IntStream.range(0, 1000).boxed().collect(toList());
+    Stream<Integer> stream = ParallelStreamSupport.parallelStream(values, this.workerPool);
+
+    List<List<Integer>> windows = ((ParallelStreamSupport<Integer>) stream).windowed(5, 3).collect(toList());
+
+    assertEquals(332, windows.size());
+    for (int i = 0; i < windows.size(); i++) {
+      assertEquals(values.subList(i * 3, i * 3 + 5), windows.get(i));
+    }
+  }
+
+  @Test
+  void windowedSplitsAfterIntermediateOperation() {
+    List<Integer> values = IntStream.range(0, 1 << 16).boxed().collect(toList());
+    Stream<Integer> stream = ParallelStreamSupport.parallelStream(values, this.workerPool).map(i -> i);
+
+    Spliterator<List<Integer>> windows = ((ParallelStreamSupport<Integer>) stream).windowed(2, 1).spliterator();
+    List<Spliterator<List<Integer>>> leaves = new ArrayList<>();
+    splitRecursively(windows, 6, leaves);
+
+    // Reading the windows overlapping a split must not prevent the source from being split again
+    assertEquals(64, leaves.size());
+    assertTrue(leaves.stream().allMatch(leaf -> leaf.estimateSize() <= 1024));
+    List<List<Integer>> result = new ArrayList<>();
+    leaves.forEach(leaf -> leaf.forEachRemaining(result::add));
+    assertEquals(values.size() - 1, result.size());
+    for (int i = 0; i < result.size(); i++) {
+      assertEquals(asList(i, i + 1), result.get(i));
+    }
+  }
+
+  @Test
+  void windowedCharacteristics() {
+    Stream<Integer> stream = ParallelStreamSupport.parallelStream(asList(1, 2, 3, 4), this.workerPool).map(i -> i);
+
+    Spliterator<List<Integer>> windows = ((ParallelStreamSupport<Integer>) stream).windowed(2, 1).spliterator();
+
+    assertTrue(windows.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED));
+    assertEquals(3, windows.getExactSizeIfKnown());
+  }
+
+  @Test
+  void windowedWithGaps() {
+    Stream<String> stream = ParallelStreamSupport.parallelStream(asList("a", "b", "c", "d", "e", "f", "g"), this.workerPool);
+
+    List<List<String>> windows = ((ParallelStreamSupport<String>) stream).windowed(2, 3).collect(toList());
+
+    assertEquals(asList(asList("a", "b"), asList("d", "e")), windows);
+  }
+
+  @Test
+  void windowedWithLessElementsThanSize() {
+    Stream<String> stream = ParallelStreamSupport.parallelStream(asList("a", "b"), this.workerPool);
+
+    assertEquals(0, ((ParallelStreamSupport<String>) stream).windowed(3, 1).count());
+  }
+
+  @Test
+  void windowedWithInvalidStep() {
+    assertThrows(IllegalArgumentException.class, () -> this.parallelStreamSupport.windowed(1, 0));
+  }
+
+  @Test
+  void chunkedParallel() {
+    AtomicReference<Thread> threadRef = new AtomicReference<>();
+    this.parallelStreamSupport.parallel();
+    this.parallelStreamSupport.peek(s -> threadRef.set(currentThread()));
+
+    this.parallelStreamSupport.chunked(1).collect(toList());
+
+    assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
+  }
+
+  @Test
+  void mapAsync() {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Integer> values = IntStream.range(0, 200).boxed().collect(toList());
+      Stream<Integer> stream = ParallelStreamSupport.parallelStream(values, this.workerPool);
+
+      List<Integer> result = ((ParallelStreamSupport<Integer>) stream)
+          .mapAsync(i -> supplyAsync(() -> delayed(i * 2, i % 3), executor), 8)
+          .collect(toList());
+
+      assertEquals(values.stream().map(i -> i * 2).collect(toList()), result);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void mapAsyncUnordered() {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      Stream<String> stream = ParallelStreamSupport.parallelStream(asList("a", "b", "c"), this.workerPool).unordered();
+
+      List<String> result = ((ParallelStreamSupport<String>) stream)
+          .mapAsync(s -> supplyAsync(() -> delayed(s, "a".equals(s) ? 50 : 0), executor), 3)
+          .collect(toList());
+
+      assertThat(result, containsInAnyOrder("a", "b", "c"));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void mapAsyncLimitsInFlight() {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      AtomicInteger inFlight = new AtomicInteger();
+      AtomicInteger maxInFlight = new AtomicInteger();
+      List<Integer> values = IntStream.range(0, 100).boxed().collect(toList());
+      Stream<Integer> stream = ParallelStreamSupport.parallelStream(values, this.workerPool).sequential();
+
+      List<Integer> result = ((ParallelStreamSupport<Integer>) stream)
+          .mapAsync(i -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            return supplyAsync(() -> delayed(i, 1), executor);
+          }, 5)
+          .peek(i -> inFlight.decrementAndGet())
+          .collect(toList());
+
+      assertEquals(100, result.size());
+      assertEquals(5, maxInFlight.get());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void mapAsyncCharacteristics() {
+    Stream<Integer> ordered = ParallelStreamSupport.parallelStream(asList(1, 2, 3), this.workerPool);
+    Stream<Integer> unordered = ParallelStreamSupport.parallelStream(new HashSet<>(asList(1, 2, 3)), this.workerPool);
+
+    Spliterator<Integer> orderedResult = ((ParallelStreamSupport<Integer>) ordered).mapAsync(CompletableFuture::completedFuture, 2).spliterator();
+    Spliterator<Integer> unorderedResult = ((ParallelStreamSupport<Integer>) unordered).mapAsync(CompletableFuture::completedFuture, 2).spliterator();
+
+    assertEquals(Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED, orderedResult.characteristics());
+    assertEquals(Spliterator.SIZED, unorderedResult.characteristics());
+    assertEquals(3, orderedResult.getExactSizeIfKnown());
+  }
+
+  @Test
+  void mapAsyncCountIsSized() {
+    AtomicInteger calls = new AtomicInteger();
+    Stream<Integer> stream = ParallelStreamSupport.parallelStream(asList(1, 2, 3), this.workerPool);
+
+    long count = ((ParallelStreamSupport<Integer>) stream).mapAsync(i -> completedFuture(calls.incrementAndGet()), 2).count();
+
+    assertEquals(3, count);
+    assertEquals(0, calls.get());
+  }
+
+  @Test
+  void mapAsyncWithFailure() {
+    IllegalStateException failure = new IllegalStateException("failed");
+    Stream<String> stream = this.parallelStreamSupport.mapAsync(s -> failedStage(failure), 2);
+
+    // The exception may be wrapped again when rethrown from the worker pool
+    Throwable cause = assertThrows(CompletionException.class, () -> stream.collect(toList()));
+    while (cause.getCause() != null) {
+      cause = cause.getCause();
+    }
+    assertSame(failure, cause);
+  }
+
+  @Test
+  void mapAsyncWithInvalidMaxInFlight() {
+    assertThrows(IllegalArgumentException.class, () -> this.parallelStreamSupport.mapAsync(CompletableFuture::completedFuture, 0));
+  }
+
+  @Test
+  void mapAsyncParallel() {
+    AtomicReference<Thread> threadRef = new AtomicReference<>();
+    this.parallelStreamSupport.parallel();
+
+    this.parallelStreamSupport.mapAsync(s -> {
+      threadRef.set(currentThread());
+      return completedFuture(s);
+    }, 1).collect(toList());
+
+    assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
+  }
+
+  @Test
+  void forEachOrderedBuffered() {
+    List<Integer> values = IntStream.range(0, 10000).boxed().collect(toList());
+    Stream<Integer> stream = ParallelStreamSupport.parallelStream(values, this.workerPool).map(i -> i * 2);
+    List<Integer> result = new ArrayList<>();
+
+    ((ParallelStreamSupport<Integer>) stream).forEachOrderedBuffered(result::add, 100);
+
+    assertEquals(values.stream().map(i -> i * 2).collect(toList()), result);
+  }
+
+  @Test
+  void forEachOrderedBufferedWithUnsizedSource() {
+    Stream<Integer> stream = ParallelStreamSupport.iterate(0, i -> i + 1, this.workerPool).limit(5000).filter(i -> i % 3 == 0);
+    List<Integer> result = new ArrayList<>();
+
+    ((ParallelStreamSupport<Integer>) stream).forEachOrderedBuffered(result::add, 10);
+
+    assertEquals(IntStream.range(0, 5000).filter(i -> i % 3 == 0).boxed().collect(toList()), result);
+  }
+
+  @Test
+  void forEachOrderedBufferedProcessesFirstLeafInline() {
+    List<Integer> values = IntStream.range(0, 10000).boxed().collect(toList());
+    AtomicReference<Thread> computingThread = new AtomicReference<>();
+    AtomicReference<Thread> emittingThread = new AtomicReference<>();
+    Stream<Integer> stream = ParallelStreamSupport.parallelStream(values, this.workerPool)
+        .peek(i -> {
+          if (i == 0) {
+            computingThread.set(currentThread());
+          }
+        });
+
+    ((ParallelStreamSupport<Integer>) stream).forEachOrderedBuffered(i -> emittingThread.compareAndSet(null, currentThread()), 100);
+
+    assertSame(emittingThread.get(), computingThread.get());
+  }
+
+  @Test
+  void forEachOrderedBufferedWithInvalidMaxBuffered() {
+    assertThrows(IllegalArgumentException.class, () -> this.parallelStreamSupport.forEachOrderedBuffered(s -> {}, 0));
+  }
+
+  @Test
+  void forEachOrderedBufferedParallel() {
+    AtomicReference<Thread> threadRef = new AtomicReference<>();
+    this.parallelStreamSupport.parallel();
+
+    this.parallelStreamSupport.forEachOrderedBuffered(s -> threadRef.set(currentThread()), 1);
+
+    assertThat(threadRef.get(), instanceOf(ForkJoinWorkerThread.class));
+  }
+
+  @Test
+  void traceLeaves() {
+    List<Integer> values = IntStream.range(0, 1000).boxed().collect(toList());
+    ParallelStreamSupport<Integer> stream = new ParallelStreamSupport<>(values.parallelStream(), this.workerPool);
+    AtomicLong elements = new AtomicLong();
+    AtomicInteger leaves = new AtomicInteger();
+
+    stream.filter(i -> i % 2 == 0);
+    stream.traceLeaves((context, depth, startTime, endTime, count) -> {
+      elements.addAndGet(count);
+      leaves.incrementAndGet();
+    }, 1);
+
+    assertEquals(values.stream().filter(i -> i % 2 == 0).collect(toList()), stream.collect(toList()));
+    assertEquals(500, elements.get());
+    assertTrue(leaves.get() > 0);
+  }
+
+  @Test
+  void traceLeavesWithSplitFactor() {
+    List<Integer> values = IntStream.range(0, 1024).boxed().collect(toList());
+    ParallelStreamSupport<Integer> stream = new ParallelStreamSupport<>(values.parallelStream(), this.workerPool);
+    ParallelStreamSupport<Integer> splitStream = new ParallelStreamSupport<>(values.parallelStream(), this.workerPool);
+    AtomicInteger leaves = new AtomicInteger();
+    AtomicInteger splitLeaves = new AtomicInteger();
+
+    stream.traceLeaves((context, depth, startTime, endTime, count) -> leaves.incrementAndGet(), 1);
+    splitStream.traceLeaves((context, depth, startTime, endTime, count) -> splitLeaves.incrementAndGet(), 4);
+
+    assertEquals(values, stream.collect(toList()));
+    assertEquals(values, splitStream.collect(toList()));
+    assertEquals(4 * leaves.get(), splitLeaves.get());
+  }
+
+  @Test
+  void explainReport() {
+    ForkJoinPool workerPool = new ForkJoinPool(4);
+    try {
+      List<Integer> values = IntStream.range(0, 10000).boxed().collect(toList());
+      AtomicReference<ExecutionReport> reportRef = new AtomicReference<>();
+      LongStream stream = ParallelStreamSupport.parallelStream(values, workerPool).filter(i -> i % 2 == 0).mapToLong(i -> i);
+
+      long sum = ((ParallelLongStreamSupport) stream).explain(reportRef::set).sum();
+
+      assertEquals(24995000, sum);
+      ExecutionReport report = reportRef.get();
+      assertEquals("sum", report.getOperation());
+      assertEquals(ParallelLongStreamSupport.class, report.getStreamType());
+      assertEquals(4, report.getParallelism());
+      assertEquals(5000, report.getElements());
+      assertEquals(16, report.getLeaves().size());
+      assertEquals(4, report.getMaxDepth());
+      assertTrue(report.getLeaves().stream().allMatch(leaf -> leaf.getThread().startsWith("ForkJoinPool")));
+      assertTrue(report.getIdleTime() >= 0);
+      assertTrue(report.getMaxLeafDuration() >= report.getMeanLeafDuration());
+      assertTrue(report.getImbalance() >= 1);
+      assertTrue(report.getStragglerFraction() >= 0 && report.getStragglerFraction() < 1);
+      assertThat(report.toString(), startsWith("sum on ParallelLongStreamSupport: 16 leaves, max depth 4, 5000 elements"));
+    } finally {
+      workerPool.shutdown();
+    }
+  }
+
+  @Test
+  void explainFailure() {
+    AtomicReference<ExecutionReport> reportRef = new AtomicReference<>();
+    IllegalStateException failure = new IllegalStateException("failed");
+
+    assertThrows(IllegalStateException.class, () -> this.parallelStreamSupport.explain(reportRef::set).forEach(s -> {
+      throw failure;
+    }));
+    assertEquals("forEach", reportRef.get().getOperation());
+    assertThat(reportRef.get().getFailure(), instanceOf(IllegalStateException.class));
+  }
+
+  @Test
+  void profile() {
+    ForkJoinPool workerPool = new ForkJoinPool(4);
+    try {
+      List<Integer> values = IntStream.range(0, 10000).boxed().collect(toList());
+      AtomicReference<PipelineProfile> profileRef = new AtomicReference<>();
+
+      ParallelStreamSupport<Integer> stream = (ParallelStreamSupport<Integer>) ParallelStreamSupport.parallelStream(values, workerPool);
+
+      long sum = stream.profile(profileRef::set, 1)
+          .filter(i -> i % 2 == 0)
+          .map(i -> (long) i)
+          .mapToLong(Long::longValue)
+          .sum();
+
+      assertEquals(24995000, sum);
+      PipelineProfile profile = profileRef.get();
+      assertEquals("sum", profile.getOperation());
+      assertEquals(1, profile.getSamplingInterval());
+      assertEquals(asList("filter", "map", "mapToLong"), profile.getStages().stream().map(PipelineProfile.Stage::getName).collect(toList()));
+      assertEquals(asList(10000L, 5000L, 5000L), profile.getStages().stream().map(PipelineProfile.Stage::getCalls).collect(toList()));
+      assertEquals(asList(10000L, 5000L, 5000L), profile.getStages().stream().map(PipelineProfile.Stage::getSampledCalls).collect(toList()));
+      assertEquals(2, profile.getStages().get(2).getIndex());
+      assertThat(profile.toString(), startsWith("sum: 3 stages, sampling interval 1, estimated time "));
+    } finally {
+      workerPool.shutdown();
+    }
+  }
+
+  @Test
+  void profileSampled() {
+    AtomicReference<PipelineProfile> profileRef = new AtomicReference<>();
+
+    ParallelStreamSupport<String> stream = new ParallelStreamSupport<>(Collections.nCopies(1000, "a").parallelStream(), this.workerPool);
+
+    List<String> result = stream.profile(profileRef::set)
+        .peek(s -> {
+        })
+        .collect(toList());
+
+    assertEquals(1000, result.size());
+    PipelineProfile.Stage stage = profileRef.get().getStages().get(0);
+    assertEquals("peek", stage.getName());
+    assertEquals(1000, stage.getCalls());
+    // Every 16th call and the first call in each thread are timed
+    long maxSampledCalls = 1000 / 16 + this.workerPool.getParallelism();
+    assertTrue(stage.getSampledCalls() >= 1000 / 16 && stage.getSampledCalls() <= maxSampledCalls);
+  }
+
+  @Test
+  void profileFlatMap() {
+    AtomicReference<PipelineProfile> profileRef = new AtomicReference<>();
+
+    ParallelStreamSupport<Integer> stream = new ParallelStreamSupport<>(IntStream.range(0, 20).boxed().collect(toList()).parallelStream(), this.workerPool);
+
+    List<Integer> result = stream.profile(profileRef::set, 1)
+        .flatMap(i -> Stream.of(i).map(j -> delayed(j, 5)))
+        .peek(i -> delayed(i, 10))
+        .collect(toList());
+
+    assertEquals(20, result.size());
+    PipelineProfile.Stage flatMap = profileRef.get().getStages().get(0);
+    assertEquals("flatMap", flatMap.getName());
+    assertEquals(20, flatMap.getSampledCalls());
+    // The consumption of the returned streams is timed, but not the downstream peek()
+    assertThat(flatMap.getSampledTime(), greaterThanOrEqualTo(MILLISECONDS.toNanos(20 * 5)));
+    assertThat(flatMap.getSampledTime(), lessThan(MILLISECONDS.toNanos(20 * 10)));
+  }
+
+  @Test
+  void profileNotProfiled() {
+    AtomicReference<PipelineProfile> profileRef = new AtomicReference<>();
+
+    Stream<String> stream = this.parallelStreamSupport.map(s -> s);
+
+    ((ParallelStreamSupport<String>) stream).profile(profileRef::set).forEach(s -> {
+    });
+
+    assertEquals("forEach", profileRef.get().getOperation());
+    assertEquals(emptyList(), profileRef.get().getStages());
+  }
+
+  private static <E> void splitRecursively(Spliterator<E> spliterator, int depth, List<Spliterator<E>> leaves) {
+    Spliterator<E> prefix = depth > 0 ? spliterator.trySplit() : null;
+    if (prefix == null) {
+      leaves.add(spliterator);
+    } else {
+      splitRecursively(prefix, depth - 1, leaves);
+      splitRecursively(spliterator, depth - 1, leaves);
+    }
+  }
+
+  private static <E> E delayed(E value, long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return value;
+  }
 }
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SlowOperationDetectorTest {
+
+  private static final Logger LOGGER = Logger.getLogger(SlowOperationDetector.class.getName());
+
+  private ForkJoinPool workerPool;
+  private List<LogRecord> records;
+  private Handler handler;
+  private boolean useParentHandlers;
+
+  @BeforeEach
+  void before() {
+    this.workerPool = new ForkJoinPool(2);
+    this.records = new CopyOnWriteArrayList<>();
+    this.handler = new Handler() {
+      @Override
+      public void publish(LogRecord record) {
+        SlowOperationDetectorTest.this.records.add(record);
+      }
+
+      @Override
+      public void flush() {
+      }
+
+      @Override
+      public void close() {
+      }
+    };
+    LOGGER.addHandler(this.handler);
+    // Keep the reports with their stack traces out of the build output
+    this.useParentHandlers = LOGGER.getUseParentHandlers();
+    LOGGER.setUseParentHandlers(false);
+  }
+
+  @AfterEach
+  void after() throws InterruptedException {
+    SlowOperationDetector.disable();
+    LOGGER.removeHandler(this.handler);
+    LOGGER.setUseParentHandlers(this.useParentHandlers);
+    this.workerPool.shutdown();
+    this.workerPool.awaitTermination(1, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void slowOperation() {
+    SlowOperationDetector.enable(Duration.ofMillis(20));
+
+    ParallelIntStreamSupport.range(0, 2, this.workerPool).forEach(i -> sleep(300));
+
+    assertEquals(1, this.records.size());
+    LogRecord record = this.records.get(0);
+    assertEquals(Level.WARNING, record.getLevel());
+    assertThat(record.getMessage(), startsWith("Terminal operation forEach on ParallelIntStreamSupport in "
+        + TerminalOperationMonitor.poolName(this.workerPool) + " has been running for "));
+    assertThat(record.getMessage(), containsString("stream created at " + getClass().getName() + ".slowOperation("));
+    assertThat(record.getMessage(), containsString("\"" + Thread.currentThread().getName() + "\" (caller)"));
+    assertThat(record.getMessage(), containsString("\" (worker) TIMED_WAITING"));
+    assertThat(record.getMessage(), containsString("/java.lang.Thread.sleep("));
+  }
+
+  @Test
+  void fastOperation() {
+    SlowOperationDetector.enable(Duration.ofSeconds(10));
+
+    assertEquals(4950, ParallelIntStreamSupport.range(0, 100, this.workerPool).sum());
+    SlowOperationDetector.active.check();
+
+    assertTrue(this.records.isEmpty());
+  }
+
+  @Test
+  void streamCreatedBeforeEnabled() {
+    ParallelIntStreamSupport stream = new ParallelIntStreamSupport(IntStream.range(0, 2).parallel(), this.workerPool);
+    assertNull(stream.callSite);
+
+    SlowOperationDetector.enable(Duration.ofMillis(20));
+    stream.forEach(i -> sleep(300));
+
+    assertEquals(1, this.records.size());
+    assertFalse(this.records.get(0).getMessage().contains("stream created at"));
+  }
+
+  @Test
+  void disable() {
+    SlowOperationDetector.enable(Duration.ofMillis(20));
+    assertTrue(SlowOperationDetector.isEnabled());
+
+    SlowOperationDetector.disable();
+    ParallelIntStreamSupport.range(0, 2, this.workerPool).forEach(i -> sleep(100));
+
+    assertFalse(SlowOperationDetector.isEnabled());
+    assertTrue(this.records.isEmpty());
+  }
+
+  @Test
+  void invalidThreshold() {
+    assertThrows(IllegalArgumentException.class, () -> SlowOperationDetector.enable(Duration.ZERO));
+    assertThrows(NullPointerException.class, () -> SlowOperationDetector.enable(null));
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
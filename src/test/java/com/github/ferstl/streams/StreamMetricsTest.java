@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StreamMetricsTest {
+
+  private static volatile Object sink;
+
+  private ForkJoinPool workerPool;
+  private List<TerminalOperationMetrics> metrics;
+
+  @BeforeEach
+  void before() {
+    this.workerPool = new ForkJoinPool(2);
+    this.metrics = new CopyOnWriteArrayList<>();
+    StreamMetrics.setListener(this.metrics::add);
+  }
+
+  @AfterEach
+  void after() throws InterruptedException {
+    StreamMetrics.setListener(null);
+    StreamMetrics.setAllocationTracking(false);
+    this.workerPool.shutdown();
+    this.workerPool.awaitTermination(1, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void parallelTerminalOperation() {
+    List<Integer> result = ParallelStreamSupport.parallelStream(asList(1, 2, 3), this.workerPool)
+        .map(i -> i * 2)
+        .collect(toList());
+
+    assertEquals(asList(2, 4, 6), result);
+    assertEquals(1, this.metrics.size());
+    TerminalOperationMetrics metrics = this.metrics.get(0);
+    assertEquals("collect", metrics.getOperation());
+    assertSame(ParallelStreamSupport.class, metrics.getStreamType());
+    assertSame(this.workerPool, metrics.getWorkerPool());
+    assertTrue(metrics.isParallel());
+    assertTrue(metrics.getQueueWaitTime() >= 0);
+    assertTrue(metrics.getWallTime() >= metrics.getQueueWaitTime());
+    assertTrue(metrics.getStealCount() >= 0);
+    assertEquals(-1, metrics.getAllocatedBytes());
+    assertNull(metrics.getFailure());
+  }
+
+  @Test
+  void sequentialTerminalOperation() {
+    long sum = ParallelIntStreamSupport.range(0, 100, this.workerPool).sequential().asLongStream().sum();
+
+    assertEquals(4950, sum);
+    TerminalOperationMetrics metrics = this.metrics.get(0);
+    assertEquals("sum", metrics.getOperation());
+    assertSame(ParallelLongStreamSupport.class, metrics.getStreamType());
+    assertFalse(metrics.isParallel());
+    assertEquals(0, metrics.getQueueWaitTime());
+  }
+
+  @Test
+  void failedTerminalOperation() {
+    IllegalStateException failure = new IllegalStateException("failed");
+
+    assertThrows(IllegalStateException.class, () -> ParallelIntStreamSupport.range(0, 100, this.workerPool)
+        .forEach(i -> {
+          throw failure;
+        }));
+
+    TerminalOperationMetrics metrics = this.metrics.get(0);
+    assertEquals("forEach", metrics.getOperation());
+    assertTrue(metrics.getFailure() instanceof IllegalStateException);
+  }
+
+  @Test
+  void operationNamesOfDelegatingOperations() {
+    ((ParallelIntStreamSupport) ParallelIntStreamSupport.range(0, 100, this.workerPool)).topK(3);
+    ((ParallelLongStreamSupport) ParallelLongStreamSupport.range(0, 100, this.workerPool)).bottomK(3);
+    ((ParallelDoubleStreamSupport) ParallelDoubleStreamSupport.parallelStream(new double[]{1.0, 2.0}, this.workerPool))
+        .topK(1);
+    ((ParallelIntStreamSupport) ParallelIntStreamSupport.range(0, 100, this.workerPool)).histogram(new int[]{50});
+    ((ParallelIntStreamSupport) ParallelIntStreamSupport.range(0, 100, this.workerPool)).countByBucket(2, i -> i % 2);
+    ((ParallelLongStreamSupport) ParallelLongStreamSupport.range(0, 100, this.workerPool)).quantiles(0.5);
+
+    assertEquals(asList("topK", "bottomK", "topK", "histogram", "countByBucket", "quantiles"),
+        this.metrics.stream().map(TerminalOperationMetrics::getOperation).collect(toList()));
+  }
+
+  @Test
+  void sizedCount() {
+    long count = ParallelStreamSupport.parallelStream(asList(1, 2, 3), this.workerPool).map(i -> i * 2).count();
+    long intCount = ParallelIntStreamSupport.range(0, 100, this.workerPool).count();
+
+    assertEquals(3, count);
+    assertEquals(100, intCount);
+    assertEquals(2, this.metrics.size());
+    assertEquals("count", this.metrics.get(0).getOperation());
+    assertSame(ParallelStreamSupport.class, this.metrics.get(0).getStreamType());
+    assertEquals("count", this.metrics.get(1).getOperation());
+    assertSame(ParallelIntStreamSupport.class, this.metrics.get(1).getStreamType());
+  }
+
+  @Test
+  void failingListener() {
+    StreamMetrics.setListener(metrics -> {
+      throw new IllegalArgumentException("listener");
+    });
+
+    assertThrows(IllegalArgumentException.class, () -> ParallelStreamSupport.parallelStream(asList(1, 2), this.workerPool)
+        .filter(i -> i > 1)
+        .count());
+  }
+
+  @Test
+  void failingListenerWithOtherConsumers() {
+    StreamMetrics.setListener(metrics -> {
+      throw new IllegalArgumentException("listener");
+    });
+    List<ExecutionReport> reports = new CopyOnWriteArrayList<>();
+    List<PipelineProfile> profiles = new CopyOnWriteArrayList<>();
+    ParallelIntStreamSupport stream = new ParallelIntStreamSupport(IntStream.range(0, 100).parallel(), this.workerPool);
+    stream.profile(profiles::add).map(i -> i);
+    stream.explain(report -> {
+      reports.add(report);
+      throw new IllegalStateException("report");
+    });
+
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class, stream::sum);
+
+    // The consumers after the failing listener are notified as well
+    assertEquals(1, reports.size());
+    assertEquals(1, profiles.size());
+    assertEquals(1, e.getSuppressed().length);
+    assertEquals("report", e.getSuppressed()[0].getMessage());
+  }
+
+  @Test
+  void disabledMetrics() {
+    StreamMetrics.setListener(null);
+
+    ParallelStreamSupport.parallelStream(asList(1, 2, 3), this.workerPool).collect(toList());
+
+    assertNull(StreamMetrics.getListener());
+    assertTrue(this.metrics.isEmpty());
+  }
+
+  @Test
+  void allocationTracking() {
+    StreamMetrics.setAllocationTracking(true);
+
+    long count = ParallelIntStreamSupport.range(0, 1000, this.workerPool)
+        .mapToObj(i -> new byte[10000])
+        .filter(bytes -> bytes.length > 0)
+        .count();
+
+    assertEquals(1000, count);
+    assertTrue(StreamMetrics.isAllocationTracking());
+    // 1000 arrays of 10000 bytes are allocated in the leaves
+    long allocatedBytes = this.metrics.get(0).getAllocatedBytes();
+    assertTrue(allocatedBytes >= 10_000_000 && allocatedBytes < 20_000_000, "Allocated bytes: " + allocatedBytes);
+  }
+
+  @Test
+  void allocationTrackingSequential() {
+    StreamMetrics.setAllocationTracking(true);
+
+    ParallelIntStreamSupport.range(0, 1000, this.workerPool).sequential().forEach(i -> blackhole(new byte[10000]));
+
+    long allocatedBytes = this.metrics.get(0).getAllocatedBytes();
+    assertTrue(allocatedBytes >= 10_000_000 && allocatedBytes < 20_000_000, "Allocated bytes: " + allocatedBytes);
+  }
+
+  private static void blackhole(Object value) {
+    sink = value;
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WorkerPoolMonitoringTest {
+
+  private final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+  private ForkJoinPool workerPool;
+
+  @BeforeEach
+  void before() {
+    this.workerPool = new ForkJoinPool(2);
+    WorkerPoolMonitoring.enable();
+  }
+
+  @AfterEach
+  void after() throws InterruptedException {
+    WorkerPoolMonitoring.disable();
+    this.workerPool.shutdown();
+    this.workerPool.awaitTermination(1, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void terminalOperations() throws JMException {
+    ObjectName name = WorkerPoolMonitoring.objectName(this.workerPool);
+
+    assertEquals(4950, ParallelIntStreamSupport.range(0, 100, this.workerPool).sum());
+    assertEquals(100, ParallelIntStreamSupport.range(0, 100, this.workerPool).filter(i -> true).count());
+    assertThrows(IllegalStateException.class, () -> ParallelIntStreamSupport.range(0, 100, this.workerPool).forEach(i -> {
+      throw new IllegalStateException("boom");
+    }));
+
+    assertEquals("com.github.ferstl.streams:type=WorkerPool,name=" + WorkerPoolMonitoring.poolName(this.workerPool), name.toString());
+    assertEquals(WorkerPoolMonitoring.poolName(this.workerPool), this.mBeanServer.getAttribute(name, "Name"));
+    assertEquals(2, this.mBeanServer.getAttribute(name, "Parallelism"));
+    assertEquals(3L, this.mBeanServer.getAttribute(name, "CompletedOperations"));
+    assertEquals(1L, this.mBeanServer.getAttribute(name, "FailedOperations"));
+    assertEquals(0L, this.mBeanServer.getAttribute(name, "InFlightOperations"));
+    assertTrue((Double) this.mBeanServer.getAttribute(name, "Throughput") > 0);
+    double median = (Double) this.mBeanServer.getAttribute(name, "LatencyMedian");
+    double max = (Double) this.mBeanServer.getAttribute(name, "LatencyMax");
+    assertTrue(median > 0);
+    assertTrue(max >= median);
+    assertTrue((Long) this.mBeanServer.getAttribute(name, "StealCount") >= 0);
+  }
+
+  @Test
+  void inFlightOperations() {
+    WorkerPoolStats stats = WorkerPoolMonitoring.stats(this.workerPool);
+
+    ParallelIntStreamSupport.range(0, 10, this.workerPool).forEach(i -> assertEquals(1, stats.getInFlightOperations()));
+
+    assertEquals(0, stats.getInFlightOperations());
+  }
+
+  @Test
+  void latencyPercentiles() {
+    WorkerPoolStats stats = WorkerPoolMonitoring.stats(this.workerPool);
+    for (int i = 1; i <= 2000; i++) {
+      stats.operationStarted();
+      stats.operationCompleted(i * 1_000_000L, System.nanoTime(), false);
+    }
+
+    // Only the most recent 1024 operations with latencies from 977 ms to 2000 ms are considered
+    assertEquals(1488.0, stats.getLatencyMedian());
+    assertEquals(1949.0, stats.getLatency95thPercentile());
+    assertEquals(1990.0, stats.getLatency99thPercentile());
+    assertEquals(2000.0, stats.getLatencyMax());
+    assertEquals(2000, stats.getCompletedOperations());
+  }
+
+  @Test
+  void statsAreRegisteredOnce() throws InterruptedException {
+    ForkJoinPool otherPool = new ForkJoinPool(1);
+    try {
+      WorkerPoolStats stats = WorkerPoolMonitoring.stats(this.workerPool);
+      WorkerPoolStats otherStats = WorkerPoolMonitoring.stats(otherPool);
+
+      assertSame(stats, WorkerPoolMonitoring.stats(this.workerPool));
+      assertSame(otherStats, WorkerPoolMonitoring.stats(otherPool));
+      assertNotSame(stats, otherStats);
+
+      WorkerPoolMonitoring.disable();
+      WorkerPoolMonitoring.enable();
+      assertNotSame(stats, WorkerPoolMonitoring.stats(this.workerPool));
+    } finally {
+      otherPool.shutdown();
+      otherPool.awaitTermination(1, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  void terminatedPoolIsUnregistered() throws InterruptedException {
+    ForkJoinPool otherPool = new ForkJoinPool(1);
+    ParallelIntStreamSupport.range(0, 10, otherPool).sum();
+    assertTrue(this.mBeanServer.isRegistered(WorkerPoolMonitoring.objectName(otherPool)));
+
+    otherPool.shutdown();
+    otherPool.awaitTermination(1, TimeUnit.SECONDS);
+    ParallelIntStreamSupport.range(0, 10, this.workerPool).sum();
+
+    assertFalse(this.mBeanServer.isRegistered(WorkerPoolMonitoring.objectName(otherPool)));
+    assertTrue(this.mBeanServer.isRegistered(WorkerPoolMonitoring.objectName(this.workerPool)));
+  }
+
+  @Test
+  void disable() {
+    ParallelIntStreamSupport.range(0, 10, this.workerPool).sum();
+    assertTrue(WorkerPoolMonitoring.isEnabled());
+
+    WorkerPoolMonitoring.disable();
+
+    assertFalse(WorkerPoolMonitoring.isEnabled());
+    assertFalse(this.mBeanServer.isRegistered(WorkerPoolMonitoring.objectName(this.workerPool)));
+    ParallelIntStreamSupport.range(0, 10, this.workerPool).sum();
+    assertFalse(this.mBeanServer.isRegistered(WorkerPoolMonitoring.objectName(this.workerPool)));
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2016 Stefan Ferstl <st.ferstl@gmail.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package com.github.ferstl.streams;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs against the multi-release JAR since the events are only contained in its {@code META-INF/versions/11}
+ * directory.
+ */
+public class JfrEventsIT {
+
+  private static final String TERMINAL_OPERATION = "com.github.ferstl.streams.TerminalOperation";
+  private static final String LEAF = "com.github.ferstl.streams.Leaf";
+
+  private ForkJoinPool workerPool;
+  private Path file;
+
+  @BeforeEach
+  void before() throws IOException {
+    this.workerPool = new ForkJoinPool(2);
+    this.file = Files.createTempFile("parallel-stream-support", ".jfr");
+  }
+
+  @AfterEach
+  void after() throws IOException, InterruptedException {
+    Files.deleteIfExists(this.file);
+    this.workerPool.shutdown();
+    this.workerPool.awaitTermination(1, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void terminalOperationAndLeaves() throws IOException {
+    List<RecordedEvent> events = record(() -> assertEquals(499500, ParallelLongStreamSupport.range(0, 1000,
+        this.workerPool).sum()));
+
+    List<RecordedEvent> terminalOperations = events(events, TERMINAL_OPERATION);
+    assertEquals(1, terminalOperations.size());
+    RecordedEvent terminalOperation = terminalOperations.get(0);
+    assertEquals("sum", terminalOperation.getString("operation"));
+    assertEquals(ParallelLongStreamSupport.class.getName(), terminalOperation.getClass("streamType").getName());
+    assertEquals(TerminalOperationMonitor.poolName(this.workerPool), terminalOperation.getString("workerPool"));
+    assertEquals(2, terminalOperation.getInt("parallelism"));
+    assertTrue(terminalOperation.getBoolean("parallel"));
+    assertEquals(1000, terminalOperation.getLong("elements"));
+    assertTrue(terminalOperation.getDuration("queueWaitTime").toNanos() >= 0);
+    assertNull(terminalOperation.getString("failure"));
+
+    List<RecordedEvent> leaves = events(events, LEAF);
+    assertFalse(leaves.isEmpty());
+    assertEquals(1000, leaves.stream().mapToLong(leaf -> leaf.getLong("elements")).sum());
+    for (RecordedEvent leaf : leaves) {
+      assertEquals("sum", leaf.getString("operation"));
+      assertEquals(TerminalOperationMonitor.poolName(this.workerPool), leaf.getString("workerPool"));
+      assertTrue(leaf.getInt("depth") >= 0);
+      assertTrue(leaf.getThread().getJavaName().startsWith("ForkJoinPool-"));
+    }
+  }
+
+  @Test
+  void failure() throws IOException {
+    List<RecordedEvent> events = record(() -> assertThrows(IllegalStateException.class,
+        () -> ParallelIntStreamSupport.range(0, 10, this.workerPool).sequential().forEach(i -> {
+          throw new IllegalStateException("boom");
+        })));
+
+    List<RecordedEvent> terminalOperations = events(events, TERMINAL_OPERATION);
+    assertEquals(1, terminalOperations.size());
+    assertEquals("forEach", terminalOperations.get(0).getString("operation"));
+    assertFalse(terminalOperations.get(0).getBoolean("parallel"));
+    assertEquals(IllegalStateException.class.getName(), terminalOperations.get(0).getString("failure"));
+  }
+
+  @Test
+  void disabled() {
+    assertFalse(JfrEvents.isEnabled());
+
+    try (Recording recording = new Recording()) {
+      recording.enable(LEAF);
+      recording.start();
+
+      assertTrue(JfrEvents.isEnabled());
+      assertTrue(JfrEvents.isLeafEnabled());
+    }
+  }
+
+  private List<RecordedEvent> record(Runnable action) throws IOException {
+    try (Recording recording = new Recording()) {
+      recording.enable(TERMINAL_OPERATION).withThreshold(Duration.ZERO);
+      recording.enable(LEAF).withThreshold(Duration.ZERO);
+      recording.start();
+      action.run();
+      recording.stop();
+      recording.dump(this.file);
+    }
+
+    return RecordingFile.readAllEvents(this.file);
+  }
+
+  private static List<RecordedEvent> events(List<RecordedEvent> events, String name) {
+    return events.stream()
+        .filter(event -> name.equals(event.getEventType().getName()))
+        .collect(Collectors.toList());
+  }
+}